@@ -0,0 +1,333 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.cache;
+
+import static com.couchbase.client.java.query.dsl.Expression.i;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.couchbase.client.java.AsyncBucket;
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.document.Document;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.document.SerializableDocument;
+import com.couchbase.client.java.document.json.JsonArray;
+import com.couchbase.client.java.error.DocumentAlreadyExistsException;
+import com.couchbase.client.java.error.DocumentDoesNotExistException;
+import com.couchbase.client.java.query.N1qlParams;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.consistency.ScanConsistency;
+import rx.Observable;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.couchbase.core.BucketCallback;
+import org.springframework.data.couchbase.core.CouchbaseOperations;
+import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+import org.springframework.data.couchbase.core.convert.translation.TranslationService;
+import org.springframework.data.couchbase.core.mapping.KeySettings;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * A {@link org.springframework.cache.Cache} storing its entries as documents of a Couchbase bucket, see
+ * {@link CouchbaseCacheConfiguration} for the available settings.
+ * <p/>
+ * The document key of an entry is made of the common prefix of the {@link KeySettings}, the cache name, the
+ * <code>toString()</code> of the cache key and the common suffix, separated by the delimiter. This allows to
+ * {@link #evictByPrefix(String) evict} a whole range of entries with a single N1QL statement, which requires an
+ * index on <code>META().id</code> (the primary index will do).
+ * <p/>
+ * When the local cache is enabled, the values read or written by this instance are also kept in memory, as is: the
+ * callers must treat them as immutable.
+ */
+public class CouchbaseCache extends AbstractValueAdaptingCache {
+
+  private static final String JSON_NULL = "null";
+
+  private final String name;
+  private final CouchbaseOperations operations;
+  private final TranslationService translationService;
+  private final CouchbaseCacheConfiguration configuration;
+  private final String keyPrefix;
+  private final String keySuffix;
+  private final ConcurrentMap<String, LocalEntry> localCache;
+
+  public CouchbaseCache(String name, CouchbaseOperations operations, TranslationService translationService,
+                        CouchbaseCacheConfiguration configuration) {
+    super(configuration.getAllowCacheNullValues());
+    Assert.hasText(name, "The cache name must not be empty");
+    Assert.notNull(operations, "CouchbaseOperations must not be null");
+    Assert.notNull(translationService, "TranslationService must not be null");
+    this.name = name;
+    this.operations = operations;
+    this.translationService = translationService;
+    this.configuration = configuration;
+
+    KeySettings keySettings = configuration.getKeySettings() == null ? KeySettings.build()
+        : configuration.getKeySettings();
+    String delimiter = keySettings.delimiter();
+    this.keyPrefix = (StringUtils.hasText(keySettings.prefix()) ? keySettings.prefix() + delimiter : "")
+        + name + delimiter;
+    this.keySuffix = StringUtils.hasText(keySettings.suffix()) ? delimiter + keySettings.suffix() : "";
+    this.localCache = configuration.isLocalCacheEnabled() ? new ConcurrentHashMap<String, LocalEntry>() : null;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Bucket getNativeCache() {
+    return operations.getCouchbaseBucket();
+  }
+
+  public CouchbaseCacheConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  @Override
+  protected Object lookup(Object key) {
+    return lookup(key, configuration.getValueType());
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Class<T> type) {
+    Object value = fromStoreValue(lookup(key, type == null ? configuration.getValueType() : type));
+    if (value != null && type != null && !type.isInstance(value)) {
+      throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+    }
+    return (T) value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized <T> T get(Object key, Callable<T> valueLoader) {
+    ValueWrapper result = get(key);
+    if (result != null) {
+      return (T) result.get();
+    }
+    T value;
+    try {
+      value = valueLoader.call();
+    } catch (Exception e) {
+      throw new ValueRetrievalException(key, valueLoader, e);
+    }
+    put(key, value);
+    return value;
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    final String id = createDocumentId(key);
+    final Object storeValue = toStoreValue(value);
+    final Document<?> document = toDocument(id, storeValue);
+    operations.execute(new BucketCallback<Document<?>>() {
+      @Override
+      public Document<?> doInBucket() {
+        return operations.getCouchbaseBucket().upsert(document);
+      }
+    });
+    putLocal(id, storeValue);
+  }
+
+  /**
+   * Store the value only if there is no entry for the key yet, relying on the insert semantics of the bucket rather
+   * than on a lookup followed by a write.
+   *
+   * @return the existing value, or null if the value has been stored.
+   */
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    long timeout = operations.getCouchbaseBucket().environment().kvTimeout();
+    return putIfAbsentAsync(key, value).timeout(timeout, TimeUnit.MILLISECONDS).toBlocking().singleOrDefault(null);
+  }
+
+  /**
+   * Asynchronous variant of {@link #putIfAbsent(Object, Object)}. When the existing entry expires or is evicted
+   * between the failed insert and its lookup, the insert is attempted again.
+   *
+   * @return an observable emitting the existing value, or completing empty if the value has been stored.
+   */
+  public Observable<ValueWrapper> putIfAbsentAsync(Object key, Object value) {
+    final String id = createDocumentId(key);
+    final Object storeValue = toStoreValue(value);
+    final AsyncBucket bucket = operations.getCouchbaseBucket().async();
+    return bucket.insert(toDocument(id, storeValue))
+        .flatMap(inserted -> {
+          putLocal(id, storeValue);
+          return Observable.<ValueWrapper>empty();
+        })
+        .onErrorResumeNext(e -> {
+          if (e instanceof DocumentAlreadyExistsException) {
+            return bucket.get(id, getDocumentClass())
+                .map(existing -> toValueWrapper(fromDocument(existing, configuration.getValueType())))
+                .switchIfEmpty(Observable.defer(() -> putIfAbsentAsync(key, value)));
+          }
+          return Observable.<ValueWrapper>error(e);
+        });
+  }
+
+  @Override
+  public void evict(Object key) {
+    final String id = createDocumentId(key);
+    if (localCache != null) {
+      localCache.remove(id);
+    }
+    operations.execute(new BucketCallback<Boolean>() {
+      @Override
+      public Boolean doInBucket() {
+        try {
+          operations.getCouchbaseBucket().remove(id);
+          return true;
+        } catch (DocumentDoesNotExistException e) {
+          return false;
+        }
+      }
+    });
+  }
+
+  /**
+   * Remove all the entries of this cache.
+   */
+  @Override
+  public void clear() {
+    evictByPrefix("");
+  }
+
+  /**
+   * Remove all the entries of this cache whose key starts with the given prefix, with a single N1QL DELETE.
+   *
+   * @param prefix the prefix of the cache keys to evict, empty to evict the whole cache.
+   * @return the number of evicted entries.
+   */
+  public long evictByPrefix(String prefix) {
+    String idPrefix = keyPrefix + prefix;
+    if (localCache != null) {
+      localCache.keySet().removeIf(id -> id.startsWith(idPrefix));
+    }
+
+    String statement = "DELETE FROM " + i(operations.getCouchbaseBucket().name()) + " WHERE META().id LIKE $1";
+    N1qlQuery query = N1qlQuery.parameterized(statement, JsonArray.from(escapeLikePattern(idPrefix) + "%"),
+        N1qlParams.build().consistency(ScanConsistency.REQUEST_PLUS));
+    N1qlQueryResult result = operations.queryN1QL(query);
+    if (!result.finalSuccess()) {
+      throw new CouchbaseQueryExecutionException("Unable to evict the entries of cache " + name + " starting with "
+          + prefix + ": " + result.errors());
+    }
+    return result.info().mutationCount();
+  }
+
+  static String escapeLikePattern(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  String createDocumentId(Object key) {
+    Assert.notNull(key, "The cache key must not be null");
+    return keyPrefix + key + keySuffix;
+  }
+
+  private Object lookup(Object key, Class<?> type) {
+    final String id = createDocumentId(key);
+    if (localCache != null) {
+      LocalEntry local = localCache.get(id);
+      if (local != null) {
+        if (System.nanoTime() - local.storedAt >= configuration.getLocalCacheTtl().toNanos()) {
+          localCache.remove(id, local);
+        } else if (local.value == NullValue.INSTANCE || type.isInstance(local.value)) {
+          return local.value;
+        }
+      }
+    }
+
+    Document<?> document = operations.execute(new BucketCallback<Document<?>>() {
+      @Override
+      public Document<?> doInBucket() {
+        return operations.getCouchbaseBucket().get(id, getDocumentClass());
+      }
+    });
+    Object value = fromDocument(document, type);
+    if (value != null && type.equals(configuration.getValueType())) {
+      putLocal(id, value);
+    }
+    return value;
+  }
+
+  private void putLocal(String id, Object storeValue) {
+    if (localCache == null) {
+      return;
+    }
+    localCache.put(id, new LocalEntry(storeValue, System.nanoTime()));
+    Iterator<String> ids = localCache.keySet().iterator();
+    while (localCache.size() > configuration.getLocalCacheSize() && ids.hasNext()) {
+      String evicted = ids.next();
+      if (!evicted.equals(id)) {
+        ids.remove();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Class<Document<?>> getDocumentClass() {
+    Class<?> documentClass = configuration.getValueFormat() == CouchbaseCacheConfiguration.ValueFormat.JSON
+        ? RawJsonDocument.class : SerializableDocument.class;
+    return (Class<Document<?>>) documentClass;
+  }
+
+  private Document<?> toDocument(String id, Object storeValue) {
+    int expiry = configuration.getExpiry();
+    if (configuration.getValueFormat() == CouchbaseCacheConfiguration.ValueFormat.JSON) {
+      String content = storeValue == NullValue.INSTANCE ? JSON_NULL : translationService.encodeFragment(storeValue);
+      return RawJsonDocument.create(id, expiry, content);
+    }
+    if (!(storeValue instanceof Serializable)) {
+      throw new IllegalArgumentException("Values of cache " + name + " must be Serializable, or the cache must be "
+          + "configured with the JSON format: " + storeValue.getClass().getName());
+    }
+    return SerializableDocument.create(id, expiry, (Serializable) storeValue);
+  }
+
+  private Object fromDocument(Document<?> document, Class<?> type) {
+    if (document == null) {
+      return null;
+    }
+    if (configuration.getValueFormat() == CouchbaseCacheConfiguration.ValueFormat.JSON) {
+      String content = (String) document.content();
+      return JSON_NULL.equals(content) ? NullValue.INSTANCE : translationService.decodeFragment(content, type);
+    }
+    return document.content();
+  }
+
+  private static final class LocalEntry {
+
+    private final Object value;
+    private final long storedAt;
+
+    LocalEntry(Object value, long storedAt) {
+      this.value = value;
+      this.storedAt = storedAt;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.cache;
+
+import java.time.Duration;
+
+import org.springframework.data.couchbase.core.mapping.KeySettings;
+import org.springframework.util.Assert;
+
+/**
+ * The settings of a {@link CouchbaseCache}. Instances are immutable, each setter returns a modified copy so that a
+ * default configuration can safely be shared and customized per cache:
+ * <pre>
+ * CouchbaseCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)).json(Beer.class);
+ * </pre>
+ */
+public class CouchbaseCacheConfiguration {
+
+  /**
+   * Couchbase interprets expiries longer than 30 days as an absolute unix time.
+   */
+  static final long RELATIVE_EXPIRY_LIMIT_SECONDS = 30L * 24 * 60 * 60;
+
+  private final Duration entryTtl;
+  private final KeySettings keySettings;
+  private final ValueFormat valueFormat;
+  private final Class<?> valueType;
+  private final boolean allowNullValues;
+  private final int localCacheSize;
+  private final Duration localCacheTtl;
+
+  private CouchbaseCacheConfiguration(Duration entryTtl, KeySettings keySettings, ValueFormat valueFormat,
+                                      Class<?> valueType, boolean allowNullValues, int localCacheSize,
+                                      Duration localCacheTtl) {
+    this.entryTtl = entryTtl;
+    this.keySettings = keySettings;
+    this.valueFormat = valueFormat;
+    this.valueType = valueType;
+    this.allowNullValues = allowNullValues;
+    this.localCacheSize = localCacheSize;
+    this.localCacheTtl = localCacheTtl;
+  }
+
+  /**
+   * The default configuration: entries never expire, values are stored with java serialization, null values are
+   * cached and there is no local cache.
+   */
+  public static CouchbaseCacheConfiguration defaultCacheConfig() {
+    return new CouchbaseCacheConfiguration(Duration.ZERO, null, ValueFormat.SERIALIZED, Object.class, true, 0,
+        Duration.ZERO);
+  }
+
+  /**
+   * Set how long entries are kept, {@link Duration#ZERO} for no expiry.
+   */
+  public CouchbaseCacheConfiguration entryTtl(Duration ttl) {
+    Assert.isTrue(ttl != null && !ttl.isNegative(), "The TTL must not be null or negative");
+    return new CouchbaseCacheConfiguration(ttl, keySettings, valueFormat, valueType, allowNullValues, localCacheSize,
+        localCacheTtl);
+  }
+
+  /**
+   * Set the common prefix, suffix and delimiter of the document keys. The cache name is always part of the key,
+   * between the prefix and the cache key.
+   */
+  public CouchbaseCacheConfiguration keySettings(KeySettings keySettings) {
+    return new CouchbaseCacheConfiguration(entryTtl, keySettings, valueFormat, valueType, allowNullValues,
+        localCacheSize, localCacheTtl);
+  }
+
+  /**
+   * Store the values as JSON documents through the {@link org.springframework.data.couchbase.core.convert.translation.TranslationService},
+   * which makes them readable by other clients and by N1QL. Since JSON carries no type information, values are read
+   * back as the given type unless the caller asks for another one.
+   */
+  public CouchbaseCacheConfiguration json(Class<?> valueType) {
+    Assert.notNull(valueType, "The value type must not be null");
+    return new CouchbaseCacheConfiguration(entryTtl, keySettings, ValueFormat.JSON, valueType, allowNullValues,
+        localCacheSize, localCacheTtl);
+  }
+
+  /**
+   * Store the values as binary documents using java serialization, the values must be {@link java.io.Serializable}.
+   */
+  public CouchbaseCacheConfiguration serialized() {
+    return new CouchbaseCacheConfiguration(entryTtl, keySettings, ValueFormat.SERIALIZED, Object.class,
+        allowNullValues, localCacheSize, localCacheTtl);
+  }
+
+  /**
+   * Reject null values instead of caching them.
+   */
+  public CouchbaseCacheConfiguration disableCachingNullValues() {
+    return new CouchbaseCacheConfiguration(entryTtl, keySettings, valueFormat, valueType, false, localCacheSize,
+        localCacheTtl);
+  }
+
+  /**
+   * Keep up to <code>maxSize</code> values in memory for at most <code>ttl</code> in front of the bucket. The local
+   * cache is invalidated by the operations of this process only, so the TTL bounds the staleness of its values.
+   */
+  public CouchbaseCacheConfiguration localCache(int maxSize, Duration ttl) {
+    Assert.isTrue(maxSize > 0, "The local cache size must be positive");
+    Assert.isTrue(ttl != null && !ttl.isNegative() && !ttl.isZero(), "The local cache TTL must be positive");
+    return new CouchbaseCacheConfiguration(entryTtl, keySettings, valueFormat, valueType, allowNullValues, maxSize,
+        ttl);
+  }
+
+  public Duration getEntryTtl() {
+    return entryTtl;
+  }
+
+  public KeySettings getKeySettings() {
+    return keySettings;
+  }
+
+  public ValueFormat getValueFormat() {
+    return valueFormat;
+  }
+
+  public Class<?> getValueType() {
+    return valueType;
+  }
+
+  public boolean getAllowCacheNullValues() {
+    return allowNullValues;
+  }
+
+  public boolean isLocalCacheEnabled() {
+    return localCacheSize > 0;
+  }
+
+  public int getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  public Duration getLocalCacheTtl() {
+    return localCacheTtl;
+  }
+
+  /**
+   * @return the expiry to set on the documents, as expected by Couchbase.
+   */
+  int getExpiry() {
+    long seconds = entryTtl.getSeconds();
+    if (seconds == 0) {
+      return 0;
+    }
+    if (seconds > RELATIVE_EXPIRY_LIMIT_SECONDS) {
+      return (int) (System.currentTimeMillis() / 1000 + seconds);
+    }
+    return (int) seconds;
+  }
+
+  /**
+   * How the values of a {@link CouchbaseCache} are stored.
+   */
+  public enum ValueFormat {
+
+    /** Binary documents, using java serialization. */
+    SERIALIZED,
+
+    /** JSON documents, using the {@link org.springframework.data.couchbase.core.convert.translation.TranslationService}. */
+    JSON
+  }
+}
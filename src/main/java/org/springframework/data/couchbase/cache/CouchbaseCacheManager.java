@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.cache;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+import org.springframework.data.couchbase.core.CouchbaseOperations;
+import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
+import org.springframework.data.couchbase.core.convert.translation.TranslationService;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * A {@link org.springframework.cache.CacheManager} creating {@link CouchbaseCache CouchbaseCaches} on top of the
+ * bucket of a {@link CouchbaseOperations}.
+ * <p/>
+ * Caches can be declared upfront with their own {@link CouchbaseCacheConfiguration}, the other ones are created on
+ * first use with the default configuration unless {@link #setAllowInFlightCacheCreation(boolean) disabled}.
+ */
+public class CouchbaseCacheManager extends AbstractCacheManager {
+
+  private final CouchbaseOperations operations;
+  private final TranslationService translationService;
+  private final CouchbaseCacheConfiguration defaultConfiguration;
+  private final Map<String, CouchbaseCacheConfiguration> initialCacheConfigurations;
+  private boolean allowInFlightCacheCreation = true;
+
+  public CouchbaseCacheManager(CouchbaseOperations operations) {
+    this(operations, null, CouchbaseCacheConfiguration.defaultCacheConfig(),
+        Collections.<String, CouchbaseCacheConfiguration>emptyMap());
+  }
+
+  public CouchbaseCacheManager(CouchbaseOperations operations, CouchbaseCacheConfiguration defaultConfiguration) {
+    this(operations, null, defaultConfiguration, Collections.<String, CouchbaseCacheConfiguration>emptyMap());
+  }
+
+  /**
+   * @param operations the template whose bucket stores the cache entries.
+   * @param translationService the service used for the JSON values, a {@link JacksonTranslationService} if null.
+   * @param defaultConfiguration the configuration of the caches created on first use.
+   * @param initialCacheConfigurations the caches to create upfront, by name.
+   */
+  public CouchbaseCacheManager(CouchbaseOperations operations, TranslationService translationService,
+                               CouchbaseCacheConfiguration defaultConfiguration,
+                               Map<String, CouchbaseCacheConfiguration> initialCacheConfigurations) {
+    Assert.notNull(operations, "CouchbaseOperations must not be null");
+    Assert.notNull(defaultConfiguration, "The default cache configuration must not be null");
+    this.operations = operations;
+    this.translationService = translationService == null ? getDefaultTranslationService() : translationService;
+    this.defaultConfiguration = defaultConfiguration;
+    this.initialCacheConfigurations = new LinkedHashMap<String, CouchbaseCacheConfiguration>(initialCacheConfigurations);
+  }
+
+  private TranslationService getDefaultTranslationService() {
+    JacksonTranslationService t = new JacksonTranslationService();
+    t.afterPropertiesSet();
+    return t;
+  }
+
+  /**
+   * Whether caches that haven't been declared upfront are created on first use. Default is true.
+   */
+  public void setAllowInFlightCacheCreation(boolean allowInFlightCacheCreation) {
+    this.allowInFlightCacheCreation = allowInFlightCacheCreation;
+  }
+
+  @Override
+  protected Collection<? extends Cache> loadCaches() {
+    List<CouchbaseCache> caches = new ArrayList<CouchbaseCache>(initialCacheConfigurations.size());
+    for (Map.Entry<String, CouchbaseCacheConfiguration> entry : initialCacheConfigurations.entrySet()) {
+      caches.add(createCache(entry.getKey(), entry.getValue()));
+    }
+    return caches;
+  }
+
+  @Override
+  protected Cache getMissingCache(String name) {
+    return allowInFlightCacheCreation ? createCache(name, defaultConfiguration) : null;
+  }
+
+  protected CouchbaseCache createCache(String name, CouchbaseCacheConfiguration configuration) {
+    if (configuration.getValueFormat() == CouchbaseCacheConfiguration.ValueFormat.JSON) {
+      ensureFragmentsSupported(name);
+    }
+    return new CouchbaseCache(name, operations, translationService, configuration);
+  }
+
+  /**
+   * JSON caches encode their values as ad-hoc fragments, which the {@link TranslationService} doesn't support unless
+   * it overrides {@link TranslationService#encodeFragment(Object)}: fail when the cache is created rather than on its
+   * first write.
+   */
+  private void ensureFragmentsSupported(String name) {
+    Method encodeFragment = ReflectionUtils.findMethod(translationService.getClass(), "encodeFragment", Object.class);
+    if (encodeFragment == null || encodeFragment.getDeclaringClass() == TranslationService.class) {
+      throw new IllegalStateException("Cache " + name + " stores JSON values, which " + translationService.getClass()
+          .getName() + " can't encode: use a JacksonTranslationService or the SERIALIZED value format");
+    }
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the Couchbase backend of the Spring Cache abstraction.
+ */
+package org.springframework.data.couchbase.cache;
@@ -22,6 +22,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.support.SlowQueryLog;
+import org.springframework.data.couchbase.core.support.ViewResultMapper;
 import org.springframework.data.couchbase.repository.CouchbaseRepository;
 import org.springframework.data.couchbase.repository.config.RepositoryOperationsMapping;
 
@@ -42,8 +44,8 @@ public abstract class AbstractCouchbaseDataConfiguration extends CouchbaseConfig
   /**
    * Creates a {@link CouchbaseTemplate}.
    *
-   * This uses {@link #mappingCouchbaseConverter()}, {@link #translationService()} and {@link #getDefaultConsistency()}
-   * for construction.
+   * This uses {@link #mappingCouchbaseConverter()}, {@link #translationService()}, {@link #getDefaultConsistency()},
+   * {@link #couchbaseMetrics()}, {@link #decodingFailureHandler()} and {@link #slowQueryLog()} for construction.
    *
    * Additionally, it will expect injection of a {@link ClusterInfo} and a {@link Bucket} beans from the context (most
    * probably from another configuration). For a self-sufficient configuration that defines such beans, see
@@ -56,9 +58,21 @@ public abstract class AbstractCouchbaseDataConfiguration extends CouchbaseConfig
     CouchbaseTemplate template = new CouchbaseTemplate(couchbaseConfigurer().couchbaseClusterInfo(),
             couchbaseConfigurer().couchbaseClient(), mappingCouchbaseConverter(), translationService());
     template.setDefaultConsistency(getDefaultConsistency());
+    template.setMetrics(couchbaseMetrics());
+    template.setViewResultMapper(new ViewResultMapper(decodingFailureHandler()));
+    template.setSlowQueryLog(slowQueryLog());
     return template;
   }
 
+  /**
+   * Configures the log of the N1QL queries that are slower than a threshold.
+   *
+   * @return the {@link SlowQueryLog}, null by default to disable it.
+   */
+  protected SlowQueryLog slowQueryLog() {
+    return null;
+  }
+
   /**
    * Creates the {@link RepositoryOperationsMapping} bean which will be used by the framework to choose which
    * {@link CouchbaseOperations} should back which {@link CouchbaseRepository}.
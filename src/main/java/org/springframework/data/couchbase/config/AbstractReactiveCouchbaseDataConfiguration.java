@@ -18,6 +18,7 @@ package org.springframework.data.couchbase.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.couchbase.core.RxJavaCouchbaseTemplate;
+import org.springframework.data.couchbase.core.support.ViewResultMapper;
 import org.springframework.data.couchbase.repository.ReactiveCouchbaseRepository;
 import org.springframework.data.couchbase.repository.config.ReactiveRepositoryOperationsMapping;
 import org.springframework.data.couchbase.core.RxJavaCouchbaseOperations;
@@ -35,8 +36,8 @@ public abstract class AbstractReactiveCouchbaseDataConfiguration extends Couchba
     /**
      * Creates a {@link RxJavaCouchbaseTemplate}.
      *
-     * This uses {@link #mappingCouchbaseConverter()}, {@link #translationService()} and {@link #getDefaultConsistency()}
-     * for construction.
+     * This uses {@link #mappingCouchbaseConverter()}, {@link #translationService()}, {@link #getDefaultConsistency()},
+     * {@link #couchbaseMetrics()} and {@link #decodingFailureHandler()} for construction.
      *
      *
      * @throws Exception on Bean construction failure.
@@ -46,6 +47,8 @@ public abstract class AbstractReactiveCouchbaseDataConfiguration extends Couchba
         RxJavaCouchbaseTemplate template = new RxJavaCouchbaseTemplate(couchbaseConfigurer().couchbaseClusterInfo(),
                 couchbaseConfigurer().couchbaseClient(), mappingCouchbaseConverter(), translationService());
         template.setDefaultConsistency(getDefaultConsistency());
+        template.setMetrics(couchbaseMetrics());
+        template.setViewResultMapper(new ViewResultMapper(decodingFailureHandler()));
         return template;
     }
 
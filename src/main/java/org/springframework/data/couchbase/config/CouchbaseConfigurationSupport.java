@@ -17,6 +17,7 @@ package org.springframework.data.couchbase.config;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.couchbase.client.java.query.N1qlQuery;
@@ -28,15 +29,21 @@ import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.data.annotation.Persistent;
 import org.springframework.data.convert.CustomConversions;
 import org.springframework.data.couchbase.core.convert.CouchbaseCustomConversions;
+import org.springframework.data.couchbase.core.convert.DocumentMigrations;
 import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.encryption.FieldCryptoProvider;
 import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
 import org.springframework.data.couchbase.core.convert.translation.TranslationService;
 import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
 import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.data.couchbase.core.mapping.SparseMode;
 import org.springframework.data.couchbase.core.query.Consistency;
+import org.springframework.data.couchbase.core.query.N1qlCompositeIndexed;
 import org.springframework.data.couchbase.core.query.N1qlPrimaryIndexed;
 import org.springframework.data.couchbase.core.query.N1qlSecondaryIndexed;
 import org.springframework.data.couchbase.core.query.ViewIndexed;
+import org.springframework.data.couchbase.core.support.CouchbaseMetrics;
+import org.springframework.data.couchbase.core.support.DecodingFailureHandler;
 import org.springframework.data.couchbase.repository.support.IndexManager;
 import org.springframework.data.mapping.model.CamelCaseAbbreviatingFieldNamingStrategy;
 import org.springframework.data.mapping.model.FieldNamingStrategy;
@@ -94,9 +101,42 @@ public class CouchbaseConfigurationSupport {
     public MappingCouchbaseConverter mappingCouchbaseConverter() throws Exception {
         MappingCouchbaseConverter converter = new MappingCouchbaseConverter(couchbaseMappingContext(), typeKey());
         converter.setCustomConversions(customConversions());
+        converter.setCryptoProviders(cryptoProviders());
+        converter.setDocumentMigrations(documentMigrations());
+        converter.setSparseMode(sparseMode());
         return converter;
     }
 
+    /**
+     * The providers used by the {@link #mappingCouchbaseConverter()} to encrypt and decrypt the properties annotated
+     * with {@link org.springframework.data.couchbase.core.mapping.EncryptedField}. None by default.
+     *
+     * @return the crypto providers, the first one being used for the properties that don't name an algorithm.
+     */
+    protected List<FieldCryptoProvider> cryptoProviders() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * The migrators applied by the {@link #mappingCouchbaseConverter()} to the documents stored with an older
+     * {@link Document#schemaVersion() schema version} of their entity. None by default.
+     *
+     * @return the document migrations.
+     */
+    protected DocumentMigrations documentMigrations() {
+        return new DocumentMigrations();
+    }
+
+    /**
+     * Which empty or default values the {@link #mappingCouchbaseConverter()} leaves out of the documents of the
+     * entities that don't configure it with {@link Document#sparseMode()}. Defaults to {@link SparseMode#NONE}.
+     *
+     * @return the sparse mode.
+     */
+    protected SparseMode sparseMode() {
+        return SparseMode.NONE;
+    }
+
     /**
      * Creates a {@link TranslationService}.
      *
@@ -145,7 +185,9 @@ public class CouchbaseConfigurationSupport {
      * you want automatic index creation in Dev, just not in Prod, and this configuration is the Dev one),
      * override the bean and use the {@link IndexManager#IndexManager()} constructor (or
      * {@link IndexManager#IndexManager(boolean, boolean, boolean)} constructor with appropriate flags set to true to
-     * activate).
+     * activate). Composite indexes derived from {@link N1qlCompositeIndexed} repositories are likewise ignored, use
+     * {@link IndexManager#IndexManager(boolean, boolean, boolean, IndexManager.CompositeIndexMode)} to report or
+     * create them.
      */
     @Bean(name = BeanNames.COUCHBASE_INDEX_MANAGER)
     public IndexManager indexManager() {
@@ -193,4 +235,26 @@ public class CouchbaseConfigurationSupport {
     protected Consistency getDefaultConsistency() {
         return Consistency.DEFAULT_CONSISTENCY;
     }
+
+    /**
+     * Configures where the templates report the durations of their operations and the sizes of the documents. Override
+     * it to return a {@link org.springframework.data.couchbase.core.support.MicrometerCouchbaseMetrics} to record them
+     * into a Micrometer registry.
+     *
+     * @return the {@link CouchbaseMetrics} to report to, {@link CouchbaseMetrics#NONE} by default.
+     */
+    protected CouchbaseMetrics couchbaseMetrics() {
+        return CouchbaseMetrics.NONE;
+    }
+
+    /**
+     * Configures what the templates do with the documents returned by view queries that can't be decoded into
+     * entities. They are counted and reported to the {@link #couchbaseMetrics()} in any case.
+     *
+     * @return the {@link DecodingFailureHandler}, {@link DecodingFailureHandler#SKIP} by default. Null fails the
+     *   queries instead.
+     */
+    protected DecodingFailureHandler decodingFailureHandler() {
+        return DecodingFailureHandler.SKIP;
+    }
 }
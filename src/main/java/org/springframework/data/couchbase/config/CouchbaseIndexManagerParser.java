@@ -69,10 +69,14 @@ public class CouchbaseIndexManagerParser extends AbstractSingleBeanDefinitionPar
     boolean processViews = Boolean.parseBoolean(element.getAttribute("processViews"));
     boolean processPrimary = Boolean.parseBoolean(element.getAttribute("processPrimary"));
     boolean processSecondary = Boolean.parseBoolean(element.getAttribute("processSecondary"));
+    String compositeMode = element.getAttribute("compositeMode");
 
     bean.addConstructorArgValue(processViews);
     bean.addConstructorArgValue(processPrimary);
     bean.addConstructorArgValue(processSecondary);
+    bean.addConstructorArgValue(StringUtils.hasText(compositeMode)
+        ? IndexManager.CompositeIndexMode.valueOf(compositeMode.toUpperCase())
+        : IndexManager.CompositeIndexMode.IGNORE);
   }
 
 }
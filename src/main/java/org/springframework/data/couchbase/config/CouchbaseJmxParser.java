@@ -27,6 +27,7 @@ import org.springframework.beans.factory.xml.BeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.springframework.data.couchbase.monitor.ClientInfo;
 import org.springframework.data.couchbase.monitor.ClusterInfo;
+import org.springframework.data.couchbase.monitor.ClusterStatistics;
 import org.springframework.util.StringUtils;
 
 /**
@@ -68,8 +69,11 @@ public class CouchbaseJmxParser implements BeanDefinitionParser {
     Object eleSource = parserContext.extractSource(element);
     CompositeComponentDefinition compositeDef = new CompositeComponentDefinition(element.getTagName(), eleSource);
 
-    createBeanDefEntry(ClientInfo.class, compositeDef, refBucketName, eleSource, parserContext);
-    createBeanDefEntry(ClusterInfo.class, compositeDef, refBucketName, eleSource, parserContext);
+    //both beans share the statistics, which are refreshed in the background
+    String statisticsName = createBeanDefEntry(ClusterStatistics.class, compositeDef, refBucketName, eleSource,
+        parserContext);
+    createBeanDefEntry(ClientInfo.class, compositeDef, statisticsName, eleSource, parserContext);
+    createBeanDefEntry(ClusterInfo.class, compositeDef, statisticsName, eleSource, parserContext);
 
     parserContext.registerComponent(compositeDef);
   }
@@ -79,11 +83,12 @@ public class CouchbaseJmxParser implements BeanDefinitionParser {
    *
    * @param clazz the class type to register.
    * @param compositeDef component that can hold nested components.
-   * @param refName the reference name to the couchbase bucket.
+   * @param refName the reference name to the bean to pass to the constructor.
    * @param eleSource source element to reference.
    * @param parserContext encapsulates the parsing state and configuration.
+   * @return the generated name of the bean.
    */
-  protected void createBeanDefEntry(final Class<?> clazz, final CompositeComponentDefinition compositeDef,
+  protected String createBeanDefEntry(final Class<?> clazz, final CompositeComponentDefinition compositeDef,
                                     final String refName, final Object eleSource, final ParserContext parserContext) {
     BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(clazz);
     builder.getRawBeanDefinition().setSource(eleSource);
@@ -91,6 +96,7 @@ public class CouchbaseJmxParser implements BeanDefinitionParser {
     BeanDefinition assertDef = builder.getBeanDefinition();
     String assertName = parserContext.getReaderContext().registerWithGeneratedName(assertDef);
     compositeDef.addNestedComponent(new BeanComponentDefinition(assertDef, assertName));
+    return assertName;
   }
 
 }
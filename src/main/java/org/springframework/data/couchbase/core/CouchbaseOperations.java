@@ -186,6 +186,22 @@ public interface CouchbaseOperations {
    */
   <T> T findById(String id, Class<T> entityClass);
 
+  /**
+   * Find an object by its given Id, falling back to its replicas if the active copy times out or is not available,
+   * whatever the {@link org.springframework.data.couchbase.core.mapping.ReplicaFallback} of the entity.
+   * <p/>
+   * <p>The default implementation only reads the active copy with {@link #findById(String, Class)}, and doesn't know
+   * the CAS of the document.</p>
+   *
+   * @param id the unique ID of the document.
+   * @param entityClass the entity to map to.
+   * @param replicaReadMode which replicas to fall back to.
+   * @return the found object, null if not found, along with whether it was read from a replica and is possibly stale.
+   */
+  default <T> ReadResult<T> findById(String id, Class<T> entityClass, ReplicaReadMode replicaReadMode) {
+    return new ReadResult<T>(findById(id, entityClass), 0L, false);
+  }
+
   /**
    * Query a View for a list of documents of type T.
    * <p/>
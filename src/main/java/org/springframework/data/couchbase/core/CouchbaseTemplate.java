@@ -23,26 +23,37 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.AsyncBucket;
 import com.couchbase.client.java.PersistTo;
+import com.couchbase.client.java.ReplicaMode;
 import com.couchbase.client.java.ReplicateTo;
 import com.couchbase.client.java.cluster.ClusterInfo;
+import com.couchbase.client.java.document.ByteArrayDocument;
 import com.couchbase.client.java.document.Document;
 import com.couchbase.client.java.document.RawJsonDocument;
 import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.error.CASMismatchException;
 import com.couchbase.client.java.error.DocumentAlreadyExistsException;
+import com.couchbase.client.java.error.DocumentDoesNotExistException;
 import com.couchbase.client.java.error.TranscodingException;
+import com.couchbase.client.java.query.N1qlMetrics;
 import com.couchbase.client.java.query.N1qlQuery;
 import com.couchbase.client.java.query.N1qlQueryResult;
 import com.couchbase.client.java.query.N1qlQueryRow;
+import com.couchbase.client.java.subdoc.SubdocOptionsBuilder;
 import com.couchbase.client.java.util.features.CouchbaseFeature;
-import com.couchbase.client.java.view.AsyncViewResult;
-import com.couchbase.client.java.view.AsyncViewRow;
 import com.couchbase.client.java.view.SpatialViewQuery;
 import com.couchbase.client.java.view.SpatialViewResult;
 import com.couchbase.client.java.view.SpatialViewRow;
@@ -51,25 +62,41 @@ import com.couchbase.client.java.view.ViewResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.couchbase.core.convert.join.N1qlJoinResolver;
+import org.springframework.data.couchbase.core.mapping.Compressed;
 import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
 import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentEntity;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentProperty;
 import org.springframework.data.couchbase.core.mapping.CouchbaseStorable;
 import org.springframework.data.couchbase.core.mapping.KeySettings;
+import org.springframework.data.couchbase.core.mapping.NearCached;
+import org.springframework.data.couchbase.core.mapping.ReplicaFallback;
+import org.springframework.data.couchbase.core.mapping.StorageFormat;
 import org.springframework.data.couchbase.core.query.N1qlJoin;
+import org.springframework.data.couchbase.core.support.CouchbaseMetrics;
+import org.springframework.data.couchbase.core.support.HedgedReadPolicy;
+import org.springframework.data.couchbase.core.support.NearCache;
+import org.springframework.data.couchbase.core.support.ReplicaReads;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
+import org.springframework.data.couchbase.core.support.RetryPolicy;
+import org.springframework.data.couchbase.core.support.SlowQueryLog;
+import org.springframework.data.couchbase.core.support.ViewResultMapper;
 import org.springframework.data.mapping.PropertyHandler;
 import org.springframework.data.util.TypeInformation;
 import rx.Observable;
 import rx.functions.Func1;
+import rx.functions.Func2;
 
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.dao.QueryTimeoutException;
 import org.springframework.dao.support.PersistenceExceptionTranslator;
 import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
 import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.translation.Compression;
 import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
 import org.springframework.data.couchbase.core.convert.translation.TranslationService;
 import org.springframework.data.couchbase.core.mapping.event.AfterDeleteEvent;
@@ -82,6 +109,7 @@ import org.springframework.data.couchbase.core.query.Consistency;
 import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mapping.model.ConvertingPropertyAccessor;
+import org.springframework.util.Assert;
 
 import static org.springframework.data.couchbase.core.support.TemplateUtils.SELECT_ID;
 import static org.springframework.data.couchbase.core.support.TemplateUtils.SELECT_CAS;
@@ -99,6 +127,14 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
   private static final Logger LOGGER = LoggerFactory.getLogger(CouchbaseTemplate.class);
   private static final WriteResultChecking DEFAULT_WRITE_RESULT_CHECKING = WriteResultChecking.NONE;
   private static final Collection<String> ITERABLE_CLASSES;
+  private static final String DOCUMENT_CAS_XATTR = "$document.CAS";
+  private static final String DOCUMENT_EXPTIME_XATTR = "$document.exptime";
+  private static final Pattern MUTATION_STATEMENT = Pattern.compile("^\\s*(DELETE|UPDATE|UPSERT|MERGE)\\b",
+      Pattern.CASE_INSENSITIVE);
+  /**
+   * The report of the operation being executed by the current thread, when it is measured.
+   */
+  private static final ThreadLocal<ExecutionReport> CURRENT_REPORT = new ThreadLocal<ExecutionReport>();
 
   static {
     final Set<String> iterableClasses = new HashSet<String>();
@@ -113,7 +149,16 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
   private final TranslationService translationService;
   private final ClusterInfo clusterInfo;
   private KeySettings keySettings;
-
+  private ViewResultMapper viewResultMapper = new ViewResultMapper();
+  private final ConcurrentMap<Class<?>, NearCache> nearCaches = new ConcurrentHashMap<Class<?>, NearCache>();
+  private final ConcurrentMap<Class<?>, List<CouchbasePersistentProperty>> joinProperties =
+      new ConcurrentHashMap<Class<?>, List<CouchbasePersistentProperty>>();
+  private RetryPolicy retryPolicy = RetryPolicy.none();
+  private HedgedReadPolicy hedgedReadPolicy;
+  private final ReplicaReads replicaReads = new ReplicaReads();
+  private CouchbaseMetrics metrics = CouchbaseMetrics.NONE;
+  private SlowQueryLog slowQueryLog;
+  private boolean migrationWriteBack;
 
   private ApplicationEventPublisher eventPublisher;
   private WriteResultChecking writeResultChecking = DEFAULT_WRITE_RESULT_CHECKING;
@@ -158,10 +203,26 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
   }
 
   /**
-   * Encode a {@link CouchbaseDocument} into a storable representation (JSON) then prepare
-   * it for storage as a {@link Document}.
+   * Encode a {@link CouchbaseDocument} into a storable representation (JSON, or a binary format or
+   * compressed content stored with the binary flags) then prepare it for storage as a {@link Document}.
    */
-  private Document<String> encodeAndWrap(final CouchbaseDocument source, Long version) {
+  private Document<?> encodeAndWrap(final CouchbaseDocument source, Long version,
+                                    CouchbasePersistentEntity<?> entity) {
+    if (isStoredAsBinary(entity)) {
+      byte[] encodedContent = translationService.encode(source, entity.getStorageFormat());
+      Compressed compressed = entity.findAnnotation(Compressed.class);
+      if (compressed != null && encodedContent.length >= compressed.threshold()) {
+        byte[] compressedContent = Compression.compress(encodedContent);
+        if (compressedContent.length < encodedContent.length) {
+          encodedContent = compressedContent;
+        }
+      }
+      if (version == null) {
+        return ByteArrayDocument.create(source.getId(), source.getExpiration(), encodedContent);
+      }
+      return ByteArrayDocument.create(source.getId(), source.getExpiration(), encodedContent, version);
+    }
+
     String encodedContent = translationService.encode(source);
     if (version == null) {
       return RawJsonDocument.create(source.getId(), source.getExpiration(), encodedContent);
@@ -173,12 +234,41 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
 
   /**
-   * Decode a {@link Document Document&lt;String&gt;} containing a JSON string
-   * into a {@link CouchbaseStorable}
+   * Decode a {@link Document} containing a JSON string, or binary content, into a {@link CouchbaseStorable}
    */
-  private CouchbaseStorable decodeAndUnwrap(final Document<String> source, final CouchbaseStorable target) {
+  private CouchbaseStorable decodeAndUnwrap(final Document<?> source, final CouchbaseStorable target) {
     //TODO at some point the necessity of CouchbaseStorable should be re-evaluated
-    return translationService.decode(source.content(), target);
+    if (source.content() instanceof byte[]) {
+      byte[] content = (byte[]) source.content();
+      return translationService.decode(Compression.isCompressed(content) ? Compression.decompress(content) : content,
+          target);
+    }
+    return translationService.decode((String) source.content(), target);
+  }
+
+  /**
+   * Whether the documents of an entity are written with the binary flags, because they are stored in a binary
+   * format or compressed as a whole.
+   */
+  private static boolean isStoredAsBinary(CouchbasePersistentEntity<?> entity) {
+    StorageFormat format = entity.getStorageFormat();
+    return (format != null && format != StorageFormat.JSON) || entity.findAnnotation(Compressed.class) != null;
+  }
+
+  private static int contentLength(Document<?> document) {
+    Object content = document.content();
+    return content instanceof byte[] ? ((byte[]) content).length : ((String) content).length();
+  }
+
+  /**
+   * The type of document an entity is read as, which must match the flags it was written with.
+   */
+  private static Class<? extends Document<?>> documentClass(CouchbasePersistentEntity<?> entity) {
+    return isStoredAsBinary(entity) ? ByteArrayDocument.class : RawJsonDocument.class;
+  }
+
+  private static Class<? extends Document<?>> otherDocumentClass(Class<? extends Document<?>> documentClass) {
+    return documentClass == RawJsonDocument.class ? ByteArrayDocument.class : RawJsonDocument.class;
   }
 
   /**
@@ -194,6 +284,19 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
     }
   }
 
+  /**
+   * Make sure the given entity can be written: read-only entities are mapped without their version, so writing them
+   * would blindly overwrite the stored documents.
+   *
+   * @param entity the entity to verify.
+   */
+  static void ensureNotReadOnly(CouchbasePersistentEntity<?> entity) {
+    if (entity.isReadOnly()) {
+      throw new InvalidDataAccessApiUsageException("Entity " + entity.getType().getName()
+          + " is read-only and can't be saved or removed");
+    }
+  }
+
   /**
    * Handle write errors according to the set {@link #writeResultChecking} setting.
    *
@@ -223,6 +326,154 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
     this.writeResultChecking = writeResultChecking == null ? DEFAULT_WRITE_RESULT_CHECKING : writeResultChecking;
   }
 
+  /**
+   * Configures how the rows of view queries are fetched and mapped, see {@link ViewResultMapper}.
+   *
+   * @param viewResultMapper the mapper to use for {@link #findByView(ViewQuery, Class)}.
+   */
+  public void setViewResultMapper(ViewResultMapper viewResultMapper) {
+    Assert.notNull(viewResultMapper, "ViewResultMapper must not be null");
+    this.viewResultMapper = viewResultMapper;
+  }
+
+  public ViewResultMapper getViewResultMapper() {
+    return viewResultMapper;
+  }
+
+  /**
+   * @return the near caches created so far for the {@link NearCached} entities, by entity class.
+   */
+  public Map<Class<?>, NearCache> getNearCaches() {
+    return Collections.unmodifiableMap(nearCaches);
+  }
+
+  /**
+   * Configures how the key/value operations failing with a transient error are retried, see {@link RetryPolicy}.
+   * Defaults to {@link RetryPolicy#none()}.
+   *
+   * @param retryPolicy the policy to use, null to disable retries.
+   */
+  public void setRetryPolicy(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy == null ? RetryPolicy.none() : retryPolicy;
+  }
+
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Enables hedged reads for {@link #findById(String, Class)}: when the active copy of a document takes longer than
+   * usual to come back, it is also read from a replica and the first response wins. Replica reads may return a stale
+   * version of the document, so this should only be enabled when that is acceptable.
+   *
+   * @param hedgedReadPolicy the policy to use, null to disable hedged reads.
+   */
+  public void setHedgedReadPolicy(HedgedReadPolicy hedgedReadPolicy) {
+    this.hedgedReadPolicy = hedgedReadPolicy;
+  }
+
+  public HedgedReadPolicy getHedgedReadPolicy() {
+    return hedgedReadPolicy;
+  }
+
+  /**
+   * @return the statistics of the reads that fell back to the replicas.
+   */
+  public ReplicaReads getReplicaReads() {
+    return replicaReads;
+  }
+
+  /**
+   * Configures where the durations of the operations and the sizes of the documents are reported. Defaults to
+   * {@link CouchbaseMetrics#NONE}, in which case nothing is measured.
+   *
+   * @param metrics the metrics to report to, null to disable them.
+   */
+  public void setMetrics(CouchbaseMetrics metrics) {
+    this.metrics = metrics == null ? CouchbaseMetrics.NONE : metrics;
+  }
+
+  public CouchbaseMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Configures the log of the N1QL queries that are slower than a threshold, disabled by default.
+   *
+   * @param slowQueryLog the log, null to disable it.
+   */
+  public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+    this.slowQueryLog = slowQueryLog;
+  }
+
+  /**
+   * @return the log of slow N1QL queries, or null if disabled.
+   */
+  public SlowQueryLog getSlowQueryLog() {
+    return slowQueryLog;
+  }
+
+  /**
+   * Configures whether the documents upgraded from an older schema version when they are read (see
+   * {@link org.springframework.data.couchbase.core.mapping.Document#schemaVersion()}) are written back, guarded by
+   * their CAS, so that they are only migrated once. Disabled by default, in which case the documents are upgraded on
+   * each read until they are saved again.
+   *
+   * @param migrationWriteBack true to write the migrated documents back in the background.
+   */
+  public void setMigrationWriteBack(boolean migrationWriteBack) {
+    this.migrationWriteBack = migrationWriteBack;
+  }
+
+  public boolean isMigrationWriteBack() {
+    return migrationWriteBack;
+  }
+
+  private boolean isMeasuring() {
+    return metrics != CouchbaseMetrics.NONE;
+  }
+
+  /**
+   * Execute a template operation, reporting its duration, outcome and {@link ExecutionReport} to the
+   * {@link CouchbaseMetrics} and to the reports being {@link ExecutionReport#capture captured}. The phases of the
+   * operation are added to the report of the current thread.
+   */
+  private <T> T timed(String operation, Class<?> entityType, Supplier<T> action) {
+    List<ExecutionReport> captured = ExecutionReport.captured();
+    if (!isMeasuring() && captured == null) {
+      return action.get();
+    }
+    String repositoryMethod = RepositoryMethodContext.current();
+    ExecutionReport report = new ExecutionReport(operation, entityType, repositoryMethod);
+    ExecutionReport enclosing = CURRENT_REPORT.get();
+    CURRENT_REPORT.set(report);
+    long start = System.nanoTime();
+    Throwable error = null;
+    try {
+      return action.get();
+    } catch (RuntimeException | Error e) {
+      error = e;
+      throw e;
+    } finally {
+      long duration = System.nanoTime() - start;
+      if (enclosing == null) {
+        CURRENT_REPORT.remove();
+      } else {
+        CURRENT_REPORT.set(enclosing);
+      }
+      report.complete(duration, error);
+      metrics.recordOperation(operation, entityType, repositoryMethod, duration, error);
+      metrics.recordPhases(report);
+      if (captured != null) {
+        captured.add(report);
+      }
+    }
+  }
+
+  private static Class<?> entityType(Object entity) {
+    return entity == null || entity instanceof String ? null : entity.getClass();
+  }
+
   @Override
   public void setApplicationEventPublisher(final ApplicationEventPublisher eventPublisher) {
     this.eventPublisher = eventPublisher;
@@ -308,68 +559,240 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   @Override
   public <T> T findById(final String id, Class<T> entityClass) {
+    return timed("findById", entityClass, () -> readById(id, entityClass));
+  }
+
+  private <T> T readById(final String id, Class<T> entityClass) {
     final CouchbasePersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(entityClass);
-    RawJsonDocument result = execute(new BucketCallback<RawJsonDocument>() {
+    final NearCache nearCache = getNearCache(entity);
+    if (nearCache != null) {
+      NearCache.Entry cached = nearCache.get(id, nearCache.isRevalidating() ? e -> isCurrent(id, e.getCas()) : null);
+      if (cached != null) {
+        //the cached document is converted again on each hit, the cache never hands out a shared entity instance
+        return mapToEntity(id, cached.getDocument(), cached.getCas(), entityClass);
+      }
+    }
+
+    //a save or a removal invalidating the document while it is read prevents the copy read from being cached
+    long generation = nearCache == null ? 0L : nearCache.startRead(id);
+    try {
+      ReadResult<Document<?>> result = doFindById(id, entity, getReplicaReadMode(entity));
+      Document<?> document = result.getEntity();
+
+      //a possibly stale copy read from a replica must not be served from the cache once the active copy is back
+      if (nearCache != null && document != null && !result.isFromReplica()) {
+        ExecutionReport report = CURRENT_REPORT.get();
+        long start = report == null ? 0L : System.nanoTime();
+        CouchbaseDocument converted = (CouchbaseDocument) decodeAndUnwrap(document, new CouchbaseDocument(id));
+        if (report != null) {
+          report.add(OperationPhase.DECODE, System.nanoTime() - start);
+        }
+        //the migrated document is cached, so that the hits neither migrate nor write it back again, but migrating
+        //decrypts it: the cached copy is encrypted again, as it would be stored
+        boolean migrated = converter.migrate(entityClass, converted);
+        CouchbaseDocument cached = converted;
+        if (migrated) {
+          cached = converted.copy();
+          converter.encryptAll(entityClass, cached);
+        }
+        nearCache.put(id, cached, document.cas(), generation);
+        T readEntity = mapToEntity(id, converted, document.cas(), entityClass);
+        if (migrated && migrationWriteBack && document.cas() != 0L) {
+          writeBackMigrated(id, cached, document.cas(), entityClass, entity);
+        }
+        return readEntity;
+      }
+      return mapToEntity(id, document, entityClass);
+    } finally {
+      if (nearCache != null) {
+        nearCache.endRead(id, generation);
+      }
+    }
+  }
+
+  @Override
+  public <T> ReadResult<T> findById(String id, Class<T> entityClass, ReplicaReadMode replicaReadMode) {
+    return timed("findById", entityClass, () -> readById(id, entityClass, replicaReadMode));
+  }
+
+  private <T> ReadResult<T> readById(String id, Class<T> entityClass, ReplicaReadMode replicaReadMode) {
+    Assert.notNull(replicaReadMode, "ReplicaReadMode must not be null");
+    CouchbasePersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(entityClass);
+
+    ReadResult<Document<?>> result = doFindById(id, entity, replicaReadMode);
+    return new ReadResult<T>(mapToEntity(id, result.getEntity(), entityClass), result.getCas(),
+        result.isFromReplica());
+  }
+
+  private ReadResult<Document<?>> doFindById(final String id, final CouchbasePersistentEntity<?> entity,
+                                             final ReplicaReadMode replicaReadMode) {
+    Class<? extends Document<?>> documentClass = documentClass(entity);
+    try {
+      return doFindById(id, entity, replicaReadMode, documentClass);
+    } catch (DataRetrievalFailureException e) {
+      if (!(e.getCause() instanceof TranscodingException)) {
+        throw e;
+      }
+      //the document was written before the storage format or compression of the entity was changed
+      LOGGER.debug("Document {} is not stored as {}, reading it again: {}", id, documentClass.getSimpleName(),
+          e.toString());
+      return doFindById(id, entity, replicaReadMode, otherDocumentClass(documentClass));
+    }
+  }
+
+  private ReadResult<Document<?>> doFindById(final String id, final CouchbasePersistentEntity<?> entity,
+                                             final ReplicaReadMode replicaReadMode,
+                                             final Class<? extends Document<?>> documentClass) {
+    final HedgedReadPolicy hedging = hedgedReadPolicy;
+    return execute(new BucketCallback<ReadResult<Document<?>>>() {
       @Override
-      public RawJsonDocument doInBucket() {
-        if (entity.isTouchOnRead()) {
-          return client.getAndTouch(id, entity.getExpiry(), RawJsonDocument.class);
-        } else {
-          return client.get(id, RawJsonDocument.class);
+      public ReadResult<Document<?>> doInBucket() {
+        Document<?> document;
+        boolean fromReplica = false;
+        try {
+          if (entity.isTouchOnRead()) {
+            document = client.getAndTouch(id, entity.getExpiry(), documentClass);
+          } else if (hedging != null) {
+            ReadResult<? extends Document<?>> hedged = hedgedGet(id, hedging, documentClass);
+            document = hedged == null ? null : hedged.getEntity();
+            fromReplica = hedged != null && hedged.isFromReplica();
+          } else {
+            document = client.get(id, documentClass);
+          }
+        } catch (RuntimeException e) {
+          if (replicaReadMode == ReplicaReadMode.NONE || !replicaReads.isFallbackCandidate(e)) {
+            throw e;
+          }
+          LOGGER.debug("Unable to read document {} from its active copy, reading it from a replica: {}", id,
+              e.toString());
+          document = replicaReads.read(client.async(), id, replicaReadMode, client.environment().kvTimeout(),
+              documentClass)
+              .toBlocking()
+              .singleOrDefault(null);
+          fromReplica = true;
         }
+        return new ReadResult<Document<?>>(document, document == null ? 0 : document.cas(), fromReplica);
       }
-    });
+    }, true);
+  }
 
-    return mapToEntity(id, result, entityClass);
+  private static ReplicaReadMode getReplicaReadMode(CouchbasePersistentEntity<?> entity) {
+    ReplicaFallback config = entity == null ? null : entity.findAnnotation(ReplicaFallback.class);
+    return config == null ? ReplicaReadMode.NONE : config.value();
+  }
+
+  /**
+   * Get the near cache of a {@link NearCached} entity, creating it on first use.
+   *
+   * @return the cache, or null if the entity isn't near cached or is touched on read.
+   */
+  private NearCache getNearCache(CouchbasePersistentEntity<?> entity) {
+    NearCached config = entity.findAnnotation(NearCached.class);
+    if (config == null || entity.isTouchOnRead()) {
+      return null;
+    }
+    return nearCaches.computeIfAbsent(entity.getType(), type -> NearCache.of(config));
+  }
+
+  /**
+   * Check whether a cached document is still current, by looking up its CAS which is much cheaper than reading it.
+   */
+  private boolean isCurrent(final String id, final long cas) {
+    try {
+      Long currentCas = execute(new BucketCallback<Long>() {
+        @Override
+        public Long doInBucket() {
+          return client.lookupIn(id).get(DOCUMENT_CAS_XATTR, new SubdocOptionsBuilder().xattr(true)).execute().cas();
+        }
+      }, true);
+      return currentCas != null && currentCas == cas;
+    } catch (RuntimeException e) {
+      LOGGER.debug("Unable to revalidate near cached document {}, reading it again: {}", id, e.toString());
+      return false;
+    }
+  }
+
+  /**
+   * Read the active copy of a document, and also read it from a replica if the active copy doesn't come back within the
+   * hedging delay. Errors of the replica read are ignored, the active read still decides of the outcome.
+   * <p/>
+   * The active read runs to completion even when the replica answers first, so that the hedging delay is computed on
+   * the latencies of the active reads only.
+   *
+   * @return the document along with where it was read from, or null if it doesn't exist.
+   */
+  private <D extends Document<?>> ReadResult<D> hedgedGet(final String id, final HedgedReadPolicy hedging,
+                                                          final Class<D> documentClass) {
+    AsyncBucket async = client.async();
+    final long start = System.nanoTime();
+    Observable<ReadResult<D>> primary = async.get(id, documentClass)
+        .doOnTerminate(() -> hedging.recordLatency(System.nanoTime() - start))
+        .map(document -> new ReadResult<D>(document, document.cas(), false))
+        .cache();
+    Observable<ReadResult<D>> replica = Observable.timer(hedging.getHedgeDelayNanos(), TimeUnit.NANOSECONDS)
+        .flatMap(tick -> {
+          hedging.recordHedgedRead();
+          return async.getFromReplica(id, ReplicaMode.FIRST, documentClass)
+              .map(document -> new ReadResult<D>(document, document.cas(), true))
+              .switchIfEmpty(Observable.<ReadResult<D>>never())
+              .onErrorResumeNext(Observable.<ReadResult<D>>never());
+        });
+
+    return Observable.amb(primary, replica)
+        .timeout(client.environment().kvTimeout(), TimeUnit.MILLISECONDS)
+        .toBlocking()
+        .singleOrDefault(null);
+  }
+
+  private void invalidateNearCaches(String id) {
+    for (NearCache nearCache : nearCaches.values()) {
+      nearCache.invalidate(id);
+    }
+  }
+
+  private void clearNearCaches() {
+    for (NearCache nearCache : nearCaches.values()) {
+      nearCache.clear();
+    }
+  }
+
+  /**
+   * Whether a N1QL statement may modify or delete documents, which then can't be served from the near caches anymore.
+   */
+  private static boolean isMutation(N1qlQuery query) {
+    return MUTATION_STATEMENT.matcher(query.statement().toString()).find();
   }
 
   @Override
   public <T> List<T> findByView(ViewQuery query, final Class<T> entityClass) {
-    //we'll always need to get documents, as a RawJsonDocument, so we should force that target class
-    //so that the caller doesn't set a bad target class unintentionally, pre-loading with a bad type.
-    if (!query.isIncludeDocs() || !query.includeDocsTarget().equals(RawJsonDocument.class)) {
-      if (query.isOrderRetained()) {
-        query.includeDocsOrdered(RawJsonDocument.class);
-      } else {
-        query.includeDocs(RawJsonDocument.class);
-      }
-    }
+    return timed("findByView", entityClass, () -> doFindByView(query, entityClass));
+  }
+
+  private <T> List<T> doFindByView(ViewQuery query, final Class<T> entityClass) {
+    //the documents are fetched by the viewResultMapper, within its prefetch window, rather than all at once by the SDK.
+    //this also makes sure the caller doesn't set a bad target class unintentionally, pre-loading with a bad type.
+    boolean ordered = query.isOrderRetained();
+    query.includeDocs(false);
     //we'll always map the document to the entity, hence reduce never makes sense.
     query.reduce(false);
 
-    return executeAsync(client.async().query(query))
-        .flatMap(new Func1<AsyncViewResult, Observable<AsyncViewRow>>() {
-          @Override
-          public Observable<AsyncViewRow> call(AsyncViewResult asyncViewResult) {
-            return asyncViewResult
-                .error()
-                .flatMap(new Func1<JsonObject, Observable<AsyncViewRow>>() {
-                  @Override
-                  public Observable<AsyncViewRow> call(JsonObject error) {
-                    return Observable.error(new CouchbaseQueryExecutionException("Unable to execute view query due to the following view error: " + error.toString()));
-                  }})
-                .switchIfEmpty(asyncViewResult.rows());
-          }
-        })
-        .flatMap(new Func1<AsyncViewRow, Observable<T>>() {
-          @Override
-          public Observable<T> call(AsyncViewRow row) {
-            final String id = row.id();
-            return row
-                .document(RawJsonDocument.class)
-                .map(new Func1<RawJsonDocument, T>() {
-                  @Override
-                  public T call(RawJsonDocument rawJsonDocument) {
-                    //cope with potential weak consistency and deletions
-                    T entity = mapToEntity(id, rawJsonDocument, entityClass);
-                    return entity;
-                  }
-                });
-          }})
-        .filter(new Func1<T, Boolean>() {
+    final ReplicaReadMode replicaReadMode = getReplicaReadMode(mappingContext.getPersistentEntity(entityClass));
+    Func2<String, Throwable, Observable<RawJsonDocument>> fetchFallback = null;
+    if (replicaReadMode != ReplicaReadMode.NONE) {
+      fetchFallback = (id, error) -> replicaReads.isFallbackCandidate(error)
+          ? replicaReads.read(client.async(), id, replicaReadMode, client.environment().kvTimeout())
+          : Observable.<RawJsonDocument>error(error);
+    }
+
+    //the documents may be mapped on the SDK's threads, which don't see the report of the calling thread
+    final ExecutionReport report = CURRENT_REPORT.get();
+    return viewResultMapper
+        .map(executeAsync(client.async().query(query), true), ordered, fetchFallback,
+            (id, cause) -> metrics.recordDecodingFailure("findByView", entityClass), new Func1<RawJsonDocument, T>() {
           @Override
-          public Boolean call(T t) {
-            return t != null;
+          public T call(RawJsonDocument rawJsonDocument) {
+            //cope with potential weak consistency and deletions
+            return mapToEntity(rawJsonDocument.id(), rawJsonDocument, entityClass, report);
           }
         })
         .onErrorResumeNext(new Func1<Throwable, Observable<T>>() {
@@ -389,22 +812,26 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   @Override
   public ViewResult queryView(final ViewQuery query) {
-    return execute(new BucketCallback<ViewResult>() {
+    return timed("queryView", null, () -> execute(new BucketCallback<ViewResult>() {
       @Override
       public ViewResult doInBucket() {
         return client.query(query);
       }
-    });
+    }));
   }
 
   @Override
   public <T> List<T> findBySpatialView(SpatialViewQuery query, Class<T> entityClass) {
+    return timed("findBySpatialView", entityClass, () -> doFindBySpatialView(query, entityClass));
+  }
+
+  private <T> List<T> doFindBySpatialView(SpatialViewQuery query, Class<T> entityClass) {
     //we'll always need to get documents, as a RawJsonDocument, so we should force includeDocs(false)
     //so that the caller doesn't set a bad target class unintentionally, pre-loading with a bad type.
     query.includeDocs(false);
 
     try {
-      final SpatialViewResult response = querySpatialView(query);
+      final SpatialViewResult response = doQuerySpatialView(query);
       if (response.error() != null) {
         throw new CouchbaseQueryExecutionException("Unable to execute spatial view query due to the following view error: " +
             response.error().toString());
@@ -430,6 +857,10 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   @Override
   public SpatialViewResult querySpatialView(final SpatialViewQuery query) {
+    return timed("querySpatialView", null, () -> doQuerySpatialView(query));
+  }
+
+  private SpatialViewResult doQuerySpatialView(final SpatialViewQuery query) {
     return execute(new BucketCallback<SpatialViewResult>() {
       @Override
       public SpatialViewResult doInBucket() throws TimeoutException, ExecutionException, InterruptedException {
@@ -440,25 +871,57 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   @Override
   public <T> List<T> findByN1QL(N1qlQuery n1ql, Class<T> entityClass) {
+    return timed("findByN1QL", entityClass, () -> doFindByN1QL(n1ql, entityClass));
+  }
+
+  private <T> List<T> doFindByN1QL(N1qlQuery n1ql, Class<T> entityClass) {
     checkN1ql();
     try {
-      N1qlQueryResult queryResult = queryN1QL(n1ql);
+      //the documents returned by a mutation are invalidated one by one, rather than clearing the near caches
+      boolean mutation = isMutation(n1ql);
+      N1qlQueryResult queryResult = doQueryN1QL(n1ql, !mutation);
 
       if (queryResult.finalSuccess()) {
         List<N1qlQueryRow> allRows = queryResult.allRows();
-        List<T> result = new ArrayList<T>(allRows.size());
-        for (N1qlQueryRow row : allRows) {
-          JsonObject json = row.value();
-          String id = json.getString(SELECT_ID);
-          Long cas = json.getLong(SELECT_CAS);
-          if (id == null || cas == null) {
+        List<CouchbaseDocument> documents = new ArrayList<CouchbaseDocument>(allRows.size());
+        long[] casValues = new long[allRows.size()];
+        ExecutionReport report = CURRENT_REPORT.get();
+        long[] decodeNanos = report == null ? null : new long[allRows.size()];
+        for (int i = 0; i < allRows.size(); i++) {
+          long start = report == null ? 0L : System.nanoTime();
+          //decode the raw row only once, the metadata is then taken out of the decoded document
+          CouchbaseDocument converted = (CouchbaseDocument) translationService.decode(allRows.get(i).byteValue(),
+              new CouchbaseDocument());
+          if (report != null) {
+            decodeNanos[i] = System.nanoTime() - start;
+            report.add(OperationPhase.DECODE, decodeNanos[i]);
+          }
+          Object id = converted.remove(SELECT_ID);
+          Object cas = converted.remove(SELECT_CAS);
+          if (!(id instanceof String) || !(cas instanceof Number)) {
             throw new CouchbaseQueryExecutionException("Unable to retrieve enough metadata for N1QL to entity mapping, " +
                 "have you selected " + SELECT_ID + " and " + SELECT_CAS + "?");
           }
-          json = json.removeKey(SELECT_ID).removeKey(SELECT_CAS);
-          RawJsonDocument entityDoc = RawJsonDocument.create(id, json.toString(), cas);
-          T decoded = mapToEntity(id, entityDoc, entityClass);
-          result.add(decoded);
+          converted.setId((String) id);
+          if (mutation) {
+            invalidateNearCaches((String) id);
+          }
+          documents.add(converted);
+          casValues[i] = ((Number) cas).longValue();
+        }
+
+        //the encrypted properties of the whole page are decrypted at once, rather than document by document
+        converter.decryptAll(entityClass, documents);
+
+        List<T> result = new ArrayList<T>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+          long start = report == null ? 0L : System.nanoTime();
+          CouchbaseDocument converted = documents.get(i);
+          result.add(mapToEntity(converted.getId(), converted, casValues[i], entityClass, report, false));
+          if (report != null) {
+            metrics.recordConversion(CouchbaseMetrics.DECODE, entityClass, decodeNanos[i] + System.nanoTime() - start);
+            metrics.recordDocumentSize(CouchbaseMetrics.DECODE, entityClass, allRows.get(i).byteValue().length);
+          }
         }
         return result;
       }
@@ -477,16 +940,24 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   @Override
   public <T> List<T> findByN1QLProjection(N1qlQuery n1ql, Class<T> entityClass) {
+    return timed("findByN1QLProjection", entityClass, () -> doFindByN1QLProjection(n1ql, entityClass));
+  }
+
+  private <T> List<T> doFindByN1QLProjection(N1qlQuery n1ql, Class<T> entityClass) {
     checkN1ql();
     try {
-      N1qlQueryResult queryResult = queryN1QL(n1ql);
+      N1qlQueryResult queryResult = doQueryN1QL(n1ql);
 
       if (queryResult.finalSuccess()) {
         List<N1qlQueryRow> allRows = queryResult.allRows();
         List<T> result = new ArrayList<T>(allRows.size());
+        ExecutionReport report = CURRENT_REPORT.get();
         for (N1qlQueryRow row : allRows) {
-          JsonObject json = row.value();
-          T decoded = translationService.decodeFragment(json.toString(), entityClass);
+          long start = report == null ? 0L : System.nanoTime();
+          T decoded = translationService.decodeFragment(row.byteValue(), entityClass);
+          if (report != null) {
+            report.add(OperationPhase.DECODE, System.nanoTime() - start);
+          }
           result.add(decoded);
         }
         return result;
@@ -506,23 +977,54 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   @Override
   public N1qlQueryResult queryN1QL(final N1qlQuery query) {
+    return timed("queryN1QL", null, () -> doQueryN1QL(query));
+  }
+
+  private N1qlQueryResult doQueryN1QL(final N1qlQuery query) {
+    return doQueryN1QL(query, true);
+  }
+
+  /**
+   * @param invalidateNearCaches whether the near caches are cleared after a statement modifying or deleting documents,
+   *   the documents it modified being unknown.
+   */
+  private N1qlQueryResult doQueryN1QL(final N1qlQuery query, boolean invalidateNearCaches) {
     checkN1ql();
-    return execute(new BucketCallback<N1qlQueryResult>() {
+    final SlowQueryLog slowQueries = slowQueryLog;
+    long start = slowQueries == null ? 0L : System.nanoTime();
+    N1qlQueryResult result = execute(new BucketCallback<N1qlQueryResult>() {
       @Override
       public N1qlQueryResult doInBucket() throws TimeoutException, ExecutionException, InterruptedException {
         return client.query(query);
       }
     });
+    if (invalidateNearCaches && !nearCaches.isEmpty() && isMutation(query)) {
+      clearNearCaches();
+    }
+    long elapsed = slowQueries == null ? 0L : System.nanoTime() - start;
+    ExecutionReport report = CURRENT_REPORT.get();
+    N1qlMetrics info = result == null ? null : result.info();
+    if (info != null && (report != null || slowQueries != null)) {
+      long executionNanos = ExecutionReport.parseServerDuration(info.executionTime());
+      if (report != null) {
+        report.setServerNanos(executionNanos);
+      }
+      if (slowQueries != null) {
+        slowQueries.record(query.statement().toString(), RepositoryMethodContext.current(), elapsed, executionNanos,
+            info.resultCount(), info.resultSize());
+      }
+    }
+    return result;
   }
 
   @Override
   public boolean exists(final String id) {
-    return execute(new BucketCallback<Boolean>() {
+    return timed("exists", null, () -> execute(new BucketCallback<Boolean>() {
       @Override
       public Boolean doInBucket() throws TimeoutException, ExecutionException, InterruptedException {
         return client.exists(id);
       }
-    });
+    }, true));
   }
 
   @Override
@@ -549,8 +1051,18 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   @Override
   public <T> T execute(BucketCallback<T> action) {
+    return execute(action, false);
+  }
+
+  /**
+   * Execute the action, retrying it according to the {@link RetryPolicy} if it fails with a transient error.
+   *
+   * @param idempotent true if the action can safely be executed several times, which is the case of reads and of
+   *   writes guarded by a CAS.
+   */
+  private <T> T execute(BucketCallback<T> action, boolean idempotent) {
     try {
-      return action.doInBucket();
+      return retryPolicy.execute(action, idempotent);
     }
     catch (RuntimeException e) {
       throw exceptionTranslator.translateExceptionIfPossible(e);
@@ -567,7 +1079,11 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
   }
 
   public <T> Observable<T> executeAsync(Observable<T> asyncAction) {
-    return asyncAction
+    return executeAsync(asyncAction, false);
+  }
+
+  private <T> Observable<T> executeAsync(Observable<T> asyncAction, boolean idempotent) {
+    return retryPolicy.apply(asyncAction, idempotent)
         .onErrorResumeNext(new Func1<Throwable, Observable<T>>() {
           @Override
           public Observable<T> call(Throwable e) {
@@ -588,50 +1104,79 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
 
   private void doPersist(Object objectToPersist, final PersistTo persistTo, final ReplicateTo replicateTo,
                          final PersistType persistType) {
+    timed(persistType.getOperationName(), entityType(objectToPersist), () -> {
+      persistDocument(objectToPersist, persistTo, replicateTo, persistType);
+      return null;
+    });
+  }
+
+  private void persistDocument(Object objectToPersist, final PersistTo persistTo, final ReplicateTo replicateTo,
+                               final PersistType persistType) {
     ensureNotIterable(objectToPersist);
 
     final ConvertingPropertyAccessor<Object> accessor = getPropertyAccessor(objectToPersist);
     final CouchbasePersistentEntity<?> persistentEntity = mappingContext.getRequiredPersistentEntity(objectToPersist.getClass());
+    ensureNotReadOnly(persistentEntity);
     final CouchbasePersistentProperty versionProperty = persistentEntity.getVersionProperty();
     final Long version = versionProperty != null ? accessor.getProperty(versionProperty, Long.class) : null;
 
     maybeEmitEvent(new BeforeConvertEvent<Object>(objectToPersist));
+    final ExecutionReport report = CURRENT_REPORT.get();
+    final long conversionStart = report == null ? 0L : System.nanoTime();
     final CouchbaseDocument converted = new CouchbaseDocument();
     converter.write(objectToPersist, converted);
+    final long writeNanos = report == null ? 0L : System.nanoTime() - conversionStart;
+
+    final String generatedId = addCommonPrefixAndSuffix(converted.getId());
+    if (!generatedId.equals(converted.getId())) {
+      //the encrypted properties are bound to the id of the document, they are encrypted again for the prefixed key
+      converter.decryptAll(objectToPersist.getClass(), Collections.singletonList(converted));
+      converted.setId(generatedId);
+      converter.encryptAll(objectToPersist.getClass(), converted);
+    }
 
     maybeEmitEvent(new BeforeSaveEvent<Object>(objectToPersist, converted));
     execute(new BucketCallback<Boolean>() {
       @Override
-      public Boolean doInBucket() throws InterruptedException, ExecutionException {
-        String generatedId = addCommonPrefixAndSuffix(converted.getId());
+      public Boolean doInBucket() throws InterruptedException, ExecutionException, TimeoutException {
         converted.setId(generatedId);
-        Document<String> doc = encodeAndWrap(converted, version);
-        Document<String> storedDoc;
+        long encodeStart = report == null ? 0L : System.nanoTime();
+        Document<?> doc = encodeAndWrap(converted, version, persistentEntity);
+        if (report != null) {
+          long encodeNanos = System.nanoTime() - encodeStart;
+          report.add(OperationPhase.CONVERT, writeNanos);
+          report.add(OperationPhase.ENCODE, encodeNanos);
+          metrics.recordConversion(CouchbaseMetrics.ENCODE, objectToPersist.getClass(),
+              writeNanos + encodeNanos);
+          metrics.recordDocumentSize(CouchbaseMetrics.ENCODE, objectToPersist.getClass(), contentLength(doc));
+        }
+        Document<?> storedDoc;
         //We will check version only if required
         boolean versionPresent = versionProperty != null;
         //If version is not set - assumption that document is new, otherwise updating
         boolean existingDocument = version != null && version > 0L;
 
         try {
+          //inserts and writes with a cas can't be applied twice, so only they are safe to retry
           switch (persistType) {
             case SAVE:
               if (!versionPresent) {
                 //No version field - no cas
-                storedDoc = client.upsert(doc, persistTo, replicateTo);
+                storedDoc = retryPolicy.execute(() -> client.upsert(doc, persistTo, replicateTo), false);
               } else if (existingDocument) {
                 //Updating existing document with cas
-                storedDoc = client.replace(doc, persistTo, replicateTo);
+                storedDoc = retryPolicy.execute(() -> client.replace(doc, persistTo, replicateTo), true);
               } else {
                 //Creating new document
-                storedDoc = client.insert(doc, persistTo, replicateTo);
+                storedDoc = retryPolicy.execute(() -> client.insert(doc, persistTo, replicateTo), true);
               }
               break;
             case UPDATE:
-              storedDoc = client.replace(doc, persistTo, replicateTo);
+              storedDoc = retryPolicy.execute(() -> client.replace(doc, persistTo, replicateTo), existingDocument);
               break;
             case INSERT:
             default:
-              storedDoc = client.insert(doc, persistTo, replicateTo);
+              storedDoc = retryPolicy.execute(() -> client.insert(doc, persistTo, replicateTo), true);
               break;
           }
           CouchbasePersistentProperty idProperty = persistentEntity.getIdProperty();
@@ -657,6 +1202,8 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
         } catch (Exception e) {
           handleWriteResultError(persistType.getSpringDataOperationName() + " document failed: " + e.getMessage(), e);
           return false; //this could be skipped if WriteResultChecking.EXCEPTION
+        } finally {
+          invalidateNearCaches(generatedId);
         }
       }
     });
@@ -664,7 +1211,17 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
   }
 
   private void doRemove(final Object objectToRemove, final PersistTo persistTo, final ReplicateTo replicateTo) {
+    timed("remove", entityType(objectToRemove), () -> {
+      removeDocument(objectToRemove, persistTo, replicateTo);
+      return null;
+    });
+  }
+
+  private void removeDocument(final Object objectToRemove, final PersistTo persistTo, final ReplicateTo replicateTo) {
     ensureNotIterable(objectToRemove);
+    if (!(objectToRemove instanceof String)) {
+      ensureNotReadOnly(mappingContext.getRequiredPersistentEntity(objectToRemove.getClass()));
+    }
 
     maybeEmitEvent(new BeforeDeleteEvent<Object>(objectToRemove));
     if (objectToRemove instanceof String) {
@@ -672,11 +1229,14 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
         @Override
         public Boolean doInBucket() throws InterruptedException, ExecutionException {
           try {
-            RawJsonDocument deletedDoc = client.remove((String) objectToRemove , persistTo, replicateTo, RawJsonDocument.class);
+            RawJsonDocument deletedDoc = retryPolicy.execute(
+                () -> client.remove((String) objectToRemove, persistTo, replicateTo, RawJsonDocument.class), false);
             return deletedDoc != null;
           } catch (Exception e) {
             handleWriteResultError("Delete document failed: " + e.getMessage(), e);
             return false; //this could be skipped if WriteResultChecking.EXCEPTION
+          } finally {
+            invalidateNearCaches((String) objectToRemove);
           }
         }
       });
@@ -690,54 +1250,216 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
     execute(new BucketCallback<Boolean>() {
       @Override
       public Boolean doInBucket() {
+        String id = addCommonPrefixAndSuffix(converted.getId());
         try {
-          RawJsonDocument deletedDoc = client.remove(addCommonPrefixAndSuffix(converted.getId()), persistTo, replicateTo
-              , RawJsonDocument.class);
+          RawJsonDocument deletedDoc = retryPolicy.execute(
+              () -> client.remove(id, persistTo, replicateTo, RawJsonDocument.class), false);
           return deletedDoc != null;
         } catch (Exception e) {
           handleWriteResultError("Delete document failed: " + e.getMessage(), e);
           return false; //this could be skipped if WriteResultChecking.EXCEPTION
+        } finally {
+          invalidateNearCaches(id);
         }
       }
     });
     maybeEmitEvent(new AfterDeleteEvent<Object>(objectToRemove));
   }
 
-  private <T> T mapToEntity(String id, Document<String> data, Class<T> entityClass) {
+  private <T> T mapToEntity(String id, Document<?> data, Class<T> entityClass) {
+    return mapToEntity(id, data, entityClass, CURRENT_REPORT.get());
+  }
+
+  private <T> T mapToEntity(String id, Document<?> data, Class<T> entityClass, ExecutionReport report) {
 
     if (data == null) {
       return null;
     }
 
+    if (report == null) {
+      return mapToEntity(id, (CouchbaseDocument) decodeAndUnwrap(data, new CouchbaseDocument(id)), data.cas(),
+          entityClass, null, true);
+    }
+    long start = System.nanoTime();
     final CouchbaseDocument converted = new CouchbaseDocument(id);
-    T readEntity = converter.read(entityClass, (CouchbaseDocument) decodeAndUnwrap(data, converted));
+    decodeAndUnwrap(data, converted);
+    report.add(OperationPhase.DECODE, System.nanoTime() - start);
+    T entity = mapToEntity(id, converted, data.cas(), entityClass, report, true);
+    metrics.recordConversion(CouchbaseMetrics.DECODE, entityClass, System.nanoTime() - start);
+    metrics.recordDocumentSize(CouchbaseMetrics.DECODE, entityClass, contentLength(data));
+    return entity;
+  }
 
-    final ConvertingPropertyAccessor<T> accessor = getPropertyAccessor(readEntity);
+  private <T> T mapToEntity(String id, CouchbaseDocument converted, long cas, Class<T> entityClass) {
+    return mapToEntity(id, converted, cas, entityClass, CURRENT_REPORT.get(), true);
+  }
+
+  /**
+   * @param wholeDocument whether the document was read whole by key, in which case it can be written back once
+   *   migrated. N1QL rows may be projections or carry computed fields, their documents are read again by key instead.
+   */
+  private <T> T mapToEntity(String id, CouchbaseDocument converted, long cas, Class<T> entityClass,
+                            ExecutionReport report, boolean wholeDocument) {
+    long start = report == null ? 0L : System.nanoTime();
+    boolean migrated = converter.migrate(entityClass, converted);
+    T readEntity = converter.read(entityClass, converted);
     CouchbasePersistentEntity<?> persistentEntity = mappingContext.getRequiredPersistentEntity(readEntity.getClass());
 
-    if (persistentEntity.getVersionProperty() != null) {
-      accessor.setProperty(persistentEntity.getVersionProperty(), data.cas());
-    }
-
-    persistentEntity.doWithProperties((PropertyHandler<CouchbasePersistentProperty>) prop -> {
-      if (prop.isAnnotationPresent(N1qlJoin.class)) {
-        N1qlJoin definition = prop.findAnnotation(N1qlJoin.class);
-        TypeInformation type =  prop.getTypeInformation().getActualType();
-        Class clazz = type.getType();
-        N1qlJoinResolver.N1qlJoinResolverParameters parameters = new N1qlJoinResolver.N1qlJoinResolverParameters(definition, id, persistentEntity.getTypeInformation(), type);
-        if (N1qlJoinResolver.isLazyJoin(definition)) {
-          N1qlJoinResolver.N1qlJoinProxy proxy = new N1qlJoinResolver.N1qlJoinProxy(this, parameters);
-          accessor.setProperty(prop, java.lang.reflect.Proxy.newProxyInstance(List.class.getClassLoader(),
-                  new Class[]{List.class}, proxy));
-        } else {
-          accessor.setProperty(prop, N1qlJoinResolver.doResolve(this, parameters, clazz));
+    if (migrated && migrationWriteBack && cas != 0L) {
+      if (wholeDocument) {
+        //the document isn't used anymore once the entity is read, it can be encrypted again in place
+        writeBackMigrated(id, converted, cas, entityClass, persistentEntity);
+      } else {
+        writeBackMigrated(id, entityClass, persistentEntity);
+      }
+    }
+
+    CouchbasePersistentProperty versionProperty = persistentEntity.getVersionProperty();
+    List<CouchbasePersistentProperty> joins = getJoinProperties(persistentEntity);
+    if (persistentEntity.isReadOnly() || (versionProperty == null && joins.isEmpty())) {
+      if (report != null) {
+        report.add(OperationPhase.MAP, System.nanoTime() - start);
+      }
+      return readEntity;
+    }
+
+    final ConvertingPropertyAccessor<T> accessor = new ConvertingPropertyAccessor<>(
+        persistentEntity.getPropertyAccessor(readEntity), converter.getConversionService());
+    if (versionProperty != null) {
+      accessor.setProperty(versionProperty, cas);
+    }
+
+    long joinNanos = 0L;
+    for (CouchbasePersistentProperty prop : joins) {
+      N1qlJoin definition = prop.findAnnotation(N1qlJoin.class);
+      TypeInformation type =  prop.getTypeInformation().getActualType();
+      Class clazz = type.getType();
+      N1qlJoinResolver.N1qlJoinResolverParameters parameters = new N1qlJoinResolver.N1qlJoinResolverParameters(definition, id, persistentEntity.getTypeInformation(), type);
+      if (N1qlJoinResolver.isLazyJoin(definition)) {
+        N1qlJoinResolver.N1qlJoinProxy proxy = new N1qlJoinResolver.N1qlJoinProxy(this, parameters);
+        accessor.setProperty(prop, java.lang.reflect.Proxy.newProxyInstance(List.class.getClassLoader(),
+                new Class[]{List.class}, proxy));
+      } else {
+        long joinStart = report == null ? 0L : System.nanoTime();
+        accessor.setProperty(prop, N1qlJoinResolver.doResolve(this, parameters, clazz));
+        if (report != null) {
+          joinNanos += System.nanoTime() - joinStart;
         }
       }
-    });
+    }
 
+    if (report != null) {
+      report.add(OperationPhase.JOIN, joinNanos);
+      report.add(OperationPhase.MAP, System.nanoTime() - start - joinNanos);
+    }
     return accessor.getBean();
   }
 
+  /**
+   * The {@link N1qlJoin} properties of an entity, looked up once per entity rather than on each read.
+   */
+  private List<CouchbasePersistentProperty> getJoinProperties(final CouchbasePersistentEntity<?> persistentEntity) {
+    return joinProperties.computeIfAbsent(persistentEntity.getType(), type -> {
+      List<CouchbasePersistentProperty> joins = new ArrayList<CouchbasePersistentProperty>();
+      persistentEntity.doWithProperties((PropertyHandler<CouchbasePersistentProperty>) prop -> {
+        if (prop.isAnnotationPresent(N1qlJoin.class)) {
+          joins.add(prop);
+        }
+      });
+      return joins.isEmpty() ? Collections.<CouchbasePersistentProperty>emptyList() : joins;
+    });
+  }
+
+  /**
+   * Write a document migrated from an older schema version back in the background, unless it has been modified since
+   * it was read.
+   */
+  private void writeBackMigrated(final String id, CouchbaseDocument migrated, long cas, Class<?> entityClass,
+                                 CouchbasePersistentEntity<?> persistentEntity) {
+    replaceMigrated(id, migrated, cas, entityClass, persistentEntity)
+        .subscribe(
+            stored -> migratedWrittenBack(id),
+            e -> LOGGER.debug("Unable to write back migrated document {}, it will be migrated on its next read: {}",
+                id, e.toString()));
+  }
+
+  /**
+   * Read a document again by key in the background, then migrate it and write it back unless it has been modified
+   * since. This is used for the documents that weren't read whole, so that only the stored fields are written back.
+   */
+  private void writeBackMigrated(final String id, final Class<?> entityClass,
+                                 final CouchbasePersistentEntity<?> persistentEntity) {
+    client.async().get(id, documentClass(persistentEntity))
+        .flatMap(data -> {
+          CouchbaseDocument stored = (CouchbaseDocument) decodeAndUnwrap(data, new CouchbaseDocument(id));
+          return converter.migrate(entityClass, stored)
+              ? replaceMigrated(id, stored, data.cas(), entityClass, persistentEntity)
+              : Observable.<Document<?>>empty();
+        })
+        .subscribe(
+            stored -> migratedWrittenBack(id),
+            e -> LOGGER.debug("Unable to write back migrated document {}, it will be migrated on its next read: {}",
+                id, e.toString()));
+  }
+
+  private void migratedWrittenBack(String id) {
+    //the cached copy, if any, carries the CAS the document had before it was written back
+    invalidateNearCaches(id);
+    LOGGER.trace("Migrated document {} written back", id);
+  }
+
+  /**
+   * Upgrade a document stored with an older schema version of its entity and write it back, guarded by its CAS.
+   *
+   * @param id the id of the document.
+   * @param entityClass the entity the document is read as.
+   * @return true if the document has been migrated, false if it is already up to date, doesn't exist or has been
+   *   concurrently modified.
+   */
+  boolean migrateDocument(final String id, final Class<?> entityClass) {
+    final CouchbasePersistentEntity<?> persistentEntity = mappingContext.getRequiredPersistentEntity(entityClass);
+    final Document<?> data = doFindById(id, persistentEntity, ReplicaReadMode.NONE).getEntity();
+    if (data == null) {
+      return false;
+    }
+    final CouchbaseDocument migrated = (CouchbaseDocument) decodeAndUnwrap(data, new CouchbaseDocument(id));
+    if (!converter.migrate(entityClass, migrated)) {
+      return false;
+    }
+
+    return execute(new BucketCallback<Boolean>() {
+      @Override
+      public Boolean doInBucket() {
+        try {
+          replaceMigrated(id, migrated, data.cas(), entityClass, persistentEntity).toBlocking().single();
+          return true;
+        } catch (CASMismatchException | DocumentDoesNotExistException e) {
+          LOGGER.debug("Document {} modified during its migration, skipping it: {}", id, e.toString());
+          return false;
+        }
+      }
+    }, true);
+  }
+
+  /**
+   * Replace a document with its migrated version, guarded by the CAS it was read with. The migrated document is
+   * written as is, so that the fields that aren't mapped by the entity are kept, once its encrypted properties are
+   * encrypted again. Its expiry is looked up first, since replacing a document would otherwise make it persistent.
+   */
+  private Observable<Document<?>> replaceMigrated(final String id, final CouchbaseDocument migrated, final long cas,
+                                                  Class<?> entityClass,
+                                                  final CouchbasePersistentEntity<?> persistentEntity) {
+    converter.encryptAll(entityClass, migrated);
+    migrated.setId(id);
+    final AsyncBucket async = client.async();
+    return async.lookupIn(id).get(DOCUMENT_EXPTIME_XATTR, new SubdocOptionsBuilder().xattr(true)).execute()
+        .flatMap(fragment -> {
+          Object expiry = fragment.content(0);
+          migrated.setExpiration(expiry instanceof Number ? ((Number) expiry).intValue() : 0);
+          return async.replace(encodeAndWrap(migrated, cas, persistentEntity));
+        });
+  }
+
   private final <T> ConvertingPropertyAccessor<T> getPropertyAccessor(T source) {
 
     CouchbasePersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(source.getClass());
@@ -797,6 +1519,10 @@ public class CouchbaseTemplate implements CouchbaseOperations, ApplicationEventP
     public String getSpringDataOperationName() {
       return springDataOperationName;
     }
+
+    public String getOperationName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
   }
 
   @Override
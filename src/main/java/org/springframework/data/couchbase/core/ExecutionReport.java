@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * How long a single template operation took, split into {@link OperationPhase phases}, so that a slow operation can
+ * be attributed to the server, to the JSON decoding or to the mapping of the entities.
+ * <br /><br />
+ * Reports are handed to {@link org.springframework.data.couchbase.core.support.CouchbaseMetrics#recordPhases} for
+ * every operation when metrics are configured, and can be collected for the operations of a single call with
+ * {@link #capture(List, Supplier)}:
+ * <pre>
+ * List&lt;ExecutionReport&gt; reports = new ArrayList&lt;&gt;();
+ * List&lt;Beer&gt; beers = ExecutionReport.capture(reports, () -&gt; template.findByN1QL(query, Beer.class));
+ * </pre>
+ * The phases of the operations of a reactive template are collected on whichever thread they run, a report is
+ * complete once the operation terminates.
+ */
+public final class ExecutionReport {
+
+  private static final ThreadLocal<List<ExecutionReport>> CAPTURED = new ThreadLocal<List<ExecutionReport>>();
+
+  private static final OperationPhase[] PHASES = OperationPhase.values();
+
+  private final String operation;
+  private final Class<?> entityType;
+  private final String repositoryMethod;
+  private final AtomicLongArray phaseNanos = new AtomicLongArray(PHASES.length);
+  private volatile long serverNanos = -1L;
+  private volatile long totalNanos;
+  private volatile Throwable error;
+
+  ExecutionReport(String operation, Class<?> entityType, String repositoryMethod) {
+    this.operation = operation;
+    this.entityType = entityType;
+    this.repositoryMethod = repositoryMethod;
+  }
+
+  /**
+   * Execute the action, collecting the reports of the template operations it performs on the current thread.
+   *
+   * @param reports the list the reports are added to, in the order the operations complete.
+   * @param action the action to execute.
+   * @return the result of the action.
+   */
+  public static <T> T capture(List<ExecutionReport> reports, Supplier<T> action) {
+    List<ExecutionReport> previous = CAPTURED.get();
+    CAPTURED.set(reports);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        CAPTURED.remove();
+      } else {
+        CAPTURED.set(previous);
+      }
+    }
+  }
+
+  /**
+   * @return the list the reports of the current thread are captured into, or null.
+   */
+  static List<ExecutionReport> captured() {
+    return CAPTURED.get();
+  }
+
+  void add(OperationPhase phase, long nanos) {
+    phaseNanos.addAndGet(phase.ordinal(), nanos);
+  }
+
+  void setServerNanos(long serverNanos) {
+    this.serverNanos = serverNanos;
+  }
+
+  /**
+   * Complete the report, the time not spent in any other phase is attributed to the {@link OperationPhase#NETWORK}.
+   */
+  void complete(long totalNanos, Throwable error) {
+    long accounted = 0L;
+    for (OperationPhase phase : PHASES) {
+      accounted += phaseNanos.get(phase.ordinal());
+    }
+    phaseNanos.addAndGet(OperationPhase.NETWORK.ordinal(), Math.max(0L, totalNanos - accounted));
+    this.totalNanos = totalNanos;
+    this.error = error;
+  }
+
+  /**
+   * @return the name of the template method, eg. <code>findByN1QL</code>.
+   */
+  public String getOperation() {
+    return operation;
+  }
+
+  /**
+   * @return the type of the entity, null for operations that don't map entities.
+   */
+  public Class<?> getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * @return the repository query method that triggered the operation, or null.
+   */
+  public String getRepositoryMethod() {
+    return repositoryMethod;
+  }
+
+  /**
+   * @param phase the phase.
+   * @return the time spent in the given phase, in nanoseconds.
+   */
+  public long getPhaseNanos(OperationPhase phase) {
+    return phaseNanos.get(phase.ordinal());
+  }
+
+  /**
+   * @return the time the server reported it spent executing the operation, in nanoseconds, or -1 if it didn't. Only
+   * N1QL queries report it in their metrics; the server durations of key/value operations are only reported to the
+   * SDK's tracer, when <code>operationTracingServerDurationEnabled</code> is set on the environment.
+   */
+  public long getServerNanos() {
+    return serverNanos;
+  }
+
+  /**
+   * @return the whole duration of the operation, in nanoseconds.
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * @return the error the operation failed with, null if it succeeded.
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+  /**
+   * Parse a duration as reported in the metrics of a N1QL query, eg. <code>12.5ms</code> or <code>1m2.5s</code>.
+   *
+   * @return the duration in nanoseconds, or -1 if it can't be parsed.
+   */
+  static long parseServerDuration(String duration) {
+    if (duration == null || duration.isEmpty()) {
+      return -1L;
+    }
+    double nanos = 0d;
+    int i = 0;
+    int length = duration.length();
+    while (i < length) {
+      int start = i;
+      while (i < length && (Character.isDigit(duration.charAt(i)) || duration.charAt(i) == '.')) {
+        i++;
+      }
+      int unitStart = i;
+      while (i < length && !Character.isDigit(duration.charAt(i))) {
+        i++;
+      }
+      if (start == unitStart || unitStart == i) {
+        return -1L;
+      }
+      double value;
+      try {
+        value = Double.parseDouble(duration.substring(start, unitStart));
+      } catch (NumberFormatException e) {
+        return -1L;
+      }
+      switch (duration.substring(unitStart, i)) {
+        case "h":
+          nanos += value * TimeUnit.HOURS.toNanos(1);
+          break;
+        case "m":
+          nanos += value * TimeUnit.MINUTES.toNanos(1);
+          break;
+        case "s":
+          nanos += value * TimeUnit.SECONDS.toNanos(1);
+          break;
+        case "ms":
+          nanos += value * TimeUnit.MILLISECONDS.toNanos(1);
+          break;
+        case "us":
+        case "µs":
+        case "μs":
+          nanos += value * TimeUnit.MICROSECONDS.toNanos(1);
+          break;
+        case "ns":
+          nanos += value;
+          break;
+        default:
+          return -1L;
+      }
+    }
+    return (long) nanos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder(operation);
+    if (entityType != null) {
+      report.append(' ').append(entityType.getSimpleName());
+    }
+    if (repositoryMethod != null) {
+      report.append(" (").append(repositoryMethod).append(')');
+    }
+    report.append(' ').append(millis(totalNanos)).append(" [");
+    for (OperationPhase phase : PHASES) {
+      if (phase.ordinal() > 0) {
+        report.append(", ");
+      }
+      report.append(phase.name().toLowerCase(Locale.ROOT)).append('=').append(millis(getPhaseNanos(phase)));
+    }
+    if (serverNanos >= 0) {
+      report.append(", server=").append(millis(serverNanos));
+    }
+    report.append(']');
+    if (error != null) {
+      report.append(" failed with ").append(error);
+    }
+    return report.toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3fms", nanos / 1e6d);
+  }
+}
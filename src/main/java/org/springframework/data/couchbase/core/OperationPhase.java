@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core;
+
+/**
+ * The phases the duration of a template operation is split into in an {@link ExecutionReport}.
+ */
+public enum OperationPhase {
+
+  /**
+   * Writing the entity into a {@link org.springframework.data.couchbase.core.mapping.CouchbaseDocument} with the
+   * converter.
+   */
+  CONVERT,
+
+  /**
+   * Encoding the {@link org.springframework.data.couchbase.core.mapping.CouchbaseDocument} into JSON with the
+   * translation service.
+   */
+  ENCODE,
+
+  /**
+   * Waiting for the server, including the time spent on the network and in the SDK. This is the part of the
+   * duration that isn't spent in any of the other phases.
+   */
+  NETWORK,
+
+  /**
+   * Decoding the JSON documents or rows with the translation service.
+   */
+  DECODE,
+
+  /**
+   * Reading the entities out of the decoded documents with the converter, not including the join resolution.
+   */
+  MAP,
+
+  /**
+   * Resolving the eager {@link org.springframework.data.couchbase.core.query.N1qlJoin N1qlJoin} properties of the
+   * entities, which executes one more query per entity.
+   */
+  JOIN
+}
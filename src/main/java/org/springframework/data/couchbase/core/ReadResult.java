@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core;
+
+/**
+ * The entity read by {@link CouchbaseOperations#findById(String, Class, ReplicaReadMode)}, along with where it was
+ * read from.
+ *
+ * @param <T> the type of the entity.
+ */
+public class ReadResult<T> {
+
+  private final T entity;
+  private final long cas;
+  private final boolean fromReplica;
+
+  public ReadResult(T entity, long cas, boolean fromReplica) {
+    this.entity = entity;
+    this.cas = cas;
+    this.fromReplica = fromReplica;
+  }
+
+  /**
+   * @return the entity, or null if the document doesn't exist.
+   */
+  public T getEntity() {
+    return entity;
+  }
+
+  /**
+   * @return the CAS of the document that was read, 0 if it doesn't exist or is unknown.
+   */
+  public long getCas() {
+    return cas;
+  }
+
+  /**
+   * @return true if the entity was read from a replica, because the active copy couldn't be reached or was slower than
+   * a hedged replica read, in which case it is possibly stale.
+   */
+  public boolean isFromReplica() {
+    return fromReplica;
+  }
+
+  @Override
+  public String toString() {
+    return "ReadResult{entity=" + entity + ", cas=" + cas + ", fromReplica=" + fromReplica + "}";
+  }
+}
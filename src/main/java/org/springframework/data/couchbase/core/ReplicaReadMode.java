@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core;
+
+/**
+ * Whether and how a read falls back to the replicas of a document when its active copy can't be reached, typically
+ * while the node owning it is failing over.
+ * <br /><br />
+ * A document read from a replica may not reflect the latest mutations of the active copy, see {@link ReadResult}.
+ *
+ * @see org.springframework.data.couchbase.core.mapping.ReplicaFallback
+ */
+public enum ReplicaReadMode {
+
+  /**
+   * Only read the active copy, failures are propagated.
+   */
+  NONE,
+
+  /**
+   * Fall back to the first replica.
+   */
+  FIRST,
+
+  /**
+   * Fall back to all the copies of the document and keep the first one that answers.
+   */
+  ANY,
+
+  /**
+   * Fall back to all the copies of the document and keep the one with the highest CAS, which is the most recent
+   * one that could be reached at the cost of waiting for every copy.
+   */
+  LATEST
+}
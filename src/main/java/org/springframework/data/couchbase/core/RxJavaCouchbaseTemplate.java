@@ -18,28 +18,39 @@ package org.springframework.data.couchbase.core;
 
 import static org.springframework.data.couchbase.core.CouchbaseTemplate.ensureNotIterable;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
 import com.couchbase.client.java.AsyncBucket;
 import com.couchbase.client.java.Bucket;
 import com.couchbase.client.java.PersistTo;
 import com.couchbase.client.java.ReplicateTo;
 import com.couchbase.client.java.cluster.ClusterInfo;
+import com.couchbase.client.java.document.ByteArrayDocument;
 import com.couchbase.client.java.document.Document;
 import com.couchbase.client.java.document.RawJsonDocument;
 import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.error.CASMismatchException;
 import com.couchbase.client.java.error.DocumentAlreadyExistsException;
+import com.couchbase.client.java.error.TranscodingException;
 import com.couchbase.client.java.query.*;
 import com.couchbase.client.java.view.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
 import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.translation.Compression;
 import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
 import org.springframework.data.couchbase.core.convert.translation.TranslationService;
 import org.springframework.data.couchbase.core.mapping.*;
 import org.springframework.data.couchbase.core.query.Consistency;
+import org.springframework.data.couchbase.core.support.CouchbaseMetrics;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
 import org.springframework.data.couchbase.core.support.TemplateUtils;
+import org.springframework.data.couchbase.core.support.ViewResultMapper;
 import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mapping.model.ConvertingPropertyAccessor;
@@ -66,6 +77,8 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
     private final TranslationService translationService;
     private Consistency configuredConsistency = Consistency.DEFAULT_CONSISTENCY;
     private WriteResultChecking writeResultChecking = DEFAULT_WRITE_RESULT_CHECKING;
+    private ViewResultMapper viewResultMapper = new ViewResultMapper();
+    private CouchbaseMetrics metrics = CouchbaseMetrics.NONE;
 
     public <T> Observable<T> save(T objectToSave) {
         return save(objectToSave, PersistTo.NONE, ReplicateTo.NONE);
@@ -160,6 +173,72 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
         this.writeResultChecking = writeResultChecking == null ? DEFAULT_WRITE_RESULT_CHECKING : writeResultChecking;
     }
 
+    /**
+     * Configures how the rows of view queries are fetched and mapped, see {@link ViewResultMapper}.
+     *
+     * @param viewResultMapper the mapper to use for {@link #findByView(ViewQuery, Class)}.
+     */
+    public void setViewResultMapper(ViewResultMapper viewResultMapper) {
+        this.viewResultMapper = viewResultMapper == null ? new ViewResultMapper() : viewResultMapper;
+    }
+
+    /**
+     * Configures where the durations of the operations and the sizes of the documents are reported. Defaults to
+     * {@link CouchbaseMetrics#NONE}, in which case nothing is measured.
+     *
+     * @param metrics the metrics to report to, null to disable them.
+     */
+    public void setMetrics(CouchbaseMetrics metrics) {
+        this.metrics = metrics == null ? CouchbaseMetrics.NONE : metrics;
+    }
+
+    public CouchbaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    private boolean isMeasuring() {
+        return metrics != CouchbaseMetrics.NONE;
+    }
+
+    /**
+     * Time an operation from its subscription to its termination, reporting it and its {@link ExecutionReport} to the
+     * {@link CouchbaseMetrics} and to the reports being {@link ExecutionReport#capture captured}. The repository method
+     * and the capture are those of the thread assembling the operation, and the time spent assembling it, which
+     * converts the entities to write, is part of its duration.
+     *
+     * @param action assembles the operation, adding its phases to the given report, which is null when the operation
+     *   isn't measured.
+     */
+    private <T> Observable<T> timed(String operation, Class<?> entityType,
+                                    Function<ExecutionReport, Observable<T>> action) {
+        final List<ExecutionReport> captured = ExecutionReport.captured();
+        if (!isMeasuring() && captured == null) {
+            return action.apply(null);
+        }
+        final ExecutionReport report = new ExecutionReport(operation, entityType, RepositoryMethodContext.current());
+        long assemblyStart = System.nanoTime();
+        final Observable<T> observable = action.apply(report);
+        final long assemblyNanos = System.nanoTime() - assemblyStart;
+        return Observable.defer(() -> {
+            final long start = System.nanoTime() - assemblyNanos;
+            return observable
+                    .doOnError(e -> complete(report, System.nanoTime() - start, e, captured))
+                    .doOnCompleted(() -> complete(report, System.nanoTime() - start, null, captured));
+        });
+    }
+
+    private void complete(ExecutionReport report, long duration, Throwable error, List<ExecutionReport> captured) {
+        report.complete(duration, error);
+        metrics.recordOperation(report.getOperation(), report.getEntityType(), report.getRepositoryMethod(), duration,
+                error);
+        metrics.recordPhases(report);
+        if (captured != null) {
+            synchronized (captured) {
+                captured.add(report);
+            }
+        }
+    }
+
     public RxJavaCouchbaseTemplate(final ClusterInfo clusterInfo, final Bucket client,
                                    final CouchbaseConverter converter,
                                    final TranslationService translationService) {
@@ -171,7 +250,22 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
         this.mappingContext = this.converter.getMappingContext();
     }
 
-    private RawJsonDocument encodeAndWrap(final CouchbaseDocument source, Long version) {
+    private Document<?> encodeAndWrap(final CouchbaseDocument source, Long version, CouchbasePersistentEntity<?> entity) {
+        if (isStoredAsBinary(entity)) {
+            byte[] encodedContent = translationService.encode(source, entity.getStorageFormat());
+            Compressed compressed = entity.findAnnotation(Compressed.class);
+            if (compressed != null && encodedContent.length >= compressed.threshold()) {
+                byte[] compressedContent = Compression.compress(encodedContent);
+                if (compressedContent.length < encodedContent.length) {
+                    encodedContent = compressedContent;
+                }
+            }
+            if (version == null) {
+                return ByteArrayDocument.create(source.getId(), source.getExpiration(), encodedContent);
+            }
+            return ByteArrayDocument.create(source.getId(), source.getExpiration(), encodedContent, version);
+        }
+
         String encodedContent = translationService.encode(source);
         if (version == null) {
             return RawJsonDocument.create(source.getId(), source.getExpiration(), encodedContent);
@@ -203,9 +297,20 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
     }
 
     private <T> Observable<T> doPersist(T objectToPersist, PersistType persistType, PersistTo persistTo, ReplicateTo replicateTo) {
+        return timed(persistType.name().toLowerCase(Locale.ROOT), objectToPersist == null ? null : objectToPersist.getClass(),
+                report -> persistDocument(objectToPersist, persistType, persistTo, replicateTo, report));
+    }
+
+    private <T> Observable<T> persistDocument(T objectToPersist, PersistType persistType, PersistTo persistTo, ReplicateTo replicateTo,
+                                              ExecutionReport report) {
+        try {
+            CouchbaseTemplate.ensureNotReadOnly(mappingContext.getRequiredPersistentEntity(objectToPersist.getClass()));
+        } catch (InvalidDataAccessApiUsageException e) {
+            return Observable.error(e);
+        }
         // If version is not set - assumption that document is new, otherwise updating
         Long version = getVersion(objectToPersist);
-        Func3<RawJsonDocument, PersistTo, ReplicateTo, Observable<RawJsonDocument>> persistFunction;
+        Func3<Document<?>, PersistTo, ReplicateTo, Observable<Document<?>>> persistFunction;
         switch (persistType) {
             case SAVE:
                 if (version == null) {
@@ -227,7 +332,7 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
                 persistFunction = client::insert;
                 break;
         }
-        return persistFunction.call(toJsonDocument(objectToPersist), persistTo, replicateTo)
+        return persistFunction.call(toJsonDocument(objectToPersist, report), persistTo, replicateTo)
                 .flatMap(storedDoc -> {
                     if (storedDoc != null) {
                         if (storedDoc.cas() != 0) {
@@ -255,12 +360,23 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
                 });
     }
 
-    private <T> RawJsonDocument toJsonDocument(T object) {
+    private <T> Document<?> toJsonDocument(T object, ExecutionReport report) {
         ensureNotIterable(object);
 
+        long start = report == null ? 0L : System.nanoTime();
         final CouchbaseDocument converted = new CouchbaseDocument();
         converter.write(object, converted);
-        return encodeAndWrap(converted, getVersion(object));
+        long encodeStart = report == null ? 0L : System.nanoTime();
+        CouchbasePersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(object.getClass());
+        Document<?> document = encodeAndWrap(converted, getVersion(object), entity);
+        if (report != null) {
+            long end = System.nanoTime();
+            report.add(OperationPhase.CONVERT, encodeStart - start);
+            report.add(OperationPhase.ENCODE, end - encodeStart);
+            metrics.recordConversion(CouchbaseMetrics.ENCODE, object.getClass(), end - start);
+            metrics.recordDocumentSize(CouchbaseMetrics.ENCODE, object.getClass(), contentLength(document));
+        }
+        return document;
     }
 
     private <T> CouchbasePersistentProperty versionProperty(T object) {
@@ -312,12 +428,23 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
     }
 
     private <T> Observable<T> doRemove(T objectToRemove, final PersistTo persistTo, final ReplicateTo replicateTo) {
+        return timed("remove", objectToRemove == null || objectToRemove instanceof String ? null : objectToRemove.getClass(),
+                report -> removeDocument(objectToRemove, persistTo, replicateTo, report));
+    }
+
+    private <T> Observable<T> removeDocument(T objectToRemove, final PersistTo persistTo, final ReplicateTo replicateTo,
+                                             ExecutionReport report) {
         if(objectToRemove instanceof String) {
             return client.remove((String) objectToRemove, persistTo, replicateTo)
                     .flatMap(rawJsonDocument -> Observable.just(objectToRemove))
                     .doOnError(e -> TemplateUtils.translateError(e));
         } else {
-            RawJsonDocument doc = toJsonDocument(objectToRemove);
+            try {
+                CouchbaseTemplate.ensureNotReadOnly(mappingContext.getRequiredPersistentEntity(objectToRemove.getClass()));
+            } catch (InvalidDataAccessApiUsageException e) {
+                return Observable.error(e);
+            }
+            Document<?> doc = toJsonDocument(objectToRemove, report);
             return client.remove(doc, persistTo, replicateTo)
                     .flatMap(rawJsonDocument -> Observable.just(objectToRemove))
                     .doOnError(e -> TemplateUtils.translateError(e));
@@ -327,86 +454,120 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
 
     @Override
     public Observable<Boolean> exists(String id) {
-        return client.exists(id)
-                        .doOnError(e -> TemplateUtils.translateError(e));
+        return timed("exists", null, report -> client.exists(id)
+                        .doOnError(e -> TemplateUtils.translateError(e)));
     }
 
     @Override
     public Observable<AsyncN1qlQueryResult> queryN1QL(N1qlQuery query) {
+        return timed("queryN1QL", null, report -> doQueryN1QL(query));
+    }
+
+    private Observable<AsyncN1qlQueryResult> doQueryN1QL(N1qlQuery query) {
         return client.query(query)
                         .doOnError(e -> TemplateUtils.translateError(e));
     }
 
     @Override
     public Observable<AsyncViewResult> queryView(ViewQuery query) {
+        return timed("queryView", null, report -> doQueryView(query));
+    }
+
+    private Observable<AsyncViewResult> doQueryView(ViewQuery query) {
         return client.query(query)
                         .doOnError(e -> TemplateUtils.translateError(e));
     }
 
     @Override
     public Observable<AsyncSpatialViewResult> querySpatialView(SpatialViewQuery query){
+        return timed("querySpatialView", null, report -> doQuerySpatialView(query));
+    }
+
+    private Observable<AsyncSpatialViewResult> doQuerySpatialView(SpatialViewQuery query) {
         return client.query(query)
                 .doOnError(e -> TemplateUtils.translateError(e));
     }
 
     @Override
     public <T> Observable<T> findById(String id, Class<T> entityClass) {
+        return timed("findById", entityClass, report -> readById(id, entityClass, report));
+    }
+
+    private <T> Observable<T> readById(String id, Class<T> entityClass, ExecutionReport report) {
         final CouchbasePersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(entityClass);
+        Class<? extends Document<?>> documentClass = isStoredAsBinary(entity) ? ByteArrayDocument.class
+                : RawJsonDocument.class;
+        return getDocument(id, entity, documentClass)
+                        //the document was written before the storage format or compression of the entity was changed
+                        .onErrorResumeNext(e -> e instanceof TranscodingException
+                                ? getDocument(id, entity, documentClass == RawJsonDocument.class
+                                        ? ByteArrayDocument.class : RawJsonDocument.class)
+                                : Observable.error(e))
+                        .switchIfEmpty(Observable.just(null))
+                        .map(doc -> mapToEntity(id, doc, entityClass, report))
+                        .doOnError(e -> TemplateUtils.translateError(e));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Observable<Document<?>> getDocument(String id, CouchbasePersistentEntity<?> entity,
+                                                Class<? extends Document<?>> documentClass) {
         if (entity.isTouchOnRead()) {
-            return client.getAndTouch(id, entity.getExpiry(), RawJsonDocument.class)
-                            .switchIfEmpty(Observable.just(null))
-                            .map(doc -> mapToEntity(id, doc, entityClass))
-                            .doOnError(e -> TemplateUtils.translateError(e));
-        } else {
-            return client.get(id, RawJsonDocument.class)
-                            .switchIfEmpty(Observable.just(null))
-                            .map(doc -> mapToEntity(id, doc, entityClass))
-                            .doOnError(e -> TemplateUtils.translateError(e));
+            return (Observable<Document<?>>) (Observable<?>) client.getAndTouch(id, entity.getExpiry(), documentClass);
         }
+        return (Observable<Document<?>>) (Observable<?>) client.get(id, documentClass);
     }
 
     @Override
     public <T>Observable<T> findByView(ViewQuery query, Class<T> entityClass) {
-        if (!query.isIncludeDocs() || !query.includeDocsTarget().equals(RawJsonDocument.class)) {
-            if (query.isOrderRetained()) {
-                query.includeDocsOrdered(RawJsonDocument.class);
-            } else {
-                query.includeDocs(RawJsonDocument.class);
-            }
-        }
+        return timed("findByView", entityClass, report -> doFindByView(query, entityClass, report));
+    }
+
+    private <T> Observable<T> doFindByView(ViewQuery query, Class<T> entityClass, ExecutionReport report) {
+        //the documents are fetched by the viewResultMapper, within its prefetch window, rather than all at once by the SDK
+        boolean ordered = query.isOrderRetained();
+        query.includeDocs(false);
         //we'll always map the document to the entity, hence reduce never makes sense.
         query.reduce(false);
 
-        return queryView(query)
-                .flatMap(asyncViewResult -> asyncViewResult.error()
-                        .flatMap(error -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute view query due to error:" + error.toString())))
-                        .switchIfEmpty(asyncViewResult.rows()))
-                .map(row -> {
-                    AsyncViewRow asyncViewRow = (AsyncViewRow) row;
-                    return asyncViewRow.document(RawJsonDocument.class)
-                            .map(doc ->  mapToEntity(doc.id(), doc, entityClass)).toBlocking().single();
-                })
+        return viewResultMapper.map(doQueryView(query), ordered, null,
+                (id, cause) -> metrics.recordDecodingFailure("findByView", entityClass),
+                doc -> mapToEntity(doc.id(), doc, entityClass, report))
                 .doOnError(throwable -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute view query", throwable)));
     }
 
 
     @Override
     public <T>Observable<T> findByN1QL(N1qlQuery query, Class<T> entityClass) {
-        return queryN1QL(query)
+        return timed("findByN1QL", entityClass, report -> doFindByN1QL(query, entityClass, report));
+    }
+
+    private <T> Observable<T> doFindByN1QL(N1qlQuery query, Class<T> entityClass, ExecutionReport report) {
+        return doQueryN1QL(query)
                 .flatMap(asyncN1qlQueryResult -> asyncN1qlQueryResult.errors()
                         .flatMap(error -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute n1ql query due to error:" + error.toString())))
                         .switchIfEmpty(asyncN1qlQueryResult.rows()))
                 .map(row -> {
-                    JsonObject json = ((AsyncN1qlQueryRow)row).value();
-                    String id = json.getString(TemplateUtils.SELECT_ID);
-                    Long cas = json.getLong(TemplateUtils.SELECT_CAS);
-                    if (id == null || cas == null) {
+                    long start = report == null ? 0L : System.nanoTime();
+                    //decode the raw row only once, the metadata is then taken out of the decoded document
+                    CouchbaseDocument converted = (CouchbaseDocument) translationService
+                            .decode(((AsyncN1qlQueryRow) row).byteValue(), new CouchbaseDocument());
+                    long mapStart = report == null ? 0L : System.nanoTime();
+                    Object id = converted.remove(TemplateUtils.SELECT_ID);
+                    Object cas = converted.remove(TemplateUtils.SELECT_CAS);
+                    if (!(id instanceof String) || !(cas instanceof Number)) {
                         throw new CouchbaseQueryExecutionException("Unable to retrieve enough metadata for N1QL to entity mapping, " +
                                 "have you selected " + TemplateUtils.SELECT_ID + " and " + TemplateUtils.SELECT_CAS + "?");
                     }
-                    json = json.removeKey(TemplateUtils.SELECT_ID).removeKey(TemplateUtils.SELECT_CAS);
-                    RawJsonDocument entityDoc = RawJsonDocument.create(id, json.toString(), cas);
-                    T decoded = mapToEntity(id, entityDoc, entityClass);
+                    converted.setId((String) id);
+                    T decoded = mapToEntity(converted, ((Number) cas).longValue(), entityClass);
+                    if (report != null) {
+                        long end = System.nanoTime();
+                        report.add(OperationPhase.DECODE, mapStart - start);
+                        report.add(OperationPhase.MAP, end - mapStart);
+                        metrics.recordConversion(CouchbaseMetrics.DECODE, entityClass, end - start);
+                        metrics.recordDocumentSize(CouchbaseMetrics.DECODE, entityClass,
+                                ((AsyncN1qlQueryRow) row).byteValue().length);
+                    }
                     return decoded;
                 })
                 .doOnError(throwable -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute n1ql query", throwable)));
@@ -414,14 +575,18 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
 
     @Override
     public <T>Observable<T> findBySpatialView(SpatialViewQuery query, Class<T> entityClass) {
-        return querySpatialView(query)
+        return timed("findBySpatialView", entityClass, report -> doFindBySpatialView(query, entityClass, report));
+    }
+
+    private <T> Observable<T> doFindBySpatialView(SpatialViewQuery query, Class<T> entityClass, ExecutionReport report) {
+        return doQuerySpatialView(query)
                 .flatMap(spatialViewResult -> spatialViewResult.error()
                         .flatMap(error -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute spatial view query due to error:" + error.toString())))
                         .switchIfEmpty(spatialViewResult.rows()))
                 .map(row -> {
                     AsyncSpatialViewRow asyncSpatialViewRow = (AsyncSpatialViewRow) row;
                     return asyncSpatialViewRow.document(RawJsonDocument.class)
-                            .map(doc ->  mapToEntity(doc.id(), doc, entityClass))
+                            .map(doc ->  mapToEntity(doc.id(), doc, entityClass, report))
                             .toBlocking().single();
                 })
                 .doOnError(throwable -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute spatial view query", throwable)));
@@ -429,13 +594,20 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
 
     @Override
     public <T>Observable<T> findByN1QLProjection(N1qlQuery query, Class<T> entityClass) {
-        return queryN1QL(query)
+        return timed("findByN1QLProjection", entityClass, report -> doFindByN1QLProjection(query, entityClass, report));
+    }
+
+    private <T> Observable<T> doFindByN1QLProjection(N1qlQuery query, Class<T> entityClass, ExecutionReport report) {
+        return doQueryN1QL(query)
                 .flatMap(asyncN1qlQueryResult -> asyncN1qlQueryResult.errors()
                         .flatMap(error -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute n1ql query due to error:" + error.toString())))
                         .switchIfEmpty(asyncN1qlQueryResult.rows()))
                 .map(row -> {
-                    JsonObject json = ((AsyncN1qlQueryRow)row).value();
-                    T decoded = translationService.decodeFragment(json.toString(), entityClass);
+                    long start = report == null ? 0L : System.nanoTime();
+                    T decoded = translationService.decodeFragment(((AsyncN1qlQueryRow) row).byteValue(), entityClass);
+                    if (report != null) {
+                        report.add(OperationPhase.DECODE, System.nanoTime() - start);
+                    }
                     return decoded;
                 })
                 .doOnError(throwable -> Observable.error(new CouchbaseQueryExecutionException("Unable to execute n1ql query", throwable)));
@@ -458,31 +630,65 @@ public class RxJavaCouchbaseTemplate implements RxJavaCouchbaseOperations {
     }
 
 
-    private <T> T mapToEntity(String id, Document<String> data, Class<T> entityClass) {
+    private <T> T mapToEntity(String id, Document<?> data, Class<T> entityClass, ExecutionReport report) {
         if (data == null) {
             return null;
         }
 
+        if (report == null) {
+            return mapToEntity((CouchbaseDocument) decodeAndUnwrap(data, new CouchbaseDocument(id)), data.cas(), entityClass);
+        }
+        long start = System.nanoTime();
         final CouchbaseDocument converted = new CouchbaseDocument(id);
-        Object readEntity = converter.read(entityClass, (CouchbaseDocument) decodeAndUnwrap(data, converted));
+        decodeAndUnwrap(data, converted);
+        long mapStart = System.nanoTime();
+        T entity = mapToEntity(converted, data.cas(), entityClass);
+        long end = System.nanoTime();
+        report.add(OperationPhase.DECODE, mapStart - start);
+        report.add(OperationPhase.MAP, end - mapStart);
+        metrics.recordConversion(CouchbaseMetrics.DECODE, entityClass, end - start);
+        metrics.recordDocumentSize(CouchbaseMetrics.DECODE, entityClass, contentLength(data));
+        return entity;
+    }
+
+    private <T> T mapToEntity(CouchbaseDocument converted, long cas, Class<T> entityClass) {
+        converter.migrate(entityClass, converted);
+        Object readEntity = converter.read(entityClass, converted);
 
-        final ConvertingPropertyAccessor accessor = getPropertyAccessor(readEntity);
         CouchbasePersistentEntity<?> persistentEntity = mappingContext.getRequiredPersistentEntity(readEntity.getClass());
         CouchbasePersistentProperty versionProperty = persistentEntity.getVersionProperty();
-        if (versionProperty != null) {
-            accessor.setProperty(versionProperty, data.cas());
+        if (versionProperty != null && !persistentEntity.isReadOnly()) {
+            getPropertyAccessor(readEntity).setProperty(versionProperty, cas);
         }
 
         return (T) readEntity;
     }
 
     /**
-     * Decode a {@link Document Document&lt;String&gt;} containing a JSON string
-     * into a {@link CouchbaseStorable}
+     * Decode a {@link Document} containing a JSON string, or binary content, into a {@link CouchbaseStorable}
      */
-    private CouchbaseStorable decodeAndUnwrap(final Document<String> source, final CouchbaseStorable target) {
+    private CouchbaseStorable decodeAndUnwrap(final Document<?> source, final CouchbaseStorable target) {
         //TODO at some point the necessity of CouchbaseStorable should be re-evaluated
-        return translationService.decode(source.content(), target);
+        if (source.content() instanceof byte[]) {
+            byte[] content = (byte[]) source.content();
+            return translationService.decode(Compression.isCompressed(content) ? Compression.decompress(content)
+                    : content, target);
+        }
+        return translationService.decode((String) source.content(), target);
+    }
+
+    /**
+     * Whether the documents of an entity are written with the binary flags, because they are stored in a binary
+     * format or compressed as a whole.
+     */
+    private static boolean isStoredAsBinary(CouchbasePersistentEntity<?> entity) {
+        StorageFormat format = entity.getStorageFormat();
+        return (format != null && format != StorageFormat.JSON) || entity.findAnnotation(Compressed.class) != null;
+    }
+
+    private static int contentLength(Document<?> document) {
+        Object content = document.content();
+        return content instanceof byte[] ? ((byte[]) content).length : ((String) content).length();
     }
 
     @Override
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core;
+
+import static com.couchbase.client.java.query.dsl.Expression.i;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.couchbase.client.java.document.json.JsonArray;
+import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
+import com.couchbase.client.java.view.ViewQuery;
+import com.couchbase.client.java.view.ViewResult;
+import com.couchbase.client.java.view.ViewRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.TypeAliases;
+import org.springframework.data.couchbase.core.mapping.CouchbasePersistentEntity;
+import org.springframework.util.Assert;
+
+/**
+ * Migrates in batches the documents of an entity stored with an older
+ * {@link org.springframework.data.couchbase.core.mapping.Document#schemaVersion() schema version}, instead of waiting
+ * for them to be read. The ids of the documents are streamed one page at a time, either from a N1QL query selecting
+ * the outdated documents or from a view emitting the documents of the entity, and each document is upgraded and
+ * written back guarded by its CAS, so that concurrent updates are never overwritten.
+ * <br /><br />
+ * The job is throttled by the size of the pages and by a pause between them, to limit its impact on the traffic of
+ * the application. It can be {@link #run() run} in the current thread or {@link #start(Executor) started} in the
+ * background, and {@link #stop() stopped} between two pages.
+ */
+public class SchemaMigrationJob {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrationJob.class);
+
+  private final CouchbaseTemplate template;
+  private final Class<?> entityClass;
+  private int pageSize = 100;
+  private long pauseMillis = 100L;
+  private String designDocument;
+  private String viewName;
+  private volatile boolean stopped;
+
+  public SchemaMigrationJob(CouchbaseTemplate template, Class<?> entityClass) {
+    Assert.notNull(template, "Template must not be null!");
+    Assert.notNull(entityClass, "Entity class must not be null!");
+    this.template = template;
+    this.entityClass = entityClass;
+  }
+
+  /**
+   * @param pageSize the number of documents migrated between two pauses, 100 by default.
+   * @return this job.
+   */
+  public SchemaMigrationJob pageSize(int pageSize) {
+    Assert.isTrue(pageSize > 0, "Page size must be positive!");
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  /**
+   * @param pause the pause between two pages, 100ms by default.
+   * @param unit the unit of the pause.
+   * @return this job.
+   */
+  public SchemaMigrationJob pause(long pause, TimeUnit unit) {
+    Assert.isTrue(pause >= 0, "Pause must not be negative!");
+    this.pauseMillis = unit.toMillis(pause);
+    return this;
+  }
+
+  /**
+   * Stream the ids of the documents from a view emitting all the documents of the entity, rather than from a N1QL
+   * query. All the documents of the view are read, the ones already up to date are left untouched.
+   *
+   * @param designDocument the design document of the view.
+   * @param viewName the name of the view.
+   * @return this job.
+   */
+  public SchemaMigrationJob fromView(String designDocument, String viewName) {
+    this.designDocument = designDocument;
+    this.viewName = viewName;
+    return this;
+  }
+
+  /**
+   * Run the migration in the background.
+   *
+   * @param executor the executor to run the migration with.
+   * @return the result of the migration, once it is complete.
+   */
+  public CompletableFuture<Result> start(Executor executor) {
+    return CompletableFuture.supplyAsync(this::run, executor);
+  }
+
+  /**
+   * Stop the migration before the next page, the documents already migrated are kept.
+   */
+  public void stop() {
+    this.stopped = true;
+  }
+
+  /**
+   * Run the migration in the current thread, until all the documents have been visited or the job is stopped.
+   *
+   * @return the number of documents visited and migrated.
+   */
+  public Result run() {
+    CouchbasePersistentEntity<?> entity = template.getConverter().getMappingContext()
+        .getRequiredPersistentEntity(entityClass);
+    Result result = new Result();
+    if (entity.getSchemaVersion() == 0) {
+      return result;
+    }
+
+    String lastId = "";
+    Object lastKey = null;
+    int offset = 0;
+    while (!stopped) {
+      List<String> ids = new ArrayList<String>(pageSize);
+      if (viewName == null) {
+        nextIdsFromN1ql(entity.getSchemaVersion(), lastId, ids);
+      } else {
+        ViewRow lastRow = nextIdsFromView(lastKey, lastId, offset, ids);
+        if (lastRow != null) {
+          lastKey = lastRow.key();
+        }
+      }
+      if (ids.isEmpty()) {
+        break;
+      }
+
+      for (String id : ids) {
+        result.visited++;
+        if (template.migrateDocument(id, entityClass)) {
+          result.migrated++;
+        }
+      }
+      lastId = ids.get(ids.size() - 1);
+      offset += ids.size();
+      LOGGER.debug("Migrated {} out of {} {} documents so far", result.migrated, result.visited,
+          entityClass.getSimpleName());
+
+      if (ids.size() < pageSize) {
+        break;
+      }
+      pause();
+    }
+    result.stopped = stopped;
+    return result;
+  }
+
+  private void nextIdsFromN1ql(int schemaVersion, String lastId, List<String> ids) {
+    CouchbaseConverter converter = template.getConverter();
+    String versionKey = i(converter instanceof MappingCouchbaseConverter
+        ? ((MappingCouchbaseConverter) converter).getSchemaVersionKey()
+        : MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT).toString();
+    String statement = "SELECT META().id AS id FROM " + i(template.getCouchbaseBucket().name())
+        + " WHERE " + TypeAliases.createTypePredicate(i(converter.getTypeKey()).toString(), entityClass)
+        + " AND (" + versionKey + " IS MISSING OR " + versionKey + " < " + schemaVersion + ")"
+        + " AND META().id > $1 ORDER BY META().id LIMIT " + pageSize;
+
+    N1qlQueryResult queryResult = template.queryN1QL(N1qlQuery.parameterized(statement, JsonArray.from(lastId)));
+    if (!queryResult.finalSuccess()) {
+      throw new CouchbaseQueryExecutionException("Unable to select the documents to migrate: "
+          + queryResult.errors());
+    }
+    for (N1qlQueryRow row : queryResult) {
+      ids.add(row.value().getString("id"));
+    }
+  }
+
+  private ViewRow nextIdsFromView(Object lastKey, String lastId, int offset, List<String> ids) {
+    ViewQuery query = ViewQuery.from(designDocument, viewName).reduce(false).limit(pageSize);
+    if (offset > 0) {
+      //resume right after the last row when its key can be expressed, rows being sorted by key then by id
+      if (!startAfter(query, lastKey, lastId)) {
+        query.skip(offset);
+      }
+    }
+
+    ViewResult viewResult = template.queryView(query);
+    if (!viewResult.success()) {
+      throw new CouchbaseQueryExecutionException("Unable to select the documents to migrate: " + viewResult.error());
+    }
+    ViewRow lastRow = null;
+    for (ViewRow row : viewResult) {
+      ids.add(row.id());
+      lastRow = row;
+    }
+    return lastRow;
+  }
+
+  private static boolean startAfter(ViewQuery query, Object key, String id) {
+    if (key instanceof String) {
+      query.startKey((String) key);
+    } else if (key instanceof Integer || key instanceof Long) {
+      query.startKey(((Number) key).longValue());
+    } else if (key instanceof Number) {
+      query.startKey(((Number) key).doubleValue());
+    } else if (key instanceof Boolean) {
+      query.startKey((Boolean) key);
+    } else if (key instanceof JsonArray) {
+      query.startKey((JsonArray) key);
+    } else if (key instanceof JsonObject) {
+      query.startKey((JsonObject) key);
+    } else {
+      return false;
+    }
+    query.startKeyDocId(id).skip(1);
+    return true;
+  }
+
+  private void pause() {
+    if (pauseMillis == 0L) {
+      return;
+    }
+    try {
+      Thread.sleep(pauseMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stopped = true;
+    }
+  }
+
+  /**
+   * The outcome of a {@link SchemaMigrationJob}.
+   */
+  public static class Result {
+
+    private long visited;
+    private long migrated;
+    private boolean stopped;
+
+    /**
+     * @return the number of documents read by the job.
+     */
+    public long getVisited() {
+      return visited;
+    }
+
+    /**
+     * @return the number of documents upgraded and written back.
+     */
+    public long getMigrated() {
+      return migrated;
+    }
+
+    /**
+     * @return true if the job was stopped before all the documents were visited.
+     */
+    public boolean isStopped() {
+      return stopped;
+    }
+
+    @Override
+    public String toString() {
+      return "Result{visited=" + visited + ", migrated=" + migrated + ", stopped=" + stopped + "}";
+    }
+  }
+}
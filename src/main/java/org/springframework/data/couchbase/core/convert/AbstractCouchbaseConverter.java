@@ -47,6 +47,11 @@ public abstract class AbstractCouchbaseConverter implements CouchbaseConverter,
    */
   protected CustomConversions conversions = new CouchbaseCustomConversions(Collections.emptyList());
 
+  /**
+   * Caches the conversion decisions taken for the current custom conversions.
+   */
+  private volatile ConversionPlans conversionPlans;
+
   /**
    * Create a new converter and hand it over the {@link ConversionService}
    *
@@ -92,15 +97,29 @@ public abstract class AbstractCouchbaseConverter implements CouchbaseConverter,
     conversions.registerConvertersIn(conversionService);
   }
 
+  /**
+   * Return the conversion decisions cached for the current custom conversions, which are discarded whenever the
+   * custom conversions are replaced.
+   *
+   * @return the conversion plans.
+   */
+  ConversionPlans getConversionPlans() {
+    ConversionPlans plans = conversionPlans;
+    if (plans == null || !plans.isFor(conversions)) {
+      plans = new ConversionPlans(conversions);
+      conversionPlans = plans;
+    }
+    return plans;
+  }
+
   @Override
   public Object convertForWriteIfNeeded(Object value) {
     if (value == null) {
       return null;
     }
 
-    return this.conversions.getCustomWriteTarget(value.getClass()) //
-            .map(it -> (Object) this.conversionService.convert(value, it)) //
-            .orElse(value);
+    ConversionPlans.WritePlan plan = getConversionPlans().getWritePlan(value.getClass());
+    return plan.getKind() == ConversionPlans.WritePlan.Kind.CONVERT ? plan.convert(value, conversionService) : value;
   }
 
   @Override
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.data.convert.CustomConversions;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+
+/**
+ * Caches the conversion decisions taken by a {@link MappingCouchbaseConverter} for each type it writes, and for each
+ * pair of stored and property types it reads, so that the {@link CustomConversions} are only looked up once per type
+ * instead of once per property value.
+ * <p/>
+ * A plan also holds the {@link TypeDescriptor TypeDescriptors} of its conversion, which saves resolving them on each
+ * call to the {@link GenericConversionService}. Plans are bound to the {@link CustomConversions} they were computed
+ * from, see {@link #isFor(CustomConversions)}.
+ */
+class ConversionPlans {
+
+  private final CustomConversions conversions;
+  private final Map<Class<?>, WritePlan> writePlans = new ConcurrentHashMap<Class<?>, WritePlan>();
+  private final Map<Class<?>, Map<Class<?>, ReadPlan>> readPlans =
+      new ConcurrentHashMap<Class<?>, Map<Class<?>, ReadPlan>>();
+
+  ConversionPlans(CustomConversions conversions) {
+    this.conversions = conversions;
+  }
+
+  /**
+   * @param conversions the custom conversions currently in use.
+   * @return true if the cached plans have been computed from these conversions.
+   */
+  boolean isFor(CustomConversions conversions) {
+    return this.conversions == conversions;
+  }
+
+  /**
+   * @param type the type of the value to write.
+   * @return how values of this type are written.
+   */
+  WritePlan getWritePlan(Class<?> type) {
+    WritePlan plan = writePlans.get(type);
+    if (plan == null) {
+      plan = writePlans.computeIfAbsent(type, this::createWritePlan);
+    }
+    return plan;
+  }
+
+  /**
+   * @param sourceType the type of the stored value.
+   * @param targetType the type of the property it is read into.
+   * @return how stored values of the source type are read into the target type.
+   */
+  ReadPlan getReadPlan(Class<?> sourceType, Class<?> targetType) {
+    Map<Class<?>, ReadPlan> plans = readPlans.get(sourceType);
+    if (plans == null) {
+      plans = readPlans.computeIfAbsent(sourceType, key -> new ConcurrentHashMap<Class<?>, ReadPlan>());
+    }
+    ReadPlan plan = plans.get(targetType);
+    if (plan == null) {
+      plan = plans.computeIfAbsent(targetType, key -> createReadPlan(sourceType, key));
+    }
+    return plan;
+  }
+
+  private WritePlan createWritePlan(Class<?> type) {
+    boolean simple = conversions.isSimpleType(type);
+    boolean customDocument = conversions.getCustomWriteTarget(type, CouchbaseDocument.class).isPresent();
+    Class<?> target = conversions.getCustomWriteTarget(type).orElse(null);
+
+    if (target != null) {
+      return new WritePlan(WritePlan.Kind.CONVERT, simple, customDocument, type, target);
+    } else if (Enum.class.isAssignableFrom(type)) {
+      return new WritePlan(WritePlan.Kind.ENUM_NAME, simple, customDocument, type, null);
+    }
+    return new WritePlan(simple ? WritePlan.Kind.PASS_THROUGH : WritePlan.Kind.ENTITY, simple, customDocument, type,
+        null);
+  }
+
+  private ReadPlan createReadPlan(Class<?> sourceType, Class<?> targetType) {
+    ReadPlan.Kind kind;
+    if (conversions.hasCustomReadTarget(sourceType, targetType)) {
+      kind = ReadPlan.Kind.CONVERT;
+    } else if (Enum.class.isAssignableFrom(targetType)) {
+      kind = ReadPlan.Kind.ENUM;
+    } else if (Class.class.isAssignableFrom(targetType)) {
+      kind = ReadPlan.Kind.CLASS;
+    } else if (targetType.isAssignableFrom(sourceType)) {
+      kind = ReadPlan.Kind.PASS_THROUGH;
+    } else {
+      kind = ReadPlan.Kind.DEFAULT_CONVERSION;
+    }
+    return new ReadPlan(kind, sourceType, targetType);
+  }
+
+  /**
+   * How the values of a given type are written.
+   */
+  static final class WritePlan {
+
+    enum Kind {
+
+      /** A custom converter writes the value as another type. */
+      CONVERT,
+
+      /** The value is an enum, written as its name. */
+      ENUM_NAME,
+
+      /** The value is a simple type and is written as is. */
+      PASS_THROUGH,
+
+      /** The value is written as a nested document or list. */
+      ENTITY
+    }
+
+    private final Kind kind;
+    private final boolean simple;
+    private final boolean customDocument;
+    private final TypeDescriptor sourceType;
+    private final TypeDescriptor targetType;
+
+    private WritePlan(Kind kind, boolean simple, boolean customDocument, Class<?> sourceType, Class<?> targetType) {
+      this.kind = kind;
+      this.simple = simple;
+      this.customDocument = customDocument;
+      this.sourceType = TypeDescriptor.valueOf(sourceType);
+      this.targetType = targetType == null ? null : TypeDescriptor.valueOf(targetType);
+    }
+
+    Kind getKind() {
+      return kind;
+    }
+
+    /**
+     * @return true if the type is a simple type for the custom conversions.
+     */
+    boolean isSimple() {
+      return simple;
+    }
+
+    /**
+     * @return true if a custom converter writes the whole value as a {@link CouchbaseDocument}.
+     */
+    boolean hasCustomDocumentConversion() {
+      return customDocument;
+    }
+
+    /**
+     * Write the value as the target type of its custom converter.
+     */
+    Object convert(Object value, GenericConversionService conversionService) {
+      return conversionService.convert(value, sourceType, targetType);
+    }
+  }
+
+  /**
+   * How stored values of a given type are read into a property type.
+   */
+  static final class ReadPlan {
+
+    enum Kind {
+
+      /** A custom converter reads the value. */
+      CONVERT,
+
+      /** The property is an enum, read from its name. */
+      ENUM,
+
+      /** The property is a {@link Class}, read from its name. */
+      CLASS,
+
+      /** The value is already of the property type. */
+      PASS_THROUGH,
+
+      /** The value is converted by the default conversions of the conversion service. */
+      DEFAULT_CONVERSION
+    }
+
+    private final Kind kind;
+    private final TypeDescriptor sourceType;
+    private final TypeDescriptor targetType;
+
+    private ReadPlan(Kind kind, Class<?> sourceType, Class<?> targetType) {
+      this.kind = kind;
+      this.sourceType = TypeDescriptor.valueOf(sourceType);
+      this.targetType = TypeDescriptor.valueOf(targetType);
+    }
+
+    Kind getKind() {
+      return kind;
+    }
+
+    /**
+     * Convert the value to the property type with the conversion service.
+     */
+    Object convert(Object value, GenericConversionService conversionService) {
+      return conversionService.convert(value, sourceType, targetType);
+    }
+  }
+}
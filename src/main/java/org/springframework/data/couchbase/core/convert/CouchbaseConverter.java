@@ -16,6 +16,8 @@
 
 package org.springframework.data.couchbase.core.convert;
 
+import java.util.List;
+
 import org.springframework.data.convert.EntityConverter;
 import org.springframework.data.convert.EntityReader;
 import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
@@ -56,4 +58,38 @@ public interface CouchbaseConverter
    * @return the name of the field that will hold type information.
    */
   String getTypeKey();
+
+  /**
+   * Decrypt at once the encrypted properties of documents read for the same type, before they are converted one by
+   * one. Converters that don't support encrypted properties don't need to do anything.
+   *
+   * @param type the type the documents are read as.
+   * @param sources the documents, which are decrypted in place.
+   */
+  default void decryptAll(Class<?> type, List<CouchbaseDocument> sources) {
+  }
+
+  /**
+   * Encrypt in place the clear values of the encrypted properties of a document, typically once it has been
+   * {@link #migrate(Class, CouchbaseDocument) migrated} and before it is written back. Converters that don't support
+   * encrypted properties don't need to do anything.
+   *
+   * @param type the type the document has been read as.
+   * @param target the document, which is encrypted in place.
+   */
+  default void encryptAll(Class<?> type, CouchbaseDocument target) {
+  }
+
+  /**
+   * Upgrade in place a document stored with an older schema version of its entity, before it is read. The document
+   * is not migrated when it is read, callers have to migrate it first. Converters that don't support
+   * versioned documents don't need to do anything.
+   *
+   * @param type the type the document is read as.
+   * @param source the document to migrate.
+   * @return true if the document has been migrated, false if it already was at the current version.
+   */
+  default boolean migrate(Class<?> type, CouchbaseDocument source) {
+    return false;
+  }
 }
@@ -16,9 +16,6 @@
 
 package org.springframework.data.couchbase.core.convert;
 
-import static java.time.ZoneId.systemDefault;
-
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
@@ -88,7 +85,7 @@ public final class DateConverters {
 
     @Override
     public String convert(Date source) {
-      return source == null ? null : source.toInstant().toString();
+      return source == null ? null : TemporalCodec.formatInstant(source.toInstant());
     }
   }
 
@@ -106,7 +103,7 @@ public final class DateConverters {
         date.setTime(((Number) source).longValue());
         return date;
       } else if (source instanceof String) {
-        return Date.from(Instant.parse((String) source).atZone(systemDefault()).toInstant());
+        return Date.from(TemporalCodec.parseInstant((String) source));
       } else {
         //Unsupported serialized object
         return null;
@@ -17,14 +17,22 @@
 package org.springframework.data.couchbase.core.convert;
 
 import org.springframework.data.convert.DefaultTypeMapper;
+import org.springframework.data.convert.SimpleTypeInformationMapper;
 import org.springframework.data.convert.TypeAliasAccessor;
 import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
 import org.springframework.data.mapping.Alias;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.mapping.context.MappingContext;
 
+import java.util.Collections;
 import java.util.Optional;
 
 /**
  * The Couchbase Type Mapper.
+ * <p/>
+ * When created with a {@link MappingContext}, the type key holds the {@link org.springframework.data.annotation.TypeAlias}
+ * of the entities that have one, and their fully qualified class name otherwise. Both forms are understood when
+ * reading, so that documents written before an alias was introduced can still be read.
  *
  * @author Michael Nitschinger
  * @author Mark Paluch
@@ -48,6 +56,19 @@ public class DefaultCouchbaseTypeMapper extends DefaultTypeMapper<CouchbaseDocum
     this.typeKey = typeKey;
   }
 
+  /**
+   * Create a new type mapper with the type key, writing the type aliases of the entities known to the mapping context.
+   *
+   * @param typeKey the typeKey to use.
+   * @param mappingContext the mapping context giving access to the type aliases.
+   */
+  public DefaultCouchbaseTypeMapper(final String typeKey,
+                                    final MappingContext<? extends PersistentEntity<?, ?>, ?> mappingContext) {
+    super(new CouchbaseDocumentTypeAliasAccessor(typeKey), mappingContext,
+        Collections.singletonList(new SimpleTypeInformationMapper()));
+    this.typeKey = typeKey;
+  }
+
   @Override
   public String getTypeKey() {
     return this.typeKey;
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.util.Assert;
+
+/**
+ * The {@link DocumentMigrator migrators} of the entities whose documents are versioned with
+ * {@link org.springframework.data.couchbase.core.mapping.Document#schemaVersion()}.
+ * <br /><br />
+ * A migrator is registered for the version it upgrades from. When a document stored with an older version is read,
+ * the migrators of all the versions between the stored one and the current one of the entity are applied in order;
+ * versions without a migrator are skipped, their structure being compatible with the next one. Documents without a
+ * stored version are considered to be of version 0.
+ */
+public class DocumentMigrations {
+
+  private final Map<Class<?>, NavigableMap<Integer, DocumentMigrator>> migrators =
+      new ConcurrentHashMap<Class<?>, NavigableMap<Integer, DocumentMigrator>>();
+
+  /**
+   * Register the migrator upgrading the documents of an entity from the given version to the next one.
+   *
+   * @param type the entity type.
+   * @param fromVersion the version the migrator upgrades from.
+   * @param migrator the migrator.
+   * @return this instance, to chain registrations.
+   */
+  public DocumentMigrations register(Class<?> type, int fromVersion, DocumentMigrator migrator) {
+    Assert.notNull(type, "Type must not be null!");
+    Assert.isTrue(fromVersion >= 0, "Version must not be negative!");
+    Assert.notNull(migrator, "Migrator must not be null!");
+    migrators.computeIfAbsent(type, t -> new ConcurrentSkipListMap<Integer, DocumentMigrator>())
+        .put(fromVersion, migrator);
+    return this;
+  }
+
+  /**
+   * Upgrade a document of the given entity type from its stored version to the target version.
+   *
+   * @param type the entity type.
+   * @param document the document, migrated in place.
+   * @param storedVersion the version the document was stored with.
+   * @param targetVersion the current version of the entity.
+   */
+  public void migrate(Class<?> type, CouchbaseDocument document, int storedVersion, int targetVersion) {
+    NavigableMap<Integer, DocumentMigrator> typeMigrators = migrators.get(type);
+    if (typeMigrators == null || storedVersion >= targetVersion) {
+      return;
+    }
+    for (DocumentMigrator migrator : typeMigrators.subMap(storedVersion, true, targetVersion, false).values()) {
+      migrator.migrate(document);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert;
+
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+
+/**
+ * Upgrades a stored document from one {@link org.springframework.data.couchbase.core.mapping.Document#schemaVersion()
+ * schema version} to the next one, before it is mapped to its entity.
+ *
+ * @see DocumentMigrations
+ */
+@FunctionalInterface
+public interface DocumentMigrator {
+
+  /**
+   * Change the structure of the document in place, for example by renaming, splitting or removing fields.
+   *
+   * @param document the document as stored with the previous schema version.
+   */
+  void migrate(CouchbaseDocument document);
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.couchbase.core.convert.encryption.FieldCryptoProvider;
+import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
+import org.springframework.data.couchbase.core.convert.translation.TranslationService;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.CouchbasePersistentEntity;
+import org.springframework.data.couchbase.core.mapping.CouchbasePersistentProperty;
+import org.springframework.data.couchbase.core.mapping.EncryptedField;
+import org.springframework.data.couchbase.core.mapping.StorageFormat;
+import org.springframework.data.mapping.MappingException;
+import org.springframework.data.mapping.PropertyHandler;
+
+/**
+ * Encrypts the properties annotated with {@link EncryptedField} when they are written, and decrypts them in place in
+ * the source documents before they are read, so that the rest of the conversion sees clear values.
+ * <p/>
+ * The values are serialized as JSON before being encrypted, which supports properties of any type. Decryption is done
+ * for batches of documents at once, grouping the values by algorithm and key, see
+ * {@link FieldCryptoProvider#decryptAll(List, String, List)}.
+ * <p/>
+ * Each value is bound to its field name and to the id of the stored document, passed to the provider as associated
+ * data, so that an encrypted value copied to another field or document can't be decrypted. The values of nested
+ * documents, which have no id, are only bound to their field name. Values encrypted before the binding was introduced
+ * don't carry the {@link #ASSOCIATED_DATA_KEY} marker and are decrypted without associated data.
+ */
+class FieldEncryption {
+
+  /**
+   * The prefix of the name of the fields holding encrypted values.
+   */
+  static final String ENCRYPTED_FIELD_PREFIX = "__crypt_";
+
+  private static final String ALGORITHM_KEY = "alg";
+  private static final String KEY_NAME_KEY = "kid";
+  private static final String CIPHERTEXT_KEY = "ciphertext";
+  private static final String ASSOCIATED_DATA_KEY = "aad";
+  private static final int ASSOCIATED_DATA_FIELD_AND_ID = 1;
+
+  private final Map<String, FieldCryptoProvider> providers = new LinkedHashMap<String, FieldCryptoProvider>();
+  private final FieldCryptoProvider defaultProvider;
+  private final TranslationService translationService;
+  private final Map<Class<?>, List<CouchbasePersistentProperty>> encryptedProperties =
+      new ConcurrentHashMap<Class<?>, List<CouchbasePersistentProperty>>();
+
+  FieldEncryption(List<? extends FieldCryptoProvider> providers) {
+    for (FieldCryptoProvider provider : providers) {
+      this.providers.put(provider.getAlgorithm(), provider);
+    }
+    this.defaultProvider = providers.isEmpty() ? null : providers.get(0);
+    JacksonTranslationService jacksonTranslationService = new JacksonTranslationService();
+    jacksonTranslationService.afterPropertiesSet();
+    this.translationService = jacksonTranslationService;
+  }
+
+  /**
+   * Encrypt the written value of a property.
+   *
+   * @param plaintext a document holding the written value of the property, under its field name.
+   * @param prop the property.
+   * @param documentId the id of the stored document the value is bound to, null for nested documents.
+   * @return the document to store in the field named after the property with the {@link #ENCRYPTED_FIELD_PREFIX}.
+   */
+  CouchbaseDocument encrypt(CouchbaseDocument plaintext, CouchbasePersistentProperty prop, String documentId) {
+    EncryptedField annotation = prop.findAnnotation(EncryptedField.class);
+    FieldCryptoProvider provider = annotation.algorithm().isEmpty() ? defaultProvider
+        : providers.get(annotation.algorithm());
+    if (provider == null) {
+      throw new MappingException("No crypto provider configured to encrypt property " + prop.getName()
+          + (annotation.algorithm().isEmpty() ? "" : " with " + annotation.algorithm()));
+    }
+
+    byte[] ciphertext;
+    try {
+      ciphertext = provider.encrypt(translationService.encode(plaintext, StorageFormat.JSON), annotation.key(),
+          associatedData(prop.getFieldName(), documentId));
+    } catch (GeneralSecurityException e) {
+      throw new MappingException("Could not encrypt property " + prop.getName(), e);
+    }
+    return new CouchbaseDocument()
+        .put(ALGORITHM_KEY, provider.getAlgorithm())
+        .put(KEY_NAME_KEY, annotation.key())
+        .put(ASSOCIATED_DATA_KEY, ASSOCIATED_DATA_FIELD_AND_ID)
+        .put(CIPHERTEXT_KEY, Base64.getEncoder().encodeToString(ciphertext));
+  }
+
+  /**
+   * The field name and the document id, length-prefixed so that no other pair is encoded the same.
+   */
+  private static byte[] associatedData(String fieldName, String documentId) {
+    return (fieldName.length() + ":" + fieldName + (documentId == null ? "" : documentId))
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decrypt in place the encrypted properties of documents of the same entity.
+   *
+   * @param entity the entity the documents are read as.
+   * @param sources the documents, which encrypted fields are replaced with the clear values.
+   */
+  void decryptAll(CouchbasePersistentEntity<?> entity, List<CouchbaseDocument> sources) {
+    List<CouchbasePersistentProperty> properties = getEncryptedProperties(entity);
+    if (properties.isEmpty()) {
+      return;
+    }
+
+    Map<List<String>, Batch> batches = new LinkedHashMap<List<String>, Batch>();
+    for (CouchbaseDocument source : sources) {
+      for (CouchbasePersistentProperty property : properties) {
+        Object encrypted = source.get(ENCRYPTED_FIELD_PREFIX + property.getFieldName());
+        if (!(encrypted instanceof CouchbaseDocument)) {
+          continue;
+        }
+        CouchbaseDocument envelope = (CouchbaseDocument) encrypted;
+        List<String> batchKey = new ArrayList<String>(2);
+        batchKey.add(String.valueOf(envelope.get(ALGORITHM_KEY)));
+        batchKey.add(String.valueOf(envelope.get(KEY_NAME_KEY)));
+        byte[] associatedData = envelope.containsKey(ASSOCIATED_DATA_KEY)
+            ? associatedData(property.getFieldName(), source.getId()) : null;
+        batches.computeIfAbsent(batchKey, key -> new Batch()).add(source, property.getFieldName(),
+            Base64.getDecoder().decode(String.valueOf(envelope.get(CIPHERTEXT_KEY))), associatedData);
+      }
+    }
+
+    for (Map.Entry<List<String>, Batch> entry : batches.entrySet()) {
+      String algorithm = entry.getKey().get(0);
+      String keyName = entry.getKey().get(1);
+      FieldCryptoProvider provider = providers.get(algorithm);
+      if (provider == null) {
+        throw new MappingException("No crypto provider configured to decrypt " + algorithm + " values of "
+            + entity.getType().getName());
+      }
+      entry.getValue().decrypt(provider, keyName);
+    }
+  }
+
+  /**
+   * Encrypt in place the clear values of the encrypted properties of a document, the reverse of
+   * {@link #decryptAll(CouchbasePersistentEntity, List)}.
+   *
+   * @param entity the entity of the document.
+   * @param target the stored document, which clear values are replaced with encrypted fields bound to its id.
+   */
+  void encryptAll(CouchbasePersistentEntity<?> entity, CouchbaseDocument target) {
+    for (CouchbasePersistentProperty property : getEncryptedProperties(entity)) {
+      String fieldName = property.getFieldName();
+      if (!target.containsKey(fieldName)) {
+        continue;
+      }
+      CouchbaseDocument plaintext = new CouchbaseDocument().put(fieldName, target.remove(fieldName));
+      target.put(ENCRYPTED_FIELD_PREFIX + fieldName, encrypt(plaintext, property, target.getId()));
+    }
+  }
+
+  private List<CouchbasePersistentProperty> getEncryptedProperties(CouchbasePersistentEntity<?> entity) {
+    List<CouchbasePersistentProperty> properties = encryptedProperties.get(entity.getType());
+    if (properties == null) {
+      List<CouchbasePersistentProperty> found = new ArrayList<CouchbasePersistentProperty>();
+      entity.doWithProperties(new PropertyHandler<CouchbasePersistentProperty>() {
+        @Override
+        public void doWithPersistentProperty(CouchbasePersistentProperty property) {
+          if (property.isAnnotationPresent(EncryptedField.class)) {
+            found.add(property);
+          }
+        }
+      });
+      properties = found.isEmpty() ? Collections.<CouchbasePersistentProperty>emptyList() : found;
+      encryptedProperties.put(entity.getType(), properties);
+    }
+    return properties;
+  }
+
+  /**
+   * The values encrypted with the same algorithm and key in a batch of documents.
+   */
+  private class Batch {
+
+    private final List<CouchbaseDocument> documents = new ArrayList<CouchbaseDocument>();
+    private final List<String> fieldNames = new ArrayList<String>();
+    private final List<byte[]> ciphertexts = new ArrayList<byte[]>();
+    private final List<byte[]> associatedData = new ArrayList<byte[]>();
+
+    void add(CouchbaseDocument document, String fieldName, byte[] ciphertext, byte[] associatedData) {
+      documents.add(document);
+      fieldNames.add(fieldName);
+      ciphertexts.add(ciphertext);
+      this.associatedData.add(associatedData);
+    }
+
+    void decrypt(FieldCryptoProvider provider, String keyName) {
+      List<byte[]> plaintexts;
+      try {
+        plaintexts = provider.decryptAll(ciphertexts, keyName, associatedData);
+      } catch (GeneralSecurityException e) {
+        throw new MappingException("Could not decrypt values encrypted with key " + keyName, e);
+      }
+
+      for (int i = 0; i < documents.size(); i++) {
+        String fieldName = fieldNames.get(i);
+        CouchbaseDocument plaintext = (CouchbaseDocument) translationService.decode(plaintexts.get(i),
+            new CouchbaseDocument());
+        CouchbaseDocument document = documents.get(i);
+        document.remove(ENCRYPTED_FIELD_PREFIX + fieldName);
+        document.put(fieldName, plaintext.get(fieldName));
+      }
+    }
+  }
+}
@@ -17,15 +17,20 @@
 package org.springframework.data.couchbase.core.convert;
 
 import static org.springframework.data.couchbase.core.mapping.id.GenerationStrategy.*;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.couchbase.client.java.repository.annotation.Field;
 
@@ -35,10 +40,17 @@ import org.springframework.core.CollectionFactory;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.data.convert.EntityInstantiator;
+import org.springframework.data.couchbase.core.convert.encryption.FieldCryptoProvider;
+import org.springframework.data.couchbase.core.convert.translation.Compression;
+import org.springframework.data.couchbase.core.mapping.Compressed;
 import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
 import org.springframework.data.couchbase.core.mapping.CouchbaseList;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentEntity;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentProperty;
+import org.springframework.data.couchbase.core.mapping.EncryptedField;
+import org.springframework.data.couchbase.core.mapping.SparseMode;
+import org.springframework.data.couchbase.core.mapping.Temporal;
+import org.springframework.data.couchbase.core.mapping.TemporalEncoding;
 import org.springframework.data.couchbase.core.mapping.id.GeneratedValue;
 import org.springframework.data.couchbase.core.mapping.id.IdAttribute;
 import org.springframework.data.couchbase.core.mapping.id.IdPrefix;
@@ -48,6 +60,7 @@ import org.springframework.data.mapping.Association;
 import org.springframework.data.mapping.AssociationHandler;
 import org.springframework.data.mapping.MappingException;
 import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PreferredConstructor;
 import org.springframework.data.mapping.PreferredConstructor.Parameter;
 import org.springframework.data.mapping.PropertyHandler;
 import org.springframework.data.mapping.context.MappingContext;
@@ -62,7 +75,9 @@ import org.springframework.data.mapping.model.SpELExpressionParameterValueProvid
 import org.springframework.data.util.ClassTypeInformation;
 import org.springframework.data.util.TypeInformation;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * A mapping converter for Couchbase.
@@ -85,12 +100,22 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
    */
   public static final String TYPEKEY_DEFAULT = DefaultCouchbaseTypeMapper.DEFAULT_TYPE_KEY;
 
+  /**
+   * The default name of the field that holds the schema version of the documents of versioned entities.
+   */
+  public static final String SCHEMA_VERSION_KEY_DEFAULT = "_schemaVersion";
+
   /**
    * A "type key" (the name of the field that will hold type information) that is
    * compatible with Sync Gateway (which doesn't allows underscores).
    */
   public static final String TYPEKEY_SYNCGATEWAY_COMPATIBLE = "javaClass";
 
+  /**
+   * The key of the object holding the base64 of a {@link Compressed} value.
+   */
+  static final String COMPRESSED_KEY = "deflate";
+
   /**
    * The overall application context.
    */
@@ -117,6 +142,32 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
    */
   private boolean enableStrictFieldChecking = false;
 
+  /**
+   * Encrypts and decrypts the {@link EncryptedField} properties.
+   */
+  private FieldEncryption fieldEncryption = new FieldEncryption(Collections.<FieldCryptoProvider>emptyList());
+
+  /**
+   * The migrators of the documents stored with an older schema version.
+   */
+  private DocumentMigrations documentMigrations = new DocumentMigrations();
+
+  /**
+   * The attribute holding the schema version of the documents.
+   */
+  private String schemaVersionKey = SCHEMA_VERSION_KEY_DEFAULT;
+
+  /**
+   * Which values are left out of the documents of the entities that don't configure it.
+   */
+  private SparseMode sparseMode = SparseMode.NONE;
+
+  /**
+   * How the entities are instantiated, analyzed once per entity type.
+   */
+  private final Map<Class<?>, ConstructorMapping> constructorMappings =
+      new ConcurrentHashMap<Class<?>, ConstructorMapping>();
+
   /**
    * Create a new {@link MappingCouchbaseConverter}.
    *
@@ -139,7 +190,7 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     super(new DefaultConversionService());
 
     this.mappingContext = mappingContext;
-    typeMapper = new DefaultCouchbaseTypeMapper(typeKey != null ? typeKey : TYPEKEY_DEFAULT);
+    typeMapper = new DefaultCouchbaseTypeMapper(typeKey != null ? typeKey : TYPEKEY_DEFAULT, mappingContext);
     spELContext = new SpELContext(CouchbaseDocumentPropertyAccessor.INSTANCE);
   }
 
@@ -153,6 +204,122 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     return typeMapper.getTypeKey();
   }
 
+  /**
+   * Set the providers used to encrypt and decrypt the properties annotated with {@link EncryptedField}. The first one
+   * encrypts the properties that don't name an algorithm, the others are looked up by the algorithm stored with each
+   * encrypted value.
+   *
+   * @param cryptoProviders the crypto providers.
+   */
+  public void setCryptoProviders(List<? extends FieldCryptoProvider> cryptoProviders) {
+    this.fieldEncryption = new FieldEncryption(cryptoProviders);
+  }
+
+  /**
+   * Decrypt at once the {@link EncryptedField} properties of documents read for the same type, for example the
+   * results of a query, before they are converted one by one.
+   *
+   * @param type the type the documents are read as.
+   * @param sources the documents, which are decrypted in place.
+   */
+  @Override
+  public void decryptAll(Class<?> type, List<CouchbaseDocument> sources) {
+    CouchbasePersistentEntity<?> entity = mappingContext.getPersistentEntity(type);
+    if (entity != null && !sources.isEmpty()) {
+      fieldEncryption.decryptAll(entity, sources);
+    }
+  }
+
+  /**
+   * Set the migrators applied to the documents of versioned entities (see
+   * {@link org.springframework.data.couchbase.core.mapping.Document#schemaVersion()}) stored with an older version.
+   *
+   * @param documentMigrations the migrators.
+   */
+  public void setDocumentMigrations(DocumentMigrations documentMigrations) {
+    this.documentMigrations = documentMigrations == null ? new DocumentMigrations() : documentMigrations;
+  }
+
+  /**
+   * Set the name of the attribute holding the schema version of the documents of versioned entities, defaults to
+   * {@value #SCHEMA_VERSION_KEY_DEFAULT}.
+   *
+   * @param schemaVersionKey the attribute name.
+   */
+  public void setSchemaVersionKey(String schemaVersionKey) {
+    Assert.hasText(schemaVersionKey, "Schema version key must not be empty!");
+    this.schemaVersionKey = schemaVersionKey;
+  }
+
+  /**
+   * @return the name of the attribute holding the schema version of the documents.
+   */
+  public String getSchemaVersionKey() {
+    return schemaVersionKey;
+  }
+
+  @Override
+  public boolean migrate(Class<?> type, CouchbaseDocument source) {
+    CouchbasePersistentEntity<?> entity = getDocumentEntity(type, source);
+    return entity != null && migrateInternal(entity, source);
+  }
+
+  @Override
+  public void encryptAll(Class<?> type, CouchbaseDocument target) {
+    CouchbasePersistentEntity<?> entity = getDocumentEntity(type, target);
+    if (entity != null) {
+      fieldEncryption.encryptAll(entity, target);
+    }
+  }
+
+  /**
+   * The entity a document is read as, taking its type key into account.
+   *
+   * @return the entity, or null if the document is read as a map.
+   */
+  private CouchbasePersistentEntity<?> getDocumentEntity(Class<?> type, CouchbaseDocument source) {
+    TypeInformation<?> typeToUse = typeMapper.readType(source, ClassTypeInformation.from(type));
+    return typeToUse.isMap() ? null : mappingContext.getPersistentEntity(typeToUse);
+  }
+
+  private boolean migrateInternal(final CouchbasePersistentEntity<?> entity, final CouchbaseDocument source) {
+    int targetVersion = entity.getSchemaVersion();
+    if (targetVersion == 0) {
+      return false;
+    }
+    Object storedVersion = source.get(schemaVersionKey);
+    int version = storedVersion instanceof Number ? ((Number) storedVersion).intValue() : 0;
+    if (version >= targetVersion) {
+      return false;
+    }
+
+    //migrators see the clear values of the encrypted properties
+    fieldEncryption.decryptAll(entity, Collections.singletonList(source));
+    documentMigrations.migrate(entity.getType(), source, version, targetVersion);
+    source.put(schemaVersionKey, targetVersion);
+    return true;
+  }
+
+  /**
+   * Set which empty or default values are left out of the documents of the entities that don't configure it with
+   * {@link org.springframework.data.couchbase.core.mapping.Document#sparseMode()}, defaults to
+   * {@link SparseMode#NONE}.
+   *
+   * @param sparseMode the sparse mode.
+   */
+  public void setSparseMode(SparseMode sparseMode) {
+    this.sparseMode = sparseMode == null || sparseMode == SparseMode.DEFAULT ? SparseMode.NONE : sparseMode;
+  }
+
+  public SparseMode getSparseMode() {
+    return sparseMode;
+  }
+
+  private SparseMode getSparseMode(final CouchbasePersistentEntity<?> entity) {
+    SparseMode entityMode = entity.getSparseMode();
+    return entityMode == SparseMode.DEFAULT ? sparseMode : entityMode;
+  }
+
   /**
    * Toggles strict checking of the couchbase {@link Field} annotation. If enabled,
    * strict checking will prevent non-annotated properties to be serialized. This only
@@ -202,8 +369,9 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     TypeInformation<? extends R> typeToUse = typeMapper.readType(source, type);
     Class<? extends R> rawType = typeToUse.getType();
 
-    if (conversions.hasCustomReadTarget(source.getClass(), rawType)) {
-      return conversionService.convert(source, rawType);
+    ConversionPlans.ReadPlan readPlan = getConversionPlans().getReadPlan(source.getClass(), rawType);
+    if (readPlan.getKind() == ConversionPlans.ReadPlan.Kind.CONVERT) {
+      return (R) readPlan.convert(source, conversionService);
     }
 
     if (typeToUse.isMap()) {
@@ -229,6 +397,12 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
    * @return the converted entity.
    */
   protected <R> R read(final CouchbasePersistentEntity<R> entity, final CouchbaseDocument source, final Object parent) {
+    fieldEncryption.decryptAll(entity, Collections.singletonList(source));
+    ConstructorMapping constructorMapping = getConstructorMapping(entity);
+    if (constructorMapping.isConstructorOnly()) {
+      return readConstructorOnly(entity, source, parent, constructorMapping);
+    }
+
     final DefaultSpELExpressionEvaluator evaluator = new DefaultSpELExpressionEvaluator(source, spELContext);
     ParameterValueProvider<CouchbasePersistentProperty> provider =
         getParameterProvider(entity, source, evaluator, parent);
@@ -240,7 +414,14 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     entity.doWithProperties(new PropertyHandler<CouchbasePersistentProperty>() {
       @Override
       public void doWithPersistentProperty(final CouchbasePersistentProperty prop) {
-        if (!doesPropertyExistInSource(prop) || entity.isConstructorArgument(prop) || isIdConstructionProperty(prop) || prop.isAnnotationPresent(N1qlJoin.class)) {
+        if (entity.isConstructorArgument(prop) || isIdConstructionProperty(prop) || prop.isAnnotationPresent(N1qlJoin.class)) {
+          return;
+        }
+        if (!doesPropertyExistInSource(prop)) {
+          Object omitted = getSparseDefault(prop);
+          if (omitted != null) {
+            accessor.setProperty(prop, omitted);
+          }
           return;
         }
         Object obj = prop.isIdProperty() ? source.getId() : getValueInternal(prop, source, instance);
@@ -266,6 +447,30 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     return instance;
   }
 
+  /**
+   * Read an entity whose properties are all populated through its constructor: the constructor arguments are read
+   * straight from the document, without any SpEL evaluation, and the id is set through its wither if it is not a
+   * constructor argument.
+   */
+  @SuppressWarnings("unchecked")
+  private <R> R readConstructorOnly(final CouchbasePersistentEntity<R> entity, final CouchbaseDocument source,
+                                    final Object parent, final ConstructorMapping constructorMapping) {
+    ParameterValueProvider<CouchbasePersistentProperty> provider = new PersistentEntityParameterValueProvider<>(
+        entity, new CouchbasePropertyValueProvider(source, parent), parent);
+    R instance = instantiators.getInstantiatorFor(entity).createInstance(entity, provider);
+
+    Method idWither = constructorMapping.getIdWither();
+    if (idWither != null && source.getId() != null) {
+      Object id = conversionService.convert(source.getId(), idWither.getParameterTypes()[0]);
+      instance = (R) ReflectionUtils.invokeMethod(idWither, instance, id);
+    }
+    return instance;
+  }
+
+  private ConstructorMapping getConstructorMapping(final CouchbasePersistentEntity<?> entity) {
+    return constructorMappings.computeIfAbsent(entity.getType(), type -> ConstructorMapping.of(entity));
+  }
+
   /**
    * Loads the property value through the value provider.
    *
@@ -353,23 +558,21 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
       return value;
     }
 
-    if (conversions.hasCustomReadTarget(value.getClass(), target)) {
-      return conversionService.convert(value, target);
-    }
-
-    if (Enum.class.isAssignableFrom(target)) {
-      return Enum.valueOf((Class<Enum>) target, value.toString());
-    }
-
-    if (Class.class.isAssignableFrom(target)) {
-      try {
-        return Class.forName(value.toString());
-      } catch (ClassNotFoundException e) {
-        throw new MappingException("Unable to create class from " + value.toString());
-      }
+    ConversionPlans.ReadPlan plan = getConversionPlans().getReadPlan(value.getClass(), target);
+    switch (plan.getKind()) {
+      case ENUM:
+        return Enum.valueOf((Class<Enum>) target, value.toString());
+      case CLASS:
+        try {
+          return Class.forName(value.toString());
+        } catch (ClassNotFoundException e) {
+          throw new MappingException("Unable to create class from " + value.toString());
+        }
+      case PASS_THROUGH:
+        return value;
+      default:
+        return plan.convert(value, conversionService);
     }
-
-    return target.isAssignableFrom(value.getClass()) ? value : conversionService.convert(value, target);
   }
 
   @Override
@@ -378,14 +581,18 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
       return;
     }
 
-    boolean isCustom = conversions.getCustomWriteTarget(source.getClass(), CouchbaseDocument.class).isPresent();
+    boolean isCustom = getConversionPlans().getWritePlan(source.getClass()).hasCustomDocumentConversion();
     TypeInformation<?> type = ClassTypeInformation.from(source.getClass());
 
     if (!isCustom) {
       typeMapper.writeType(type, target);
+      CouchbasePersistentEntity<?> entity = mappingContext.getPersistentEntity(type);
+      if (entity != null && entity.getSchemaVersion() > 0) {
+        target.put(schemaVersionKey, entity.getSchemaVersion());
+      }
     }
 
-    writeInternal(source, target, type);
+    writeInternal(source, target, type, true);
     if (target.getId() == null) {
       throw new MappingException("An ID property is needed, but not found/could not be generated on this entity.");
     }
@@ -398,14 +605,22 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
    * @param target the target document.
    * @param typeHint the type information for the source.
    */
-  @SuppressWarnings("unchecked")
   protected void writeInternal(final Object source, CouchbaseDocument target, final TypeInformation<?> typeHint) {
+    writeInternal(source, target, typeHint, false);
+  }
+
+  /**
+   * @param root whether the target is the stored document rather than a nested one, the encrypted properties of the
+   *   stored document are bound to its id.
+   */
+  @SuppressWarnings("unchecked")
+  private void writeInternal(final Object source, CouchbaseDocument target, final TypeInformation<?> typeHint,
+                             final boolean root) {
     if (source == null) {
       return;
     }
 
-    Optional<Class<?>> customTarget = conversions.getCustomWriteTarget(source.getClass(), CouchbaseDocument.class);
-    if (customTarget.isPresent()) {
+    if (getConversionPlans().getWritePlan(source.getClass()).hasCustomDocumentConversion()) {
       copyCouchbaseDocument(conversionService.convert(source, CouchbaseDocument.class), target);
       return;
     }
@@ -420,7 +635,7 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     }
 
     CouchbasePersistentEntity<?> entity = mappingContext.getPersistentEntity(source.getClass());
-    writeInternal(source, target, entity);
+    writeInternal(source, target, entity, root);
     addCustomTypeKeyIfNecessary(typeHint, source, target);
   }
 
@@ -457,6 +672,11 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
    */
   protected void writeInternal(final Object source, final CouchbaseDocument target,
                                final CouchbasePersistentEntity<?> entity) {
+    writeInternal(source, target, entity, false);
+  }
+
+  private void writeInternal(final Object source, final CouchbaseDocument target,
+                             final CouchbasePersistentEntity<?> entity, final boolean root) {
     if (source == null) {
       return;
     }
@@ -473,8 +693,10 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     final TreeMap<Integer, String> prefixes = new TreeMap<>();
     final TreeMap<Integer, String> suffixes = new TreeMap<>();
     final TreeMap<Integer, String> idAttributes = new TreeMap<>();
+    final Map<CouchbasePersistentProperty, CouchbaseDocument> encrypted = new LinkedHashMap<>();
 
     target.setExpiration(entity.getExpiry());
+    final SparseMode entitySparseMode = getSparseMode(entity);
 
     entity.doWithProperties(new PropertyHandler<CouchbasePersistentProperty>() {
       @Override
@@ -509,11 +731,33 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
             idAttributes.put(order, convertToString(propertyObj));
           }
 
-          if (!conversions.isSimpleType(propertyObj.getClass())) {
+          if (entitySparseMode != SparseMode.NONE && isSparselyOmitted(propertyObj, prop, entitySparseMode)) {
+            return;
+          }
+
+          if (prop.isAnnotationPresent(EncryptedField.class)) {
+            encrypted.put(prop, writeEncryptedInternal(propertyObj, prop));
+            return;
+          }
+
+          if (prop.isAnnotationPresent(Compressed.class) && writeCompressedInternal(propertyObj, target, prop)) {
+            return;
+          }
+
+          if (prop.isAnnotationPresent(Temporal.class)) {
+            TemporalEncoding encoding = prop.findAnnotation(Temporal.class).value();
+            target.put(prop.getFieldName(), TemporalCodec.encode(propertyObj, encoding));
+            return;
+          }
+
+          if (!getConversionPlans().getWritePlan(propertyObj.getClass()).isSimple()) {
             writePropertyInternal(propertyObj, target, prop);
           } else {
             writeSimpleInternal(propertyObj, target, prop.getFieldName());
           }
+        } else if (entitySparseMode != SparseMode.NONE && isContainer(prop)) {
+          //a missing collection is read back as an empty one, a null one is written as an explicit null
+          target.put(prop.getFieldName(), null);
         }
       }
     });
@@ -528,6 +772,13 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
       }
     }
 
+    //the encrypted values are bound to the id of the stored document, which is only known once it is generated
+    String boundId = root ? target.getId() : null;
+    for (Map.Entry<CouchbasePersistentProperty, CouchbaseDocument> entry : encrypted.entrySet()) {
+      target.put(FieldEncryption.ENCRYPTED_FIELD_PREFIX + entry.getKey().getFieldName(),
+          fieldEncryption.encrypt(entry.getValue(), entry.getKey(), boundId));
+    }
+
     entity.doWithAssociations(new AssociationHandler<CouchbasePersistentProperty>() {
       @Override
       public void doWithAssociation(final Association<CouchbasePersistentProperty> association) {
@@ -542,6 +793,53 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
 
   }
 
+  /**
+   * Whether a property value is left out of the document in the given sparse mode.
+   */
+  private static boolean isSparselyOmitted(final Object value, final CouchbasePersistentProperty prop,
+                                           final SparseMode mode) {
+    if (value instanceof Collection) {
+      return ((Collection<?>) value).isEmpty();
+    } else if (value instanceof Map) {
+      return ((Map<?, ?>) value).isEmpty();
+    } else if (value.getClass().isArray()) {
+      return Array.getLength(value) == 0;
+    }
+    return mode == SparseMode.OMIT_DEFAULTS && prop.getType().isPrimitive()
+        && value.equals(Array.get(Array.newInstance(prop.getType(), 1), 0));
+  }
+
+  /**
+   * The value of a property missing from the document, restored if it may have been left out by a sparse mode.
+   *
+   * @return the empty collection, map or array, or the default of a primitive, null if the property was not omitted.
+   */
+  private Object getSparseDefault(final CouchbasePersistentProperty prop) {
+    SparseMode mode = getSparseMode((CouchbasePersistentEntity<?>) prop.getOwner());
+    if (mode == SparseMode.NONE || prop.isIdProperty() || prop.isVersionProperty()) {
+      return null;
+    }
+
+    Class<?> type = prop.getType();
+    if (type.isArray()) {
+      return Array.newInstance(type.getComponentType(), 0);
+    } else if (prop.isMap()) {
+      return CollectionFactory.createMap(type, prop.getComponentType(), 0);
+    } else if (prop.isCollectionLike()) {
+      return CollectionFactory.createCollection(type, prop.getComponentType(), 0);
+    } else if (mode == SparseMode.OMIT_DEFAULTS && type.isPrimitive()) {
+      return Array.get(Array.newInstance(type, 1), 0);
+    }
+    return null;
+  }
+
+  /**
+   * Whether the property holds a collection, a map or an array, which are left out of sparse documents when empty.
+   */
+  private static boolean isContainer(final CouchbasePersistentProperty prop) {
+    return prop.getType().isArray() || prop.isMap() || prop.isCollectionLike();
+  }
+
   /**
    * Helper method to write a property into the target document.
    *
@@ -561,7 +859,7 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     TypeInformation<?> type = prop.getTypeInformation();
 
     if (valueType.isCollectionLike()) {
-      CouchbaseList collectionDoc = createCollection(asCollection(source), prop);
+      CouchbaseList collectionDoc = createCollection(source, prop);
       target.put(name, collectionDoc);
       return;
     }
@@ -572,13 +870,9 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
       return;
     }
 
-    Optional<Class<?>> basicTargetType = conversions.getCustomWriteTarget(source.getClass());
-    if (basicTargetType.isPresent()) {
-
-      basicTargetType.ifPresent(it -> {
-        target.put(name, conversionService.convert(source, it));
-      });
-
+    ConversionPlans.WritePlan plan = getConversionPlans().getWritePlan(source.getClass());
+    if (plan.getKind() == ConversionPlans.WritePlan.Kind.CONVERT) {
+      target.put(name, plan.convert(source, conversionService));
       return;
     }
 
@@ -591,6 +885,73 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     target.put(name, propertyDoc);
   }
 
+  /**
+   * Helper method to write an {@link EncryptedField} property: the value is written as usual in a separate document,
+   * which is then encrypted.
+   *
+   * @param source the source object.
+   * @param prop the property information.
+   * @return the document to encrypt.
+   */
+  private CouchbaseDocument writeEncryptedInternal(final Object source, final CouchbasePersistentProperty prop) {
+    CouchbaseDocument plaintext = new CouchbaseDocument();
+    if (prop.isAnnotationPresent(Temporal.class)) {
+      plaintext.put(prop.getFieldName(), TemporalCodec.encode(source, prop.findAnnotation(Temporal.class).value()));
+    } else if (!getConversionPlans().getWritePlan(source.getClass()).isSimple()) {
+      writePropertyInternal(source, plaintext, prop);
+    } else {
+      writeSimpleInternal(source, plaintext, prop.getFieldName());
+    }
+    return plaintext;
+  }
+
+  /**
+   * Helper method to write a {@link Compressed} property, if it is large enough and compresses well.
+   *
+   * @param source the source object.
+   * @param target the target document.
+   * @param prop the property information.
+   * @return true if the value has been written compressed, false if it should be written as usual.
+   */
+  private boolean writeCompressedInternal(final Object source, final CouchbaseDocument target,
+                                          final CouchbasePersistentProperty prop) {
+    byte[] data;
+    if (source instanceof String) {
+      data = ((String) source).getBytes(StandardCharsets.UTF_8);
+    } else if (source instanceof byte[]) {
+      data = (byte[]) source;
+    } else {
+      return false;
+    }
+
+    if (data.length < prop.findAnnotation(Compressed.class).threshold()) {
+      return false;
+    }
+
+    String compressed = Base64.getEncoder().encodeToString(Compression.compress(data));
+    if (compressed.length() >= data.length) {
+      return false;
+    }
+    target.put(prop.getFieldName(), new CouchbaseDocument().put(COMPRESSED_KEY, compressed));
+    return true;
+  }
+
+  private static boolean isCompressedValue(final Object value) {
+    return value instanceof CouchbaseDocument && ((CouchbaseDocument) value).get(COMPRESSED_KEY) instanceof String;
+  }
+
+  /**
+   * Helper method to read a {@link Compressed} property that has been stored compressed.
+   *
+   * @param value the stored value.
+   * @param prop the property information.
+   * @return the decompressed value.
+   */
+  private Object readCompressedInternal(final CouchbaseDocument value, final CouchbasePersistentProperty prop) {
+    byte[] data = Compression.decompress(Base64.getDecoder().decode((String) value.get(COMPRESSED_KEY)));
+    return byte[].class.equals(prop.getType()) ? data : new String(data, StandardCharsets.UTF_8);
+  }
+
   /**
    * Wrapper method to create the underlying map.
    *
@@ -625,7 +986,7 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
         if (val == null || conversions.isSimpleType(val.getClass())) {
           writeSimpleInternal(val, target, simpleKey);
         } else if (val instanceof Collection || val.getClass().isArray()) {
-          target.put(simpleKey, writeCollectionInternal(asCollection(val), new CouchbaseList(conversions.getSimpleTypeHolder()), type.getMapValueType()));
+          target.put(simpleKey, writeCollectionOrArray(val, type.getMapValueType()));
         } else {
           CouchbaseDocument embeddedDoc = new CouchbaseDocument();
           TypeInformation<?> valueTypeInfo = type.isMap() ? type.getMapValueType() : ClassTypeInformation.OBJECT;
@@ -643,12 +1004,46 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
   /**
    * Helper method to create the underlying collection/list.
    *
-   * @param collection the collection to write.
+   * @param collection the collection or array to write.
    * @param prop the property information.
    * @return the created couchbase list.
    */
-  private CouchbaseList createCollection(final Collection<?> collection, final CouchbasePersistentProperty prop) {
-    return writeCollectionInternal(collection, new CouchbaseList(conversions.getSimpleTypeHolder()), prop.getTypeInformation());
+  private CouchbaseList createCollection(final Object collection, final CouchbasePersistentProperty prop) {
+    return writeCollectionOrArray(collection, prop.getTypeInformation());
+  }
+
+  /**
+   * Helper method to write a collection or an array into a new couchbase list.
+   * <p/>
+   * Arrays of numbers and booleans are stored as is, without boxing and checking their values one by one.
+   *
+   * @param source the collection or array to write.
+   * @param type the type information for the list.
+   * @return the created couchbase list.
+   */
+  private CouchbaseList writeCollectionOrArray(final Object source, final TypeInformation<?> type) {
+    CouchbaseList target = new CouchbaseList(conversions.getSimpleTypeHolder());
+    if (isDirectlyWritablePrimitiveArray(source.getClass())) {
+      return target.putPrimitiveArray(source);
+    }
+    return writeCollectionInternal(asCollection(source), target, type);
+  }
+
+  /**
+   * Checks if the given array type can be written as is: <code>byte[]</code> and <code>char[]</code> are excluded
+   * since they would not be encoded as JSON arrays, as well as component types with a custom write converter.
+   *
+   * @param type the type to check.
+   * @return true if the type is a primitive array that needs no conversion.
+   */
+  private boolean isDirectlyWritablePrimitiveArray(final Class<?> type) {
+    if (!type.isArray() || !type.getComponentType().isPrimitive()) {
+      return false;
+    }
+
+    Class<?> componentType = type.getComponentType();
+    return componentType != byte.class && componentType != char.class
+        && !conversions.getCustomWriteTarget(ClassUtils.resolvePrimitiveIfNecessary(componentType)).isPresent();
   }
 
   /**
@@ -662,14 +1057,22 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
   private CouchbaseList writeCollectionInternal(final Collection<?> source, final CouchbaseList target,
                                                 final TypeInformation<?> type) {
     TypeInformation<?> componentType = type == null ? null : type.getComponentType();
+    // collections are mostly homogeneous, remember the last simple type that needed no conversion
+    Class<?> unconvertedType = null;
 
     for (Object element : source) {
       Class<?> elementType = element == null ? null : element.getClass();
 
-      if (elementType == null || conversions.isSimpleType(elementType)) {
-        target.put(getPotentiallyConvertedSimpleWrite(element));
+      if (elementType != null && elementType == unconvertedType) {
+        target.put(element);
+      } else if (elementType == null || getConversionPlans().getWritePlan(elementType).isSimple()) {
+        Object converted = getPotentiallyConvertedSimpleWrite(element);
+        if (converted != null && converted == element) {
+          unconvertedType = elementType;
+        }
+        target.put(converted);
       } else if (element instanceof Collection || elementType.isArray()) {
-        target.put(writeCollectionInternal(asCollection(element), new CouchbaseList(conversions.getSimpleTypeHolder()), componentType));
+        target.put(writeCollectionOrArray(element, componentType));
       } else {
 
         CouchbaseDocument embeddedDoc = new CouchbaseDocument();
@@ -699,6 +1102,13 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
       return getPotentiallyConvertedSimpleRead(new HashSet<Object>(), collectionType);
     }
 
+    if (collectionType.isArray() && collectionType.getComponentType().isPrimitive()) {
+      Object array = readPrimitiveArray(collectionType.getComponentType(), source);
+      if (array != null) {
+        return array;
+      }
+    }
+
     collectionType = Collection.class.isAssignableFrom(collectionType) ? collectionType : List.class;
     Collection<Object> items = targetType.getType().isArray() ? new ArrayList<Object>() : CollectionFactory
         .createCollection(collectionType, source.size(false));
@@ -721,6 +1131,81 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
     return getPotentiallyConvertedSimpleRead(items, targetType.getType());
   }
 
+  /**
+   * Read a primitive array directly from the source list, without boxing the values in an intermediate collection.
+   *
+   * @param componentType the primitive component type of the array.
+   * @param source the list as source.
+   * @return the array, or null if the values do not all match the component type and need to be converted.
+   */
+  private Object readPrimitiveArray(final Class<?> componentType, final CouchbaseList source) {
+    int size = source.size(false);
+
+    Object backingArray = source.getPrimitiveArray(componentType);
+    if (backingArray != null) {
+      Object array = Array.newInstance(componentType, size);
+      System.arraycopy(backingArray, 0, array, 0, size);
+      return array;
+    }
+
+    if (componentType == char.class
+        || getConversionPlans().getReadPlan(Number.class, ClassUtils.resolvePrimitiveIfNecessary(componentType))
+            .getKind() == ConversionPlans.ReadPlan.Kind.CONVERT) {
+      return null;
+    }
+
+    for (int i = 0; i < size; i++) {
+      Object value = source.get(i);
+      if (componentType == boolean.class ? !(value instanceof Boolean) : !(value instanceof Number)) {
+        return null;
+      }
+    }
+
+    if (componentType == double.class) {
+      double[] array = new double[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = ((Number) source.get(i)).doubleValue();
+      }
+      return array;
+    } else if (componentType == long.class) {
+      long[] array = new long[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = ((Number) source.get(i)).longValue();
+      }
+      return array;
+    } else if (componentType == int.class) {
+      int[] array = new int[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = ((Number) source.get(i)).intValue();
+      }
+      return array;
+    } else if (componentType == float.class) {
+      float[] array = new float[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = ((Number) source.get(i)).floatValue();
+      }
+      return array;
+    } else if (componentType == short.class) {
+      short[] array = new short[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = ((Number) source.get(i)).shortValue();
+      }
+      return array;
+    } else if (componentType == byte.class) {
+      byte[] array = new byte[size];
+      for (int i = 0; i < size; i++) {
+        array[i] = ((Number) source.get(i)).byteValue();
+      }
+      return array;
+    }
+
+    boolean[] array = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      array[i] = (Boolean) source.get(i);
+    }
+    return array;
+  }
+
   /**
    * Returns a collection from the given source object.
    *
@@ -762,10 +1247,15 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
       return null;
     }
 
-    Optional<Class<?>> customTarget = conversions.getCustomWriteTarget(value.getClass());
-
-    return customTarget.map(it -> (Object) conversionService.convert(value, it))
-            .orElseGet(() -> Enum.class.isAssignableFrom(value.getClass()) ? ((Enum<?>) value).name() : value);
+    ConversionPlans.WritePlan plan = getConversionPlans().getWritePlan(value.getClass());
+    switch (plan.getKind()) {
+      case CONVERT:
+        return plan.convert(value, conversionService);
+      case ENUM_NAME:
+        return ((Enum<?>) value).name();
+      default:
+        return value;
+    }
   }
 
   /**
@@ -803,8 +1293,9 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
   private <R> R readValue(Object value, TypeInformation<?> type, Object parent) {
     Class<?> rawType = type.getType();
 
-    if (conversions.hasCustomReadTarget(value.getClass(), rawType)) {
-      return (R) conversionService.convert(value, rawType);
+    ConversionPlans.ReadPlan plan = getConversionPlans().getReadPlan(value.getClass(), rawType);
+    if (plan.getKind() == ConversionPlans.ReadPlan.Kind.CONVERT) {
+      return (R) plan.convert(value, conversionService);
     } else if (value instanceof CouchbaseDocument) {
       return (R) read(type, (CouchbaseDocument) value, parent);
     } else if (value instanceof CouchbaseList) {
@@ -857,6 +1348,17 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
       this.parent = parent;
     }
 
+    /**
+     * A provider for entities without any SpEL expression, see {@link ConstructorMapping}.
+     */
+    CouchbasePropertyValueProvider(final CouchbaseDocument source, final Object parent) {
+      Assert.notNull(source, "CouchbaseDocument must not be null!");
+
+      this.source = source;
+      this.evaluator = null;
+      this.parent = parent;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <R> R getPropertyValue(final CouchbasePersistentProperty property) {
@@ -867,13 +1369,86 @@ public class MappingCouchbaseConverter extends AbstractCouchbaseConverter
         return (R) source.getId();
       }
       if (value == null) {
-        return null;
+        //an explicit null is kept, only the missing values may have been left out by a sparse mode
+        return expression == null && !source.containsKey(property.getFieldName())
+            ? (R) getSparseDefault(property) : null;
+      }
+      if (property.isAnnotationPresent(Compressed.class) && isCompressedValue(value)) {
+        return (R) readCompressedInternal((CouchbaseDocument) value, property);
+      }
+      if (property.isAnnotationPresent(Temporal.class)) {
+        return (R) TemporalCodec.decode(value, property.getType(), property.findAnnotation(Temporal.class).value());
       }
 
       return readValue(value, property.getTypeInformation(), parent);
     }
   }
 
+  /**
+   * Whether an entity can be read with its constructor alone, which is the case of immutable types whose persistent
+   * properties are all constructor arguments, or are only completed with a wither for the id.
+   */
+  static final class ConstructorMapping {
+
+    private static final ConstructorMapping NOT_CONSTRUCTOR_ONLY = new ConstructorMapping(false, null);
+
+    private final boolean constructorOnly;
+    private final Method idWither;
+
+    private ConstructorMapping(boolean constructorOnly, Method idWither) {
+      this.constructorOnly = constructorOnly;
+      this.idWither = idWither;
+    }
+
+    static ConstructorMapping of(final CouchbasePersistentEntity<?> entity) {
+      PreferredConstructor<?, CouchbasePersistentProperty> constructor = entity.getPersistenceConstructor();
+      if (constructor == null || !constructor.hasParameters()) {
+        return NOT_CONSTRUCTOR_ONLY;
+      }
+      for (Parameter<?, CouchbasePersistentProperty> parameter : constructor.getParameters()) {
+        if (parameter.hasSpelExpression()) {
+          return NOT_CONSTRUCTOR_ONLY;
+        }
+      }
+
+      final boolean[] eligible = { true };
+      final Method[] idWither = new Method[1];
+      entity.doWithProperties(new PropertyHandler<CouchbasePersistentProperty>() {
+        @Override
+        public void doWithPersistentProperty(final CouchbasePersistentProperty prop) {
+          if (prop.getSpelExpression() != null) {
+            eligible[0] = false;
+          } else if (entity.isConstructorArgument(prop) || prop.isVersionProperty()
+              || prop.isAnnotationPresent(N1qlJoin.class) || prop.isAnnotationPresent(IdPrefix.class)
+              || prop.isAnnotationPresent(IdSuffix.class)) {
+            //versions and joins are populated by the template, id parts are not read back
+            return;
+          } else if (prop.isIdProperty() && prop.getWither() != null) {
+            idWither[0] = prop.getWither();
+            ReflectionUtils.makeAccessible(idWither[0]);
+          } else {
+            eligible[0] = false;
+          }
+        }
+      });
+      final boolean[] hasAssociations = { false };
+      entity.doWithAssociations((AssociationHandler<CouchbasePersistentProperty>) association -> hasAssociations[0] = true);
+
+      return eligible[0] && !hasAssociations[0] ? new ConstructorMapping(true, idWither[0]) : NOT_CONSTRUCTOR_ONLY;
+    }
+
+    boolean isConstructorOnly() {
+      return constructorOnly;
+    }
+
+    /**
+     * @return the wither of the id property if it is not a constructor argument, null otherwise.
+     */
+    Method getIdWither() {
+      return idWither;
+    }
+  }
+
   /**
    * A expression parameter value provider.
    */
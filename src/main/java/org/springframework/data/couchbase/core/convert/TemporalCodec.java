@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+import org.springframework.data.couchbase.core.mapping.Temporal;
+import org.springframework.data.couchbase.core.mapping.TemporalEncoding;
+import org.springframework.data.mapping.MappingException;
+
+/**
+ * Encodes and decodes the date and time properties annotated with {@link Temporal}.
+ * <p/>
+ * ISO-8601 strings in the fixed UTC form written by {@link Instant#toString()} (<code>yyyy-MM-ddTHH:mm:ss</code>,
+ * an optional fraction of up to 9 digits, then <code>Z</code>) are parsed and formatted directly, without going
+ * through a <code>DateTimeFormatter</code>. Other strings fall back to the <code>java.time</code> parsers.
+ * <p/>
+ * The offset of an {@link OffsetDateTime} is only kept by the ISO encoding, which writes it unless it is UTC. The
+ * epoch encodings store the instant alone, so such values are read back in UTC.
+ */
+final class TemporalCodec {
+
+  private static final long MICROS_PER_SECOND = 1000000L;
+  private static final int NANOS_PER_MICRO = 1000;
+  private static final int NANOS_PER_MILLI = 1000000;
+
+  /** Days from 0000-03-01 to 1970-01-01, in the proleptic Gregorian calendar. */
+  private static final long DAYS_0000_TO_1970 = 719468L;
+  private static final long DAYS_PER_400_YEARS = 146097L;
+
+  private TemporalCodec() {
+  }
+
+  /**
+   * Encode a date or time value.
+   *
+   * @param value the value of the property.
+   * @param encoding how the value is stored.
+   * @return the number or string to store.
+   * @throws MappingException if the type of the value is not supported.
+   */
+  static Object encode(Object value, TemporalEncoding encoding) {
+    if (encoding == TemporalEncoding.ISO && value instanceof OffsetDateTime
+        && ((OffsetDateTime) value).getOffset().getTotalSeconds() != 0) {
+      return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format((OffsetDateTime) value);
+    }
+    Instant instant = toInstant(value);
+    switch (encoding) {
+      case EPOCH_MICROS:
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), MICROS_PER_SECOND),
+            instant.getNano() / NANOS_PER_MICRO);
+      case ISO:
+        return formatInstant(instant);
+      default:
+        return instant.toEpochMilli();
+    }
+  }
+
+  /**
+   * Decode a stored date or time value.
+   *
+   * @param stored the stored number or string.
+   * @param type the type of the property.
+   * @param encoding how the property is stored, which tells how numbers are interpreted.
+   * @return the value of the property.
+   * @throws MappingException if the type of the property or of the stored value is not supported.
+   */
+  static Object decode(Object stored, Class<?> type, TemporalEncoding encoding) {
+    Instant instant;
+    if (stored instanceof Number) {
+      long value = ((Number) stored).longValue();
+      instant = encoding == TemporalEncoding.EPOCH_MICROS
+          ? Instant.ofEpochSecond(Math.floorDiv(value, MICROS_PER_SECOND),
+              Math.floorMod(value, MICROS_PER_SECOND) * NANOS_PER_MICRO)
+          : Instant.ofEpochMilli(value);
+    } else if (stored instanceof String) {
+      if (OffsetDateTime.class.equals(type) && !isFastIso((String) stored)) {
+        return OffsetDateTime.parse((String) stored);
+      }
+      instant = parseInstant((String) stored);
+    } else {
+      throw new MappingException("Cannot read a temporal value from " + stored.getClass().getName());
+    }
+
+    if (Instant.class.equals(type)) {
+      return instant;
+    } else if (LocalDateTime.class.equals(type)) {
+      return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    } else if (OffsetDateTime.class.equals(type)) {
+      return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    } else if (Date.class.equals(type)) {
+      return Date.from(instant);
+    }
+    throw unsupportedType(type);
+  }
+
+  private static Instant toInstant(Object value) {
+    if (value instanceof Instant) {
+      return (Instant) value;
+    } else if (value instanceof LocalDateTime) {
+      return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant();
+    } else if (value instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value).toInstant();
+    } else if (value instanceof Date) {
+      return ((Date) value).toInstant();
+    }
+    throw unsupportedType(value.getClass());
+  }
+
+  private static MappingException unsupportedType(Class<?> type) {
+    return new MappingException("@Temporal is only supported on Instant, OffsetDateTime, LocalDateTime and Date "
+        + "properties, not on " + type.getName());
+  }
+
+  /**
+   * Parse an ISO-8601 instant, with a fast path for the UTC form written by {@link #formatInstant(Instant)}.
+   *
+   * @param source the string to parse, either in UTC or with an offset.
+   * @return the parsed instant.
+   * @throws java.time.format.DateTimeParseException if the string can't be parsed.
+   */
+  static Instant parseInstant(String source) {
+    if (!isFastIso(source)) {
+      return source.endsWith("Z") ? Instant.parse(source) : OffsetDateTime.parse(source).toInstant();
+    }
+
+    int year = digits(source, 0, 4);
+    int month = digits(source, 5, 2);
+    int day = digits(source, 8, 2);
+    int hour = digits(source, 11, 2);
+    int minute = digits(source, 14, 2);
+    int second = digits(source, 17, 2);
+    if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) || hour > 23 || minute > 59
+        || second > 59) {
+      //let the java.time parser report the invalid field
+      return Instant.parse(source);
+    }
+
+    int nanos = 0;
+    int fractionDigits = source.length() - 21;
+    if (fractionDigits > 0) {
+      nanos = digits(source, 20, fractionDigits);
+      for (int i = fractionDigits; i < 9; i++) {
+        nanos *= 10;
+      }
+    }
+
+    long epochSecond = epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+    return Instant.ofEpochSecond(epochSecond, nanos);
+  }
+
+  /**
+   * Whether the string is in the <code>yyyy-MM-ddTHH:mm:ss[.fraction]Z</code> form, with only digits where expected.
+   */
+  private static boolean isFastIso(String source) {
+    int length = source.length();
+    if (length < 20 || length == 21 || length > 30 || source.charAt(length - 1) != 'Z'
+        || source.charAt(4) != '-' || source.charAt(7) != '-' || source.charAt(10) != 'T'
+        || source.charAt(13) != ':' || source.charAt(16) != ':' || (length > 20 && source.charAt(19) != '.')) {
+      return false;
+    }
+    for (int i = 0; i < length - 1; i++) {
+      if (i != 4 && i != 7 && i != 10 && i != 13 && i != 16 && i != 19) {
+        char c = source.charAt(i);
+        if (c < '0' || c > '9') {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static int digits(String source, int offset, int count) {
+    int value = 0;
+    for (int i = offset; i < offset + count; i++) {
+      value = value * 10 + (source.charAt(i) - '0');
+    }
+    return value;
+  }
+
+  /**
+   * Format an instant the same way as {@link Instant#toString()}, directly for years 0 to 9999.
+   *
+   * @param instant the instant to format.
+   * @return the ISO-8601 representation of the instant, in UTC.
+   */
+  static String formatInstant(Instant instant) {
+    long epochSecond = instant.getEpochSecond();
+    long epochDay = Math.floorDiv(epochSecond, 86400L);
+    int secondOfDay = (int) Math.floorMod(epochSecond, 86400L);
+
+    //civil date from the days since the epoch, in eras of 400 years starting on March 1st
+    long days = epochDay + DAYS_0000_TO_1970;
+    long era = Math.floorDiv(days, DAYS_PER_400_YEARS);
+    int dayOfEra = (int) (days - era * DAYS_PER_400_YEARS);
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    if (year < 0 || year > 9999) {
+      return instant.toString();
+    }
+
+    char[] chars = new char[30];
+    write(chars, 0, (int) year, 4);
+    chars[4] = '-';
+    write(chars, 5, month, 2);
+    chars[7] = '-';
+    write(chars, 8, day, 2);
+    chars[10] = 'T';
+    write(chars, 11, secondOfDay / 3600, 2);
+    chars[13] = ':';
+    write(chars, 14, secondOfDay / 60 % 60, 2);
+    chars[16] = ':';
+    write(chars, 17, secondOfDay % 60, 2);
+
+    int length = 19;
+    int nanos = instant.getNano();
+    if (nanos > 0) {
+      chars[length++] = '.';
+      if (nanos % NANOS_PER_MILLI == 0) {
+        write(chars, length, nanos / NANOS_PER_MILLI, 3);
+        length += 3;
+      } else if (nanos % NANOS_PER_MICRO == 0) {
+        write(chars, length, nanos / NANOS_PER_MICRO, 6);
+        length += 6;
+      } else {
+        write(chars, length, nanos, 9);
+        length += 9;
+      }
+    }
+    chars[length++] = 'Z';
+    return new String(chars, 0, length);
+  }
+
+  private static void write(char[] chars, int offset, int value, int count) {
+    for (int i = offset + count - 1; i >= offset; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  private static long epochDay(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(y, 400);
+    int yearOfEra = (int) (y - era * 400);
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.util.StringUtils;
+
+/**
+ * Resolves the values of the type key identifying the documents of an entity: its {@link TypeAlias} if it has one,
+ * its fully qualified class name otherwise. This is what the {@link DefaultCouchbaseTypeMapper} writes, and what the
+ * generated queries and index definitions must filter on.
+ * <p/>
+ * While the documents of an aliased entity are being rewritten (see {@link Document#typeAliasMigration()}), both the
+ * alias and the class name are accepted.
+ */
+public final class TypeAliases {
+
+  private TypeAliases() {
+  }
+
+  /**
+   * @param type the entity type.
+   * @return the value of the type key written for documents of the given type.
+   */
+  public static String getTypeAlias(Class<?> type) {
+    TypeAlias alias = AnnotatedElementUtils.findMergedAnnotation(type, TypeAlias.class);
+    return alias != null && StringUtils.hasText(alias.value()) ? alias.value() : type.getName();
+  }
+
+  /**
+   * @param type the entity type.
+   * @return the values of the type key identifying documents of the given type, the alias first.
+   */
+  public static List<String> getTypeKeyValues(Class<?> type) {
+    String alias = getTypeAlias(type);
+    if (alias.equals(type.getName())) {
+      return Collections.singletonList(alias);
+    }
+    Document document = AnnotatedElementUtils.findMergedAnnotation(type, Document.class);
+    if (document != null && document.typeAliasMigration()) {
+      return Arrays.asList(alias, type.getName());
+    }
+    return Collections.singletonList(alias);
+  }
+
+  /**
+   * Create a N1QL predicate restricting the given field to the documents of the given type.
+   *
+   * @param field the N1QL expression of the type key, already escaped.
+   * @param type the entity type.
+   * @return <code>field = "value"</code>, or <code>field IN ["alias", "className"]</code> during a migration.
+   */
+  public static String createTypePredicate(String field, Class<?> type) {
+    List<String> values = getTypeKeyValues(type);
+    if (values.size() == 1) {
+      return field + " = \"" + values.get(0) + "\"";
+    }
+    StringBuilder predicate = new StringBuilder(field).append(" IN [");
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        predicate.append(", ");
+      }
+      predicate.append('"').append(values.get(i)).append('"');
+    }
+    return predicate.append(']').toString();
+  }
+}
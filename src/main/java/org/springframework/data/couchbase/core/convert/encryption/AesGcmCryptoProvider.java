@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert.encryption;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link FieldCryptoProvider} using AES in GCM mode, which authenticates the encrypted values as well. Each value is
+ * encrypted with a random 96 bits IV, stored in front of the ciphertext, and authenticated along with its associated
+ * data, so that it can't be decrypted once moved to another field or document. Keys of 128, 192 or 256 bits are
+ * supported.
+ * <p/>
+ * Keys are loaded from the {@link KeyProvider} once and cached, see {@link #evictKey(String)} for key rotation, and
+ * each thread reuses its own {@link Cipher} rather than looking up the JCE provider for every value.
+ */
+public class AesGcmCryptoProvider implements FieldCryptoProvider {
+
+  /**
+   * The name of the algorithm, as stored with the encrypted values.
+   */
+  public static final String ALGORITHM = "AES-GCM";
+
+  private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH_BITS = 128;
+
+  private static final ThreadLocal<Cipher> CIPHERS = new ThreadLocal<Cipher>();
+
+  private final KeyProvider keyProvider;
+  private final Map<String, SecretKey> keys = new ConcurrentHashMap<String, SecretKey>();
+  private final SecureRandom random = new SecureRandom();
+
+  /**
+   * @param keyProvider where the keys are loaded from.
+   */
+  public AesGcmCryptoProvider(KeyProvider keyProvider) {
+    Assert.notNull(keyProvider, "KeyProvider must not be null!");
+    this.keyProvider = keyProvider;
+  }
+
+  @Override
+  public String getAlgorithm() {
+    return ALGORITHM;
+  }
+
+  @Override
+  public byte[] encrypt(byte[] plaintext, String keyName) throws GeneralSecurityException {
+    return encrypt(plaintext, keyName, null);
+  }
+
+  @Override
+  public byte[] encrypt(byte[] plaintext, String keyName, byte[] associatedData) throws GeneralSecurityException {
+    byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+
+    Cipher cipher = cipher();
+    cipher.init(Cipher.ENCRYPT_MODE, getKey(keyName), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+    if (associatedData != null) {
+      cipher.updateAAD(associatedData);
+    }
+    byte[] ciphertext = new byte[IV_LENGTH + cipher.getOutputSize(plaintext.length)];
+    System.arraycopy(iv, 0, ciphertext, 0, IV_LENGTH);
+    cipher.doFinal(plaintext, 0, plaintext.length, ciphertext, IV_LENGTH);
+    return ciphertext;
+  }
+
+  @Override
+  public byte[] decrypt(byte[] ciphertext, String keyName) throws GeneralSecurityException {
+    return decrypt(ciphertext, null, getKey(keyName), cipher());
+  }
+
+  @Override
+  public byte[] decrypt(byte[] ciphertext, String keyName, byte[] associatedData) throws GeneralSecurityException {
+    return decrypt(ciphertext, associatedData, getKey(keyName), cipher());
+  }
+
+  @Override
+  public List<byte[]> decryptAll(List<byte[]> ciphertexts, String keyName) throws GeneralSecurityException {
+    return decryptAll(ciphertexts, keyName, Collections.<byte[]>nCopies(ciphertexts.size(), null));
+  }
+
+  /**
+   * Decrypt the values with a key and a cipher looked up once for the whole batch.
+   */
+  @Override
+  public List<byte[]> decryptAll(List<byte[]> ciphertexts, String keyName, List<byte[]> associatedData)
+      throws GeneralSecurityException {
+    SecretKey key = getKey(keyName);
+    Cipher cipher = cipher();
+    List<byte[]> plaintexts = new ArrayList<byte[]>(ciphertexts.size());
+    for (int i = 0; i < ciphertexts.size(); i++) {
+      plaintexts.add(decrypt(ciphertexts.get(i), associatedData.get(i), key, cipher));
+    }
+    return plaintexts;
+  }
+
+  private static byte[] decrypt(byte[] ciphertext, byte[] associatedData, SecretKey key, Cipher cipher)
+      throws GeneralSecurityException {
+    if (ciphertext.length < IV_LENGTH + TAG_LENGTH_BITS / 8) {
+      throw new AEADBadTagException("Encrypted value is too short");
+    }
+    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, ciphertext, 0, IV_LENGTH));
+    if (associatedData != null) {
+      cipher.updateAAD(associatedData);
+    }
+    return cipher.doFinal(ciphertext, IV_LENGTH, ciphertext.length - IV_LENGTH);
+  }
+
+  /**
+   * Remove a key from the cache, so that it is loaded again from the {@link KeyProvider} the next time it is used.
+   *
+   * @param keyName the name of the key.
+   */
+  public void evictKey(String keyName) {
+    keys.remove(keyName);
+  }
+
+  private SecretKey getKey(String keyName) throws GeneralSecurityException {
+    SecretKey key = keys.get(keyName);
+    if (key == null) {
+      byte[] raw = keyProvider.getKey(keyName);
+      if (raw == null) {
+        throw new InvalidKeyException("No key named " + keyName);
+      }
+      if (raw.length != 16 && raw.length != 24 && raw.length != 32) {
+        throw new InvalidKeyException("Key " + keyName + " is not a 128, 192 or 256 bits AES key");
+      }
+      key = new SecretKeySpec(raw, "AES");
+      keys.put(keyName, key);
+    }
+    return key;
+  }
+
+  private static Cipher cipher() throws GeneralSecurityException {
+    Cipher cipher = CIPHERS.get();
+    if (cipher == null) {
+      cipher = Cipher.getInstance(TRANSFORMATION);
+      CIPHERS.set(cipher);
+    }
+    return cipher;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert.encryption;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encrypts and decrypts the values of the properties annotated with
+ * {@link org.springframework.data.couchbase.core.mapping.EncryptedField}.
+ * <p/>
+ * Implementations must be thread safe. The name of the algorithm is stored alongside each encrypted value, so that
+ * the provider to decrypt it with can be found even after the default provider has changed.
+ * <p/>
+ * The values are bound to where they are stored, their field name and document id, which are passed as associated
+ * data: an authenticated encryption should refuse to decrypt a value with other associated data. The default
+ * implementations of the methods taking associated data ignore it, for providers that can't authenticate it.
+ *
+ * @see AesGcmCryptoProvider
+ */
+public interface FieldCryptoProvider {
+
+  /**
+   * @return the name of the algorithm implemented by this provider, stored with the encrypted values.
+   */
+  String getAlgorithm();
+
+  /**
+   * Encrypt a value.
+   *
+   * @param plaintext the serialized value.
+   * @param keyName the name of the key to encrypt with.
+   * @return the encrypted value, including anything needed to decrypt it apart from the key.
+   * @throws GeneralSecurityException if the value can't be encrypted.
+   */
+  byte[] encrypt(byte[] plaintext, String keyName) throws GeneralSecurityException;
+
+  /**
+   * Decrypt a value produced by {@link #encrypt(byte[], String)}.
+   *
+   * @param ciphertext the encrypted value.
+   * @param keyName the name of the key it was encrypted with.
+   * @return the serialized value.
+   * @throws GeneralSecurityException if the value can't be decrypted, or has been tampered with.
+   */
+  byte[] decrypt(byte[] ciphertext, String keyName) throws GeneralSecurityException;
+
+  /**
+   * Encrypt a value bound to associated data, which is authenticated but not stored with the value.
+   *
+   * @param plaintext the serialized value.
+   * @param keyName the name of the key to encrypt with.
+   * @param associatedData the data the value is bound to, null if none.
+   * @return the encrypted value, including anything needed to decrypt it apart from the key and associated data.
+   * @throws GeneralSecurityException if the value can't be encrypted.
+   */
+  default byte[] encrypt(byte[] plaintext, String keyName, byte[] associatedData) throws GeneralSecurityException {
+    return encrypt(plaintext, keyName);
+  }
+
+  /**
+   * Decrypt a value produced by {@link #encrypt(byte[], String, byte[])}.
+   *
+   * @param ciphertext the encrypted value.
+   * @param keyName the name of the key it was encrypted with.
+   * @param associatedData the data the value was bound to, null if none.
+   * @return the serialized value.
+   * @throws GeneralSecurityException if the value can't be decrypted, has been tampered with or was bound to other
+   *   associated data.
+   */
+  default byte[] decrypt(byte[] ciphertext, String keyName, byte[] associatedData) throws GeneralSecurityException {
+    return decrypt(ciphertext, keyName);
+  }
+
+  /**
+   * Decrypt several values encrypted with the same key, for example the values of a property in all the documents
+   * returned by a query. The default implementation decrypts them one by one, providers backed by a remote key
+   * management service can override it to decrypt them in a single call.
+   *
+   * @param ciphertexts the encrypted values.
+   * @param keyName the name of the key they were encrypted with.
+   * @return the serialized values, in the same order.
+   * @throws GeneralSecurityException if one of the values can't be decrypted.
+   */
+  default List<byte[]> decryptAll(List<byte[]> ciphertexts, String keyName) throws GeneralSecurityException {
+    List<byte[]> plaintexts = new ArrayList<byte[]>(ciphertexts.size());
+    for (byte[] ciphertext : ciphertexts) {
+      plaintexts.add(decrypt(ciphertext, keyName));
+    }
+    return plaintexts;
+  }
+
+  /**
+   * Decrypt several values encrypted with the same key, each bound to its own associated data. The default
+   * implementation ignores the associated data and calls {@link #decryptAll(List, String)}.
+   *
+   * @param ciphertexts the encrypted values.
+   * @param keyName the name of the key they were encrypted with.
+   * @param associatedData the data each value was bound to, in the same order, with null elements for none.
+   * @return the serialized values, in the same order.
+   * @throws GeneralSecurityException if one of the values can't be decrypted.
+   */
+  default List<byte[]> decryptAll(List<byte[]> ciphertexts, String keyName, List<byte[]> associatedData)
+      throws GeneralSecurityException {
+    return decryptAll(ciphertexts, keyName);
+  }
+}
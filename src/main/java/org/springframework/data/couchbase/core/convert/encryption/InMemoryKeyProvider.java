@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert.encryption;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link KeyProvider} holding its keys in memory, meant for tests and development. Keys held in the heap of the
+ * application are not protected in any way.
+ */
+public class InMemoryKeyProvider implements KeyProvider {
+
+  private final Map<String, byte[]> keys = new ConcurrentHashMap<String, byte[]>();
+
+  /**
+   * Store a key, replacing any existing key with the same name.
+   *
+   * @param keyName the name of the key.
+   * @param key the raw bytes of the key.
+   * @return this provider, for chaining.
+   */
+  public InMemoryKeyProvider storeKey(String keyName, byte[] key) {
+    keys.put(keyName, key.clone());
+    return this;
+  }
+
+  @Override
+  public byte[] getKey(String keyName) {
+    byte[] key = keys.get(keyName);
+    return key == null ? null : key.clone();
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert.encryption;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Provides the secret keys used by a {@link FieldCryptoProvider}, for example from a JCE key store or a key management
+ * service.
+ *
+ * @see InMemoryKeyProvider
+ */
+public interface KeyProvider {
+
+  /**
+   * @param keyName the name of the key.
+   * @return the raw bytes of the key, or null if there is no key with this name.
+   * @throws GeneralSecurityException if the key can't be loaded.
+   */
+  byte[] getKey(String keyName) throws GeneralSecurityException;
+}
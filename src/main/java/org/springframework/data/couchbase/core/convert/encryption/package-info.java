@@ -0,0 +1,5 @@
+/**
+ * This package contains the SPI used to encrypt and decrypt the properties annotated with
+ * {@link org.springframework.data.couchbase.core.mapping.EncryptedField}.
+ */
+package org.springframework.data.couchbase.core.convert.encryption;
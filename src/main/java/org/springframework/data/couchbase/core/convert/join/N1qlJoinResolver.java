@@ -26,6 +26,7 @@ import com.couchbase.client.java.query.N1qlQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.convert.TypeAliases;
 import org.springframework.data.couchbase.core.query.FetchType;
 import org.springframework.data.couchbase.core.query.HashSide;
 import org.springframework.data.couchbase.core.query.N1qlJoin;
@@ -53,8 +54,10 @@ public class N1qlJoinResolver {
         String useLKS = useLKSBuilder.length() > 0 ? "USE " + useLKSBuilder.toString() + " " : "";
 
         String from = "FROM `" + template.getCouchbaseBucket().name() + "` lks " + useLKS + joinType + " " + template.getCouchbaseBucket().name() + " rks";
-        String onLks = "lks." + template.getConverter().getTypeKey() + " = \""+ parameters.getEntityTypeInfo().getType().getName() + "\"";
-        String onRks = "rks." + template.getConverter().getTypeKey() + " = \"" + parameters.getAssociatedEntityTypeInfo().getType().getName() + "\"";
+        String onLks = TypeAliases.createTypePredicate("lks." + template.getConverter().getTypeKey(),
+                parameters.getEntityTypeInfo().getType());
+        String onRks = TypeAliases.createTypePredicate("rks." + template.getConverter().getTypeKey(),
+                parameters.getAssociatedEntityTypeInfo().getType());
 
 
         StringBuilder useRKSBuilder = new StringBuilder();
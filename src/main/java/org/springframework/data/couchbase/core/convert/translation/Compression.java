@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.convert.translation;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import org.springframework.data.mapping.MappingException;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Compresses encoded documents and field values with LZ4 when lz4-java is on the classpath, and with the JDK's zlib
+ * (deflate) codec otherwise.
+ * <p/>
+ * The codec is recorded in the compressed content: LZ4 content starts with the {@link #LZ4_HEADER} followed by the
+ * length of the original bytes, deflated content with a zlib header. Neither can be mistaken for the first byte of a
+ * JSON, CBOR or Smile document, see {@link #isCompressed(byte[])}, and content compressed with either codec is always
+ * read, as long as lz4-java is present for LZ4 content.
+ * <p/>
+ * Creating a {@link Deflater} or an {@link Inflater} allocates native memory, so each thread keeps and resets its own
+ * instances rather than creating new ones for every value.
+ *
+ * @see org.springframework.data.couchbase.core.mapping.Compressed
+ */
+public final class Compression {
+
+  /**
+   * The first bytes of LZ4 compressed content.
+   */
+  static final byte[] LZ4_HEADER = { 'L', 'Z', '4' };
+
+  private static final boolean LZ4_IS_PRESENT = ClassUtils.isPresent("net.jpountz.lz4.LZ4Factory",
+      Compression.class.getClassLoader());
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+  private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+  private Compression() {
+  }
+
+  /**
+   * Compress the given bytes, with LZ4 if it is available.
+   *
+   * @param source the bytes to compress.
+   * @return the compressed bytes, starting with the header of the codec.
+   */
+  public static byte[] compress(byte[] source) {
+    return LZ4_IS_PRESENT ? Lz4.compress(source) : deflate(source);
+  }
+
+  /**
+   * Decompress bytes produced by {@link #compress(byte[])}, with the codec named by their header.
+   *
+   * @param source the compressed bytes.
+   * @return the original bytes.
+   * @throws MappingException if the content is not valid compressed content, or is LZ4 content and lz4-java is not
+   *           on the classpath.
+   */
+  public static byte[] decompress(byte[] source) {
+    if (!isLz4(source)) {
+      return inflate(source);
+    }
+    if (!LZ4_IS_PRESENT) {
+      throw new MappingException("Could not decompress LZ4 content, lz4-java is not on the classpath");
+    }
+    return Lz4.decompress(source);
+  }
+
+  /**
+   * Checks for the {@link #LZ4_HEADER}, or for a zlib header: the deflate method in the low bits of the first byte, and
+   * a checksum of the first two bytes that is a multiple of 31.
+   *
+   * @param source the content to check.
+   * @return true if the content was produced by {@link #compress(byte[])}.
+   */
+  public static boolean isCompressed(byte[] source) {
+    if (source == null || source.length < 2) {
+      return false;
+    }
+    if (isLz4(source)) {
+      return true;
+    }
+    int first = source[0] & 0xFF;
+    int second = source[1] & 0xFF;
+    return (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+  }
+
+  private static boolean isLz4(byte[] source) {
+    if (source == null || source.length < LZ4_HEADER.length + 4) {
+      return false;
+    }
+    for (int i = 0; i < LZ4_HEADER.length; i++) {
+      if (source[i] != LZ4_HEADER[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static byte[] deflate(byte[] source) {
+    Deflater deflater = DEFLATER.get();
+    byte[] buffer = BUFFER.get();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, source.length / 2));
+    try {
+      deflater.setInput(source);
+      deflater.finish();
+      while (!deflater.finished()) {
+        int length = deflater.deflate(buffer);
+        out.write(buffer, 0, length);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.reset();
+    }
+  }
+
+  private static byte[] inflate(byte[] source) {
+    Inflater inflater = INFLATER.get();
+    byte[] buffer = BUFFER.get();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(source.length * 4);
+    try {
+      inflater.setInput(source);
+      while (!inflater.finished()) {
+        int length = inflater.inflate(buffer);
+        if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new MappingException("Truncated compressed content");
+        }
+        out.write(buffer, 0, length);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new MappingException("Could not decompress content", e);
+    } finally {
+      inflater.reset();
+    }
+  }
+
+  /**
+   * The LZ4 codec, only loaded when lz4-java is on the classpath. The compressors are stateless and shared by all
+   * threads, and content is only read with the decompressor that checks its bounds.
+   */
+  private static class Lz4 {
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private static final int HEADER_LENGTH = LZ4_HEADER.length + 4;
+
+    static byte[] compress(byte[] source) {
+      byte[] target = new byte[HEADER_LENGTH + COMPRESSOR.maxCompressedLength(source.length)];
+      ByteBuffer.wrap(target).put(LZ4_HEADER).putInt(source.length);
+      int length = COMPRESSOR.compress(source, 0, source.length, target, HEADER_LENGTH, target.length - HEADER_LENGTH);
+      byte[] compressed = new byte[HEADER_LENGTH + length];
+      System.arraycopy(target, 0, compressed, 0, compressed.length);
+      return compressed;
+    }
+
+    static byte[] decompress(byte[] source) {
+      int originalLength = ByteBuffer.wrap(source, LZ4_HEADER.length, 4).getInt();
+      //LZ4 can't compress more than 255 to 1, a larger length is corrupted and must not be allocated
+      if (originalLength < 0 || originalLength > (source.length - HEADER_LENGTH) * 255L) {
+        throw new MappingException("Could not decompress content, invalid length " + originalLength);
+      }
+      byte[] target = new byte[originalLength];
+      try {
+        int length = DECOMPRESSOR.decompress(source, HEADER_LENGTH, source.length - HEADER_LENGTH, target, 0);
+        if (length != originalLength) {
+          throw new MappingException("Truncated compressed content");
+        }
+        return target;
+      } catch (LZ4Exception e) {
+        throw new MappingException("Could not decompress content", e);
+      }
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.data.couchbase.core.convert.translation;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -26,16 +27,25 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
 import org.springframework.data.couchbase.core.mapping.CouchbaseList;
 import org.springframework.data.couchbase.core.mapping.CouchbaseStorable;
+import org.springframework.data.couchbase.core.mapping.StorageFormat;
 import org.springframework.data.mapping.MappingException;
 import org.springframework.data.mapping.model.SimpleTypeHolder;
+import org.springframework.util.ClassUtils;
 
 /**
  * A Jackson JSON Translator that implements the {@link TranslationService} contract.
+ * <p/>
+ * Documents can also be encoded to CBOR or Smile when the corresponding Jackson data format module is on the
+ * classpath. Both are written with their header, which is how {@link #decode(byte[], CouchbaseStorable)} tells them
+ * apart from JSON.
  *
  * @author Michael Nitschinger
  * @author Simon Baslé
@@ -59,6 +69,12 @@ public class JacksonTranslationService implements TranslationService, Initializi
    */
   private JsonFactory factory = new JsonFactory();
 
+  /**
+   * CBOR and Smile factories, only created when a document is encoded in or decoded from these formats.
+   */
+  private volatile JsonFactory cborFactory;
+  private volatile JsonFactory smileFactory;
+
   /**
    * Encode a {@link CouchbaseStorable} to a JSON string.
    *
@@ -82,6 +98,31 @@ public class JacksonTranslationService implements TranslationService, Initializi
     return writer.toString();
   }
 
+  /**
+   * Encode a {@link CouchbaseStorable} in the given format, including the format's header for binary formats.
+   *
+   * @param source the source document to encode.
+   * @param format the format to encode to.
+   * @return the encoded bytes.
+   */
+  @Override
+  public byte[] encode(final CouchbaseStorable source, final StorageFormat format) {
+    if (format == null || format == StorageFormat.JSON) {
+      return TranslationService.super.encode(source, format);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      JsonGenerator generator = getFactory(format).createGenerator(out);
+      encodeRecursive(source, generator);
+      generator.close();
+    }
+    catch (IOException ex) {
+      throw new RuntimeException("Could not encode " + format, ex);
+    }
+    return out.toByteArray();
+  }
+
   /**
    * Recursively iterates through the sources and adds it to the JSON generator.
    *
@@ -96,6 +137,10 @@ public class JacksonTranslationService implements TranslationService, Initializi
       String key = entry.getKey();
       Object value = entry.getValue();
       generator.writeFieldName(key);
+      if (value == null) {
+        generator.writeNull();
+        continue;
+      }
       if (value instanceof CouchbaseDocument) {
         encodeRecursive((CouchbaseDocument) value, generator);
         continue;
@@ -129,25 +174,46 @@ public class JacksonTranslationService implements TranslationService, Initializi
   @Override
   public final CouchbaseStorable decode(final String source, final CouchbaseStorable target) {
     try {
-      JsonParser parser = factory.createParser((String) source);
-      while (parser.nextToken() != null) {
-        JsonToken currentToken = parser.getCurrentToken();
+      return decode(factory.createParser(source), target);
+    }
+    catch (IOException ex) {
+      throw new RuntimeException("Could not decode JSON", ex);
+    }
+  }
 
-        if (currentToken == JsonToken.START_OBJECT) {
-          return decodeObject(parser, (CouchbaseDocument) target);
-        }
-        else if (currentToken == JsonToken.START_ARRAY) {
-          return decodeArray(parser, new CouchbaseList());
-        }
-        else {
-          throw new MappingException("JSON to decode needs to start as array or object!");
-        }
-      }
-      parser.close();
+  /**
+   * Decode raw bytes into the {@link CouchbaseStorable} structure, without building an intermediate String. CBOR and
+   * Smile content is detected from its header, anything else is decoded as UTF-8 JSON.
+   *
+   * @param source the source formatted document.
+   * @param target the target of the populated data.
+   * @return the decoded structure.
+   */
+  @Override
+  public final CouchbaseStorable decode(final byte[] source, final CouchbaseStorable target) {
+    try {
+      return decode(getFactory(detectFormat(source)).createParser(source), target);
     }
     catch (IOException ex) {
       throw new RuntimeException("Could not decode JSON", ex);
     }
+  }
+
+  private CouchbaseStorable decode(final JsonParser parser, final CouchbaseStorable target) throws IOException {
+    while (parser.nextToken() != null) {
+      JsonToken currentToken = parser.getCurrentToken();
+
+      if (currentToken == JsonToken.START_OBJECT) {
+        return decodeObject(parser, (CouchbaseDocument) target);
+      }
+      else if (currentToken == JsonToken.START_ARRAY) {
+        return decodeArray(parser, new CouchbaseList());
+      }
+      else {
+        throw new MappingException("JSON to decode needs to start as array or object!");
+      }
+    }
+    parser.close();
     return target;
   }
 
@@ -237,6 +303,16 @@ public class JacksonTranslationService implements TranslationService, Initializi
     }
   }
 
+  @Override
+  public String encodeFragment(Object source) {
+    try {
+      return objectMapper.writeValueAsString(source);
+    }
+    catch (IOException e) {
+      throw new RuntimeException("Cannot encode ad-hoc JSON", e);
+    }
+  }
+
   @Override
   public <T> T decodeFragment(String source, Class<T> target) {
     try {
@@ -247,6 +323,61 @@ public class JacksonTranslationService implements TranslationService, Initializi
     }
   }
 
+  @Override
+  public <T> T decodeFragment(byte[] source, Class<T> target) {
+    try {
+      return objectMapper.readValue(source, target);
+    }
+    catch (IOException e) {
+      throw new RuntimeException("Cannot decode ad-hoc JSON", e);
+    }
+  }
+
+  /**
+   * Detect the format of encoded content from its first bytes.
+   *
+   * @param source the encoded content.
+   * @return the format, {@link StorageFormat#JSON} if no binary header is found.
+   */
+  static StorageFormat detectFormat(final byte[] source) {
+    if (source.length >= 3) {
+      //the CBOR self-describe tag 55799
+      if ((source[0] & 0xFF) == 0xD9 && (source[1] & 0xFF) == 0xD9 && (source[2] & 0xFF) == 0xF7) {
+        return StorageFormat.CBOR;
+      }
+      //":)\n"
+      if (source[0] == ':' && source[1] == ')' && source[2] == '\n') {
+        return StorageFormat.SMILE;
+      }
+    }
+    return StorageFormat.JSON;
+  }
+
+  private JsonFactory getFactory(final StorageFormat format) {
+    switch (format) {
+      case CBOR:
+        if (cborFactory == null) {
+          checkPresent("com.fasterxml.jackson.dataformat.cbor.CBORFactory", "jackson-dataformat-cbor");
+          cborFactory = BinaryFactories.cbor();
+        }
+        return cborFactory;
+      case SMILE:
+        if (smileFactory == null) {
+          checkPresent("com.fasterxml.jackson.dataformat.smile.SmileFactory", "jackson-dataformat-smile");
+          smileFactory = BinaryFactories.smile();
+        }
+        return smileFactory;
+      default:
+        return factory;
+    }
+  }
+
+  private static void checkPresent(final String className, final String artifactId) {
+    if (!ClassUtils.isPresent(className, JacksonTranslationService.class.getClassLoader())) {
+      throw new IllegalStateException("Storing documents in this format requires " + artifactId + " on the classpath");
+    }
+  }
+
   public void setObjectMapper(final ObjectMapper objectMapper) {
     this.objectMapper = objectMapper;
   }
@@ -258,4 +389,17 @@ public class JacksonTranslationService implements TranslationService, Initializi
     }
   }
 
+  /**
+   * Isolates the references to the optional Jackson data format modules.
+   */
+  private static class BinaryFactories {
+
+    static JsonFactory cbor() {
+      return new CBORFactory().enable(CBORGenerator.Feature.WRITE_TYPE_HEADER);
+    }
+
+    static JsonFactory smile() {
+      return new SmileFactory();
+    }
+  }
 }
@@ -16,10 +16,13 @@
 
 package org.springframework.data.couchbase.core.convert.translation;
 
+import java.nio.charset.StandardCharsets;
+
 import com.couchbase.client.java.query.N1qlQueryRow;
 
 import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
 import org.springframework.data.couchbase.core.mapping.CouchbaseStorable;
+import org.springframework.data.couchbase.core.mapping.StorageFormat;
 
 /**
  * Defines a translation service to encode/decode responses into the {@link CouchbaseStorable} format.
@@ -54,4 +57,57 @@ public interface TranslationService {
    * @return an ad-hoc instance of the decoded JSON into the corresponding "case" class.
    */
   <T> T decodeFragment(String source, Class<T> target);
+
+  /**
+   * Encodes an ad-hoc object into JSON, the reverse of {@link #decodeFragment(String, Class)}. Implementations that
+   * only deal with {@link CouchbaseStorable} documents don't have to support this, but can't be used by the JSON
+   * caches of the {@link org.springframework.data.couchbase.cache.CouchbaseCacheManager}, which reject them.
+   *
+   * @param source the object to encode, possibly null.
+   * @return the JSON representation of the object.
+   */
+  default String encodeFragment(Object source) {
+    throw new UnsupportedOperationException("Encoding of ad-hoc objects is not supported by " + getClass().getName());
+  }
+
+  /**
+   * Encodes a document into the given storage format. Implementations only have to support the binary formats if
+   * they are used by the mapped entities.
+   *
+   * @param source the source contents to encode.
+   * @param format the format to encode to, {@link StorageFormat#JSON} if null.
+   * @return the encoded document representation.
+   */
+  default byte[] encode(CouchbaseStorable source, StorageFormat format) {
+    if (format == null || format == StorageFormat.JSON) {
+      return encode(source).getBytes(StandardCharsets.UTF_8);
+    }
+    throw new UnsupportedOperationException("Storage format " + format + " is not supported by " + getClass().getName());
+  }
+
+  /**
+   * Decodes the target format, given as raw UTF-8 bytes, into a {@link CouchbaseDocument}. Implementations should
+   * override this to avoid building an intermediate String, and detect the binary formats they can
+   * {@link #encode(CouchbaseStorable, StorageFormat) encode} to.
+   *
+   * @param source the source formatted document, as UTF-8 bytes (from {@link N1qlQueryRow#byteValue()} for instance).
+   * @param target the target of the populated data.
+   * @return a properly populated document to work with.
+   */
+  default CouchbaseStorable decode(byte[] source, CouchbaseStorable target) {
+    return decode(new String(source, StandardCharsets.UTF_8), target);
+  }
+
+  /**
+   * Decodes an ad-hoc JSON object, given as raw UTF-8 bytes, into a corresponding "case" class. Implementations should
+   * override this to avoid building an intermediate String.
+   *
+   * @param source the JSON for the ad-hoc JSON object (from {@link N1qlQueryRow#byteValue()} for instance).
+   * @param target the target class information.
+   * @param <T> the target class.
+   * @return an ad-hoc instance of the decoded JSON into the corresponding "case" class.
+   */
+  default <T> T decodeFragment(byte[] source, Class<T> target) {
+    return decodeFragment(new String(source, StandardCharsets.UTF_8), target);
+  }
 }
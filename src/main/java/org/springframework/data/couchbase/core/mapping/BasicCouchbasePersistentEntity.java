@@ -142,4 +142,32 @@ public class BasicCouchbasePersistentEntity<T> extends BasicPersistentEntity<T,
     return annotation == null ? false : annotation.touchOnRead() && getExpiry() > 0;
   }
 
+  @Override
+  public StorageFormat getStorageFormat() {
+    org.springframework.data.couchbase.core.mapping.Document annotation = getType().getAnnotation(
+            org.springframework.data.couchbase.core.mapping.Document.class);
+    return annotation == null ? StorageFormat.JSON : annotation.storageFormat();
+  }
+
+  @Override
+  public int getSchemaVersion() {
+    org.springframework.data.couchbase.core.mapping.Document annotation = getType().getAnnotation(
+            org.springframework.data.couchbase.core.mapping.Document.class);
+    return annotation == null ? 0 : annotation.schemaVersion();
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    org.springframework.data.couchbase.core.mapping.Document annotation = getType().getAnnotation(
+            org.springframework.data.couchbase.core.mapping.Document.class);
+    return annotation != null && annotation.readOnly();
+  }
+
+  @Override
+  public SparseMode getSparseMode() {
+    org.springframework.data.couchbase.core.mapping.Document annotation = getType().getAnnotation(
+            org.springframework.data.couchbase.core.mapping.Document.class);
+    return annotation == null ? SparseMode.DEFAULT : annotation.sparseMode();
+  }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Compresses large values before they are stored, with
+ * {@link org.springframework.data.couchbase.core.convert.translation.Compression LZ4} when lz4-java is on the
+ * classpath, or deflate otherwise. Values smaller than the
+ * {@link #threshold()}, or that don't compress well, are stored as is, and both forms can always be read.
+ * <br /><br />
+ * On a <code>String</code> or <code>byte[]</code> property, the value is stored as an object holding the base64 of
+ * the compressed bytes, the rest of the document stays queryable. Other property types are not compressed.
+ * <br /><br />
+ * On a {@link Document} class, the whole encoded document is compressed and stored with the binary flags, like the
+ * binary {@link Document#storageFormat() storage formats}: these documents can then only be read by id, they can't be
+ * queried with N1QL nor indexed by views.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.ANNOTATION_TYPE, ElementType.TYPE})
+public @interface Compressed {
+
+  /**
+   * The size in bytes under which values are never compressed. Default is 1024.
+   */
+  int threshold() default 1024;
+
+}
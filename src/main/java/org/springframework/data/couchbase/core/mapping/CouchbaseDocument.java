@@ -107,6 +107,16 @@ public class CouchbaseDocument implements CouchbaseStorable {
     return payload.get(key);
   }
 
+  /**
+   * Remove the value with the given key from the payload.
+   *
+   * @param key the key of the attribute.
+   * @return the value that was mapped to the key, or null if there was none.
+   */
+  public final Object remove(final String key) {
+    return payload.remove(key);
+  }
+
   /**
    * Returns the current payload, including all recursive elements.
    * <p/>
@@ -128,6 +138,30 @@ public class CouchbaseDocument implements CouchbaseStorable {
     return toExport;
   }
 
+  /**
+   * Returns a deep copy of this document: nested documents and lists are copied as well, so that the copy can be
+   * modified without affecting this document.
+   *
+   * @return the copy, with the same ID and expiration time.
+   */
+  public final CouchbaseDocument copy() {
+    CouchbaseDocument copy = new CouchbaseDocument(id, expiration);
+    for (Map.Entry<String, Object> entry : payload.entrySet()) {
+      copy.payload.put(entry.getKey(), copyValue(entry.getValue()));
+    }
+    return copy;
+  }
+
+  static Object copyValue(final Object value) {
+    if (value instanceof CouchbaseDocument) {
+      return ((CouchbaseDocument) value).copy();
+    }
+    if (value instanceof CouchbaseList) {
+      return ((CouchbaseList) value).copy();
+    }
+    return value;
+  }
+
   /**
    * Returns true if it contains a payload for the specified key.
    *
@@ -16,12 +16,18 @@
 
 package org.springframework.data.couchbase.core.mapping;
 
+import java.lang.reflect.Array;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonValue;
+
 import org.springframework.data.mapping.model.SimpleTypeHolder;
+import org.springframework.util.Assert;
 
 /**
  * A {@link CouchbaseList} is an abstract list that represents an array stored in a (most of the times JSON) document.
@@ -93,10 +99,57 @@ public class CouchbaseList implements CouchbaseStorable {
   public final CouchbaseList put(final Object value) {
     verifyValueType(value);
 
+    if (payload instanceof PrimitiveArrayList) {
+      payload = new ArrayList<Object>(payload);
+    }
     payload.add(value);
     return this;
   }
 
+  /**
+   * Store all the values of a primitive array at once.
+   * <p/>
+   * <p>Primitive values are always storable, so no per-element verification is done. If the list is empty, the array
+   * is kept as is (and must not be modified afterwards): its values are only boxed if they are accessed through
+   * {@link #get(int)}, and are written directly when the list is encoded to JSON.</p>
+   *
+   * @param array the primitive array, for example a <code>double[]</code> or a <code>long[]</code>.
+   * @return the {@link CouchbaseList} for chaining.
+   */
+  public final CouchbaseList putPrimitiveArray(final Object array) {
+    Assert.isTrue(array != null && array.getClass().isArray() && array.getClass().getComponentType().isPrimitive(),
+        "A primitive array is required");
+
+    if (payload.isEmpty()) {
+      payload = new PrimitiveArrayList(array);
+      return this;
+    }
+
+    if (payload instanceof PrimitiveArrayList) {
+      payload = new ArrayList<Object>(payload);
+    }
+    int length = Array.getLength(array);
+    for (int i = 0; i < length; i++) {
+      payload.add(Array.get(array, i));
+    }
+    return this;
+  }
+
+  /**
+   * Returns the primitive array backing this list, if it has been populated through
+   * {@link #putPrimitiveArray(Object)} with an array of the given component type.
+   *
+   * @param componentType the primitive component type, for example <code>double.class</code>.
+   * @return the backing array (not a copy), or null if this list is not backed by such an array.
+   */
+  public final Object getPrimitiveArray(final Class<?> componentType) {
+    if (payload instanceof PrimitiveArrayList) {
+      Object array = ((PrimitiveArrayList) payload).getArray();
+      return array.getClass().getComponentType() == componentType ? array : null;
+    }
+    return null;
+  }
+
   /**
    * Return the stored element at the given index.
    *
@@ -151,6 +204,10 @@ public class CouchbaseList implements CouchbaseStorable {
    * @return
    */
   public final List<Object> export() {
+    if (payload instanceof PrimitiveArrayList) {
+      return payload;
+    }
+
     List<Object> toExport = new ArrayList<Object>(payload);
 
     int elem = 0;
@@ -168,6 +225,33 @@ public class CouchbaseList implements CouchbaseStorable {
     return toExport;
   }
 
+  /**
+   * Returns a deep copy of this list: nested documents and lists, as well as a backing primitive array, are copied
+   * too, so that the copy can be modified without affecting this list.
+   *
+   * @return the copy.
+   */
+  public final CouchbaseList copy() {
+    if (payload instanceof PrimitiveArrayList) {
+      Object array = ((PrimitiveArrayList) payload).getArray();
+      int length = Array.getLength(array);
+      Object arrayCopy = Array.newInstance(array.getClass().getComponentType(), length);
+      System.arraycopy(array, 0, arrayCopy, 0, length);
+      return copyWith(new PrimitiveArrayList(arrayCopy));
+    }
+    List<Object> payloadCopy = new ArrayList<Object>(payload.size());
+    for (Object value : payload) {
+      payloadCopy.add(CouchbaseDocument.copyValue(value));
+    }
+    return copyWith(payloadCopy);
+  }
+
+  private CouchbaseList copyWith(final List<Object> payloadCopy) {
+    CouchbaseList copy = new CouchbaseList(payloadCopy);
+    copy.simpleTypeHolder = simpleTypeHolder;
+    return copy;
+  }
+
   /**
    * Returns true if it contains the given value.
    *
@@ -221,4 +305,34 @@ public class CouchbaseList implements CouchbaseStorable {
         "payload=" + payload +
         '}';
   }
+
+  /**
+   * A read-only view over a primitive array, that boxes the values on access only and that Jackson serializes as the
+   * underlying array.
+   */
+  private static final class PrimitiveArrayList extends AbstractList<Object> implements RandomAccess {
+
+    private final Object array;
+    private final int length;
+
+    PrimitiveArrayList(final Object array) {
+      this.array = array;
+      this.length = Array.getLength(array);
+    }
+
+    @JsonValue
+    public Object getArray() {
+      return array;
+    }
+
+    @Override
+    public Object get(final int index) {
+      return Array.get(array, index);
+    }
+
+    @Override
+    public int size() {
+      return length;
+    }
+  }
 }
@@ -50,4 +50,32 @@ public interface CouchbasePersistentEntity<T> extends
    */
    boolean isTouchOnRead();
 
+  /**
+   * The format the documents of this entity are written in.
+   *
+   * @return the storage format, {@link StorageFormat#JSON} unless set on the {@link Document} annotation.
+   */
+  StorageFormat getStorageFormat();
+
+  /**
+   * The version of the structure of the documents of this entity.
+   *
+   * @return the schema version, 0 if the documents are not versioned.
+   */
+  int getSchemaVersion();
+
+  /**
+   * Read-only entities are mapped without populating their version property nor resolving their joins.
+   *
+   * @return true if the entity is only read.
+   */
+  boolean isReadOnly();
+
+  /**
+   * Which empty or default values are left out of the documents of this entity.
+   *
+   * @return the sparse mode, {@link SparseMode#DEFAULT} to use the one of the converter.
+   */
+  SparseMode getSparseMode();
+
 }
@@ -66,4 +66,43 @@ public @interface Document {
    */
   boolean touchOnRead() default false;
 
+  /**
+   * An optional flag to use while the documents of an entity that was given a
+   * {@link org.springframework.data.annotation.TypeAlias} are being rewritten. The generated queries and indexes then
+   * match both the alias and the fully qualified class name in the type key, new documents are written with the alias.
+   */
+  boolean typeAliasMigration() default false;
+
+  /**
+   * An optional format to store the documents in. Default is {@link StorageFormat#JSON}.
+   * <br /><br />
+   * The binary formats are smaller and cheaper to encode, but the documents can then only be read by id: they can't
+   * be queried with N1QL nor indexed by views. Reads detect the format, so documents written before the format of
+   * the entity was changed can still be read.
+   */
+  StorageFormat storageFormat() default StorageFormat.JSON;
+
+  /**
+   * An optional version of the structure of the documents, 0 (the default) if they are not versioned.
+   * <br /><br />
+   * The version is stored in each document written. Documents read with an older version are upgraded by the
+   * {@link org.springframework.data.couchbase.core.convert.DocumentMigrations migrators} registered on the converter,
+   * one version after the other, before they are mapped to the entity.
+   */
+  int schemaVersion() default 0;
+
+  /**
+   * An optional flag for entities that are only read, typically by reporting queries mapping large numbers of rows.
+   * Their {@link org.springframework.data.annotation.Version version} property is not populated with the CAS and
+   * their {@link org.springframework.data.couchbase.core.query.N1qlJoin joins} are not resolved, and the templates
+   * refuse to save or remove them.
+   */
+  boolean readOnly() default false;
+
+  /**
+   * Which empty or default values are left out of the documents written for this entity, in order to make them and
+   * their indexes smaller. Defaults to the mode configured on the converter.
+   */
+  SparseMode sparseMode() default SparseMode.DEFAULT;
+
 }
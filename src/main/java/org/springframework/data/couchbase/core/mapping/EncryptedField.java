@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Encrypts the value of a property with one of the
+ * {@link org.springframework.data.couchbase.core.convert.encryption.FieldCryptoProvider crypto providers} of the
+ * converter.
+ * <br /><br />
+ * The property is stored in a field named after it with a <code>__crypt_</code> prefix, holding the name of the
+ * algorithm (<code>alg</code>), the name of the key (<code>kid</code>) and the base64 of the encrypted JSON value
+ * (<code>ciphertext</code>). Encrypted properties can't be used in N1QL or view queries. Documents in which the
+ * property is still stored in clear text can be read, and are encrypted when they are saved again.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+public @interface EncryptedField {
+
+  /**
+   * The name of the key to encrypt the value with.
+   */
+  String key();
+
+  /**
+   * The algorithm of the provider to encrypt the value with, the first provider of the converter if empty.
+   */
+  String algorithm() default "";
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opts a {@link Document} in the near cache of the {@link org.springframework.data.couchbase.core.CouchbaseTemplate},
+ * a local read-through cache of the decoded documents consulted by
+ * {@link org.springframework.data.couchbase.core.CouchbaseOperations#findById(String, Class) findById}.
+ * <br /><br />
+ * Entries are invalidated when the entity is saved or removed through the same template, but changes made by other
+ * clients are only seen once the entry expires, unless {@link #revalidate()} is set. The cache is bypassed for
+ * entities that are {@link Document#touchOnRead() touched on read}.
+ *
+ * @see org.springframework.data.couchbase.core.support.NearCache
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface NearCached {
+
+  /**
+   * The maximum number of documents kept in the cache, the oldest entries are evicted first. Default is 1000.
+   */
+  int maxSize() default 1000;
+
+  /**
+   * How long a document is served from the cache once it has been read. Default is 60 seconds.
+   */
+  long ttl() default 60;
+
+  /**
+   * The time unit of the {@link #ttl()}. Default is {@link TimeUnit#SECONDS}.
+   */
+  TimeUnit ttlUnit() default TimeUnit.SECONDS;
+
+  /**
+   * Whether each cache hit should be revalidated by a lookup of the document's CAS, which is much cheaper than a
+   * full read. Stale entries are evicted and read again from the bucket. Default is false.
+   */
+  boolean revalidate() default false;
+
+}
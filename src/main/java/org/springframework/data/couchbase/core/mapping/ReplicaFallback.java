@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.data.couchbase.core.ReplicaReadMode;
+
+/**
+ * Lets the reads of a {@link Document} by id fall back to its replicas when the active copy times out or its node is
+ * not available, trading consistency for availability during a failover. This applies to
+ * {@link org.springframework.data.couchbase.core.CouchbaseOperations#findById(String, Class) findById} and to the
+ * documents fetched for view queries, hence to the repositories' <code>findById</code> and <code>findAllById</code>.
+ * <br /><br />
+ * Documents read from a replica are never put in the near cache. Use
+ * {@link org.springframework.data.couchbase.core.CouchbaseOperations#findById(String, Class, ReplicaReadMode)} to
+ * choose the mode per call and know whether the result is possibly stale.
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface ReplicaFallback {
+
+  /**
+   * Which replicas to read from. Default is {@link ReplicaReadMode#FIRST}.
+   */
+  ReplicaReadMode value() default ReplicaReadMode.FIRST;
+}
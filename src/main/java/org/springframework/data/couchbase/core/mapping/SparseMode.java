@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.mapping;
+
+/**
+ * Which values are left out of the documents written for an entity, see {@link Document#sparseMode()}.
+ * <p/>
+ * The values left out are restored when the documents are read: missing collections, maps and arrays are read as
+ * empty ones, and missing primitive properties as their Java default. A null collection is thus read back as an empty
+ * one.
+ */
+public enum SparseMode {
+
+  /** Use the mode of the converter, {@link #NONE} unless configured otherwise. */
+  DEFAULT,
+
+  /** Write all the non null values. */
+  NONE,
+
+  /** Leave out the empty collections, maps and arrays. */
+  OMIT_EMPTY,
+
+  /** Leave out the empty collections, maps and arrays, and the primitive values equal to their Java default. */
+  OMIT_DEFAULTS
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.mapping;
+
+/**
+ * The format in which the documents of an entity are stored, see {@link Document#storageFormat()}.
+ * <p/>
+ * Documents stored in a binary format are written with the binary common flags, and can only be read through the
+ * key/value API: N1QL and views only index JSON documents.
+ */
+public enum StorageFormat {
+
+  /** JSON text, the default. */
+  JSON,
+
+  /** <a href="https://tools.ietf.org/html/rfc7049">CBOR</a>, requires <code>jackson-dataformat-cbor</code>. */
+  CBOR,
+
+  /** Jackson's Smile binary JSON, requires <code>jackson-dataformat-smile</code>. */
+  SMILE
+}
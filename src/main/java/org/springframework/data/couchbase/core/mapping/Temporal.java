@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets how a date or time property is stored, instead of the default conversions (milliseconds since the epoch, or
+ * ISO strings for dates when <code>org.springframework.data.couchbase.useISOStringConverterForDate</code> is set).
+ * <br /><br />
+ * Supported on <code>java.time.Instant</code>, <code>java.time.OffsetDateTime</code>,
+ * <code>java.time.LocalDateTime</code> and <code>java.util.Date</code> properties. Like the default conversions,
+ * a <code>LocalDateTime</code> is taken in the system default time zone, and an <code>OffsetDateTime</code> is stored
+ * as the instant it represents and read back in UTC.
+ * <br /><br />
+ * Values are read whatever the way they were stored: numbers as milliseconds (or microseconds for
+ * {@link TemporalEncoding#EPOCH_MICROS}), strings as ISO-8601, which allows switching the encoding of existing
+ * properties except between milliseconds and microseconds.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+public @interface Temporal {
+
+  /**
+   * How the value is stored.
+   */
+  TemporalEncoding value();
+
+}
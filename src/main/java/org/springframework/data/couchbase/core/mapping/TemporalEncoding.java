@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.mapping;
+
+/**
+ * How a date or time property annotated with {@link Temporal} is stored.
+ */
+public enum TemporalEncoding {
+
+  /**
+   * A number of milliseconds since the epoch, like the default date conversions. <code>OffsetDateTime</code> values
+   * are read back in UTC.
+   */
+  EPOCH_MILLIS,
+
+  /**
+   * A number of microseconds since the epoch. <code>OffsetDateTime</code> values are read back in UTC.
+   */
+  EPOCH_MICROS,
+
+  /**
+   * An ISO-8601 string in UTC, for example <code>2020-01-01T12:00:00.123Z</code>, except for
+   * <code>OffsetDateTime</code> values which keep their offset, for example <code>2020-01-01T13:00:00.123+01:00</code>.
+   */
+  ISO
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.query;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.data.couchbase.repository.CouchbasePagingAndSortingRepository;
+
+/**
+ * This annotation is targeted at {@link CouchbasePagingAndSortingRepository N1QL-backed Repository} interfaces,
+ * indicating that <code>count()</code> can be answered from the item count of the bucket instead of a N1QL query.
+ * <p/>
+ * This is cheap but only correct when the bucket exclusively stores the repository's entity, since the type filter
+ * is the only predicate of <code>count()</code>. The item count is also eventually consistent, regardless of the
+ * configured {@link Consistency}.
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ApproximateCount {
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.query;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.data.couchbase.repository.CouchbaseRepository;
+
+/**
+ * This annotation is targeted at {@link CouchbaseRepository Repository} interfaces, indicating that
+ * the framework should derive composite N1QL Secondary Indexes from the repository's derived query methods
+ * (eg. <code>findByLastNameAndCity</code>).
+ * <p/>
+ * Each derived index uses the properties found in the method's predicates as leading keys (equality predicates
+ * first), then the sort properties and finally, for DTO and interface projections, the projected fields so that the
+ * query can be covered by the index. Like for {@link N1qlSecondaryIndexed}, the index is restricted to documents that
+ * match the repository's entity class.
+ * <p/>
+ * Depending on the configuration of the IndexManager, such indexes are either created or only reported.
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface N1qlCompositeIndexed {
+
+  /**
+   * a prefix for the names of the derived indexes, in the repository's associated bucket namespace. If empty,
+   * the simple name of the repository's entity class is used.
+   */
+  String indexNamePrefix() default "";
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core.support;
+
+import org.springframework.data.couchbase.core.ExecutionReport;
+
+/**
+ * Receives the measurements of the operations performed by the
+ * {@link org.springframework.data.couchbase.core.CouchbaseTemplate} and the
+ * {@link org.springframework.data.couchbase.core.RxJavaCouchbaseTemplate}, to be recorded into a metrics library
+ * (eg. as Micrometer timers and distribution summaries).
+ * <br /><br />
+ * The templates don't measure anything when configured with {@link #NONE}, the default. All the methods are called
+ * on the thread completing the operation and must not block.
+ */
+public interface CouchbaseMetrics {
+
+  /**
+   * The direction of a conversion from a document to an entity.
+   */
+  String DECODE = "decode";
+
+  /**
+   * The direction of a conversion from an entity to a document.
+   */
+  String ENCODE = "encode";
+
+  /**
+   * Metrics that are never recorded.
+   */
+  CouchbaseMetrics NONE = new CouchbaseMetrics() {
+  };
+
+  /**
+   * Record a template operation, including the time spent converting its documents.
+   *
+   * @param operation the name of the template method, eg. <code>findById</code> or <code>findByN1QL</code>.
+   * @param entityType the type of the entity, null for operations that don't map entities.
+   * @param repositoryMethod the repository query method that triggered the operation, see
+   *   {@link RepositoryMethodContext}, or null.
+   * @param durationNanos how long the operation took.
+   * @param error the error the operation failed with, null if it succeeded.
+   */
+  default void recordOperation(String operation, Class<?> entityType, String repositoryMethod, long durationNanos,
+                               Throwable error) {
+  }
+
+  /**
+   * Record the size of a document read or written.
+   *
+   * @param direction {@link #DECODE} or {@link #ENCODE}.
+   * @param entityType the type of the entity.
+   * @param size the length of the JSON document, in characters, which is its size in bytes for ASCII content.
+   */
+  default void recordDocumentSize(String direction, Class<?> entityType, int size) {
+  }
+
+  /**
+   * Record the time spent converting between a document and an entity, which is also part of the duration of the
+   * enclosing operation. Subtracting it from the latter gives the time spent on the network and on the server.
+   *
+   * @param direction {@link #DECODE} or {@link #ENCODE}.
+   * @param entityType the type of the entity.
+   * @param durationNanos how long the conversion took.
+   */
+  default void recordConversion(String direction, Class<?> entityType, long durationNanos) {
+  }
+
+  /**
+   * Record the breakdown of a completed template operation into its phases: conversion, encoding, network, decoding,
+   * mapping and join resolution. It is reported after {@link #recordOperation}, for the same operation.
+   *
+   * @param report the report of the operation.
+   */
+  default void recordPhases(ExecutionReport report) {
+  }
+
+  /**
+   * Record a document returned by a query that couldn't be decoded into an entity, and was either skipped or failed
+   * the query, see {@link DecodingFailureHandler}.
+   *
+   * @param operation the name of the template method, eg. <code>findByView</code>.
+   * @param entityType the type of the entity.
+   */
+  default void recordDecodingFailure(String operation, Class<?> entityType) {
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+/**
+ * Callback notified when a document returned by a query cannot be decoded into the requested entity. When such a
+ * handler is configured on a {@link ViewResultMapper}, the offending row is skipped instead of failing the whole
+ * result.
+ */
+public interface DecodingFailureHandler {
+
+  /**
+   * Skips the documents that can't be decoded, which are then only counted by the {@link ViewResultMapper} and
+   * reported to the {@link CouchbaseMetrics}. This is the default.
+   */
+  DecodingFailureHandler SKIP = new DecodingFailureHandler() {
+    @Override
+    public void onDecodingFailure(String id, Throwable cause) {
+    }
+  };
+
+  /**
+   * Called for each document that could not be decoded. The row has been dropped from the result.
+   *
+   * @param id the id of the document.
+   * @param cause the exception raised while decoding the document.
+   */
+  void onDecodingFailure(String id, Throwable cause);
+
+}
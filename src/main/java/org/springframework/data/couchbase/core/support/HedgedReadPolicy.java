@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * Decides when a {@link org.springframework.data.couchbase.core.CouchbaseTemplate#findById(String, Class) findById}
+ * should be hedged with a read from a replica: when the active copy hasn't answered after the given percentile of the
+ * recently observed latencies, a replica read is sent as well and the first answer wins.
+ * <p/>
+ * The latencies are sampled in a fixed size ring buffer and the threshold is recomputed periodically, so the overhead
+ * on the read path is a couple of atomic operations. The data read from a replica may be slightly stale.
+ */
+public class HedgedReadPolicy {
+
+  private static final int RECOMPUTE_INTERVAL = 64;
+
+  private final double percentile;
+  private final long minDelayNanos;
+  private final AtomicLongArray samples;
+  private final AtomicInteger sampleCount = new AtomicInteger();
+  private final AtomicLong threshold;
+  private final AtomicLong hedgedReads = new AtomicLong();
+
+  /**
+   * @param percentile the latency percentile after which a replica read is sent, eg. 0.95.
+   * @param minDelay the minimum delay before hedging, also used until enough latencies have been observed.
+   * @param unit the unit of the minimum delay.
+   * @param sampleSize the number of recent latencies the percentile is computed on.
+   */
+  public HedgedReadPolicy(double percentile, long minDelay, TimeUnit unit, int sampleSize) {
+    Assert.isTrue(percentile > 0 && percentile < 1, "The percentile must be between 0 and 1");
+    Assert.isTrue(sampleSize >= RECOMPUTE_INTERVAL, "The sample size must be at least " + RECOMPUTE_INTERVAL);
+    this.percentile = percentile;
+    this.minDelayNanos = unit.toNanos(minDelay);
+    this.samples = new AtomicLongArray(sampleSize);
+    this.threshold = new AtomicLong(minDelayNanos);
+  }
+
+  public HedgedReadPolicy(double percentile, long minDelay, TimeUnit unit) {
+    this(percentile, minDelay, unit, 1024);
+  }
+
+  /**
+   * Record the latency of a read, as observed by the caller.
+   */
+  public void recordLatency(long nanos) {
+    int count = sampleCount.getAndIncrement();
+    samples.set(Math.floorMod(count, samples.length()), nanos);
+    if (count != 0 && (count & (RECOMPUTE_INTERVAL - 1)) == 0) {
+      recomputeThreshold(count > 0 && count < samples.length() ? count : samples.length());
+    }
+  }
+
+  private void recomputeThreshold(int size) {
+    long[] sorted = new long[size];
+    for (int i = 0; i < size; i++) {
+      sorted[i] = samples.get(i);
+    }
+    Arrays.sort(sorted);
+    int index = (int) Math.min(size - 1, Math.ceil(percentile * size) - 1);
+    threshold.set(Math.max(minDelayNanos, sorted[Math.max(index, 0)]));
+  }
+
+  /**
+   * @return how long to wait for the active copy before sending a replica read, in nanoseconds.
+   */
+  public long getHedgeDelayNanos() {
+    return threshold.get();
+  }
+
+  public void recordHedgedRead() {
+    hedgedReads.incrementAndGet();
+  }
+
+  /**
+   * @return the number of reads for which a replica read has been sent.
+   */
+  public long getHedgedReadCount() {
+    return hedgedReads.get();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core.support;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.couchbase.core.ExecutionReport;
+import org.springframework.data.couchbase.core.OperationPhase;
+import org.springframework.util.Assert;
+
+/**
+ * Records the measurements of the templates into a Micrometer {@link MeterRegistry}:
+ * <ul>
+ * <li><code>spring.data.couchbase.operations</code>, a timer of the operations, tagged with the
+ * <code>operation</code>, the <code>entity</code>, the repository <code>method</code>, the <code>outcome</code> and
+ * the <code>exception</code>.</li>
+ * <li><code>spring.data.couchbase.operation.phases</code>, a timer of the {@link OperationPhase phases} of the
+ * operations, tagged with the <code>operation</code>, the <code>entity</code> and the <code>phase</code>.</li>
+ * <li><code>spring.data.couchbase.conversions</code>, a timer of the conversions between documents and entities,
+ * tagged with the <code>direction</code> and the <code>entity</code>.</li>
+ * <li><code>spring.data.couchbase.documents.size</code>, a distribution summary of the size of the documents read and
+ * written, in bytes, tagged with the <code>direction</code> and the <code>entity</code>.</li>
+ * <li><code>spring.data.couchbase.decoding.failures</code>, a counter of the documents that couldn't be decoded,
+ * tagged with the <code>operation</code> and the <code>entity</code>.</li>
+ * </ul>
+ * Missing tag values are reported as <code>none</code>.
+ */
+public class MicrometerCouchbaseMetrics implements CouchbaseMetrics {
+
+  private static final String NONE = "none";
+
+  private final MeterRegistry registry;
+
+  /**
+   * Record into the global registry of Micrometer, {@link Metrics#globalRegistry}.
+   */
+  public MicrometerCouchbaseMetrics() {
+    this(Metrics.globalRegistry);
+  }
+
+  /**
+   * @param registry the registry to record into.
+   */
+  public MicrometerCouchbaseMetrics(MeterRegistry registry) {
+    Assert.notNull(registry, "MeterRegistry must not be null");
+    this.registry = registry;
+  }
+
+  @Override
+  public void recordOperation(String operation, Class<?> entityType, String repositoryMethod, long durationNanos,
+                              Throwable error) {
+    Tags tags = Tags.of("operation", operation, "entity", entityTag(entityType),
+        "method", repositoryMethod == null ? NONE : repositoryMethod,
+        "outcome", error == null ? "success" : "error",
+        "exception", error == null ? NONE : error.getClass().getSimpleName());
+    registry.timer("spring.data.couchbase.operations", tags).record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordDocumentSize(String direction, Class<?> entityType, int size) {
+    DistributionSummary.builder("spring.data.couchbase.documents.size")
+        .baseUnit("bytes")
+        .tags("direction", direction, "entity", entityTag(entityType))
+        .register(registry)
+        .record(size);
+  }
+
+  @Override
+  public void recordConversion(String direction, Class<?> entityType, long durationNanos) {
+    registry.timer("spring.data.couchbase.conversions", "direction", direction, "entity", entityTag(entityType))
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordPhases(ExecutionReport report) {
+    String entity = entityTag(report.getEntityType());
+    for (OperationPhase phase : OperationPhase.values()) {
+      long nanos = report.getPhaseNanos(phase);
+      if (nanos > 0) {
+        Timer timer = registry.timer("spring.data.couchbase.operation.phases", "operation", report.getOperation(),
+            "entity", entity, "phase", phase.name().toLowerCase(Locale.ROOT));
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
+  @Override
+  public void recordDecodingFailure(String operation, Class<?> entityType) {
+    registry.counter("spring.data.couchbase.decoding.failures", "operation", operation,
+        "entity", entityTag(entityType)).increment();
+  }
+
+  private static String entityTag(Class<?> entityType) {
+    return entityType == null ? NONE : entityType.getName();
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.NearCached;
+import org.springframework.util.Assert;
+
+/**
+ * A size and TTL bounded concurrent cache of decoded documents, keyed by document id, used by the
+ * {@link org.springframework.data.couchbase.core.CouchbaseTemplate} for the {@link NearCached} entities.
+ * <p/>
+ * The cache holds the {@link CouchbaseDocument} decoded from the stored JSON rather than the entity itself: each hit
+ * is converted to a new entity instance, so callers modifying the entities they read can't corrupt the cache. The
+ * document is copied when it is stored and on each hit, since reading an entity may modify the document it is read
+ * from, by decrypting or migrating it. When the cache is full, the oldest entries are evicted first.
+ * <p/>
+ * A read through the cache is bracketed by {@link #startRead(String)} and {@link #endRead(String, long)}: a document
+ * invalidated while it is read from the bucket is not cached, since the copy read may predate the change.
+ */
+public class NearCache {
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final boolean revalidate;
+
+  //both maps are guarded by the lock on the entries, which are kept in insertion order for the eviction
+  private final Map<String, Entry> entries;
+  private final Map<String, Long> pendingReads = new HashMap<String, Long>();
+  private long lastRead;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public NearCache(int maxSize, long ttl, TimeUnit ttlUnit, boolean revalidate) {
+    Assert.isTrue(maxSize > 0, "The near cache size must be positive");
+    Assert.isTrue(ttl > 0, "The near cache TTL must be positive");
+    this.maxSize = maxSize;
+    this.ttlNanos = ttlUnit.toNanos(ttl);
+    this.revalidate = revalidate;
+    this.entries = new LinkedHashMap<String, Entry>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, NearCache.Entry> eldest) {
+        if (size() > NearCache.this.maxSize) {
+          evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Create a cache configured by the given annotation.
+   */
+  public static NearCache of(NearCached config) {
+    return new NearCache(config.maxSize(), config.ttl(), config.ttlUnit(), config.revalidate());
+  }
+
+  /**
+   * Look up a document, counting a hit or a miss.
+   *
+   * @param id the id of the document.
+   * @param validator an optional check of the cached entry against the server, entries failing it are evicted and
+   *   reported as a miss.
+   * @return the cached entry, or null if it is absent, expired or stale.
+   */
+  public Entry get(String id, Predicate<Entry> validator) {
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(id);
+    }
+    //the validator may hit the server, it is not called with the lock held
+    if (entry != null && (now() - entry.cachedAt >= ttlNanos || (validator != null && !validator.test(entry)))) {
+      synchronized (entries) {
+        if (entries.remove(id, entry)) {
+          evictions.incrementAndGet();
+        }
+      }
+      entry = null;
+    }
+    if (entry == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return entry;
+  }
+
+  /**
+   * Store a freshly read document, evicting the oldest entries if the cache is full.
+   *
+   * @param id the id of the document.
+   * @param document the decoded document, which is copied.
+   * @param cas the CAS the document was read with.
+   */
+  public void put(String id, CouchbaseDocument document, long cas) {
+    Entry entry = new Entry(document.copy(), cas, now());
+    synchronized (entries) {
+      entries.put(id, entry);
+    }
+  }
+
+  /**
+   * Register a read of a document from the bucket, before it is sent.
+   *
+   * @param id the id of the document.
+   * @return the generation of the read, to pass to {@link #put(String, CouchbaseDocument, long, long)} and
+   *   {@link #endRead(String, long)}.
+   */
+  public long startRead(String id) {
+    synchronized (entries) {
+      pendingReads.put(id, ++lastRead);
+      return lastRead;
+    }
+  }
+
+  /**
+   * Store a document read from the bucket, unless it has been invalidated, or read again, since the read started.
+   *
+   * @param id the id of the document.
+   * @param document the decoded document, which is copied.
+   * @param cas the CAS the document was read with.
+   * @param generation the generation returned by {@link #startRead(String)}.
+   * @return whether the document has been stored.
+   */
+  public boolean put(String id, CouchbaseDocument document, long cas, long generation) {
+    Entry entry = new Entry(document.copy(), cas, now());
+    synchronized (entries) {
+      Long pending = pendingReads.get(id);
+      if (pending == null || pending != generation) {
+        return false;
+      }
+      entries.put(id, entry);
+      return true;
+    }
+  }
+
+  /**
+   * Unregister a read started with {@link #startRead(String)}, whether its document has been stored or not.
+   *
+   * @param id the id of the document.
+   * @param generation the generation returned by {@link #startRead(String)}.
+   */
+  public void endRead(String id, long generation) {
+    synchronized (entries) {
+      pendingReads.remove(id, generation);
+    }
+  }
+
+  /**
+   * Remove a document from the cache, typically because it has been modified. The reads of the document in progress
+   * won't store it.
+   *
+   * @param id the id of the document.
+   */
+  public void invalidate(String id) {
+    synchronized (entries) {
+      entries.remove(id);
+      pendingReads.remove(id);
+    }
+  }
+
+  /**
+   * Remove all the documents from the cache, the reads in progress won't store theirs.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+      pendingReads.clear();
+    }
+  }
+
+  long now() {
+    return System.nanoTime();
+  }
+
+  public boolean isRevalidating() {
+    return revalidate;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  @Override
+  public String toString() {
+    return "NearCache{size=" + size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+  }
+
+  /**
+   * A cached document along with the CAS it was read with.
+   */
+  public static final class Entry {
+
+    private final CouchbaseDocument document;
+    private final long cas;
+    private final long cachedAt;
+
+    Entry(CouchbaseDocument document, long cas, long cachedAt) {
+      this.document = document;
+      this.cas = cas;
+      this.cachedAt = cachedAt;
+    }
+
+    /**
+     * @return a copy of the cached document, that the caller is free to modify.
+     */
+    public CouchbaseDocument getDocument() {
+      return document.copy();
+    }
+
+    public long getCas() {
+      return cas;
+    }
+  }
+}
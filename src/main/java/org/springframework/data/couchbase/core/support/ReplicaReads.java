@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core.support;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.couchbase.client.core.RequestCancelledException;
+import com.couchbase.client.core.ServiceNotAvailableException;
+import com.couchbase.client.java.AsyncBucket;
+import com.couchbase.client.java.ReplicaMode;
+import com.couchbase.client.java.document.Document;
+import com.couchbase.client.java.document.RawJsonDocument;
+import rx.Observable;
+
+import org.springframework.data.couchbase.core.ReplicaReadMode;
+
+/**
+ * Reads documents from their replicas when their active copy can't be reached, and counts how often that happens.
+ * <br /><br />
+ * Only timeouts and unavailable services trigger a fallback: a missing document or a decoding failure is an answer
+ * from the active copy, not a sign of failover.
+ *
+ * @see ReplicaReadMode
+ */
+public class ReplicaReads {
+
+  private final AtomicLong fallbacks = new AtomicLong();
+  private final AtomicLong replicaHits = new AtomicLong();
+  private final AtomicLong replicaFailures = new AtomicLong();
+
+  /**
+   * @return true if the error of a read of the active copy should trigger a fallback to the replicas.
+   */
+  public boolean isFallbackCandidate(Throwable error) {
+    return error instanceof TimeoutException
+        || error.getCause() instanceof TimeoutException
+        || error instanceof RequestCancelledException
+        || error instanceof ServiceNotAvailableException;
+  }
+
+  /**
+   * Read a document from its replicas.
+   *
+   * @param bucket the bucket to read from.
+   * @param id the id of the document.
+   * @param mode which replicas to read, must not be {@link ReplicaReadMode#NONE}.
+   * @param timeoutMillis how long to wait for the replicas.
+   * @return the document, or an empty observable if no replica has it.
+   */
+  public Observable<RawJsonDocument> read(AsyncBucket bucket, String id, ReplicaReadMode mode, long timeoutMillis) {
+    return read(bucket, id, mode, timeoutMillis, RawJsonDocument.class);
+  }
+
+  /**
+   * Read a document from its replicas, as the given type of {@link Document}.
+   *
+   * @param bucket the bucket to read from.
+   * @param id the id of the document.
+   * @param mode which replicas to read, must not be {@link ReplicaReadMode#NONE}.
+   * @param timeoutMillis how long to wait for the replicas.
+   * @param documentClass the type of document to read, which decides how the content is decoded.
+   * @return the document, or an empty observable if no replica has it.
+   */
+  public <D extends Document<?>> Observable<D> read(AsyncBucket bucket, String id, ReplicaReadMode mode,
+                                                    long timeoutMillis, Class<D> documentClass) {
+    fallbacks.incrementAndGet();
+    Observable<D> copies;
+    switch (mode) {
+      case FIRST:
+        copies = bucket.getFromReplica(id, ReplicaMode.FIRST, documentClass);
+        break;
+      case ANY:
+        copies = bucket.getFromReplica(id, ReplicaMode.ALL, documentClass).take(1);
+        break;
+      case LATEST:
+        copies = bucket.getFromReplica(id, ReplicaMode.ALL, documentClass)
+            .toList()
+            .flatMap(documents -> documents.isEmpty() ? Observable.<D>empty()
+                : Observable.just(Collections.max(documents, Comparator.<D>comparingLong(document -> document.cas()))));
+        break;
+      default:
+        throw new IllegalArgumentException("Not a replica read mode: " + mode);
+    }
+    return copies
+        .timeout(timeoutMillis, TimeUnit.MILLISECONDS)
+        .doOnNext(document -> replicaHits.incrementAndGet())
+        .doOnError(error -> replicaFailures.incrementAndGet());
+  }
+
+  /**
+   * @return the number of reads that fell back to the replicas.
+   */
+  public long getFallbackCount() {
+    return fallbacks.get();
+  }
+
+  /**
+   * @return the number of documents served from a replica.
+   */
+  public long getReplicaHitCount() {
+    return replicaHits.get();
+  }
+
+  /**
+   * @return the number of fallbacks for which the replicas couldn't be read either.
+   */
+  public long getReplicaFailureCount() {
+    return replicaFailures.get();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core.support;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the repository query method being executed by the current thread, so that the operations it triggers on the
+ * templates can be attributed to it by the {@link CouchbaseMetrics}. Reactive operations are attributed when they
+ * are assembled, which happens on the calling thread.
+ */
+public final class RepositoryMethodContext {
+
+  private static final ThreadLocal<String> CURRENT = new ThreadLocal<String>();
+
+  private RepositoryMethodContext() {
+  }
+
+  /**
+   * Execute the action on behalf of the given repository method.
+   *
+   * @param repositoryMethod the qualified name of the method, eg. <code>com.example.BeerRepository.findByName</code>.
+   * @param action the execution of the method.
+   * @return the result of the action.
+   */
+  public static <T> T execute(String repositoryMethod, Supplier<T> action) {
+    String previous = CURRENT.get();
+    CURRENT.set(repositoryMethod);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  /**
+   * @return the repository method being executed by the current thread, or null.
+   */
+  public static String current() {
+    return CURRENT.get();
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.couchbase.client.core.BackpressureException;
+import com.couchbase.client.java.error.TemporaryFailureException;
+import com.couchbase.client.java.error.TemporaryLockFailureException;
+import rx.Observable;
+
+import org.springframework.data.couchbase.core.BucketCallback;
+import org.springframework.util.Assert;
+
+/**
+ * Retries the key/value operations of the {@link org.springframework.data.couchbase.core.CouchbaseTemplate} that
+ * failed with a transient error ({@link TemporaryFailureException}, {@link TemporaryLockFailureException} or
+ * {@link BackpressureException}), typically during a rebalance. Attempts are spaced by an exponential backoff with
+ * full jitter, so that the clients that failed together don't retry together.
+ * <p/>
+ * Only idempotent operations are retried by default: reads, and writes guarded by a CAS or by the insert semantics.
+ * Blind writes (upserts, replaces and removes without CAS) are only retried when {@link #retryBlindWrites()} is set.
+ */
+public class RetryPolicy {
+
+  private static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, false);
+
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final boolean retryBlindWrites;
+
+  private RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, boolean retryBlindWrites) {
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.retryBlindWrites = retryBlindWrites;
+  }
+
+  /**
+   * A policy that never retries, the default.
+   */
+  public static RetryPolicy none() {
+    return NONE;
+  }
+
+  /**
+   * A policy retrying up to <code>maxAttempts - 1</code> times, the backoff doubling from
+   * <code>initialBackoff</code> up to <code>maxBackoff</code>.
+   */
+  public static RetryPolicy exponentialBackoff(int maxAttempts, long initialBackoff, long maxBackoff, TimeUnit unit) {
+    Assert.isTrue(maxAttempts > 0, "The number of attempts must be positive");
+    Assert.isTrue(initialBackoff > 0 && maxBackoff >= initialBackoff,
+        "The initial backoff must be positive and lower than the max backoff");
+    return new RetryPolicy(maxAttempts, unit.toMillis(initialBackoff), unit.toMillis(maxBackoff), false);
+  }
+
+  /**
+   * @return a copy of this policy that also retries the writes that are not protected by a CAS.
+   */
+  public RetryPolicy retryBlindWrites() {
+    return new RetryPolicy(maxAttempts, initialBackoffMillis, maxBackoffMillis, true);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public boolean isRetryingBlindWrites() {
+    return retryBlindWrites;
+  }
+
+  /**
+   * @return true if the error is a transient one that is worth retrying.
+   */
+  public boolean isRetryable(Throwable error) {
+    return error instanceof TemporaryFailureException
+        || error instanceof TemporaryLockFailureException
+        || error instanceof BackpressureException;
+  }
+
+  /**
+   * @param error the error of the last attempt.
+   * @param attempt the number of the last attempt, starting at 1.
+   * @param idempotent whether the operation can be executed several times with the same outcome.
+   * @return true if another attempt should be made.
+   */
+  public boolean shouldRetry(Throwable error, int attempt, boolean idempotent) {
+    return attempt < maxAttempts && (idempotent || retryBlindWrites) && isRetryable(error);
+  }
+
+  /**
+   * @param attempt the number of the failed attempt, starting at 1.
+   * @return how long to wait before the next attempt: a random duration up to the exponential backoff.
+   */
+  public long getBackoffMillis(int attempt) {
+    long backoff = initialBackoffMillis << Math.min(attempt - 1, 30);
+    if (backoff <= 0 || backoff > maxBackoffMillis) {
+      backoff = maxBackoffMillis;
+    }
+    return ThreadLocalRandom.current().nextLong(backoff + 1);
+  }
+
+  /**
+   * Execute the callback, retrying it according to this policy. Errors are rethrown untranslated.
+   */
+  public <T> T execute(BucketCallback<T> action, boolean idempotent)
+      throws TimeoutException, ExecutionException, InterruptedException {
+    int attempt = 1;
+    while (true) {
+      try {
+        return action.doInBucket();
+      } catch (RuntimeException e) {
+        if (!shouldRetry(e, attempt, idempotent)) {
+          throw e;
+        }
+        Thread.sleep(getBackoffMillis(attempt));
+        attempt++;
+      }
+    }
+  }
+
+  /**
+   * Apply this policy to an asynchronous operation, which is subscribed to again for each attempt.
+   */
+  public <T> Observable<T> apply(Observable<T> asyncAction, final boolean idempotent) {
+    if (maxAttempts <= 1) {
+      return asyncAction;
+    }
+    return asyncAction.retryWhen(errors -> {
+      final int[] attempt = {0};
+      return errors.flatMap(error -> {
+        int current = ++attempt[0];
+        if (!shouldRetry(error, current, idempotent)) {
+          return Observable.<Long>error(error);
+        }
+        return Observable.timer(getBackoffMillis(current), TimeUnit.MILLISECONDS);
+      });
+    });
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.core.support;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the N1QL queries that take longer than a threshold, and keeps statistics about the most expensive queries.
+ * <br /><br />
+ * Queries are grouped by fingerprint: their statement with the literals replaced by <code>?</code>, so that the
+ * executions of a query with different values are accounted together. The threshold applies globally, and can be
+ * overridden for the methods of a given repository. The statistics of at most <code>capacity</code> fingerprints are
+ * kept, as a space-saving counter: when a new fingerprint shows up, the cheapest one is forgotten and the new one
+ * inherits its cumulated duration as an error margin, see {@link QueryStatistics#getErrorNanos()}. A query that is
+ * frequent enough thus makes its way into the top queries even when cheap one-off queries keep replacing it.
+ */
+public class SlowQueryLog {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+
+  private static final Pattern LITERAL_ARRAY = Pattern.compile("\\[\\s*\\?(\\s*,\\s*\\?)*\\s*\\]");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final long thresholdNanos;
+  private final int capacity;
+  private final Map<String, Long> repositoryThresholds = new ConcurrentHashMap<String, Long>();
+  private final Map<String, QueryStatistics> statistics = new ConcurrentHashMap<String, QueryStatistics>();
+  private final AtomicLong slowQueries = new AtomicLong();
+
+  /**
+   * Create a slow query log keeping the statistics of up to 100 fingerprints.
+   *
+   * @param threshold the duration above which a query is logged.
+   * @param unit the unit of the threshold.
+   */
+  public SlowQueryLog(long threshold, TimeUnit unit) {
+    this(threshold, unit, 100);
+  }
+
+  /**
+   * @param threshold the duration above which a query is logged.
+   * @param unit the unit of the threshold.
+   * @param capacity the maximum number of fingerprints to keep statistics for.
+   */
+  public SlowQueryLog(long threshold, TimeUnit unit, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive");
+    }
+    this.thresholdNanos = unit.toNanos(threshold);
+    this.capacity = capacity;
+  }
+
+  /**
+   * Override the threshold for the query methods of a repository.
+   *
+   * @param repositoryInterface the repository interface, matched by its fully qualified name.
+   * @param threshold the duration above which a query of the repository is logged.
+   * @param unit the unit of the threshold.
+   * @return this log, for chaining.
+   */
+  public SlowQueryLog withThreshold(Class<?> repositoryInterface, long threshold, TimeUnit unit) {
+    repositoryThresholds.put(repositoryInterface.getName(), unit.toNanos(threshold));
+    return this;
+  }
+
+  /**
+   * Record the execution of a query, logging it if it was slow.
+   *
+   * @param statement the N1QL statement.
+   * @param repositoryMethod the repository method that executed it, see {@link RepositoryMethodContext}, or null.
+   * @param elapsedNanos how long the query took, as seen by the client.
+   * @param executionNanos how long the query service reported it took to execute the query, -1 if unknown.
+   * @param resultCount the number of rows returned.
+   * @param resultSize the size of the rows returned, in bytes.
+   */
+  public void record(String statement, String repositoryMethod, long elapsedNanos, long executionNanos,
+                     long resultCount, long resultSize) {
+    String fingerprint = fingerprint(statement);
+    boolean slow = elapsedNanos >= getThresholdNanos(repositoryMethod);
+
+    QueryStatistics queryStatistics = statistics.get(fingerprint);
+    if (queryStatistics == null) {
+      synchronized (statistics) {
+        queryStatistics = statistics.get(fingerprint);
+        if (queryStatistics == null) {
+          long errorNanos = statistics.size() >= capacity ? evictCheapest() : 0L;
+          queryStatistics = new QueryStatistics(fingerprint, errorNanos);
+          statistics.put(fingerprint, queryStatistics);
+        }
+      }
+    }
+    queryStatistics.add(repositoryMethod, elapsedNanos, executionNanos, resultCount, resultSize, slow);
+
+    if (slow) {
+      slowQueries.incrementAndGet();
+      LOGGER.warn("Slow N1QL query{} took {}ms (execution {}ms, {} results, {} bytes): {}",
+          repositoryMethod == null ? "" : " from " + repositoryMethod, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          executionNanos < 0 ? "?" : TimeUnit.NANOSECONDS.toMillis(executionNanos), resultCount, resultSize,
+          fingerprint);
+    }
+  }
+
+  private long getThresholdNanos(String repositoryMethod) {
+    if (repositoryMethod != null && !repositoryThresholds.isEmpty()) {
+      int separator = repositoryMethod.lastIndexOf('.');
+      Long threshold = repositoryThresholds.get(separator < 0 ? repositoryMethod
+          : repositoryMethod.substring(0, separator));
+      if (threshold != null) {
+        return threshold;
+      }
+    }
+    return thresholdNanos;
+  }
+
+  /**
+   * @return the estimated duration of the evicted fingerprint, to be inherited by the one replacing it.
+   */
+  private long evictCheapest() {
+    QueryStatistics cheapest = null;
+    for (QueryStatistics candidate : statistics.values()) {
+      if (cheapest == null || candidate.getEstimatedNanos() < cheapest.getEstimatedNanos()) {
+        cheapest = candidate;
+      }
+    }
+    if (cheapest == null) {
+      return 0L;
+    }
+    statistics.remove(cheapest.getFingerprint(), cheapest);
+    return cheapest.getEstimatedNanos();
+  }
+
+  /**
+   * @param limit the maximum number of fingerprints to return.
+   * @return the statistics of the fingerprints with the highest estimated cumulated duration, most expensive first.
+   */
+  public List<QueryStatistics> getTopQueries(int limit) {
+    List<QueryStatistics> result = new ArrayList<QueryStatistics>(statistics.values());
+    result.sort(Comparator.comparingLong(QueryStatistics::getEstimatedNanos).reversed());
+    return result.size() > limit ? new ArrayList<QueryStatistics>(result.subList(0, limit)) : result;
+  }
+
+  /**
+   * @return the number of queries that were above their threshold.
+   */
+  public long getSlowQueryCount() {
+    return slowQueries.get();
+  }
+
+  /**
+   * Forget the statistics of all the fingerprints.
+   */
+  public void clear() {
+    statistics.clear();
+  }
+
+  /**
+   * Normalize a N1QL statement by replacing its string and number literals by <code>?</code> and arrays of literals by
+   * <code>[?]</code>. Identifiers, including escaped ones, and named or positional parameters are kept.
+   *
+   * @param statement the statement.
+   * @return the fingerprint of the statement.
+   */
+  public static String fingerprint(String statement) {
+    StringBuilder result = new StringBuilder(statement.length());
+    int length = statement.length();
+    int i = 0;
+    while (i < length) {
+      char c = statement.charAt(i);
+      if (c == '`') {
+        int end = statement.indexOf('`', i + 1);
+        end = end < 0 ? length : end + 1;
+        result.append(statement, i, end);
+        i = end;
+      } else if (c == '"' || c == '\'') {
+        i = skipString(statement, i, c);
+        result.append('?');
+      } else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(statement.charAt(i - 1)))) {
+        while (i < length && (Character.isLetterOrDigit(statement.charAt(i)) || statement.charAt(i) == '.')) {
+          i++;
+        }
+        result.append('?');
+      } else if (isIdentifierPart(c)) {
+        while (i < length && isIdentifierPart(statement.charAt(i))) {
+          result.append(statement.charAt(i++));
+        }
+      } else {
+        result.append(c);
+        i++;
+      }
+    }
+    String normalized = WHITESPACE.matcher(result.toString().trim()).replaceAll(" ");
+    return LITERAL_ARRAY.matcher(normalized).replaceAll("[?]");
+  }
+
+  private static int skipString(String statement, int start, char quote) {
+    int i = start + 1;
+    while (i < statement.length()) {
+      char c = statement.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote) {
+        //a doubled quote is an escaped quote
+        if (i + 1 < statement.length() && statement.charAt(i + 1) == quote) {
+          i += 2;
+        } else {
+          return i + 1;
+        }
+      } else {
+        i++;
+      }
+    }
+    return statement.length();
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  /**
+   * The statistics of the executions of the queries sharing a fingerprint.
+   */
+  public static class QueryStatistics {
+
+    private final String fingerprint;
+    private final long errorNanos;
+    private String repositoryMethod;
+    private long count;
+    private long slowCount;
+    private long totalNanos;
+    private long maxNanos;
+    private long totalExecutionNanos;
+    private long totalResultCount;
+    private long totalResultSize;
+
+    QueryStatistics(String fingerprint, long errorNanos) {
+      this.fingerprint = fingerprint;
+      this.errorNanos = errorNanos;
+    }
+
+    synchronized void add(String repositoryMethod, long elapsedNanos, long executionNanos, long resultCount,
+                          long resultSize, boolean slow) {
+      if (repositoryMethod != null) {
+        this.repositoryMethod = repositoryMethod;
+      }
+      count++;
+      if (slow) {
+        slowCount++;
+      }
+      totalNanos += elapsedNanos;
+      maxNanos = Math.max(maxNanos, elapsedNanos);
+      totalExecutionNanos += Math.max(0L, executionNanos);
+      totalResultCount += resultCount;
+      totalResultSize += resultSize;
+    }
+
+    /**
+     * @return the normalized statement.
+     */
+    public String getFingerprint() {
+      return fingerprint;
+    }
+
+    /**
+     * @return the last repository method that executed this query, or null if it was executed directly.
+     */
+    public synchronized String getRepositoryMethod() {
+      return repositoryMethod;
+    }
+
+    /**
+     * @return the number of executions.
+     */
+    public synchronized long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the number of executions that were above the threshold.
+     */
+    public synchronized long getSlowCount() {
+      return slowCount;
+    }
+
+    /**
+     * @return the cumulated duration of the executions, as seen by the client, in nanoseconds.
+     */
+    public synchronized long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * @return the cumulated duration of the fingerprint that was evicted when this one started being tracked, in
+     * nanoseconds: the executions of this fingerprint that happened before it was tracked took at most that long.
+     * Zero if no fingerprint was evicted.
+     */
+    public long getErrorNanos() {
+      return errorNanos;
+    }
+
+    /**
+     * @return the cumulated duration of the executions plus the {@link #getErrorNanos() error margin}, an upper bound
+     * of the cumulated duration of all the executions of this fingerprint, by which the fingerprints are ranked.
+     */
+    public synchronized long getEstimatedNanos() {
+      return errorNanos + totalNanos;
+    }
+
+    /**
+     * @return the longest execution, as seen by the client, in nanoseconds.
+     */
+    public synchronized long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * @return the cumulated execution time reported by the query service, in nanoseconds.
+     */
+    public synchronized long getTotalExecutionNanos() {
+      return totalExecutionNanos;
+    }
+
+    /**
+     * @return the cumulated number of rows returned.
+     */
+    public synchronized long getTotalResultCount() {
+      return totalResultCount;
+    }
+
+    /**
+     * @return the cumulated size of the rows returned, in bytes.
+     */
+    public synchronized long getTotalResultSize() {
+      return totalResultSize;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return String.format(Locale.ROOT, "%s: count=%d, slow=%d, total=%dms, error=%dms, max=%dms, execution=%dms, "
+              + "results=%d, bytes=%d%s", fingerprint, count, slowCount, TimeUnit.NANOSECONDS.toMillis(totalNanos),
+          TimeUnit.NANOSECONDS.toMillis(errorNanos), TimeUnit.NANOSECONDS.toMillis(maxNanos), TimeUnit.NANOSECONDS.toMillis(totalExecutionNanos),
+          totalResultCount, totalResultSize, repositoryMethod == null ? "" : " (" + repositoryMethod + ")");
+    }
+  }
+}
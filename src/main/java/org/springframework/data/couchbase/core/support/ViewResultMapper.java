@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.view.AsyncViewResult;
+import com.couchbase.client.java.view.AsyncViewRow;
+import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+import org.springframework.util.Assert;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func1;
+import rx.functions.Func2;
+import rx.schedulers.Schedulers;
+
+/**
+ * Streams the rows of a view query and maps them to entities as they arrive, rather than waiting for the whole
+ * result and the included documents.
+ * <p/>
+ * The documents backing the rows are fetched by this mapper, with at most {@link #getPrefetchWindow()} fetches in
+ * flight, keeping the order of the rows when it has to be retained. They are then mapped on the configured
+ * {@link Scheduler} so that the decoding doesn't happen on the SDK's IO threads. Since mapping may block, on the
+ * lookups of the joins or on the decryption of the fields, that scheduler must allow blocking: the default is
+ * {@link Schedulers#io()}. Documents that can't be decoded are counted and, if a {@link DecodingFailureHandler} is set,
+ * passed to it and skipped instead of failing the result.
+ */
+public class ViewResultMapper {
+
+  /**
+   * The default maximum number of documents fetched concurrently.
+   */
+  public static final int DEFAULT_PREFETCH_WINDOW = 16;
+
+  private final int prefetchWindow;
+  private final Scheduler mappingScheduler;
+  private final DecodingFailureHandler decodingFailureHandler;
+  private final AtomicLong decodingFailures = new AtomicLong();
+
+  /**
+   * Creates a mapper using the {@link #DEFAULT_PREFETCH_WINDOW}, mapping on the IO scheduler and skipping the documents
+   * that can't be decoded, see {@link DecodingFailureHandler#SKIP}.
+   */
+  public ViewResultMapper() {
+    this(DecodingFailureHandler.SKIP);
+  }
+
+  /**
+   * Creates a mapper using the {@link #DEFAULT_PREFETCH_WINDOW} and mapping on the IO scheduler.
+   *
+   * @param decodingFailureHandler the handler to notify of documents that can't be decoded, in which case they are
+   * skipped, or null to fail the result instead.
+   */
+  public ViewResultMapper(DecodingFailureHandler decodingFailureHandler) {
+    this(DEFAULT_PREFETCH_WINDOW, Schedulers.io(), decodingFailureHandler);
+  }
+
+  /**
+   * @param prefetchWindow the maximum number of documents fetched concurrently.
+   * @param mappingScheduler the scheduler on which documents are decoded into entities, which must allow blocking.
+   * @param decodingFailureHandler the handler to notify of documents that can't be decoded, in which case they are
+   * skipped, or null to fail the result instead.
+   */
+  public ViewResultMapper(int prefetchWindow, Scheduler mappingScheduler,
+                          DecodingFailureHandler decodingFailureHandler) {
+    Assert.isTrue(prefetchWindow > 0, "Prefetch window must be strictly positive");
+    Assert.notNull(mappingScheduler, "Mapping scheduler must not be null");
+    this.prefetchWindow = prefetchWindow;
+    this.mappingScheduler = mappingScheduler;
+    this.decodingFailureHandler = decodingFailureHandler;
+  }
+
+  /**
+   * Map the rows of a view result.
+   *
+   * @param viewResult the result of the view query, which shouldn't include the documents.
+   * @param ordered true if the entities must be emitted in the order of the rows.
+   * @param mapper the function decoding a document into an entity, possibly returning null to skip the row.
+   * @return the entities, as they are mapped.
+   */
+  public <T> Observable<T> map(Observable<AsyncViewResult> viewResult, boolean ordered,
+                               final Func1<RawJsonDocument, T> mapper) {
+    return map(viewResult, ordered, null, mapper);
+  }
+
+  /**
+   * Map the rows of a view result, with a fallback for the documents that can't be fetched.
+   *
+   * @param viewResult the result of the view query, which shouldn't include the documents.
+   * @param ordered true if the entities must be emitted in the order of the rows.
+   * @param fetchFallback the function called with the id of a document and the error of its fetch, which either
+   * fetches the document another way or propagates the error. Null to always propagate the error.
+   * @param mapper the function decoding a document into an entity, possibly returning null to skip the row.
+   * @return the entities, as they are mapped.
+   */
+  public <T> Observable<T> map(Observable<AsyncViewResult> viewResult, boolean ordered,
+                               final Func2<String, Throwable, Observable<RawJsonDocument>> fetchFallback,
+                               final Func1<RawJsonDocument, T> mapper) {
+    return map(viewResult, ordered, fetchFallback, null, mapper);
+  }
+
+  /**
+   * Map the rows of a view result, with a fallback for the documents that can't be fetched and a listener of the
+   * decoding failures of this result, eg. to report them to the {@link CouchbaseMetrics}.
+   *
+   * @param viewResult the result of the view query, which shouldn't include the documents.
+   * @param ordered true if the entities must be emitted in the order of the rows.
+   * @param fetchFallback the function called with the id of a document and the error of its fetch, which either
+   * fetches the document another way or propagates the error. Null to always propagate the error.
+   * @param failureListener notified of each document that can't be decoded, before the configured
+   * {@link DecodingFailureHandler}, whether the document is skipped or fails the result. May be null.
+   * @param mapper the function decoding a document into an entity, possibly returning null to skip the row.
+   * @return the entities, as they are mapped.
+   */
+  public <T> Observable<T> map(Observable<AsyncViewResult> viewResult, boolean ordered,
+                               final Func2<String, Throwable, Observable<RawJsonDocument>> fetchFallback,
+                               final DecodingFailureHandler failureListener,
+                               final Func1<RawJsonDocument, T> mapper) {
+    Observable<AsyncViewRow> rows = viewResult
+        .flatMap(new Func1<AsyncViewResult, Observable<AsyncViewRow>>() {
+          @Override
+          public Observable<AsyncViewRow> call(AsyncViewResult asyncViewResult) {
+            return asyncViewResult
+                .error()
+                .flatMap(new Func1<JsonObject, Observable<AsyncViewRow>>() {
+                  @Override
+                  public Observable<AsyncViewRow> call(JsonObject error) {
+                    return Observable.error(new CouchbaseQueryExecutionException("Unable to execute view query due to the following view error: " + error.toString()));
+                  }})
+                .switchIfEmpty(asyncViewResult.rows());
+          }
+        });
+
+    Func1<AsyncViewRow, Observable<RawJsonDocument>> fetch = new Func1<AsyncViewRow, Observable<RawJsonDocument>>() {
+      @Override
+      public Observable<RawJsonDocument> call(final AsyncViewRow row) {
+        //a document deleted since the view was indexed is simply missing
+        Observable<RawJsonDocument> document = row.document(RawJsonDocument.class);
+        if (fetchFallback == null) {
+          return document;
+        }
+        return document.onErrorResumeNext(new Func1<Throwable, Observable<RawJsonDocument>>() {
+          @Override
+          public Observable<RawJsonDocument> call(Throwable error) {
+            return fetchFallback.call(row.id(), error);
+          }
+        });
+      }
+    };
+    Observable<RawJsonDocument> documents = ordered
+        ? rows.concatMapEager(fetch, prefetchWindow, prefetchWindow)
+        : rows.flatMap(fetch, prefetchWindow);
+
+    return documents
+        .observeOn(mappingScheduler)
+        .concatMap(new Func1<RawJsonDocument, Observable<T>>() {
+          @Override
+          public Observable<T> call(RawJsonDocument document) {
+            T entity;
+            try {
+              entity = mapper.call(document);
+            } catch (RuntimeException e) {
+              decodingFailures.incrementAndGet();
+              if (failureListener != null) {
+                failureListener.onDecodingFailure(document.id(), e);
+              }
+              if (decodingFailureHandler == null) {
+                return Observable.error(e);
+              }
+              decodingFailureHandler.onDecodingFailure(document.id(), e);
+              return Observable.empty();
+            }
+            return entity == null ? Observable.<T>empty() : Observable.just(entity);
+          }
+        });
+  }
+
+  /**
+   * @return the maximum number of documents fetched concurrently.
+   */
+  public int getPrefetchWindow() {
+    return prefetchWindow;
+  }
+
+  /**
+   * @return the number of documents that couldn't be decoded since this mapper was created.
+   */
+  public long getDecodingFailureCount() {
+    return decodingFailures.get();
+  }
+}
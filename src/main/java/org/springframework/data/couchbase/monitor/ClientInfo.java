@@ -16,45 +16,71 @@
 
 package org.springframework.data.couchbase.monitor;
 
-import java.net.InetAddress;
-
 import com.couchbase.client.java.Bucket;
-import com.couchbase.client.java.bucket.BucketInfo;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.jmx.export.annotation.ManagedAttribute;
 import org.springframework.jmx.export.annotation.ManagedResource;
 
 /**
  * Exposes basic client information.
+ * <p/>
+ * The attributes are served from the latest snapshot of a {@link ClusterStatistics}, refreshed in the background.
  *
  * @author Michael Nitschinger
  * @author Simon Baslé
  */
 @ManagedResource(description = "Client Information")
-public class ClientInfo {
+public class ClientInfo implements DisposableBean {
 
-  private final Bucket bucket;
-  private final BucketInfo info;
+  private final ClusterStatistics statistics;
+  private final boolean ownStatistics;
 
   public ClientInfo(final Bucket bucket) {
-    this.bucket = bucket;
-    this.info = bucket.bucketManager().info();
+    this.statistics = new ClusterStatistics(bucket);
+    this.ownStatistics = true;
+  }
+
+  public ClientInfo(final ClusterStatistics statistics) {
+    this.statistics = statistics;
+    this.ownStatistics = false;
   }
 
   @ManagedAttribute(description = "Hostnames of connected nodes")
   public String getHostNames() {
     StringBuilder result = new StringBuilder();
-    for (InetAddress node : info.nodeList()) {
-      result.append(node.toString()).append(",");
+    for (String node : statistics.getSnapshot().getHostNames()) {
+      result.append(node).append(",");
     }
     return result.toString();
   }
 
   @ManagedAttribute(description = "Number of connected nodes")
   public int getNumberOfNodes() {
-    return info.nodeCount();
+    return statistics.getSnapshot().getHostNames().size();
+  }
+
+  @ManagedAttribute(description = "Number of healthy nodes in the cluster")
+  public int getNumberOfAvailableNodes() {
+    int available = 0;
+    for (ClusterStatistics.NodeStatistics node : statistics.getSnapshot().getNodes()) {
+      if (node.isAvailable()) {
+        available++;
+      }
+    }
+    return available;
+  }
+
+  @ManagedAttribute(description = "Number of nodes in the cluster that are warming up or unhealthy")
+  public int getNumberOfUnavailableNodes() {
+    return statistics.getSnapshot().getNodes().size() - getNumberOfAvailableNodes();
   }
 
-  //TODO obtain count of available nodes vs unavailable ones and expose it
+  @Override
+  public void destroy() {
+    if (ownStatistics) {
+      statistics.destroy();
+    }
+  }
 
 }
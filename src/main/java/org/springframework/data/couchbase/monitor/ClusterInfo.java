@@ -16,111 +16,123 @@
 
 package org.springframework.data.couchbase.monitor;
 
-import java.net.InetAddress;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-
 import com.couchbase.client.java.Bucket;
-import com.couchbase.client.java.bucket.BucketInfo;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.jmx.export.annotation.ManagedAttribute;
 import org.springframework.jmx.export.annotation.ManagedMetric;
 import org.springframework.jmx.export.annotation.ManagedResource;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * Exposes basic cluster information.
+ * <p/>
+ * The attributes are served from the latest snapshot of a {@link ClusterStatistics}, refreshed in the background.
  *
  * @author Michael Nitschinger
  * @author Simon Baslé
  */
 @ManagedResource(description = "Cluster Information")
-public class ClusterInfo {
+public class ClusterInfo implements DisposableBean {
 
-  private final RestTemplate template;
-  private final Bucket bucket;
-  private final BucketInfo info;
+  private final ClusterStatistics statistics;
+  private final boolean ownStatistics;
 
   public ClusterInfo(final Bucket bucket) {
-    this.template = new RestTemplate();
-    this.bucket = bucket;
-    this.info = bucket.bucketManager().info();
+    this.statistics = new ClusterStatistics(bucket);
+    this.ownStatistics = true;
+  }
+
+  public ClusterInfo(final ClusterStatistics statistics) {
+    this.statistics = statistics;
+    this.ownStatistics = false;
   }
 
   @ManagedMetric(description = "Total RAM assigned")
   public long getTotalRAMAssigned() {
-    return convertPotentialLong(parseStorageTotals().get("ram").get("total"));
+    return statistics.getSnapshot().getRamTotal();
   }
 
   @ManagedMetric(description = "Total RAM used")
   public long getTotalRAMUsed() {
-    return convertPotentialLong(parseStorageTotals().get("ram").get("used"));
+    return statistics.getSnapshot().getRamUsed();
   }
 
   @ManagedMetric(description = "Total Disk Space assigned")
   public long getTotalDiskAssigned() {
-    return convertPotentialLong(parseStorageTotals().get("hdd").get("total"));
+    return statistics.getSnapshot().getDiskTotal();
   }
 
   @ManagedMetric(description = "Total Disk Space used")
   public long getTotalDiskUsed() {
-    return convertPotentialLong(parseStorageTotals().get("hdd").get("used"));
+    return statistics.getSnapshot().getDiskUsed();
   }
 
   @ManagedMetric(description = "Total Disk Space free")
   public long getTotalDiskFree() {
-    return convertPotentialLong(parseStorageTotals().get("hdd").get("free"));
+    return statistics.getSnapshot().getDiskFree();
   }
 
   @ManagedAttribute(description = "Cluster is Balanced")
   public boolean getIsBalanced() {
-    return (Boolean) fetchPoolInfo().get("balanced");
+    return statistics.getSnapshot().isBalanced();
   }
 
   @ManagedAttribute(description = "Rebalance Status")
   public String getRebalanceStatus() {
-    return (String) fetchPoolInfo().get("rebalanceStatus");
+    return statistics.getSnapshot().getRebalanceStatus();
   }
 
   @ManagedAttribute(description = "Maximum Available Buckets")
   public int getMaxBuckets() {
-    return (Integer) fetchPoolInfo().get("maxBucketCount");
-  }
-
-  /**
-   * Depending on the value size, either int or long can be passed in and get
-   * converted to long.
-   *
-   * @param value the value to convert.
-   * @return the converted value.
-   */
-  private long convertPotentialLong(Object value) {
-    if (value instanceof Integer) {
-      return new Long((Integer) value);
-    }
-    else if (value instanceof Long) {
-      return (Long) value;
-    }
-    else {
-      throw new IllegalStateException("Cannot convert value to long: " + value);
+    return statistics.getSnapshot().getMaxBuckets();
+  }
+
+  @ManagedMetric(description = "Operations per second on the bucket")
+  public double getBucketOpsPerSec() {
+    return statistics.getSnapshot().getBucket().getOpsPerSec();
+  }
+
+  @ManagedMetric(description = "Ratio of the reads of the bucket served from memory")
+  public double getBucketCacheHitRatio() {
+    return statistics.getSnapshot().getBucket().getCacheHitRatio();
+  }
+
+  @ManagedMetric(description = "Ratio of the active documents of the bucket resident in memory")
+  public double getBucketResidentRatio() {
+    return statistics.getSnapshot().getBucket().getResidentRatio();
+  }
+
+  @ManagedAttribute(description = "Status, operations per second, cache hit ratio and resident ratio of each node")
+  public String getNodeStatistics() {
+    StringBuilder result = new StringBuilder();
+    for (ClusterStatistics.NodeStatistics node : statistics.getSnapshot().getNodes()) {
+      result.append(node).append(",");
     }
+    return result.toString();
+  }
+
+  @ManagedAttribute(description = "When the statistics were last refreshed, in milliseconds since the epoch")
+  public long getLastRefresh() {
+    return statistics.getSnapshot().getTimestamp();
   }
 
-  protected String randomAvailableHostname() {
-    List<InetAddress> available = info.nodeList();
-    Collections.shuffle(available);
-    return available.get(0).getHostName();
+  @ManagedAttribute(description = "Age of the statistics in milliseconds, -1 if they were never refreshed")
+  public long getStatisticsAge() {
+    long timestamp = statistics.getSnapshot().getTimestamp();
+    return timestamp == 0L ? -1L : System.currentTimeMillis() - timestamp;
   }
 
-  private HashMap<String, Object> fetchPoolInfo() {
-    return template.getForObject("http://"
-        + randomAvailableHostname() + ":8091/pools/default", HashMap.class);
+  @ManagedAttribute(description = "Error of the last refresh of the statistics, empty if it succeeded")
+  public String getStatisticsError() {
+    String error = statistics.getLastError();
+    return error == null ? "" : error;
   }
 
-  private HashMap<String, HashMap> parseStorageTotals() {
-    HashMap<String, Object> stats = fetchPoolInfo();
-    return (HashMap<String, HashMap>) stats.get("storageTotals");
+  @Override
+  public void destroy() {
+    if (ownStatistics) {
+      statistics.destroy();
+    }
   }
 
 }
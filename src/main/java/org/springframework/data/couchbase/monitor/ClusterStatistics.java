@@ -0,0 +1,418 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.monitor;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.bucket.BucketInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Periodically fetches the statistics of the cluster and of a bucket from the REST API, so that the JMX beans of
+ * this package serve their attributes from memory instead of making HTTP calls on each read.
+ * <br /><br />
+ * Refreshes happen on a background thread, the first one right after construction. Reading the
+ * {@link #getSnapshot() snapshot} never blocks: until the first refresh completes, it is an empty snapshot whose
+ * timestamp is 0. A failed refresh is logged and the previous snapshot is kept, the failure being exposed by
+ * {@link #getLastError()} until a refresh succeeds.
+ */
+public class ClusterStatistics implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClusterStatistics.class);
+
+  private static final long DEFAULT_REFRESH_INTERVAL_SECONDS = 10;
+
+  private final Bucket bucket;
+  private final RestTemplate template;
+  private final ScheduledExecutorService executor;
+  private volatile Snapshot snapshot;
+  private volatile String lastError;
+
+  /**
+   * Create statistics refreshed every 10 seconds.
+   *
+   * @param bucket the bucket to monitor, which also gives the nodes of the cluster.
+   */
+  public ClusterStatistics(final Bucket bucket) {
+    this(bucket, DEFAULT_REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @param bucket the bucket to monitor, which also gives the nodes of the cluster.
+   * @param refreshInterval the delay between the end of a refresh and the start of the next one.
+   * @param unit the unit of the interval.
+   */
+  public ClusterStatistics(final Bucket bucket, long refreshInterval, TimeUnit unit) {
+    this(bucket, new RestTemplate(), Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "couchbase-cluster-statistics");
+      thread.setDaemon(true);
+      return thread;
+    }));
+    executor.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshInterval, unit);
+  }
+
+  ClusterStatistics(final Bucket bucket, final RestTemplate template, final ScheduledExecutorService executor) {
+    this.bucket = bucket;
+    this.template = template;
+    this.executor = executor;
+    this.snapshot = new Snapshot(Collections.<String>emptyList(), Collections.<String, Object>emptyMap(),
+        new BucketStatistics(bucket.name(), Collections.<String, Object>emptyMap()), 0L);
+  }
+
+  /**
+   * @return the latest statistics, which are empty with a timestamp of 0 if no refresh has completed yet.
+   */
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * @return the error of the last refresh, null if it succeeded or if there was none yet. The snapshot is then older
+   * than the refresh interval.
+   */
+  public String getLastError() {
+    return lastError;
+  }
+
+  /**
+   * Fetch the statistics now, on the calling thread.
+   *
+   * @return the new snapshot.
+   * @throws RestClientException if the statistics can't be fetched from any node.
+   */
+  public synchronized Snapshot refresh() {
+    try {
+      BucketInfo info = bucket.bucketManager().info();
+      List<String> hostNames = new ArrayList<String>();
+      List<String> nodeNames = new ArrayList<String>();
+      for (InetAddress node : info.nodeList()) {
+        hostNames.add(node.getHostName());
+        nodeNames.add(node.toString());
+      }
+      Map<String, Object> pool = fetch(hostNames, "/pools/default");
+      Map<String, Object> bucketStats = fetch(hostNames, "/pools/default/buckets/" + bucket.name() + "/stats");
+      Snapshot refreshed = new Snapshot(nodeNames, pool, new BucketStatistics(bucket.name(), bucketStats),
+          System.currentTimeMillis());
+      this.snapshot = refreshed;
+      this.lastError = null;
+      return refreshed;
+    } catch (RuntimeException e) {
+      this.lastError = e.toString();
+      throw e;
+    }
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Unable to refresh the cluster statistics, keeping the previous ones: {}", e.toString());
+    }
+  }
+
+  /**
+   * Fetch a REST resource from one of the nodes, trying them in random order.
+   */
+  protected Map<String, Object> fetch(List<String> hostNames, String path) {
+    List<String> candidates = new ArrayList<String>(hostNames);
+    Collections.shuffle(candidates);
+    RestClientException failure = new RestClientException("No node to fetch " + path + " from");
+    for (String hostName : candidates) {
+      try {
+        return template.getForObject("http://" + hostName + ":8091" + path, HashMap.class);
+      } catch (RestClientException e) {
+        failure = e;
+      }
+    }
+    throw failure;
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  private static long toLong(Object value) {
+    return value instanceof Number ? ((Number) value).longValue() : 0L;
+  }
+
+  private static double toDouble(Object value) {
+    return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+  }
+
+  /**
+   * @return the last sample of a statistic, as returned by the stats endpoint of a bucket.
+   */
+  private static double lastSample(Map<String, Object> samples, String name) {
+    Object values = samples.get(name);
+    if (values instanceof List && !((List<?>) values).isEmpty()) {
+      List<?> list = (List<?>) values;
+      return toDouble(list.get(list.size() - 1));
+    }
+    return Double.NaN;
+  }
+
+  /**
+   * The statistics of the cluster at a point in time.
+   */
+  public static class Snapshot {
+
+    private final List<String> hostNames;
+    private final long ramTotal;
+    private final long ramUsed;
+    private final long diskTotal;
+    private final long diskUsed;
+    private final long diskFree;
+    private final boolean balanced;
+    private final String rebalanceStatus;
+    private final int maxBuckets;
+    private final List<NodeStatistics> nodes;
+    private final BucketStatistics bucket;
+    private final long timestamp;
+
+    @SuppressWarnings("unchecked")
+    Snapshot(List<String> hostNames, Map<String, Object> pool, BucketStatistics bucket, long timestamp) {
+      this.hostNames = Collections.unmodifiableList(hostNames);
+
+      Map<String, Map<String, Object>> storageTotals = (Map<String, Map<String, Object>>) pool.get("storageTotals");
+      Map<String, Object> ram = storageTotals == null ? null : storageTotals.get("ram");
+      Map<String, Object> hdd = storageTotals == null ? null : storageTotals.get("hdd");
+      this.ramTotal = ram == null ? 0L : toLong(ram.get("total"));
+      this.ramUsed = ram == null ? 0L : toLong(ram.get("used"));
+      this.diskTotal = hdd == null ? 0L : toLong(hdd.get("total"));
+      this.diskUsed = hdd == null ? 0L : toLong(hdd.get("used"));
+      this.diskFree = hdd == null ? 0L : toLong(hdd.get("free"));
+      this.balanced = Boolean.TRUE.equals(pool.get("balanced"));
+      this.rebalanceStatus = (String) pool.get("rebalanceStatus");
+      this.maxBuckets = (int) toLong(pool.get("maxBucketCount"));
+
+      List<NodeStatistics> nodes = new ArrayList<NodeStatistics>();
+      Object poolNodes = pool.get("nodes");
+      if (poolNodes instanceof List) {
+        for (Object node : (List<?>) poolNodes) {
+          nodes.add(new NodeStatistics((Map<String, Object>) node));
+        }
+      }
+      this.nodes = Collections.unmodifiableList(nodes);
+      this.bucket = bucket;
+      this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the nodes the bucket is connected to, as reported by the SDK.
+     */
+    public List<String> getHostNames() {
+      return hostNames;
+    }
+
+    public long getRamTotal() {
+      return ramTotal;
+    }
+
+    public long getRamUsed() {
+      return ramUsed;
+    }
+
+    public long getDiskTotal() {
+      return diskTotal;
+    }
+
+    public long getDiskUsed() {
+      return diskUsed;
+    }
+
+    public long getDiskFree() {
+      return diskFree;
+    }
+
+    public boolean isBalanced() {
+      return balanced;
+    }
+
+    public String getRebalanceStatus() {
+      return rebalanceStatus;
+    }
+
+    public int getMaxBuckets() {
+      return maxBuckets;
+    }
+
+    /**
+     * @return the statistics of each node of the cluster.
+     */
+    public List<NodeStatistics> getNodes() {
+      return nodes;
+    }
+
+    /**
+     * @return the statistics of the monitored bucket.
+     */
+    public BucketStatistics getBucket() {
+      return bucket;
+    }
+
+    /**
+     * @return when the statistics were fetched, in milliseconds since the epoch, 0 if they were never fetched.
+     */
+    public long getTimestamp() {
+      return timestamp;
+    }
+  }
+
+  /**
+   * The statistics of a node of the cluster.
+   */
+  public static class NodeStatistics {
+
+    private final String hostName;
+    private final String status;
+    private final double opsPerSec;
+    private final double cacheHitRatio;
+    private final double residentRatio;
+
+    @SuppressWarnings("unchecked")
+    NodeStatistics(Map<String, Object> node) {
+      this.hostName = (String) node.get("hostname");
+      this.status = (String) node.get("status");
+      Map<String, Object> stats = (Map<String, Object>) node.get("interestingStats");
+      if (stats == null) {
+        stats = Collections.emptyMap();
+      }
+      this.opsPerSec = toDouble(stats.get("ops"));
+      double gets = toDouble(stats.get("cmd_get"));
+      this.cacheHitRatio = gets > 0 ? 1d - toDouble(stats.get("ep_bg_fetched")) / gets : Double.NaN;
+      double items = toDouble(stats.get("curr_items"));
+      this.residentRatio = items > 0 ? 1d - toDouble(stats.get("vb_active_num_non_resident")) / items : Double.NaN;
+    }
+
+    public String getHostName() {
+      return hostName;
+    }
+
+    /**
+     * @return the status of the node, eg. <code>healthy</code>, <code>warmup</code> or <code>unhealthy</code>.
+     */
+    public String getStatus() {
+      return status;
+    }
+
+    /**
+     * @return true if the node is healthy, ie. able to serve requests.
+     */
+    public boolean isAvailable() {
+      return "healthy".equals(status);
+    }
+
+    public double getOpsPerSec() {
+      return opsPerSec;
+    }
+
+    /**
+     * @return the ratio of the reads served from memory rather than fetched from disk, NaN if there were none.
+     */
+    public double getCacheHitRatio() {
+      return cacheHitRatio;
+    }
+
+    /**
+     * @return the ratio of the active documents of the node that are resident in memory, NaN if there are none.
+     */
+    public double getResidentRatio() {
+      return residentRatio;
+    }
+
+    @Override
+    public String toString() {
+      return hostName + "{status=" + status + ", opsPerSec=" + opsPerSec + ", cacheHitRatio=" + cacheHitRatio
+          + ", residentRatio=" + residentRatio + "}";
+    }
+  }
+
+  /**
+   * The statistics of the monitored bucket, taken from the last sample of its stats.
+   */
+  public static class BucketStatistics {
+
+    private final String name;
+    private final double opsPerSec;
+    private final double cacheHitRatio;
+    private final double residentRatio;
+    private final long itemCount;
+    private final long memUsed;
+
+    @SuppressWarnings("unchecked")
+    BucketStatistics(String name, Map<String, Object> stats) {
+      this.name = name;
+      Map<String, Object> op = (Map<String, Object>) stats.get("op");
+      Map<String, Object> samples = op == null ? null : (Map<String, Object>) op.get("samples");
+      if (samples == null) {
+        samples = Collections.emptyMap();
+      }
+      this.opsPerSec = lastSample(samples, "ops");
+      //both rates are percentages
+      this.cacheHitRatio = 1d - lastSample(samples, "ep_cache_miss_rate") / 100d;
+      this.residentRatio = lastSample(samples, "vb_active_resident_items_ratio") / 100d;
+      double items = lastSample(samples, "curr_items");
+      this.itemCount = Double.isNaN(items) ? 0L : (long) items;
+      double mem = lastSample(samples, "mem_used");
+      this.memUsed = Double.isNaN(mem) ? 0L : (long) mem;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public double getOpsPerSec() {
+      return opsPerSec;
+    }
+
+    /**
+     * @return the ratio of the reads served from memory rather than fetched from disk.
+     */
+    public double getCacheHitRatio() {
+      return cacheHitRatio;
+    }
+
+    /**
+     * @return the ratio of the active documents of the bucket that are resident in memory.
+     */
+    public double getResidentRatio() {
+      return residentRatio;
+    }
+
+    public long getItemCount() {
+      return itemCount;
+    }
+
+    public long getMemUsed() {
+      return memUsed;
+    }
+  }
+}
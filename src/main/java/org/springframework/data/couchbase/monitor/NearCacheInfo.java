@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.monitor;
+
+import java.util.Map;
+
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.support.NearCache;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Exposes the statistics of the near caches of a {@link CouchbaseTemplate}.
+ *
+ * @see org.springframework.data.couchbase.core.mapping.NearCached
+ */
+@ManagedResource(description = "Near Cache Information")
+public class NearCacheInfo {
+
+  private final CouchbaseTemplate template;
+
+  public NearCacheInfo(final CouchbaseTemplate template) {
+    this.template = template;
+  }
+
+  @ManagedAttribute(description = "Number of findById served from the near caches")
+  public long getHitCount() {
+    long total = 0;
+    for (NearCache cache : template.getNearCaches().values()) {
+      total += cache.getHitCount();
+    }
+    return total;
+  }
+
+  @ManagedAttribute(description = "Number of findById that had to read from the bucket")
+  public long getMissCount() {
+    long total = 0;
+    for (NearCache cache : template.getNearCaches().values()) {
+      total += cache.getMissCount();
+    }
+    return total;
+  }
+
+  @ManagedAttribute(description = "Number of documents evicted because of size, expiry or revalidation")
+  public long getEvictionCount() {
+    long total = 0;
+    for (NearCache cache : template.getNearCaches().values()) {
+      total += cache.getEvictionCount();
+    }
+    return total;
+  }
+
+  @ManagedAttribute(description = "Number of documents currently cached")
+  public long getSize() {
+    long total = 0;
+    for (NearCache cache : template.getNearCaches().values()) {
+      total += cache.size();
+    }
+    return total;
+  }
+
+  @ManagedAttribute(description = "Statistics of each near cached entity")
+  public String getStatistics() {
+    StringBuilder result = new StringBuilder();
+    for (Map.Entry<Class<?>, NearCache> entry : template.getNearCaches().entrySet()) {
+      result.append(entry.getKey().getName()).append('=').append(entry.getValue()).append(",");
+    }
+    return result.toString();
+  }
+
+  @ManagedOperation(description = "Empty all the near caches")
+  public void clear() {
+    for (NearCache cache : template.getNearCaches().values()) {
+      cache.clear();
+    }
+  }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.monitor;
+
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Exposes how often the reads of a {@link CouchbaseTemplate} fell back to the replicas.
+ *
+ * @see org.springframework.data.couchbase.core.mapping.ReplicaFallback
+ */
+@ManagedResource(description = "Replica Read Information")
+public class ReplicaReadInfo {
+
+  private final CouchbaseTemplate template;
+
+  public ReplicaReadInfo(final CouchbaseTemplate template) {
+    this.template = template;
+  }
+
+  @ManagedAttribute(description = "Number of reads that fell back to the replicas")
+  public long getFallbackCount() {
+    return template.getReplicaReads().getFallbackCount();
+  }
+
+  @ManagedAttribute(description = "Number of documents served from a replica, possibly stale")
+  public long getReplicaHitCount() {
+    return template.getReplicaReads().getReplicaHitCount();
+  }
+
+  @ManagedAttribute(description = "Number of fallbacks for which the replicas couldn't be read either")
+  public long getReplicaFailureCount() {
+    return template.getReplicaReads().getReplicaFailureCount();
+  }
+
+}
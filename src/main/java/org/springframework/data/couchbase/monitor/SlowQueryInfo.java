@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.data.couchbase.monitor;
+
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.support.SlowQueryLog;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Exposes the most expensive N1QL queries recorded by the {@link SlowQueryLog} of a {@link CouchbaseTemplate}.
+ */
+@ManagedResource(description = "Slow N1QL Query Information")
+public class SlowQueryInfo {
+
+  private static final int TOP_QUERIES = 20;
+
+  private final CouchbaseTemplate template;
+
+  public SlowQueryInfo(final CouchbaseTemplate template) {
+    this.template = template;
+  }
+
+  @ManagedAttribute(description = "The most expensive query fingerprints, by cumulated duration")
+  public String[] getTopQueries() {
+    SlowQueryLog log = template.getSlowQueryLog();
+    if (log == null) {
+      return new String[0];
+    }
+    return log.getTopQueries(TOP_QUERIES).stream().map(Object::toString).toArray(String[]::new);
+  }
+
+  @ManagedAttribute(description = "Number of executions that were above the threshold")
+  public long getSlowQueryCount() {
+    SlowQueryLog log = template.getSlowQueryLog();
+    return log == null ? 0 : log.getSlowQueryCount();
+  }
+
+  @ManagedOperation(description = "Forget the statistics of all the queries")
+  public void clear() {
+    SlowQueryLog log = template.getSlowQueryLog();
+    if (log != null) {
+      log.clear();
+    }
+  }
+
+}
@@ -18,6 +18,7 @@ package org.springframework.data.couchbase.repository.config;
 import java.lang.annotation.Annotation;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Optional;
 
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.data.config.ParsingUtils;
@@ -29,6 +30,7 @@ import org.springframework.data.repository.config.AnnotationRepositoryConfigurat
 import org.springframework.data.repository.config.RepositoryConfigurationExtensionSupport;
 import org.springframework.data.repository.config.XmlRepositoryConfigurationSource;
 import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.util.StringUtils;
 import org.w3c.dom.Element;
 
 /**
@@ -45,6 +47,18 @@ public class CouchbaseRepositoryConfigurationExtension extends RepositoryConfigu
   /** The reference property to use in xml configuration to specify the index manager bean to use with a repository. */
   private static final String COUCHBASE_INDEX_MANAGER_REF = "couchbase-index-manager-ref";
 
+  /** The reference property to use in xml configuration to specify the query plan advisor bean to use with a repository. */
+  private static final String COUCHBASE_QUERY_PLAN_ADVISOR_REF = "couchbase-query-plan-advisor-ref";
+
+  /** The attribute to use in annotation configuration to specify the query plan advisor bean to use with a repository. */
+  private static final String QUERY_PLAN_ADVISOR_REF = "queryPlanAdvisorRef";
+
+  /** The property to use in xml configuration to specify the batch size of the derived deletes of a repository. */
+  private static final String COUCHBASE_DELETE_BATCH_SIZE = "delete-batch-size";
+
+  /** The attribute to use in annotation configuration to specify the batch size of the derived deletes of a repository. */
+  private static final String DELETE_BATCH_SIZE = "deleteBatchSize";
+
   /*
    * (non-Javadoc)
    * @see org.springframework.data.repository.config.RepositoryConfigurationExtensionSupport#getModuleName()
@@ -100,6 +114,8 @@ public class CouchbaseRepositoryConfigurationExtension extends RepositoryConfigu
 
     ParsingUtils.setPropertyReference(builder, element, COUCHBASE_TEMPLATE_REF, "couchbaseOperations");
     ParsingUtils.setPropertyReference(builder, element, COUCHBASE_INDEX_MANAGER_REF, "indexManager");
+    ParsingUtils.setPropertyReference(builder, element, COUCHBASE_QUERY_PLAN_ADVISOR_REF, "queryPlanAdvisor");
+    ParsingUtils.setPropertyValue(builder, element, COUCHBASE_DELETE_BATCH_SIZE, "deleteBatchSize");
   }
 
   /*
@@ -113,6 +129,12 @@ public class CouchbaseRepositoryConfigurationExtension extends RepositoryConfigu
     builder.addDependsOn(BeanNames.COUCHBASE_INDEX_MANAGER);
     builder.addPropertyReference("couchbaseOperationsMapping", BeanNames.COUCHBASE_OPERATIONS_MAPPING);
     builder.addPropertyReference("indexManager", BeanNames.COUCHBASE_INDEX_MANAGER);
+
+    Optional<String> queryPlanAdvisorRef = config.getAttribute(QUERY_PLAN_ADVISOR_REF);
+    if (queryPlanAdvisorRef.isPresent() && StringUtils.hasText(queryPlanAdvisorRef.get())) {
+      builder.addPropertyReference("queryPlanAdvisor", queryPlanAdvisorRef.get());
+    }
+    builder.addPropertyValue("deleteBatchSize", config.getAttributes().getNumber(DELETE_BATCH_SIZE));
   }
 
   /*
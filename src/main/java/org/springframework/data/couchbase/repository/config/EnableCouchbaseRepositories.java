@@ -22,6 +22,8 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.couchbase.config.BeanNames;
 import org.springframework.data.couchbase.core.CouchbaseTemplate;
 import org.springframework.data.couchbase.repository.support.CouchbaseRepositoryFactoryBean;
+import org.springframework.data.couchbase.repository.query.PartTreeN1qlBasedQuery;
+import org.springframework.data.couchbase.repository.support.QueryPlanAdvisor;
 import org.springframework.data.repository.config.DefaultRepositoryBaseClass;
 
 import java.lang.annotation.*;
@@ -115,4 +117,20 @@ public @interface EnableCouchbaseRepositories {
    */
   String couchbaseTemplateRef() default BeanNames.COUCHBASE_TEMPLATE;
 
+  /**
+   * Configures the name of a {@link QueryPlanAdvisor} bean that will EXPLAIN the N1QL queries of the repositories
+   * detected when they are created. Empty by default, which deactivates the advisor.
+   *
+   * @return
+   */
+  String queryPlanAdvisorRef() default "";
+
+  /**
+   * Configures the maximum number of documents deleted by each statement of the derived delete queries returning the
+   * deleted entities, which are executed in batches.
+   *
+   * @return
+   */
+  int deleteBatchSize() default PartTreeN1qlBasedQuery.DEFAULT_DELETE_BATCH_SIZE;
+
 }
@@ -30,6 +30,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
+import org.springframework.data.couchbase.repository.query.support.N1qlUtils;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.SliceImpl;
@@ -91,6 +93,10 @@ public abstract class AbstractN1qlBasedQuery implements RepositoryQuery {
 
   @Override
   public Object execute(Object[] parameters) {
+    return RepositoryMethodContext.execute(queryMethod.getQualifiedName(), () -> doExecute(parameters));
+  }
+
+  private Object doExecute(Object[] parameters) {
     ParametersParameterAccessor accessor = new ParametersParameterAccessor(queryMethod.getParameters(), parameters);
 
     ResultProcessor processor = this.queryMethod.getResultProcessor().withDynamicProjection(accessor);
@@ -112,6 +118,22 @@ public abstract class AbstractN1qlBasedQuery implements RepositoryQuery {
     return processor.processResult(executeDependingOnType(query, countQuery, queryMethod, accessor.getPageable(), typeToRead));
   }
 
+  /**
+   * Render the query this {@link RepositoryQuery} would execute for the given parameters, prefixed with
+   * <code>EXPLAIN</code> so that the query service returns its execution plan instead of its results.
+   *
+   * @param parameters the parameters of the query method.
+   * @return the EXPLAIN query.
+   */
+  public N1qlQuery createExplainQuery(Object[] parameters) {
+    ParametersParameterAccessor accessor = new ParametersParameterAccessor(queryMethod.getParameters(), parameters);
+    ReturnedType returnedType = this.queryMethod.getResultProcessor().withDynamicProjection(accessor).getReturnedType();
+
+    Statement statement = getStatement(accessor, parameters, returnedType);
+    Statement explainStatement = N1qlQuery.simple("EXPLAIN " + statement.toString()).statement();
+    return buildQuery(explainStatement, getPlaceholderValues(accessor), getScanConsistency());
+  }
+
   protected static N1qlQuery buildQuery(Statement statement, JsonValue queryPlaceholderValues, ScanConsistency scanConsistency) {
     N1qlParams n1qlParams = N1qlParams.build().consistency(scanConsistency);
     N1qlQuery query;
@@ -199,6 +221,23 @@ public abstract class AbstractN1qlBasedQuery implements RepositoryQuery {
     return new SliceImpl(hasNext ? result.subList(0, pageSize) : result, pageable, hasNext);
   }
 
+  /**
+   * Execute a <code>SELECT RAW COUNT(*)</code> query, reading the count directly from the raw row.
+   */
+  protected long executeRawCount(N1qlQuery query) {
+    logIfNecessary(query);
+    return N1qlUtils.readRawLong(couchbaseOperations.queryN1QL(query));
+  }
+
+  /**
+   * Execute an existence query, typically a <code>SELECT RAW 1 ... LIMIT 1</code>, which is true as soon as it
+   * returns a row.
+   */
+  protected boolean executeExists(N1qlQuery query) {
+    logIfNecessary(query);
+    return !N1qlUtils.checkedRows(couchbaseOperations.queryN1QL(query)).isEmpty();
+  }
+
   protected Object executeSingleProjection(N1qlQuery query) {
     logIfNecessary(query);
     //the structure of the response from N1QL gives us a JSON object even when selecting a single aggregation
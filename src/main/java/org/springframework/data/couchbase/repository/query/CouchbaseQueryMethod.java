@@ -42,12 +42,22 @@ import org.springframework.util.StringUtils;
 public class CouchbaseQueryMethod extends QueryMethod {
 
   private final Method method;
+  private final String qualifiedName;
 
   public CouchbaseQueryMethod(Method method, RepositoryMetadata metadata, ProjectionFactory factory,
     MappingContext<? extends CouchbasePersistentEntity<?>, CouchbasePersistentProperty> mappingContext) {
     super(method, metadata, factory);
 
     this.method = method;
+    this.qualifiedName = metadata.getRepositoryInterface().getName() + "." + method.getName();
+  }
+
+  /**
+   * @return the name of the method prefixed by the fully qualified name of its repository, eg.
+   * <code>com.example.BeerRepository.findByName</code>.
+   */
+  public String getQualifiedName() {
+    return qualifiedName;
   }
 
   /**
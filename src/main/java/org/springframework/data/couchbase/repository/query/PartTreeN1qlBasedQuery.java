@@ -21,9 +21,15 @@ import static com.couchbase.client.java.query.Select.select;
 import static com.couchbase.client.java.query.dsl.Expression.i;
 import static com.couchbase.client.java.query.dsl.functions.AggregateFunctions.count;
 import static org.springframework.data.couchbase.repository.query.support.N1qlUtils.createReturningExpressionForDelete;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import com.couchbase.client.java.document.json.JsonArray;
 import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.document.json.JsonValue;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
 import com.couchbase.client.java.query.Statement;
 import com.couchbase.client.java.query.dsl.Expression;
 import com.couchbase.client.java.query.dsl.path.FromPath;
@@ -35,10 +41,13 @@ import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.repository.query.support.N1qlUtils;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.ParameterAccessor;
+import org.springframework.data.repository.query.QueryMethod;
 import org.springframework.data.repository.query.RepositoryQuery;
 import org.springframework.data.repository.query.ReturnedType;
 import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.util.StreamUtils;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 /**
  * A {@link RepositoryQuery} for Couchbase, based on query derivation
@@ -49,7 +58,13 @@ import org.springframework.util.Assert;
  */
 public class PartTreeN1qlBasedQuery extends AbstractN1qlBasedQuery {
 
+  /**
+   * The default maximum number of documents deleted per statement by derived deletes returning the deleted entities.
+   */
+  public static final int DEFAULT_DELETE_BATCH_SIZE = 1000;
+
   private final PartTree partTree;
+  private int deleteBatchSize = DEFAULT_DELETE_BATCH_SIZE;
   private ThreadLocal<JsonValue> placeHolderValues;
 
   public PartTreeN1qlBasedQuery(CouchbaseQueryMethod queryMethod, CouchbaseOperations couchbaseOperations) {
@@ -90,15 +105,25 @@ public class PartTreeN1qlBasedQuery extends AbstractN1qlBasedQuery {
       MutateLimitPath mutateFromWhereOrderBy = mutateQueryCreator.createQuery();
       this.placeHolderValues.set(mutateQueryCreator.getPlaceHolderValues());
 
-      if (partTree.isLimiting()) {
-        return mutateFromWhereOrderBy.limit(partTree.getMaxResults());
+      if (!returnsDeletedEntities()) {
+        //the number of deleted documents is read from the metrics, no need to send the documents back
+        return partTree.isLimiting() ? mutateFromWhereOrderBy.limit(partTree.getMaxResults()) : mutateFromWhereOrderBy;
+      } else if (partTree.isLimiting()) {
+        return mutateFromWhereOrderBy.limit(partTree.getMaxResults())
+            .returning(createReturningExpressionForDelete(bucketName));
+      } else if (isBatchedDelete()) {
+        //deleted in batches, see executeBatchedDelete
+        return mutateFromWhereOrderBy.limit(deleteBatchSize)
+            .returning(createReturningExpressionForDelete(bucketName));
       } else {
         return mutateFromWhereOrderBy.returning(createReturningExpressionForDelete(bucketName));
       }
     } else {
       FromPath select;
       if (partTree.isCountProjection()) {
-        select = select(count("*"));
+        select = select(N1qlUtils.RAW_COUNT);
+      } else if (partTree.isExistsProjection()) {
+        select = select(N1qlUtils.RAW_ONE);
       } else {
         select = N1qlUtils.createSelectClauseForEntity(bucketName, returnedType, this.getCouchbaseOperations().getConverter());
       }
@@ -116,6 +141,8 @@ public class PartTreeN1qlBasedQuery extends AbstractN1qlBasedQuery {
         Pageable pageable = accessor.getPageable();
         Assert.notNull(pageable, "Pageable must not be null!");
         return selectFromWhereOrderBy.limit(pageable.getPageSize() + 1).offset(Math.toIntExact(pageable.getOffset()));
+      } else if (partTree.isExistsProjection()) {
+        return selectFromWhereOrderBy.limit(1);
       } else if (partTree.isLimiting()) {
         return selectFromWhereOrderBy.limit(partTree.getMaxResults());
       } else {
@@ -124,6 +151,79 @@ public class PartTreeN1qlBasedQuery extends AbstractN1qlBasedQuery {
     }
   }
 
+  @Override
+  protected Object executeDependingOnType(N1qlQuery query, N1qlQuery countQuery, QueryMethod queryMethod,
+      Pageable pageable, Class<?> typeToRead) {
+    if (partTree.isDelete() && !returnsDeletedEntities()) {
+      long deleted = executeDelete(query);
+      return Number.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(queryMethod.getReturnedObjectType()))
+          ? deleted : null;
+    } else if (isBatchedDelete()) {
+      List<Object> deleted = executeBatchedDelete(query, typeToRead);
+      return queryMethod.isStreamQuery() ? StreamUtils.createStreamFromIterator(deleted.iterator()) : deleted;
+    } else if (partTree.isExistsProjection()) {
+      return executeExists(query);
+    } else if (partTree.isCountProjection() && !queryMethod.isPageQuery() && !queryMethod.isSliceQuery()) {
+      return executeRawCount(query);
+    }
+    return super.executeDependingOnType(query, countQuery, queryMethod, pageable, typeToRead);
+  }
+
+  /**
+   * Set the maximum number of documents deleted by each statement when a derived delete query returns the deleted
+   * entities, in order to avoid huge responses and timeouts on large deletions. Defaults to
+   * {@value #DEFAULT_DELETE_BATCH_SIZE}.
+   *
+   * @param deleteBatchSize the maximum number of documents deleted per statement.
+   */
+  public void setDeleteBatchSize(int deleteBatchSize) {
+    Assert.isTrue(deleteBatchSize > 0, "Delete batch size must be strictly positive");
+    this.deleteBatchSize = deleteBatchSize;
+  }
+
+  /**
+   * Only derived deletes returning entities need the deleted documents, the others (returning void or the number of
+   * deleted documents) are executed without a RETURNING clause.
+   */
+  private boolean returnsDeletedEntities() {
+    return queryMethod.isCollectionQuery() || queryMethod.isStreamQuery() || queryMethod.isQueryForEntity();
+  }
+
+  /**
+   * Derived deletes returning all the deleted entities, as a collection or a stream, are executed in batches.
+   */
+  private boolean isBatchedDelete() {
+    return partTree.isDelete() && !partTree.isLimiting()
+        && (queryMethod.isCollectionQuery() || queryMethod.isStreamQuery());
+  }
+
+  /**
+   * Execute a DELETE without RETURNING clause.
+   *
+   * @return the number of deleted documents.
+   */
+  protected long executeDelete(N1qlQuery query) {
+    N1qlQueryResult result = getCouchbaseOperations().queryN1QL(query);
+    N1qlUtils.checkedRows(result);
+    return result.info().mutationCount();
+  }
+
+  /**
+   * Repeatedly execute a DELETE ... LIMIT ... RETURNING until a statement deletes nothing. A batch smaller than the
+   * limit doesn't mean that all the matching documents are deleted, since documents may be added concurrently or may
+   * not be visible yet to the index used by the statement.
+   */
+  protected List<Object> executeBatchedDelete(N1qlQuery query, Class<?> typeToRead) {
+    List<Object> deleted = new ArrayList<Object>();
+    List<?> batch;
+    do {
+      //the RETURNING clause returns a row per deleted document, the batch is empty only if nothing was deleted
+      batch = executeCollection(query, typeToRead);
+      deleted.addAll(batch);
+    } while (!batch.isEmpty());
+    return deleted;
+  }
+
   @Override
   protected boolean useGeneratedCountQuery() {
     return false; //generated count query is just for Page/Slice, not projections
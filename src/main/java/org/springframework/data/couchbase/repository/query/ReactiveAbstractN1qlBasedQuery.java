@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
 import org.springframework.data.couchbase.core.RxJavaCouchbaseOperations;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
 import org.springframework.data.couchbase.repository.query.support.N1qlUtils;
 import org.springframework.data.repository.query.*;
 import org.springframework.data.repository.util.ReactiveWrapperConverters;
@@ -52,6 +53,10 @@ public abstract class ReactiveAbstractN1qlBasedQuery implements RepositoryQuery
 
     @Override
     public Object execute(Object[] parameters) {
+        return RepositoryMethodContext.execute(queryMethod.getQualifiedName(), () -> doExecute(parameters));
+    }
+
+    private Object doExecute(Object[] parameters) {
         ReactiveCouchbaseParameterAccessor accessor = new ReactiveCouchbaseParameterAccessor(queryMethod, parameters);
         ResultProcessor processor = this.queryMethod.getResultProcessor().withDynamicProjection(accessor);
         ReturnedType returnedType = processor.getReturnedType();
@@ -19,6 +19,7 @@ import com.couchbase.client.java.view.SpatialViewQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.couchbase.core.RxJavaCouchbaseOperations;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
 import org.springframework.data.repository.query.RepositoryQuery;
 import org.springframework.data.repository.query.parser.PartTree;
 import org.springframework.data.repository.util.ReactiveWrapperConverters;
@@ -43,6 +44,10 @@ public class ReactiveSpatialViewBasedQuery implements RepositoryQuery {
 
 	@Override
 	public Object execute(Object[] runtimeParams) {
+		return RepositoryMethodContext.execute(method.getQualifiedName(), () -> doExecute(runtimeParams));
+	}
+
+	private Object doExecute(Object[] runtimeParams) {
 		String designDoc = method.getDimensionalAnnotation().designDocument();
 		String viewName = method.getDimensionalAnnotation().spatialViewName();
 		int dimensions = method.getDimensionalAnnotation().dimensions();
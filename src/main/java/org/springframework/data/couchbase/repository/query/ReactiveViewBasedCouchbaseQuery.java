@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
 import org.springframework.data.couchbase.core.RxJavaCouchbaseOperations;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
 import org.springframework.data.mapping.PropertyReferenceException;
 import org.springframework.data.repository.query.QueryMethod;
 import org.springframework.data.repository.query.RepositoryQuery;
@@ -51,11 +52,13 @@ public class ReactiveViewBasedCouchbaseQuery implements RepositoryQuery {
 
     @Override
     public Object execute(Object[] runtimeParams) {
-        if (method.hasViewName()) { //only allow derivation on @View explicitly defining a viewName
-            return deriveAndExecute(runtimeParams);
-        } else {
-            return guessViewAndExecute();
-        }
+        return RepositoryMethodContext.execute(method.getQualifiedName(), () -> {
+            if (method.hasViewName()) { //only allow derivation on @View explicitly defining a viewName
+                return deriveAndExecute(runtimeParams);
+            } else {
+                return guessViewAndExecute();
+            }
+        });
     }
 
     protected Object guessViewAndExecute() {
@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.core.query.Dimensional;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
 import org.springframework.data.repository.query.ParametersParameterAccessor;
 import org.springframework.data.repository.query.RepositoryQuery;
 import org.springframework.data.repository.query.parser.PartTree;
@@ -44,6 +45,10 @@ public class SpatialViewBasedQuery implements RepositoryQuery {
 
   @Override
   public Object execute(Object[] runtimeParams) {
+    return RepositoryMethodContext.execute(method.getQualifiedName(), () -> doExecute(runtimeParams));
+  }
+
+  private Object doExecute(Object[] runtimeParams) {
     String designDoc = method.getDimensionalAnnotation().designDocument();
     String viewName = method.getDimensionalAnnotation().spatialViewName();
     int dimensions = method.getDimensionalAnnotation().dimensions();
@@ -30,6 +30,7 @@ import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.document.json.JsonValue;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.TypeAliases;
 import org.springframework.data.couchbase.repository.query.support.N1qlUtils;
 import org.springframework.data.repository.query.Parameter;
 import org.springframework.data.repository.query.ParameterAccessor;
@@ -138,7 +139,7 @@ public class StringBasedN1qlQueryParser {
 		} else {
 			selectEntity = "SELECT " + entity + ", " + b + ".* FROM " + b;
 		}
-		String typeSelection = "`" + typeField + "` = \"" + typeValue.getName() + "\"";
+		String typeSelection = TypeAliases.createTypePredicate("`" + typeField + "`", typeValue);
 
 		String delete = deleteFrom(i(bucketName)).toString();
 		String returning = " returning " + N1qlUtils.createReturningExpressionForDelete(bucketName).toString();
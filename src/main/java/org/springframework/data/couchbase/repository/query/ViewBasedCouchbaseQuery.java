@@ -16,7 +16,7 @@
 
 package org.springframework.data.couchbase.repository.query;
 
-import java.util.List;
+import java.util.Iterator;
 
 import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.view.SpatialViewQuery;
@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+import org.springframework.data.couchbase.core.support.RepositoryMethodContext;
 import org.springframework.data.geo.Distance;
 import org.springframework.data.geo.Shape;
 import org.springframework.data.mapping.PropertyReferenceException;
@@ -58,11 +59,13 @@ public class ViewBasedCouchbaseQuery implements RepositoryQuery {
 
   @Override
   public Object execute(Object[] runtimeParams) {
-    if (method.hasViewName()) { //only allow derivation on @View explicitly defining a viewName
-      return deriveAndExecute(runtimeParams);
-    } else {
-      return guessViewAndExecute();
-    }
+    return RepositoryMethodContext.execute(method.getQualifiedName(), () -> {
+      if (method.hasViewName()) { //only allow derivation on @View explicitly defining a viewName
+        return deriveAndExecute(runtimeParams);
+      } else {
+        return guessViewAndExecute();
+      }
+    });
   }
 
   protected Object guessViewAndExecute() {
@@ -130,17 +133,15 @@ public class ViewBasedCouchbaseQuery implements RepositoryQuery {
       LOG.debug("Executing view reduced query: " + query.toString());
     }
     ViewResult viewResult = operations.queryView(query);
-    List<ViewRow> allRows = viewResult.allRows();
+    //only the first row is needed, don't materialize all of them
+    Iterator<ViewRow> rows = viewResult.rows();
+    ViewRow firstRow = rows.hasNext() ? rows.next() : null;
     JsonObject error = viewResult.error();
     if (error != null) {
       throw new CouchbaseQueryExecutionException("Error while reducing on view " + designDoc + "/" + viewName +
           ": " + error);
     }
-    if (allRows == null || allRows.isEmpty()) {
-      return null;
-    } else{
-      return allRows.get(0).value();
-    }
+    return firstRow == null ? null : firstRow.value();
   }
 
   @Override
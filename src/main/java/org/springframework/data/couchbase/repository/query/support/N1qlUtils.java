@@ -23,11 +23,14 @@ import static com.couchbase.client.java.query.dsl.functions.MetaFunctions.*;
 import static com.couchbase.client.java.query.dsl.functions.StringFunctions.*;
 import static org.springframework.data.couchbase.core.support.TemplateUtils.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
 import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.TypeAliases;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentEntity;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentProperty;
 import org.springframework.data.couchbase.repository.query.CouchbaseEntityInformation;
@@ -43,6 +46,8 @@ import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.document.json.JsonValue;
 import com.couchbase.client.java.query.N1qlParams;
 import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
 import com.couchbase.client.java.query.Statement;
 import com.couchbase.client.java.query.consistency.ScanConsistency;
 import com.couchbase.client.java.query.dsl.Expression;
@@ -73,6 +78,17 @@ public class N1qlUtils {
         }
       };
 
+  /**
+   * A select expression returning the number of matching documents as a bare number, ie. <code>RAW COUNT(*)</code>.
+   */
+  public static final Expression RAW_COUNT = x("RAW " + count("*"));
+
+  /**
+   * A select expression returning a bare constant for each matching document, ie. <code>RAW 1</code>. Useful for
+   * existence checks, as nothing has to be fetched in order to produce it.
+   */
+  public static final Expression RAW_ONE = x("RAW 1");
+
   /**
    * Escape the given bucketName and produce an {@link Expression}.
    */
@@ -176,8 +192,8 @@ public class N1qlUtils {
                                                       EntityMetadata<?> entityInformation) {
     //add part that filters on type key
     String typeKey = converter.getTypeKey();
-    String typeValue = entityInformation.getJavaType().getName();
-    Expression typeSelector = i(typeKey).eq(s(typeValue));
+    Expression typeSelector = x(TypeAliases.createTypePredicate(i(typeKey).toString(),
+        entityInformation.getJavaType()));
     if (baseWhereCriteria == null) {
       baseWhereCriteria = typeSelector;
     } else {
@@ -249,6 +265,58 @@ public class N1qlUtils {
     return select(count("*").as(CountFragment.COUNT_ALIAS)).from(escapedBucket(bucketName)).where(createWhereFilterForEntity(null, converter, entityInformation));
   }
 
+  /**
+   * Creates a full N1QL query that counts total number of the given entity in the bucket, as a bare number
+   * (<code>SELECT RAW COUNT(*)</code>) rather than a JSON object. See {@link #readRawLong(N1qlQueryResult)} to
+   * read the result.
+   *
+   * @param bucketName the name of the bucket where data is stored (will be escaped).
+   * @param converter the {@link CouchbaseConverter} giving the attribute storing the type information can be extracted.
+   * @param entityInformation the counted entity type.
+   * @return the N1QL query that counts number of documents matching this entity type.
+   */
+  public static <T> Statement createRawCountQueryForEntity(String bucketName, CouchbaseConverter converter, CouchbaseEntityInformation<T, String> entityInformation) {
+    return select(RAW_COUNT).from(escapedBucket(bucketName)).where(createWhereFilterForEntity(null, converter, entityInformation));
+  }
+
+  /**
+   * Reads the single number returned by a <code>SELECT RAW</code> aggregation, directly from the bytes of the row.
+   *
+   * @param result the result of the query.
+   * @return the number, or 0 if the query didn't return any row.
+   * @throws CouchbaseQueryExecutionException if the query failed.
+   */
+  public static long readRawLong(N1qlQueryResult result) {
+    List<N1qlQueryRow> rows = checkedRows(result);
+    if (rows.isEmpty()) {
+      return 0L;
+    }
+    String value = new String(rows.get(0).byteValue(), StandardCharsets.UTF_8).trim();
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new CouchbaseQueryExecutionException("Query was expected to return a single number, got " + value, e);
+    }
+  }
+
+  /**
+   * Returns the rows of a N1QL query result, or throws if the query failed.
+   *
+   * @param result the result of the query.
+   * @return the rows of the result.
+   * @throws CouchbaseQueryExecutionException listing the N1QL errors if the query failed.
+   */
+  public static List<N1qlQueryRow> checkedRows(N1qlQueryResult result) {
+    if (!result.finalSuccess()) {
+      StringBuilder message = new StringBuilder("Unable to execute query due to the following n1ql errors: ");
+      for (JsonObject error : result.errors()) {
+        message.append('\n').append(error);
+      }
+      throw new CouchbaseQueryExecutionException(message.toString());
+    }
+    return result.allRows();
+  }
+
   /**
    * Creates N1QLQuery object from the statement, query placeholder values and scan consistency
    *
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2012-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.repository.support;
+
+import static com.couchbase.client.java.query.dsl.Expression.i;
+import static com.couchbase.client.java.query.dsl.Expression.x;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.couchbase.client.java.query.Index;
+import com.couchbase.client.java.query.Statement;
+import com.couchbase.client.java.query.dsl.Expression;
+import com.couchbase.client.java.query.dsl.path.index.IndexType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.TypeAliases;
+import org.springframework.data.couchbase.core.mapping.CouchbasePersistentEntity;
+import org.springframework.data.couchbase.core.mapping.CouchbasePersistentProperty;
+import org.springframework.data.couchbase.core.query.Dimensional;
+import org.springframework.data.couchbase.core.query.N1qlCompositeIndexed;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.couchbase.core.query.View;
+import org.springframework.data.couchbase.repository.query.support.N1qlUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentPropertyPath;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.ReturnedType;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.util.StringUtils;
+
+/**
+ * Derives composite N1QL secondary index definitions out of the {@link PartTree PartTrees} of a repository's derived
+ * query methods, for repositories annotated with {@link N1qlCompositeIndexed}.
+ * <p/>
+ * For each OR branch of a derived query, the leading keys of the index are the fields used in equality predicates,
+ * followed by the fields used in range predicates and by the sort fields. When the method returns a DTO or interface
+ * projection, the projected fields (and <code>META().cas</code>, which the generated SELECT clause always fetches) are
+ * appended as trailing keys so that the query can be answered from the index alone. Each index is restricted to the
+ * documents of the repository's entity, the same way a {@link org.springframework.data.couchbase.core.query.N1qlSecondaryIndexed}
+ * index is.
+ *
+ * @see IndexManager
+ */
+public class CompositeIndexAnalyzer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CompositeIndexAnalyzer.class);
+
+  private static final String META_CAS = "META().cas";
+
+  private final CouchbaseConverter converter;
+  private final ProjectionFactory projectionFactory;
+
+  public CompositeIndexAnalyzer(CouchbaseConverter converter) {
+    this.converter = converter;
+    this.projectionFactory = new SpelAwareProxyProjectionFactory();
+  }
+
+  /**
+   * Derive the composite index definitions for all the derived query methods of the given repository, deduplicated on
+   * their keys.
+   *
+   * @param metadata the repository's metadata.
+   * @param config the annotation that triggered the analysis.
+   * @param bucketName the name of the bucket the repository's entity is stored in.
+   * @return the list of derived index definitions, possibly empty.
+   */
+  public List<CompositeIndexDefinition> analyze(RepositoryInformation metadata, N1qlCompositeIndexed config,
+                                                String bucketName) {
+    Class<?> domainType = metadata.getDomainType();
+    String namePrefix = StringUtils.hasText(config.indexNamePrefix()) ? config.indexNamePrefix()
+        : domainType.getSimpleName();
+    String typeKey = converter.getTypeKey();
+
+    Map<List<String>, CompositeIndexDefinition> definitions = new LinkedHashMap<List<String>, CompositeIndexDefinition>();
+    for (Method method : metadata.getQueryMethods()) {
+      if (!isDerivedQuery(method)) {
+        continue;
+      }
+
+      PartTree partTree;
+      try {
+        partTree = new PartTree(method.getName(), domainType);
+      } catch (RuntimeException e) {
+        LOGGER.debug("Skipping index derivation for {}, unable to parse method name: {}", method.getName(), e.getMessage());
+        continue;
+      }
+
+      List<String> coveredKeys = getCoveredKeys(metadata, method, domainType);
+      for (PartTree.OrPart orPart : partTree) {
+        List<String> keys = getLeadingKeys(orPart, partTree.getSort(), domainType);
+        if (keys.isEmpty()) {
+          continue;
+        }
+        for (String coveredKey : coveredKeys) {
+          if (!keys.contains(coveredKey)) {
+            keys.add(coveredKey);
+          }
+        }
+        if (!definitions.containsKey(keys)) {
+          String indexName = createIndexName(namePrefix, keys);
+          definitions.put(keys, new CompositeIndexDefinition(indexName, keys, method.getName(),
+              createStatement(indexName, bucketName, keys, typeKey, domainType)));
+        }
+      }
+    }
+    return new ArrayList<CompositeIndexDefinition>(definitions.values());
+  }
+
+  private static boolean isDerivedQuery(Method method) {
+    return AnnotationUtils.findAnnotation(method, Query.class) == null
+        && AnnotationUtils.findAnnotation(method, View.class) == null
+        && AnnotationUtils.findAnnotation(method, Dimensional.class) == null;
+  }
+
+  private List<String> getLeadingKeys(PartTree.OrPart orPart, Sort sort, Class<?> domainType) {
+    Set<String> equalityKeys = new LinkedHashSet<String>();
+    Set<String> rangeKeys = new LinkedHashSet<String>();
+    for (Part part : orPart) {
+      String key = getIndexKey(part);
+      if (isEquality(part.getType())) {
+        equalityKeys.add(key);
+      } else {
+        rangeKeys.add(key);
+      }
+    }
+
+    Set<String> keys = new LinkedHashSet<String>(equalityKeys);
+    keys.addAll(rangeKeys);
+    if (!keys.isEmpty()) {
+      for (Sort.Order order : sort) {
+        PropertyPath sortPath = PropertyPath.from(order.getProperty(), domainType);
+        keys.add(N1qlUtils.getDottedPathWithAlternativeFieldNames(
+            N1qlUtils.getPathWithAlternativeFieldNames(converter, sortPath)));
+      }
+    }
+    return new ArrayList<String>(keys);
+  }
+
+  private String getIndexKey(Part part) {
+    PersistentPropertyPath<CouchbasePersistentProperty> path = N1qlUtils.getPathWithAlternativeFieldNames(
+        converter, part.getProperty());
+    String fieldNamePath = N1qlUtils.getDottedPathWithAlternativeFieldNames(path);
+
+    //the index key must match the expression used by N1qlQueryCreatorUtils for the index to be selected
+    boolean isString = converter.getWriteClassFor(path.getLeafProperty().getType()) == String.class;
+    if (isString && part.shouldIgnoreCase() != Part.IgnoreCaseType.NEVER) {
+      return "LOWER(" + fieldNamePath + ")";
+    }
+    return fieldNamePath;
+  }
+
+  private static boolean isEquality(Part.Type type) {
+    switch (type) {
+      case SIMPLE_PROPERTY:
+      case IN:
+      case TRUE:
+      case FALSE:
+      case IS_NULL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private List<String> getCoveredKeys(RepositoryInformation metadata, Method method, Class<?> domainType) {
+    ReturnedType returnedType = ReturnedType.of(metadata.getReturnedDomainClass(method), domainType, projectionFactory);
+    if (!returnedType.needsCustomConstruction()) {
+      return Collections.emptyList();
+    }
+
+    CouchbasePersistentEntity<?> entity = converter.getMappingContext().getRequiredPersistentEntity(domainType);
+    List<String> keys = new ArrayList<String>();
+    for (String property : returnedType.getInputProperties()) {
+      CouchbasePersistentProperty persistentProperty = entity.getPersistentProperty(property);
+      if (persistentProperty != null && !persistentProperty.isIdProperty()) {
+        keys.add(i(persistentProperty.getFieldName()).toString());
+      }
+    }
+    keys.add(META_CAS);
+    return keys;
+  }
+
+  private static String createIndexName(String prefix, List<String> keys) {
+    StringBuilder name = new StringBuilder(prefix);
+    for (String key : keys) {
+      if (META_CAS.equals(key)) {
+        continue;
+      }
+      name.append('_').append(key.replaceAll("[^A-Za-z0-9_]", ""));
+    }
+    return name.toString();
+  }
+
+  private static Statement createStatement(String indexName, String bucketName, List<String> keys,
+                                           String typeKey, Class<?> domainType) {
+    Expression[] otherKeys = new Expression[keys.size() - 1];
+    for (int k = 1; k < keys.size(); k++) {
+      otherKeys[k - 1] = x(keys.get(k));
+    }
+    return Index.createIndex(indexName)
+        .on(bucketName, x(keys.get(0)), otherKeys)
+        .where(x(TypeAliases.createTypePredicate(i(typeKey).toString(), domainType)))
+        .using(IndexType.GSI);
+  }
+
+  /**
+   * A composite index derived from a repository query method.
+   */
+  public static class CompositeIndexDefinition {
+
+    private final String indexName;
+    private final List<String> keys;
+    private final String methodName;
+    private final Statement statement;
+
+    CompositeIndexDefinition(String indexName, List<String> keys, String methodName, Statement statement) {
+      this.indexName = indexName;
+      this.keys = Collections.unmodifiableList(keys);
+      this.methodName = methodName;
+      this.statement = statement;
+    }
+
+    /**
+     * @return the name of the index.
+     */
+    public String getIndexName() {
+      return indexName;
+    }
+
+    /**
+     * @return the index keys, as N1QL expressions.
+     */
+    public List<String> getKeys() {
+      return keys;
+    }
+
+    /**
+     * @return the name of the first repository method this index was derived from.
+     */
+    public String getMethodName() {
+      return methodName;
+    }
+
+    /**
+     * @return the CREATE INDEX statement for this index.
+     */
+    public Statement getStatement() {
+      return statement;
+    }
+
+    @Override
+    public String toString() {
+      return statement.toString();
+    }
+  }
+}
@@ -25,12 +25,15 @@ import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.core.UnsupportedCouchbaseFeatureException;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentEntity;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentProperty;
+import org.springframework.data.couchbase.core.query.ApproximateCount;
+import org.springframework.data.couchbase.core.query.N1qlCompositeIndexed;
 import org.springframework.data.couchbase.core.query.N1qlPrimaryIndexed;
 import org.springframework.data.couchbase.core.query.N1qlSecondaryIndexed;
 import org.springframework.data.couchbase.core.query.Query;
 import org.springframework.data.couchbase.core.query.View;
 import org.springframework.data.couchbase.core.query.ViewIndexed;
 import org.springframework.data.couchbase.repository.config.RepositoryOperationsMapping;
+import org.springframework.data.couchbase.repository.query.AbstractN1qlBasedQuery;
 import org.springframework.data.couchbase.repository.query.CouchbaseEntityInformation;
 import org.springframework.data.couchbase.repository.query.CouchbaseQueryMethod;
 import org.springframework.data.couchbase.repository.query.PartTreeN1qlBasedQuery;
@@ -73,6 +76,16 @@ public class CouchbaseRepositoryFactory extends RepositoryFactorySupport {
    */
   private final IndexManager indexManager;
 
+  /**
+   * Holds the optional {@link QueryPlanAdvisor}.
+   */
+  private QueryPlanAdvisor queryPlanAdvisor;
+
+  /**
+   * Holds the batch size of the derived deletes.
+   */
+  private int deleteBatchSize = PartTreeN1qlBasedQuery.DEFAULT_DELETE_BATCH_SIZE;
+
   /**
    * Holds the mapping context.
    */
@@ -100,6 +113,26 @@ public class CouchbaseRepositoryFactory extends RepositoryFactorySupport {
     addRepositoryProxyPostProcessor(viewPostProcessor);
   }
 
+  /**
+   * Set a {@link QueryPlanAdvisor} that will explain the N1QL queries of the repositories created by this factory.
+   *
+   * @param queryPlanAdvisor the advisor to use, null to deactivate.
+   */
+  public void setQueryPlanAdvisor(QueryPlanAdvisor queryPlanAdvisor) {
+    this.queryPlanAdvisor = queryPlanAdvisor;
+  }
+
+  /**
+   * Set the maximum number of documents deleted by each statement of the derived delete queries returning the deleted
+   * entities, see {@link PartTreeN1qlBasedQuery#setDeleteBatchSize(int)}.
+   *
+   * @param deleteBatchSize the batch size.
+   */
+  public void setDeleteBatchSize(int deleteBatchSize) {
+    Assert.isTrue(deleteBatchSize > 0, "Delete batch size must be strictly positive");
+    this.deleteBatchSize = deleteBatchSize;
+  }
+
   /**
    * Returns entity information based on the domain class.
    *
@@ -135,14 +168,20 @@ public class CouchbaseRepositoryFactory extends RepositoryFactorySupport {
     ViewIndexed viewIndexed = AnnotationUtils.findAnnotation(metadata.getRepositoryInterface(), ViewIndexed.class);
     N1qlPrimaryIndexed n1qlPrimaryIndexed = AnnotationUtils.findAnnotation(metadata.getRepositoryInterface(), N1qlPrimaryIndexed.class);
     N1qlSecondaryIndexed n1qlSecondaryIndexed = AnnotationUtils.findAnnotation(metadata.getRepositoryInterface(), N1qlSecondaryIndexed.class);
+    N1qlCompositeIndexed n1qlCompositeIndexed = AnnotationUtils.findAnnotation(metadata.getRepositoryInterface(), N1qlCompositeIndexed.class);
 
     checkFeatures(metadata, isN1qlAvailable, n1qlPrimaryIndexed, n1qlSecondaryIndexed);
 
     indexManager.buildIndexes(metadata, viewIndexed, n1qlPrimaryIndexed, n1qlSecondaryIndexed, couchbaseOperations);
+    indexManager.buildCompositeIndexes(metadata, n1qlCompositeIndexed, couchbaseOperations);
 
     CouchbaseEntityInformation<?, Serializable> entityInformation = getEntityInformation(metadata.getDomainType());
     SimpleCouchbaseRepository repo = getTargetRepositoryViaReflection(metadata, entityInformation, couchbaseOperations);
     repo.setViewMetadataProvider(viewPostProcessor.getViewMetadataProvider());
+    if (repo instanceof N1qlCouchbaseRepository) {
+      ((N1qlCouchbaseRepository) repo).setApproximateCount(
+          AnnotationUtils.findAnnotation(metadata.getRepositoryInterface(), ApproximateCount.class) != null);
+    }
     return repo;
   }
 
@@ -231,15 +270,25 @@ public class CouchbaseRepositoryFactory extends RepositoryFactorySupport {
         return new ViewBasedCouchbaseQuery(queryMethod, couchbaseOperations);
       } else if (queryMethod.hasN1qlAnnotation()) {
         if (queryMethod.hasInlineN1qlQuery()) {
-          return new StringN1qlBasedQuery(queryMethod.getInlineN1qlQuery(), queryMethod, couchbaseOperations,
-              SPEL_PARSER, evaluationContextProvider);
+          return advise(metadata, new StringN1qlBasedQuery(queryMethod.getInlineN1qlQuery(), queryMethod,
+              couchbaseOperations, SPEL_PARSER, evaluationContextProvider), couchbaseOperations);
         } else if (namedQueries.hasQuery(namedQueryName)) {
           String namedQuery = namedQueries.getQuery(namedQueryName);
-          return new StringN1qlBasedQuery(namedQuery, queryMethod, couchbaseOperations,
-              SPEL_PARSER, evaluationContextProvider);
+          return advise(metadata, new StringN1qlBasedQuery(namedQuery, queryMethod, couchbaseOperations,
+              SPEL_PARSER, evaluationContextProvider), couchbaseOperations);
         } //otherwise will do default, queryDerivation
       }
-      return new PartTreeN1qlBasedQuery(queryMethod, couchbaseOperations);
+      PartTreeN1qlBasedQuery derivedQuery = new PartTreeN1qlBasedQuery(queryMethod, couchbaseOperations);
+      derivedQuery.setDeleteBatchSize(deleteBatchSize);
+      return advise(metadata, derivedQuery, couchbaseOperations);
+    }
+
+    private RepositoryQuery advise(RepositoryMetadata metadata, AbstractN1qlBasedQuery query,
+                                   CouchbaseOperations couchbaseOperations) {
+      if (queryPlanAdvisor != null) {
+        queryPlanAdvisor.advise(metadata.getRepositoryInterface(), query, couchbaseOperations);
+      }
+      return query;
     }
   }
 
@@ -20,6 +20,7 @@ import java.io.Serializable;
 
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.repository.config.RepositoryOperationsMapping;
+import org.springframework.data.couchbase.repository.query.PartTreeN1qlBasedQuery;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
@@ -42,6 +43,16 @@ public class CouchbaseRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
    * Contains the reference to the IndexManager.
    */
   private IndexManager indexManager;
+
+  /**
+   * Contains the reference to the optional QueryPlanAdvisor.
+   */
+  private QueryPlanAdvisor queryPlanAdvisor;
+
+  /**
+   * Contains the batch size of the derived deletes.
+   */
+  private int deleteBatchSize = PartTreeN1qlBasedQuery.DEFAULT_DELETE_BATCH_SIZE;
   
   /**
    * Creates a new {@link CouchbaseRepositoryFactoryBean} for the given repository interface.
@@ -75,6 +86,25 @@ public class CouchbaseRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
     this.indexManager = indexManager;
   }
 
+  /**
+   * Set the QueryPlanAdvisor reference, to explain the N1QL queries of the repository when it is created.
+   *
+   * @param queryPlanAdvisor the QueryPlanAdvisor to use.
+   */
+  public void setQueryPlanAdvisor(final QueryPlanAdvisor queryPlanAdvisor) {
+    this.queryPlanAdvisor = queryPlanAdvisor;
+  }
+
+  /**
+   * Set the maximum number of documents deleted by each statement of the derived delete queries returning the deleted
+   * entities.
+   *
+   * @param deleteBatchSize the batch size.
+   */
+  public void setDeleteBatchSize(final int deleteBatchSize) {
+    this.deleteBatchSize = deleteBatchSize;
+  }
+
   /**
    * Returns a factory instance.
    *
@@ -82,7 +112,10 @@ public class CouchbaseRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
    */
   @Override
   protected RepositoryFactorySupport createRepositoryFactory() {
-    return getFactoryInstance(operationsMapping, indexManager);
+    CouchbaseRepositoryFactory factory = getFactoryInstance(operationsMapping, indexManager);
+    factory.setQueryPlanAdvisor(queryPlanAdvisor);
+    factory.setDeleteBatchSize(deleteBatchSize);
+    return factory;
   }
 
   /**
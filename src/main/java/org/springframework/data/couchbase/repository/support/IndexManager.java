@@ -16,10 +16,12 @@
 
 package org.springframework.data.couchbase.repository.support;
 
-import static com.couchbase.client.java.query.dsl.Expression.s;
 import static com.couchbase.client.java.query.dsl.Expression.x;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.couchbase.client.java.Bucket;
 import com.couchbase.client.java.bucket.BucketManager;
@@ -42,6 +44,9 @@ import rx.functions.Func1;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.TypeAliases;
+import org.springframework.data.couchbase.core.query.N1qlCompositeIndexed;
 import org.springframework.data.couchbase.core.query.N1qlPrimaryIndexed;
 import org.springframework.data.couchbase.core.query.N1qlSecondaryIndexed;
 import org.springframework.data.couchbase.core.query.ViewIndexed;
@@ -60,7 +65,7 @@ public class IndexManager {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexManager.class);
 
-  private static final String TEMPLATE_MAP_FUNCTION = "function (doc, meta) { if(doc.%s == \"%s\") { emit(meta.id, null); } }";
+  private static final String TEMPLATE_MAP_FUNCTION = "function (doc, meta) { if(%s) { emit(meta.id, null); } }";
 
   private static final JsonObject SUCCESS_MARKER = JsonObject.empty();
 
@@ -70,6 +75,12 @@ public class IndexManager {
   private boolean ignoreN1qlPrimary;
   /** True if this index manager should ignore N1QL SECONDARY creation annotations */
   private boolean ignoreN1qlSecondary;
+  /** What this index manager should do with composite indexes derived from {@link N1qlCompositeIndexed} repositories */
+  private final CompositeIndexMode compositeIndexMode;
+
+  /** The composite indexes derived so far, whether they were created or only reported */
+  private final List<CompositeIndexAnalyzer.CompositeIndexDefinition> compositeIndexDefinitions =
+      new CopyOnWriteArrayList<CompositeIndexAnalyzer.CompositeIndexDefinition>();
 
 
   /**
@@ -82,16 +93,33 @@ public class IndexManager {
    * @param processN1qlSecondary true to process, false to ignore {@link N1qlSecondaryIndexed} annotations.
    */
   public IndexManager(boolean processViews, boolean processN1qlPrimary, boolean processN1qlSecondary) {
+    this(processViews, processN1qlPrimary, processN1qlSecondary, CompositeIndexMode.IGNORE);
+  }
+
+  /**
+   * Construct an IndexManager that can be used as a Bean in a {@link Profile @Profile} annotated configuration
+   * in order to activate only all or part of automatic index creations in some contexts, and that additionally
+   * decides what to do with the composite indexes derived for {@link N1qlCompositeIndexed} repositories (eg. only
+   * report them in Prod, but create them in Dev).
+   *
+   * @param processViews true to process, false to ignore {@link ViewIndexed} annotations.
+   * @param processN1qlPrimary true to process, false to ignore {@link N1qlPrimaryIndexed} annotations.
+   * @param processN1qlSecondary true to process, false to ignore {@link N1qlSecondaryIndexed} annotations.
+   * @param compositeIndexMode what to do with {@link N1qlCompositeIndexed} annotations.
+   */
+  public IndexManager(boolean processViews, boolean processN1qlPrimary, boolean processN1qlSecondary,
+                      CompositeIndexMode compositeIndexMode) {
     this.ignoreViews = !processViews;
     this.ignoreN1qlPrimary = !processN1qlPrimary;
     this.ignoreN1qlSecondary = !processN1qlSecondary;
+    this.compositeIndexMode = compositeIndexMode == null ? CompositeIndexMode.IGNORE : compositeIndexMode;
   }
 
   /**
-   * Construct a default IndexManager that process all three types of automatic index creations.
+   * Construct a default IndexManager that process all types of automatic index creations.
    */
   public IndexManager() {
-    this(true, true, true);
+    this(true, true, true, CompositeIndexMode.CREATE);
   }
 
   /**
@@ -115,6 +143,82 @@ public class IndexManager {
     return ignoreN1qlSecondary;
   }
 
+  /**
+   * @return what this IndexManager does with {@link N1qlCompositeIndexed} annotations.
+   */
+  public CompositeIndexMode getCompositeIndexMode() {
+    return compositeIndexMode;
+  }
+
+  /**
+   * @return the composite indexes derived so far from {@link N1qlCompositeIndexed} repositories, whether they have
+   * been created or only reported.
+   */
+  public List<CompositeIndexAnalyzer.CompositeIndexDefinition> getCompositeIndexDefinitions() {
+    return Collections.unmodifiableList(compositeIndexDefinitions);
+  }
+
+  /**
+   * Derive composite indexes from the query methods of a {@link N1qlCompositeIndexed} repository, then either create
+   * them (in parallel but blocking until all are created, existing indexes being skipped) or only report them,
+   * depending on the {@link #getCompositeIndexMode() mode} of this IndexManager.
+   *
+   * @param metadata the repository's metadata.
+   * @param n1qlCompositeIndexed the annotation for derivation of composite indexes.
+   * @param couchbaseOperations the template to use for index creation.
+   * @throws CompositeException when several index creations have failed.
+   */
+  public void buildCompositeIndexes(RepositoryInformation metadata, N1qlCompositeIndexed n1qlCompositeIndexed,
+                                    CouchbaseOperations couchbaseOperations) {
+    buildCompositeIndexes(metadata, n1qlCompositeIndexed, couchbaseOperations.getCouchbaseBucket(),
+        couchbaseOperations.getConverter());
+  }
+
+  /**
+   * Derive composite indexes from the query methods of a {@link N1qlCompositeIndexed} repository, then either create
+   * them (in parallel but blocking until all are created, existing indexes being skipped) or only report them,
+   * depending on the {@link #getCompositeIndexMode() mode} of this IndexManager.
+   *
+   * @param metadata the repository's metadata.
+   * @param n1qlCompositeIndexed the annotation for derivation of composite indexes.
+   * @param rxjava1CouchbaseOperations the template to use for index creation.
+   * @throws CompositeException when several index creations have failed.
+   */
+  public void buildCompositeIndexes(RepositoryInformation metadata, N1qlCompositeIndexed n1qlCompositeIndexed,
+                                    RxJavaCouchbaseOperations rxjava1CouchbaseOperations) {
+    buildCompositeIndexes(metadata, n1qlCompositeIndexed, rxjava1CouchbaseOperations.getCouchbaseBucket(),
+        rxjava1CouchbaseOperations.getConverter());
+  }
+
+  private void buildCompositeIndexes(RepositoryInformation metadata, N1qlCompositeIndexed config, Bucket bucket,
+                                     CouchbaseConverter converter) {
+    if (config == null || compositeIndexMode == CompositeIndexMode.IGNORE) {
+      return;
+    }
+
+    List<CompositeIndexAnalyzer.CompositeIndexDefinition> definitions = new CompositeIndexAnalyzer(converter)
+        .analyze(metadata, config, bucket.name());
+    compositeIndexDefinitions.addAll(definitions);
+
+    if (compositeIndexMode == CompositeIndexMode.REPORT) {
+      for (CompositeIndexAnalyzer.CompositeIndexDefinition definition : definitions) {
+        LOGGER.info("Suggested N1QL index for {}.{}: {}", metadata.getRepositoryInterface().getSimpleName(),
+            definition.getMethodName(), definition.getStatement());
+      }
+      return;
+    }
+
+    List<Observable<Void>> builds = new ArrayList<Observable<Void>>(definitions.size());
+    for (CompositeIndexAnalyzer.CompositeIndexDefinition definition : definitions) {
+      builds.add(buildN1qlComposite(definition, metadata, bucket));
+    }
+
+    //trigger the builds, wait for the last one, throw CompositeException if errors
+    Observable.mergeDelayError(Observable.from(builds))
+        .toBlocking()
+        .lastOrDefault(null);
+  }
+
   /**
    * Build the relevant indexes according to the provided annotation and repository metadata, in parallel but blocking
    * until all relevant indexes are created. Existing indexes will be detected and skipped.
@@ -231,11 +335,9 @@ public class IndexManager {
   private Observable<Void> buildN1qlSecondary(N1qlSecondaryIndexed config, final RepositoryInformation metadata, Bucket bucket, String typeKey) {
     final String bucketName = bucket.name();
     final String indexName = config.indexName();
-    final String type = metadata.getDomainType().getName();
-
     Statement createIndex = Index.createIndex(indexName)
         .on(bucketName, x(typeKey))
-        .where(x(typeKey).eq(s(type)))
+        .where(x(TypeAliases.createTypePredicate(typeKey, metadata.getDomainType())))
         .using(IndexType.GSI);
 
     LOGGER.debug("Creating N1QL secondary index for repository {}", metadata.getRepositoryInterface().getSimpleName());
@@ -265,6 +367,40 @@ public class IndexManager {
         });
   }
 
+  private Observable<Void> buildN1qlComposite(CompositeIndexAnalyzer.CompositeIndexDefinition definition,
+                                              final RepositoryInformation metadata, Bucket bucket) {
+    final String bucketName = bucket.name();
+    final String indexName = definition.getIndexName();
+
+    LOGGER.debug("Creating N1QL composite index {} for repository {}", indexName,
+        metadata.getRepositoryInterface().getSimpleName());
+    return bucket.async().query(definition.getStatement())
+        .flatMap(new Func1<AsyncN1qlQueryResult, Observable<JsonObject>>() {
+          @Override
+          public Observable<JsonObject> call(AsyncN1qlQueryResult asyncN1qlQueryResult) {
+            return asyncN1qlQueryResult.errors();
+          }
+        })
+        .defaultIfEmpty(SUCCESS_MARKER)
+        .flatMap(new Func1<JsonObject, Observable<Void>>() {
+          @Override
+          public Observable<Void> call(JsonObject json) {
+            if (json == SUCCESS_MARKER) {
+              LOGGER.debug("N1QL composite index {} created for repository {}", indexName,
+                  metadata.getRepositoryInterface().getSimpleName());
+              return Observable.empty();
+            } else if (json.getString("msg").contains("Index " + indexName + " already exist") ||
+                (json.containsKey("code") && json.getLong("code") == 4300L)) {
+              LOGGER.debug("Composite index {} already exist, skipping", indexName);
+              return Observable.empty(); //ignore, the index already exist
+            } else {
+              return Observable.error(new CouchbaseQueryExecutionException(
+                  "Cannot create N1QL composite index " + bucketName + "." + indexName + ": " + json));
+            }
+          }
+        });
+  }
+
   private Observable<Void> buildAllView(ViewIndexed config, final RepositoryInformation metadata, Bucket bucket, String typeKey) {
     if (config == null) return Observable.empty();
     LOGGER.debug("Creating View index index for repository {}", metadata.getRepositoryInterface().getSimpleName());
@@ -273,9 +409,14 @@ public class IndexManager {
     String viewName = config.viewName();
     String mapFunction = config.mapFunction();
     if (mapFunction.isEmpty()) {
-      String type = metadata.getDomainType().getName();
-
-      mapFunction = String.format(TEMPLATE_MAP_FUNCTION, typeKey, type);
+      StringBuilder condition = new StringBuilder();
+      for (String type : TypeAliases.getTypeKeyValues(metadata.getDomainType())) {
+        if (condition.length() > 0) {
+          condition.append(" || ");
+        }
+        condition.append("doc.").append(typeKey).append(" == \"").append(type).append('"');
+      }
+      mapFunction = String.format(TEMPLATE_MAP_FUNCTION, condition);
     }
     String reduceFunction = config.reduceFunction();
     if ("".equals(reduceFunction)) {
@@ -314,4 +455,20 @@ public class IndexManager {
           }
         });
   }
+
+  /**
+   * What an {@link IndexManager} does with the composite indexes derived for {@link N1qlCompositeIndexed}
+   * repositories.
+   */
+  public enum CompositeIndexMode {
+
+    /** Ignore {@link N1qlCompositeIndexed} annotations. */
+    IGNORE,
+
+    /** Derive the indexes and log their definitions, without creating them. */
+    REPORT,
+
+    /** Derive and create the indexes. */
+    CREATE
+  }
 }
@@ -19,6 +19,8 @@ package org.springframework.data.couchbase.repository.support;
 import java.io.Serializable;
 import java.util.List;
 
+import com.couchbase.client.java.bucket.BucketInfo;
+import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.query.N1qlParams;
 import com.couchbase.client.java.query.N1qlQuery;
 import com.couchbase.client.java.query.SimpleN1qlQuery;
@@ -29,6 +31,7 @@ import com.couchbase.client.java.query.dsl.path.GroupByPath;
 import com.couchbase.client.java.query.dsl.path.LimitPath;
 import com.couchbase.client.java.query.dsl.path.WherePath;
 
+import org.springframework.data.couchbase.core.BucketCallback;
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.repository.CouchbasePagingAndSortingRepository;
 import org.springframework.data.couchbase.repository.query.CouchbaseEntityInformation;
@@ -51,6 +54,8 @@ public class N1qlCouchbaseRepository<T, ID extends Serializable>
     extends SimpleCouchbaseRepository<T, ID>
     implements CouchbasePagingAndSortingRepository<T, ID> {
 
+  private boolean approximateCount;
+
   /**
    * Create a new Repository.
    *
@@ -61,6 +66,47 @@ public class N1qlCouchbaseRepository<T, ID extends Serializable>
     super(metadata, couchbaseOperations);
   }
 
+  /**
+   * Configures whether {@link #count()} should be answered from the item count of the bucket rather than from a N1QL
+   * query. This is only correct if the bucket exclusively stores the entity of this repository.
+   *
+   * @param approximateCount true to use the bucket item count.
+   * @see org.springframework.data.couchbase.core.query.ApproximateCount
+   */
+  public void setApproximateCount(boolean approximateCount) {
+    this.approximateCount = approximateCount;
+  }
+
+  @Override
+  public long count() {
+    if (approximateCount) {
+      Long itemCount = getBucketItemCount();
+      if (itemCount != null) {
+        return itemCount;
+      }
+    }
+    return countByN1ql(getCouchbaseOperations().getDefaultConsistency().n1qlConsistency());
+  }
+
+  private long countByN1ql(ScanConsistency consistency) {
+    Statement countStatement = N1qlUtils.createRawCountQueryForEntity(getCouchbaseOperations().getCouchbaseBucket().name(),
+        getCouchbaseOperations().getConverter(), getEntityInformation());
+    N1qlQuery countQuery = N1qlQuery.simple(countStatement, N1qlParams.build().consistency(consistency));
+    return N1qlUtils.readRawLong(getCouchbaseOperations().queryN1QL(countQuery));
+  }
+
+  private Long getBucketItemCount() {
+    BucketInfo info = getCouchbaseOperations().execute(new BucketCallback<BucketInfo>() {
+      @Override
+      public BucketInfo doInBucket() {
+        return getCouchbaseOperations().getCouchbaseBucket().bucketManager().info();
+      }
+    });
+    JsonObject basicStats = info == null || info.raw() == null ? null : info.raw().getObject("basicStats");
+    Object itemCount = basicStats == null ? null : basicStats.get("itemCount");
+    return itemCount instanceof Number ? ((Number) itemCount).longValue() : null;
+  }
+
   @Override
   public Iterable<T> findAll(Sort sort) {
     Assert.notNull(sort, "Sort must not be null!");
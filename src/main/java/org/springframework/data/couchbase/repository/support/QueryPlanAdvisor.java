@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.repository.support;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.couchbase.client.java.document.json.JsonArray;
+import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.data.couchbase.core.CouchbaseOperations;
+import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+import org.springframework.data.couchbase.repository.query.AbstractN1qlBasedQuery;
+import org.springframework.data.couchbase.repository.query.CouchbaseQueryMethod;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.Parameter;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Explains the N1QL queries of repositories when they are created, in order to detect the ones that would be executed
+ * with an inefficient plan before they hit production traffic. Each derived or {@link
+ * org.springframework.data.couchbase.core.query.Query @Query} method is rendered once with dummy parameters, its
+ * <code>EXPLAIN</code> is executed and the plan is inspected for:
+ * <ul>
+ *   <li>a <code>PrimaryScan</code>, ie. a full scan of the bucket,</li>
+ *   <li>an <code>IntersectScan</code>, a hint that a composite index is missing,</li>
+ *   <li>a <code>Fetch</code> for methods returning projections or aggregates, ie. a missing covering index.</li>
+ * </ul>
+ * A query that can't be explained, for example because no index can serve it, is reported as well.
+ * Results are gathered in the {@link #getReport() report}. Depending on the {@link FailureMode}, issues are either
+ * logged or fail the creation of the repository.
+ * <p/>
+ * This is opt-in: declare a bean of this type and reference it from the repositories configuration (see
+ * {@link org.springframework.data.couchbase.repository.config.EnableCouchbaseRepositories#queryPlanAdvisorRef()}).
+ * Since EXPLAIN needs the query service, this should typically be activated in test or staging environments.
+ */
+public class QueryPlanAdvisor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryPlanAdvisor.class);
+
+  private static final String OPERATOR = "#operator";
+
+  private final FailureMode failureMode;
+  private final QueryPlanReport report;
+
+  /**
+   * Construct a QueryPlanAdvisor that logs the issues it finds.
+   */
+  public QueryPlanAdvisor() {
+    this(FailureMode.LOG);
+  }
+
+  /**
+   * Construct a QueryPlanAdvisor with the given {@link FailureMode}.
+   *
+   * @param failureMode what to do when issues are found in a query plan.
+   */
+  public QueryPlanAdvisor(FailureMode failureMode) {
+    this.failureMode = failureMode == null ? FailureMode.LOG : failureMode;
+    this.report = new QueryPlanReport();
+  }
+
+  /**
+   * @return the report of all the queries explained so far.
+   */
+  public QueryPlanReport getReport() {
+    return report;
+  }
+
+  /**
+   * @return what this advisor does when issues are found in a query plan.
+   */
+  public FailureMode getFailureMode() {
+    return failureMode;
+  }
+
+  /**
+   * Explain the given repository query and record the result in the {@link #getReport() report}.
+   *
+   * @param repositoryInterface the repository interface declaring the query method.
+   * @param query the query to explain.
+   * @param couchbaseOperations the template to execute the EXPLAIN with.
+   * @throws CouchbaseQueryExecutionException if issues are found and the failure mode is {@link FailureMode#FAIL}.
+   */
+  public void advise(Class<?> repositoryInterface, AbstractN1qlBasedQuery query,
+                     CouchbaseOperations couchbaseOperations) {
+    CouchbaseQueryMethod queryMethod = query.getQueryMethod();
+    String methodName = queryMethod.getName();
+
+    N1qlQuery explainQuery;
+    try {
+      explainQuery = query.createExplainQuery(createDummyParameters(queryMethod));
+    } catch (RuntimeException e) {
+      //the query can't be rendered with dummy parameters, this says nothing about its plan
+      LOGGER.debug("Unable to render query method {} with dummy parameters, skipping: {}", methodName, e.toString());
+      return;
+    }
+    String statement = explainQuery.statement().toString().substring("EXPLAIN ".length());
+
+    String error = null;
+    Set<QueryPlanReport.Issue> issues;
+    try {
+      N1qlQueryResult result = couchbaseOperations.queryN1QL(explainQuery);
+      if (result.finalSuccess()) {
+        Set<String> operators = new HashSet<String>();
+        for (N1qlQueryRow row : result.allRows()) {
+          collectOperators(row.value(), operators);
+        }
+        issues = detectIssues(operators, isCoverable(queryMethod));
+      } else {
+        error = String.valueOf(result.errors());
+        issues = EnumSet.of(QueryPlanReport.Issue.EXPLAIN_FAILED);
+      }
+    } catch (RuntimeException e) {
+      error = e.toString();
+      issues = EnumSet.of(QueryPlanReport.Issue.EXPLAIN_FAILED);
+    }
+
+    QueryPlanReport.Finding finding = new QueryPlanReport.Finding(repositoryInterface, methodName, statement, issues,
+        error);
+    report.add(finding);
+
+    if (!issues.isEmpty()) {
+      String problem = error == null ? "Inefficient plan detected" : "Unable to explain";
+      if (failureMode == FailureMode.FAIL) {
+        throw new CouchbaseQueryExecutionException(problem + " for query method " + finding);
+      }
+      LOGGER.warn("{} for query method {}", problem, finding);
+    }
+  }
+
+  static Set<QueryPlanReport.Issue> detectIssues(Set<String> operators, boolean coverable) {
+    Set<QueryPlanReport.Issue> issues = EnumSet.noneOf(QueryPlanReport.Issue.class);
+    for (String operator : operators) {
+      if (operator.startsWith("PrimaryScan")) {
+        issues.add(QueryPlanReport.Issue.PRIMARY_SCAN);
+      } else if (operator.startsWith("IntersectScan")) {
+        issues.add(QueryPlanReport.Issue.INTERSECT_SCAN);
+      } else if (coverable && operator.equals("Fetch")) {
+        issues.add(QueryPlanReport.Issue.NOT_COVERED);
+      }
+    }
+    return issues;
+  }
+
+  static void collectOperators(Object node, Set<String> operators) {
+    if (node instanceof JsonObject) {
+      JsonObject json = (JsonObject) node;
+      for (String name : json.getNames()) {
+        Object value = json.get(name);
+        if (OPERATOR.equals(name) && value instanceof String) {
+          operators.add((String) value);
+        } else {
+          collectOperators(value, operators);
+        }
+      }
+    } else if (node instanceof JsonArray) {
+      for (Object value : (JsonArray) node) {
+        collectOperators(value, operators);
+      }
+    }
+  }
+
+  /**
+   * Only projections and aggregates (count, exists...) can be answered from an index, entities always need the whole
+   * document to be fetched.
+   */
+  private static boolean isCoverable(CouchbaseQueryMethod queryMethod) {
+    Class<?> returnedType = ClassUtils.resolvePrimitiveIfNecessary(queryMethod.getReturnedObjectType());
+    return queryMethod.getResultProcessor().getReturnedType().needsCustomConstruction()
+        || Number.class.isAssignableFrom(returnedType)
+        || Boolean.class.equals(returnedType);
+  }
+
+  static Object[] createDummyParameters(CouchbaseQueryMethod queryMethod) {
+    Object[] parameters = new Object[queryMethod.getParameters().getNumberOfParameters()];
+    int index = 0;
+    for (Parameter parameter : queryMethod.getParameters()) {
+      parameters[index++] = createDummyValue(parameter.getType());
+    }
+    return parameters;
+  }
+
+  private static Object createDummyValue(Class<?> type) {
+    Class<?> boxed = ClassUtils.resolvePrimitiveIfNecessary(type);
+    if (String.class.equals(boxed) || CharSequence.class.equals(boxed)) {
+      return "";
+    } else if (Boolean.class.equals(boxed)) {
+      return Boolean.FALSE;
+    } else if (Character.class.equals(boxed)) {
+      return 'a';
+    } else if (Byte.class.equals(boxed)) {
+      return (byte) 0;
+    } else if (Short.class.equals(boxed)) {
+      return (short) 0;
+    } else if (Integer.class.equals(boxed)) {
+      return 0;
+    } else if (Long.class.equals(boxed)) {
+      return 0L;
+    } else if (Float.class.equals(boxed)) {
+      return 0f;
+    } else if (Double.class.equals(boxed)) {
+      return 0d;
+    } else if (BigDecimal.class.equals(boxed)) {
+      return BigDecimal.ZERO;
+    } else if (BigInteger.class.equals(boxed)) {
+      return BigInteger.ZERO;
+    } else if (Date.class.equals(boxed)) {
+      return new Date(0L);
+    } else if (boxed.isEnum()) {
+      Object[] constants = boxed.getEnumConstants();
+      return constants.length == 0 ? null : constants[0];
+    } else if (Pageable.class.isAssignableFrom(boxed)) {
+      return PageRequest.of(0, 1);
+    } else if (Sort.class.isAssignableFrom(boxed)) {
+      return Sort.unsorted();
+    } else if (Set.class.isAssignableFrom(boxed)) {
+      return Collections.emptySet();
+    } else if (List.class.isAssignableFrom(boxed) || java.util.Collection.class.equals(boxed)
+        || Iterable.class.equals(boxed)) {
+      return Collections.emptyList();
+    } else if (Map.class.isAssignableFrom(boxed)) {
+      return Collections.emptyMap();
+    } else if (boxed.isArray()) {
+      return new Object[0];
+    }
+    return null;
+  }
+
+  /**
+   * What a {@link QueryPlanAdvisor} does when it finds issues in the plan of a query.
+   */
+  public enum FailureMode {
+
+    /** Log the issues as warnings, the repository is still created. */
+    LOG,
+
+    /** Fail the creation of the repository with a {@link CouchbaseQueryExecutionException}. */
+    FAIL
+  }
+}
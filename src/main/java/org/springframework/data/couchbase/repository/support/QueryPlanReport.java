@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The results of the EXPLAIN of repository queries performed by a {@link QueryPlanAdvisor} when the repositories
+ * are created.
+ *
+ * @see QueryPlanAdvisor
+ */
+public class QueryPlanReport {
+
+  private final List<Finding> findings = new CopyOnWriteArrayList<Finding>();
+
+  void add(Finding finding) {
+    findings.add(finding);
+  }
+
+  /**
+   * @return all the queries that have been explained, with or without issues.
+   */
+  public List<Finding> getFindings() {
+    return Collections.unmodifiableList(findings);
+  }
+
+  /**
+   * @return the queries for which the plan revealed at least one {@link Issue}.
+   */
+  public List<Finding> getFindingsWithIssues() {
+    List<Finding> result = new ArrayList<Finding>();
+    for (Finding finding : findings) {
+      if (!finding.getIssues().isEmpty()) {
+        result.add(finding);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The potential issues that can be detected in a N1QL execution plan.
+   */
+  public enum Issue {
+
+    /** The query is executed by scanning the primary index, ie. the whole bucket. */
+    PRIMARY_SCAN,
+
+    /** The query intersects the scans of several indexes, a composite index would be more efficient. */
+    INTERSECT_SCAN,
+
+    /** The query returns a projection or an aggregate but still has to fetch the documents. */
+    NOT_COVERED,
+
+    /** The query could not be explained, for example because no index can serve it. */
+    EXPLAIN_FAILED
+  }
+
+  /**
+   * The outcome of the EXPLAIN of a single repository query method.
+   */
+  public static class Finding {
+
+    private final Class<?> repositoryInterface;
+    private final String methodName;
+    private final String statement;
+    private final Set<Issue> issues;
+    private final String error;
+
+    Finding(Class<?> repositoryInterface, String methodName, String statement, Set<Issue> issues) {
+      this(repositoryInterface, methodName, statement, issues, null);
+    }
+
+    Finding(Class<?> repositoryInterface, String methodName, String statement, Set<Issue> issues, String error) {
+      this.repositoryInterface = repositoryInterface;
+      this.methodName = methodName;
+      this.statement = statement;
+      this.issues = Collections.unmodifiableSet(issues);
+      this.error = error;
+    }
+
+    /**
+     * @return the repository interface declaring the query method.
+     */
+    public Class<?> getRepositoryInterface() {
+      return repositoryInterface;
+    }
+
+    /**
+     * @return the name of the query method.
+     */
+    public String getMethodName() {
+      return methodName;
+    }
+
+    /**
+     * @return the explained statement, rendered with dummy parameters.
+     */
+    public String getStatement() {
+      return statement;
+    }
+
+    /**
+     * @return the issues detected in the plan, empty if none.
+     */
+    public Set<Issue> getIssues() {
+      return issues;
+    }
+
+    /**
+     * @return the error the EXPLAIN failed with, null if it succeeded.
+     */
+    public String getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return repositoryInterface.getSimpleName() + "." + methodName + " " + issues + ": " + statement
+          + (error == null ? "" : " (" + error + ")");
+    }
+  }
+}
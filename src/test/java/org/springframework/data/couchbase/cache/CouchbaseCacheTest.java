@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.data.couchbase.core.BucketCallback;
+import org.springframework.data.couchbase.core.CouchbaseOperations;
+import org.springframework.data.couchbase.core.convert.translation.TranslationService;
+import org.springframework.data.couchbase.core.mapping.CouchbaseStorable;
+import org.springframework.data.couchbase.core.mapping.KeySettings;
+
+import com.couchbase.client.java.AsyncBucket;
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.document.Document;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.document.SerializableDocument;
+import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.env.CouchbaseEnvironment;
+import com.couchbase.client.java.error.DocumentAlreadyExistsException;
+import com.couchbase.client.java.error.DocumentDoesNotExistException;
+import com.couchbase.client.java.query.N1qlMetrics;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import rx.Observable;
+
+public class CouchbaseCacheTest {
+
+  private Map<String, Document<?>> store;
+  private Bucket bucket;
+  private CouchbaseOperations operations;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    store = new HashMap<String, Document<?>>();
+    bucket = mock(Bucket.class);
+    when(bucket.name()).thenReturn("cache-bucket");
+    CouchbaseEnvironment environment = mock(CouchbaseEnvironment.class);
+    when(environment.kvTimeout()).thenReturn(2500L);
+    when(bucket.environment()).thenReturn(environment);
+    when(bucket.upsert(any(Document.class))).thenAnswer(invocation -> {
+      Document<?> document = invocation.getArgument(0);
+      store.put(document.id(), document);
+      return document;
+    });
+    when(bucket.get(anyString(), any(Class.class))).thenAnswer(invocation -> store.get(invocation.getArgument(0)));
+    when(bucket.remove(anyString())).thenAnswer(invocation -> {
+      if (store.remove(invocation.getArgument(0)) == null) {
+        throw new DocumentDoesNotExistException();
+      }
+      return null;
+    });
+
+    AsyncBucket asyncBucket = mock(AsyncBucket.class);
+    when(asyncBucket.insert(any(Document.class))).thenAnswer(invocation -> {
+      Document<?> document = invocation.getArgument(0);
+      if (store.containsKey(document.id())) {
+        return Observable.error(new DocumentAlreadyExistsException());
+      }
+      store.put(document.id(), document);
+      return Observable.just(document);
+    });
+    when(asyncBucket.get(anyString(), any(Class.class))).thenAnswer(invocation -> {
+      Document<?> document = store.get(invocation.getArgument(0));
+      return document == null ? Observable.empty() : Observable.just(document);
+    });
+    when(bucket.async()).thenReturn(asyncBucket);
+
+    operations = mock(CouchbaseOperations.class);
+    when(operations.getCouchbaseBucket()).thenReturn(bucket);
+    when(operations.execute(any(BucketCallback.class)))
+        .thenAnswer(invocation -> ((BucketCallback<?>) invocation.getArgument(0)).doInBucket());
+  }
+
+  private CouchbaseCache cache(CouchbaseCacheConfiguration configuration) {
+    return (CouchbaseCache) new CouchbaseCacheManager(operations, configuration).getCache("books");
+  }
+
+  @Test
+  public void testSerializedValuesAreStoredWithTtlAndPrefixedKey() {
+    CouchbaseCache cache = cache(CouchbaseCacheConfiguration.defaultCacheConfig()
+        .entryTtl(Duration.ofMinutes(10))
+        .keySettings(KeySettings.build().prefix("app").delimiter("::")));
+
+    cache.put(42, "The Hobbit");
+
+    Document<?> document = store.get("app::books::42");
+    assertThat(document).isInstanceOf(SerializableDocument.class);
+    assertThat(document.expiry()).isEqualTo(600);
+    assertThat(cache.get(42).get()).isEqualTo("The Hobbit");
+  }
+
+  @Test
+  public void testJsonValuesAreDecodedToTheConfiguredType() {
+    CouchbaseCache cache = cache(CouchbaseCacheConfiguration.defaultCacheConfig().json(Book.class));
+
+    cache.put("hobbit", new Book("The Hobbit", 310));
+
+    assertThat(store.get("books.hobbit")).isInstanceOf(RawJsonDocument.class);
+    Book book = cache.get("hobbit", Book.class);
+    assertThat(book.title).isEqualTo("The Hobbit");
+    assertThat(book.pages).isEqualTo(310);
+  }
+
+  @Test
+  public void testNullValuesAreCached() {
+    CouchbaseCache cache = cache(CouchbaseCacheConfiguration.defaultCacheConfig().json(Book.class));
+
+    cache.put("missing", null);
+
+    Cache.ValueWrapper wrapper = cache.get("missing");
+    assertThat(wrapper).isNotNull();
+    assertThat(wrapper.get()).isNull();
+  }
+
+  @Test
+  public void testLocalCacheAvoidsBucketReads() {
+    CouchbaseCache cache = cache(CouchbaseCacheConfiguration.defaultCacheConfig()
+        .localCache(10, Duration.ofMinutes(1)));
+
+    cache.put("hobbit", "The Hobbit");
+    cache.get("hobbit");
+    cache.get("hobbit");
+    cache.evict("hobbit");
+
+    verify(bucket, never()).get(anyString(), any(Class.class));
+    assertThat(cache.get("hobbit")).isNull();
+    verify(bucket, times(1)).get(anyString(), any(Class.class));
+  }
+
+  @Test
+  public void testPutIfAbsentUsesInsertSemantics() {
+    CouchbaseCache cache = cache(CouchbaseCacheConfiguration.defaultCacheConfig());
+
+    assertThat(cache.putIfAbsent("hobbit", "The Hobbit")).isNull();
+    Cache.ValueWrapper existing = cache.putIfAbsent("hobbit", "Another Book");
+
+    assertThat(existing).isNotNull();
+    assertThat(existing.get()).isEqualTo("The Hobbit");
+    assertThat(cache.get("hobbit").get()).isEqualTo("The Hobbit");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPutIfAbsentRetriesWhenTheExistingEntryExpires() {
+    CouchbaseCache cache = cache(CouchbaseCacheConfiguration.defaultCacheConfig());
+    cache.put("hobbit", "The Hobbit");
+    AsyncBucket asyncBucket = bucket.async();
+    //the entry expires between the failed insert and the lookup
+    when(asyncBucket.get(anyString(), any(Class.class))).thenAnswer(invocation -> {
+      store.remove(invocation.getArgument(0));
+      return Observable.empty();
+    });
+
+    assertThat(cache.putIfAbsent("hobbit", "Another Book")).isNull();
+    assertThat(cache.get("hobbit").get()).isEqualTo("Another Book");
+    verify(asyncBucket, times(2)).insert(any(Document.class));
+  }
+
+  @Test
+  public void testJsonCachesRequireFragmentEncoding() {
+    TranslationService documentsOnly = new TranslationService() {
+      @Override
+      public String encode(CouchbaseStorable source) {
+        return null;
+      }
+
+      @Override
+      public CouchbaseStorable decode(String source, CouchbaseStorable target) {
+        return target;
+      }
+
+      @Override
+      public <T> T decodeFragment(String source, Class<T> target) {
+        return null;
+      }
+    };
+    CouchbaseCacheManager manager = new CouchbaseCacheManager(operations, documentsOnly,
+        CouchbaseCacheConfiguration.defaultCacheConfig().json(Book.class),
+        Collections.<String, CouchbaseCacheConfiguration>emptyMap());
+
+    assertThatThrownBy(() -> manager.getCache("books")).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void testEvictByPrefixDeletesThroughN1ql() {
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(true);
+    when(result.info()).thenReturn(new N1qlMetrics(JsonObject.create().put("mutationCount", 2)));
+    when(operations.queryN1QL(any(N1qlQuery.class))).thenReturn(result);
+    CouchbaseCache cache = cache(CouchbaseCacheConfiguration.defaultCacheConfig().localCache(10, Duration.ofMinutes(1)));
+    cache.put("user_1", "a");
+
+    long evicted = cache.evictByPrefix("user_");
+
+    ArgumentCaptor<N1qlQuery> query = ArgumentCaptor.forClass(N1qlQuery.class);
+    verify(operations).queryN1QL(query.capture());
+    assertThat(evicted).isEqualTo(2);
+    assertThat(query.getValue().n1ql().getString("statement"))
+        .isEqualTo("DELETE FROM `cache-bucket` WHERE META().id LIKE $1");
+    assertThat(query.getValue().n1ql().getArray("args").getString(0)).isEqualTo("books.user\\_%");
+    cache.get("user_1");
+    verify(bucket).get(eq("books.user_1"), any(Class.class));
+  }
+
+  @Test
+  public void testManagerCreatesDeclaredAndMissingCaches() {
+    Map<String, CouchbaseCacheConfiguration> initial = new HashMap<String, CouchbaseCacheConfiguration>();
+    initial.put("beers", CouchbaseCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofSeconds(5)));
+    CouchbaseCacheManager manager = new CouchbaseCacheManager(operations, null,
+        CouchbaseCacheConfiguration.defaultCacheConfig(), initial);
+    manager.afterPropertiesSet();
+
+    assertThat(manager.getCacheNames()).containsExactly("beers");
+    assertThat(((CouchbaseCache) manager.getCache("beers")).getConfiguration().getEntryTtl())
+        .isEqualTo(Duration.ofSeconds(5));
+    assertThat(manager.getCache("other")).isNotNull();
+
+    manager.setAllowInFlightCacheCreation(false);
+    assertThat(manager.getCache("another")).isNull();
+  }
+
+  static class Book {
+
+    public String title;
+    public int pages;
+
+    Book() {
+    }
+
+    Book(String title, int pages) {
+      this.title = title;
+      this.pages = pages;
+    }
+  }
+}
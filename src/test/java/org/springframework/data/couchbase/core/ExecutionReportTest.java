@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.mapping.Document;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.PersistTo;
+import com.couchbase.client.java.ReplicateTo;
+import com.couchbase.client.java.document.RawJsonDocument;
+
+public class ExecutionReportTest {
+
+  private Bucket bucket;
+  private CouchbaseTemplate template;
+
+  @Before
+  public void setUp() {
+    bucket = mock(Bucket.class);
+    template = new CouchbaseTemplate(null, bucket);
+  }
+
+  @Test
+  public void testReadIsSplitIntoPhases() {
+    when(bucket.get("beer1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("beer1", "{\"name\":\"Duvel\"}", 12L));
+
+    List<ExecutionReport> reports = new ArrayList<ExecutionReport>();
+    ReportedBeer beer = ExecutionReport.capture(reports, () -> template.findById("beer1", ReportedBeer.class));
+
+    assertThat(beer.name).isEqualTo("Duvel");
+    assertThat(reports).hasSize(1);
+    ExecutionReport report = reports.get(0);
+    assertThat(report.getOperation()).isEqualTo("findById");
+    assertThat(report.getEntityType()).isEqualTo(ReportedBeer.class);
+    assertThat(report.getError()).isNull();
+    assertThat(report.getPhaseNanos(OperationPhase.DECODE)).isPositive();
+    assertThat(report.getPhaseNanos(OperationPhase.MAP)).isPositive();
+    assertThat(report.getPhaseNanos(OperationPhase.CONVERT)).isZero();
+    assertThat(report.getPhaseNanos(OperationPhase.ENCODE)).isZero();
+    assertThat(report.getServerNanos()).isEqualTo(-1L);
+
+    long phases = 0L;
+    for (OperationPhase phase : OperationPhase.values()) {
+      phases += report.getPhaseNanos(phase);
+    }
+    assertThat(phases).isEqualTo(report.getTotalNanos());
+  }
+
+  @Test
+  public void testWriteIsSplitIntoPhases() {
+    when(bucket.upsert(any(RawJsonDocument.class), eq(PersistTo.NONE), eq(ReplicateTo.NONE)))
+        .thenReturn(RawJsonDocument.create("beer1", "{}", 13L));
+    ReportedBeer beer = new ReportedBeer();
+    beer.id = "beer1";
+    beer.name = "Duvel";
+
+    List<ExecutionReport> reports = new ArrayList<ExecutionReport>();
+    ExecutionReport.capture(reports, () -> {
+      template.save(beer);
+      return null;
+    });
+
+    assertThat(reports).hasSize(1);
+    assertThat(reports.get(0).getOperation()).isEqualTo("save");
+    assertThat(reports.get(0).getPhaseNanos(OperationPhase.CONVERT)).isPositive();
+    assertThat(reports.get(0).getPhaseNanos(OperationPhase.ENCODE)).isPositive();
+    assertThat(reports.get(0).getPhaseNanos(OperationPhase.DECODE)).isZero();
+  }
+
+  @Test
+  public void testNothingIsReportedOutsideOfACapture() {
+    when(bucket.get("beer1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("beer1", "{\"name\":\"Duvel\"}", 12L));
+    List<ExecutionReport> reports = new ArrayList<ExecutionReport>();
+    ExecutionReport.capture(reports, () -> "nothing");
+
+    template.findById("beer1", ReportedBeer.class);
+
+    assertThat(reports).isEmpty();
+    assertThat(ExecutionReport.captured()).isNull();
+  }
+
+  @Test
+  public void testServerDurationParsing() {
+    assertThat(ExecutionReport.parseServerDuration("12.5ms")).isEqualTo(TimeUnit.MICROSECONDS.toNanos(12500));
+    assertThat(ExecutionReport.parseServerDuration("1m2.5s")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(62500));
+    assertThat(ExecutionReport.parseServerDuration("350µs")).isEqualTo(TimeUnit.MICROSECONDS.toNanos(350));
+    assertThat(ExecutionReport.parseServerDuration("800ns")).isEqualTo(800L);
+    assertThat(ExecutionReport.parseServerDuration("12 parsecs")).isEqualTo(-1L);
+    assertThat(ExecutionReport.parseServerDuration(null)).isEqualTo(-1L);
+  }
+
+  @Document
+  static class ReportedBeer {
+
+    @Id
+    String id;
+
+    String name;
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.convert.DocumentMigrations;
+import org.springframework.data.couchbase.core.convert.DocumentMigrator;
+import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.encryption.AesGcmCryptoProvider;
+import org.springframework.data.couchbase.core.convert.encryption.InMemoryKeyProvider;
+import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.data.couchbase.core.mapping.EncryptedField;
+import org.springframework.data.couchbase.core.mapping.NearCached;
+
+import com.couchbase.client.core.message.kv.subdoc.multi.Lookup;
+import com.couchbase.client.java.AsyncBucket;
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.cluster.ClusterInfo;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
+import com.couchbase.client.java.subdoc.AsyncLookupInBuilder;
+import com.couchbase.client.java.subdoc.DocumentFragment;
+import com.couchbase.client.java.subdoc.SubdocOptionsBuilder;
+import com.couchbase.client.java.util.features.CouchbaseFeature;
+import rx.Observable;
+
+public class MigrationWriteBackTest {
+
+  private static final int EXPIRY = 1700000000;
+
+  private Bucket bucket;
+  private AsyncBucket asyncBucket;
+  private JacksonTranslationService translationService;
+  private CouchbaseTemplate template;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    MappingCouchbaseConverter converter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    converter.setCryptoProviders(Collections.singletonList(
+        new AesGcmCryptoProvider(new InMemoryKeyProvider().storeKey("pii", new byte[32]))));
+    DocumentMigrator rename = document -> document.put("name", document.remove("fullName"));
+    converter.setDocumentMigrations(new DocumentMigrations()
+        .register(Profile.class, 0, rename)
+        .register(CachedProfile.class, 0, rename));
+    converter.afterPropertiesSet();
+    translationService = new JacksonTranslationService();
+    translationService.afterPropertiesSet();
+
+    Profile profile = new Profile();
+    profile.email = "john.doe@example.com";
+    CouchbaseDocument stored = new CouchbaseDocument("profile1");
+    converter.write(profile, stored);
+    stored.remove(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT);
+    stored.put("fullName", "John Doe");
+    stored.put("unmapped", "kept");
+
+    bucket = mock(Bucket.class);
+    asyncBucket = mock(AsyncBucket.class);
+    when(bucket.async()).thenReturn(asyncBucket);
+    when(bucket.get("profile1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("profile1", translationService.encode(stored), 12L));
+    when(asyncBucket.get("profile1", RawJsonDocument.class))
+        .thenReturn(Observable.just(RawJsonDocument.create("profile1", translationService.encode(stored), 12L)));
+    AsyncLookupInBuilder lookup = mock(AsyncLookupInBuilder.class);
+    DocumentFragment<Lookup> fragment = mock(DocumentFragment.class);
+    when(fragment.content(0)).thenReturn(EXPIRY);
+    when(asyncBucket.lookupIn("profile1")).thenReturn(lookup);
+    when(lookup.get(anyString(), any(SubdocOptionsBuilder.class))).thenReturn(lookup);
+    when(lookup.execute()).thenReturn(Observable.just(fragment));
+    when(asyncBucket.replace(any(RawJsonDocument.class)))
+        .thenAnswer(invocation -> Observable.just(invocation.getArgument(0)));
+
+    ClusterInfo clusterInfo = mock(ClusterInfo.class);
+    when(clusterInfo.checkAvailable(CouchbaseFeature.N1QL)).thenReturn(true);
+    template = new CouchbaseTemplate(clusterInfo, bucket, converter, translationService);
+  }
+
+  @Test
+  public void testMigratedDocumentIsWrittenBackAsIs() {
+    template.setMigrationWriteBack(true);
+
+    Profile profile = template.findById("profile1", Profile.class);
+
+    assertThat(profile.name).isEqualTo("John Doe");
+    assertThat(profile.email).isEqualTo("john.doe@example.com");
+    assertWrittenBack();
+  }
+
+  @Test
+  public void testMigrationJobWritesDocumentBackAsIs() {
+    assertThat(template.migrateDocument("profile1", Profile.class)).isTrue();
+
+    assertWrittenBack();
+  }
+
+  @Test
+  public void testProjectedRowIsNotWrittenBack() {
+    template.setMigrationWriteBack(true);
+    N1qlQueryRow row = mock(N1qlQueryRow.class);
+    when(row.byteValue()).thenReturn("{\"_ID\":\"profile1\",\"_CAS\":7,\"fullName\":\"John Doe\"}".getBytes());
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(true);
+    when(result.allRows()).thenReturn(Collections.singletonList(row));
+    when(bucket.query(any(N1qlQuery.class))).thenReturn(result);
+
+    List<Profile> profiles = template.findByN1QL(N1qlQuery.simple("SELECT name"), Profile.class);
+
+    assertThat(profiles.get(0).name).isEqualTo("John Doe");
+    assertThat(profiles.get(0).email).isNull();
+    //the stored document is read again by key and written back whole, under its own CAS
+    assertWrittenBack();
+  }
+
+  @Test
+  public void testNearCacheHitsAreNotMigratedAgain() {
+    template.setMigrationWriteBack(true);
+    //the write-back is still in flight, the cached copy isn't invalidated yet
+    when(asyncBucket.replace(any(RawJsonDocument.class))).thenReturn(Observable.never());
+
+    for (int i = 0; i < 3; i++) {
+      CachedProfile profile = template.findById("profile1", CachedProfile.class);
+      assertThat(profile.name).isEqualTo("John Doe");
+      assertThat(profile.email).isEqualTo("john.doe@example.com");
+    }
+
+    verify(bucket, times(1)).get("profile1", RawJsonDocument.class);
+    verify(asyncBucket, times(1)).replace(any(RawJsonDocument.class));
+  }
+
+  private void assertWrittenBack() {
+    ArgumentCaptor<RawJsonDocument> replaced = ArgumentCaptor.forClass(RawJsonDocument.class);
+    verify(asyncBucket).replace(replaced.capture());
+    assertThat(replaced.getValue().cas()).isEqualTo(12L);
+    assertThat(replaced.getValue().expiry()).isEqualTo(EXPIRY);
+
+    CouchbaseDocument written = (CouchbaseDocument) translationService.decode(replaced.getValue().content(),
+        new CouchbaseDocument());
+    assertThat(written.get("unmapped")).isEqualTo("kept");
+    assertThat(written.get("name")).isEqualTo("John Doe");
+    assertThat(written.containsKey("fullName")).isFalse();
+    assertThat(written.get(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT)).isEqualTo(1);
+    assertThat(written.containsKey("email")).isFalse();
+    assertThat(written.get("__crypt_email")).isInstanceOf(CouchbaseDocument.class);
+  }
+
+  @Document(schemaVersion = 1)
+  static class Profile {
+
+    @Id
+    String id;
+
+    String name;
+
+    @EncryptedField(key = "pii")
+    String email;
+  }
+
+  @NearCached
+  @Document(schemaVersion = 1)
+  static class CachedProfile {
+
+    @Id
+    String id;
+
+    String name;
+
+    @EncryptedField(key = "pii")
+    String email;
+  }
+}
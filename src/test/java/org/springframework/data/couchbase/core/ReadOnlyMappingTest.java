@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.data.couchbase.core.query.N1qlJoin;
+
+import com.couchbase.client.java.AsyncBucket;
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.cluster.ClusterInfo;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
+import com.couchbase.client.java.util.features.CouchbaseFeature;
+import com.couchbase.client.java.view.AsyncViewResult;
+import com.couchbase.client.java.view.AsyncViewRow;
+import com.couchbase.client.java.view.ViewQuery;
+import rx.Observable;
+
+public class ReadOnlyMappingTest {
+
+  private static final String CONTENT = "{\"name\":\"monthly\"}";
+
+  private Bucket bucket;
+  private CouchbaseTemplate template;
+
+  @Before
+  public void setUp() {
+    bucket = mock(Bucket.class);
+    ClusterInfo clusterInfo = mock(ClusterInfo.class);
+    when(clusterInfo.checkAvailable(CouchbaseFeature.N1QL)).thenReturn(true);
+    template = new CouchbaseTemplate(clusterInfo, bucket);
+    when(bucket.get("doc1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("doc1", CONTENT, 42L));
+  }
+
+  @Test
+  public void testVersionIsPopulatedWithCas() {
+    Versioned versioned = template.findById("doc1", Versioned.class);
+
+    assertThat(versioned.name).isEqualTo("monthly");
+    assertThat(versioned.version).isEqualTo(42L);
+  }
+
+  @Test
+  public void testReadOnlyEntityIsMappedWithoutVersion() {
+    Report report = template.findById("doc1", Report.class);
+
+    assertThat(report.id).isEqualTo("doc1");
+    assertThat(report.name).isEqualTo("monthly");
+    assertThat(report.version).isNull();
+  }
+
+  @Test
+  public void testReadOnlyEntityIsMappedWithoutVersionFromN1ql() {
+    N1qlQueryRow row = mock(N1qlQueryRow.class);
+    when(row.byteValue()).thenReturn("{\"_ID\":\"doc1\",\"_CAS\":42,\"name\":\"monthly\"}".getBytes());
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(true);
+    when(result.allRows()).thenReturn(Collections.singletonList(row));
+    when(bucket.query(any(N1qlQuery.class))).thenReturn(result);
+
+    List<Report> reports = template.findByN1QL(N1qlQuery.simple("SELECT"), Report.class);
+    List<Versioned> versioned = template.findByN1QL(N1qlQuery.simple("SELECT"), Versioned.class);
+
+    assertThat(reports).hasSize(1);
+    assertThat(reports.get(0).name).isEqualTo("monthly");
+    assertThat(reports.get(0).version).isNull();
+    assertThat(versioned.get(0).version).isEqualTo(42L);
+  }
+
+  @Test
+  public void testReadOnlyEntityIsMappedWithoutVersionFromViews() {
+    AsyncViewRow row = mock(AsyncViewRow.class);
+    when(row.id()).thenReturn("doc1");
+    when(row.document(RawJsonDocument.class)).thenReturn(Observable.just(RawJsonDocument.create("doc1", CONTENT, 42L)));
+    AsyncViewResult result = mock(AsyncViewResult.class);
+    when(result.error()).thenReturn(Observable.empty());
+    when(result.rows()).thenReturn(Observable.just(row));
+    AsyncBucket async = mock(AsyncBucket.class);
+    when(async.query(any(ViewQuery.class))).thenReturn(Observable.just(result));
+    when(bucket.async()).thenReturn(async);
+
+    List<Report> reports = template.findByView(ViewQuery.from("report", "all"), Report.class);
+
+    assertThat(reports).hasSize(1);
+    assertThat(reports.get(0).id).isEqualTo("doc1");
+    assertThat(reports.get(0).version).isNull();
+  }
+
+  @Test
+  public void testReadOnlyEntityJoinsAreNotResolved() {
+    Summary summary = template.findById("doc1", Summary.class);
+
+    assertThat(summary.name).isEqualTo("monthly");
+    assertThat(summary.details).isNull();
+    verify(bucket, never()).query(any(N1qlQuery.class));
+  }
+
+  @Test
+  public void testSavingReadOnlyEntityIsRejected() {
+    Report report = template.findById("doc1", Report.class);
+
+    assertThatThrownBy(() -> template.save(report)).isInstanceOf(InvalidDataAccessApiUsageException.class);
+    assertThatThrownBy(() -> template.update(report)).isInstanceOf(InvalidDataAccessApiUsageException.class);
+    verify(bucket, never()).upsert(any(com.couchbase.client.java.document.Document.class));
+    verify(bucket, never()).replace(any(com.couchbase.client.java.document.Document.class));
+  }
+
+  @Test
+  public void testRemovingReadOnlyEntityIsRejected() {
+    Report report = template.findById("doc1", Report.class);
+
+    assertThatThrownBy(() -> template.remove(report)).isInstanceOf(InvalidDataAccessApiUsageException.class);
+    verify(bucket, never()).remove(any(String.class));
+  }
+
+  static class Versioned {
+    @Id
+    String id;
+    @Version
+    Long version;
+    String name;
+  }
+
+  @Document(readOnly = true)
+  static class Report {
+    @Id
+    String id;
+    @Version
+    Long version;
+    String name;
+  }
+
+  @Document(readOnly = true)
+  static class Summary {
+    @Id
+    String id;
+    String name;
+    @N1qlJoin(on = "lks.name = rks.name")
+    List<Versioned> details;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+import org.springframework.data.couchbase.core.mapping.Document;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
+
+public class SchemaMigrationJobTest {
+
+  private CouchbaseTemplate template;
+
+  @Before
+  public void setUp() {
+    MappingCouchbaseConverter converter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    converter.afterPropertiesSet();
+    Bucket bucket = mock(Bucket.class);
+    when(bucket.name()).thenReturn("default");
+
+    template = mock(CouchbaseTemplate.class);
+    when(template.getConverter()).thenReturn(converter);
+    when(template.getCouchbaseBucket()).thenReturn(bucket);
+    when(template.migrateDocument(anyString(), eq(Profile.class))).thenReturn(true);
+  }
+
+  private static N1qlQueryResult page(String... ids) {
+    List<N1qlQueryRow> rows = new ArrayList<N1qlQueryRow>();
+    for (String id : ids) {
+      N1qlQueryRow row = mock(N1qlQueryRow.class);
+      when(row.value()).thenReturn(JsonObject.create().put("id", id));
+      rows.add(row);
+    }
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(true);
+    when(result.iterator()).thenReturn(rows.iterator());
+    return result;
+  }
+
+  @Test
+  public void testOutdatedDocumentsAreMigratedPageByPage() {
+    when(template.queryN1QL(any(N1qlQuery.class))).thenReturn(page("p1", "p2"), page("p3"));
+    when(template.migrateDocument("p2", Profile.class)).thenReturn(false);
+
+    SchemaMigrationJob.Result result = new SchemaMigrationJob(template, Profile.class)
+        .pageSize(2)
+        .pause(0, TimeUnit.MILLISECONDS)
+        .run();
+
+    assertThat(result.getVisited()).isEqualTo(3);
+    assertThat(result.getMigrated()).isEqualTo(2);
+    assertThat(result.isStopped()).isFalse();
+
+    ArgumentCaptor<N1qlQuery> queries = ArgumentCaptor.forClass(N1qlQuery.class);
+    verify(template, times(2)).queryN1QL(queries.capture());
+    assertThat(queries.getAllValues().get(0).statement().toString())
+        .startsWith("SELECT META().id AS id FROM `default` WHERE `_class` = \"" + Profile.class.getName() + "\"")
+        .contains("(`_schemaVersion` IS MISSING OR `_schemaVersion` < 3)")
+        .endsWith("AND META().id > $1 ORDER BY META().id LIMIT 2");
+    assertThat(queries.getAllValues().get(1).n1ql().getArray("args").getString(0)).isEqualTo("p2");
+  }
+
+  @Test
+  public void testStoppedJobDoesNotQueryNextPage() {
+    final SchemaMigrationJob job = new SchemaMigrationJob(template, Profile.class).pageSize(1);
+    when(template.queryN1QL(any(N1qlQuery.class))).thenReturn(page("p1"), page("p2"));
+    when(template.migrateDocument("p1", Profile.class)).thenAnswer(invocation -> {
+      job.stop();
+      return true;
+    });
+
+    SchemaMigrationJob.Result result = job.run();
+
+    assertThat(result.getVisited()).isEqualTo(1);
+    assertThat(result.isStopped()).isTrue();
+    verify(template, times(1)).queryN1QL(any(N1qlQuery.class));
+  }
+
+  @Test
+  public void testUnversionedEntitiesAreSkipped() {
+    SchemaMigrationJob.Result result = new SchemaMigrationJob(template, Unversioned.class).run();
+
+    assertThat(result.getVisited()).isZero();
+    verify(template, never()).queryN1QL(any(N1qlQuery.class));
+  }
+
+  @Document(schemaVersion = 3)
+  static class Profile {
+    @Id
+    String id;
+  }
+
+  static class Unversioned {
+    @Id
+    String id;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.convert.translation.Compression;
+import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
+import org.springframework.data.couchbase.core.mapping.Compressed;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.data.couchbase.core.mapping.StorageFormat;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.PersistTo;
+import com.couchbase.client.java.ReplicateTo;
+import com.couchbase.client.java.document.ByteArrayDocument;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.error.TranscodingException;
+
+public class StorageFormatTest {
+
+  private Bucket bucket;
+  private CouchbaseTemplate template;
+  private JacksonTranslationService translationService;
+
+  @Before
+  public void setUp() {
+    bucket = mock(Bucket.class);
+    translationService = new JacksonTranslationService();
+    translationService.afterPropertiesSet();
+    template = new CouchbaseTemplate(null, bucket, translationService);
+  }
+
+  @Test
+  public void testBinaryEntityIsWrittenAsByteArrayDocument() {
+    when(bucket.upsert(any(ByteArrayDocument.class), eq(PersistTo.NONE), eq(ReplicateTo.NONE)))
+        .thenReturn(ByteArrayDocument.create("sample1", new byte[0], 13L));
+    Sample sample = new Sample();
+    sample.id = "sample1";
+    sample.name = "temperature";
+
+    template.save(sample);
+
+    ArgumentCaptor<ByteArrayDocument> captor = ArgumentCaptor.forClass(ByteArrayDocument.class);
+    verify(bucket).upsert(captor.capture(), eq(PersistTo.NONE), eq(ReplicateTo.NONE));
+    byte[] content = captor.getValue().content();
+    assertThat(content[0] & 0xFF).isEqualTo(0xD9);
+    CouchbaseDocument decoded = (CouchbaseDocument) translationService.decode(content, new CouchbaseDocument());
+    assertThat(decoded.get("name")).isEqualTo("temperature");
+  }
+
+  @Test
+  public void testBinaryEntityIsReadAsByteArrayDocument() {
+    CouchbaseDocument source = new CouchbaseDocument();
+    source.put("name", "pressure");
+    byte[] content = translationService.encode(source, StorageFormat.CBOR);
+    when(bucket.get("sample1", ByteArrayDocument.class)).thenReturn(ByteArrayDocument.create("sample1", content, 12L));
+
+    Sample sample = template.findById("sample1", Sample.class);
+
+    assertThat(sample.name).isEqualTo("pressure");
+    verify(bucket, never()).get("sample1", RawJsonDocument.class);
+  }
+
+  @Test
+  public void testJsonDocumentOfBinaryEntityCanStillBeRead() {
+    when(bucket.get("sample1", ByteArrayDocument.class)).thenThrow(new TranscodingException("not binary"));
+    when(bucket.get("sample1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("sample1", "{\"name\":\"humidity\"}", 12L));
+
+    Sample sample = template.findById("sample1", Sample.class);
+
+    assertThat(sample.name).isEqualTo("humidity");
+  }
+
+  @Test
+  public void testCompressedEntityIsWrittenCompressed() {
+    when(bucket.upsert(any(ByteArrayDocument.class), eq(PersistTo.NONE), eq(ReplicateTo.NONE)))
+        .thenReturn(ByteArrayDocument.create("log1", new byte[0], 13L));
+    Log log = new Log();
+    log.id = "log1";
+    log.text = repeat("GET /index.html 200\n", 200);
+
+    template.save(log);
+
+    ArgumentCaptor<ByteArrayDocument> captor = ArgumentCaptor.forClass(ByteArrayDocument.class);
+    verify(bucket).upsert(captor.capture(), eq(PersistTo.NONE), eq(ReplicateTo.NONE));
+    byte[] content = captor.getValue().content();
+    assertThat(Compression.isCompressed(content)).isTrue();
+    assertThat(content.length).isLessThan(log.text.length());
+    CouchbaseDocument decoded = (CouchbaseDocument) translationService.decode(Compression.decompress(content),
+        new CouchbaseDocument());
+    assertThat(decoded.get("text")).isEqualTo(log.text);
+  }
+
+  @Test
+  public void testSmallCompressedEntityIsWrittenUncompressed() {
+    when(bucket.upsert(any(ByteArrayDocument.class), eq(PersistTo.NONE), eq(ReplicateTo.NONE)))
+        .thenReturn(ByteArrayDocument.create("log1", new byte[0], 13L));
+    Log log = new Log();
+    log.id = "log1";
+    log.text = "GET /index.html 200";
+
+    template.save(log);
+
+    ArgumentCaptor<ByteArrayDocument> captor = ArgumentCaptor.forClass(ByteArrayDocument.class);
+    verify(bucket).upsert(captor.capture(), eq(PersistTo.NONE), eq(ReplicateTo.NONE));
+    assertThat(Compression.isCompressed(captor.getValue().content())).isFalse();
+  }
+
+  @Test
+  public void testCompressedAndUncompressedEntitiesAreRead() {
+    CouchbaseDocument source = new CouchbaseDocument();
+    source.put("text", repeat("POST /login 302\n", 200));
+    byte[] compressed = Compression.compress(translationService.encode(source, StorageFormat.JSON));
+    when(bucket.get("log1", ByteArrayDocument.class)).thenReturn(ByteArrayDocument.create("log1", compressed, 12L));
+    when(bucket.get("log2", ByteArrayDocument.class)).thenThrow(new TranscodingException("not binary"));
+    when(bucket.get("log2", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("log2", "{\"text\":\"GET / 200\"}", 12L));
+
+    assertThat(template.findById("log1", Log.class).text).isEqualTo(source.get("text"));
+    assertThat(template.findById("log2", Log.class).text).isEqualTo("GET / 200");
+  }
+
+  private static String repeat(String value, int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append(value);
+    }
+    return builder.toString();
+  }
+
+  @Document(storageFormat = StorageFormat.CBOR)
+  static class Sample {
+
+    @Id
+    String id;
+
+    String name;
+  }
+
+  @Document
+  @Compressed(threshold = 256)
+  static class Log {
+
+    @Id
+    String id;
+
+    String text;
+  }
+}
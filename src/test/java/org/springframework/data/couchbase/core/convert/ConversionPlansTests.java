@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.convert;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+
+public class ConversionPlansTests {
+
+  @Test
+  public void shouldResolveWritePlans() {
+    ConversionPlans plans = new ConversionPlans(new CouchbaseCustomConversions(
+        Collections.singletonList(BigDecimalToStringConverter.INSTANCE)));
+
+    assertThat(plans.getWritePlan(String.class).getKind()).isEqualTo(ConversionPlans.WritePlan.Kind.PASS_THROUGH);
+    assertThat(plans.getWritePlan(Thread.State.class).getKind()).isEqualTo(ConversionPlans.WritePlan.Kind.ENUM_NAME);
+    assertThat(plans.getWritePlan(Date.class).getKind()).isEqualTo(ConversionPlans.WritePlan.Kind.CONVERT);
+    assertThat(plans.getWritePlan(BigDecimal.class).getKind()).isEqualTo(ConversionPlans.WritePlan.Kind.CONVERT);
+    assertThat(plans.getWritePlan(ConversionPlansTests.class).getKind())
+        .isEqualTo(ConversionPlans.WritePlan.Kind.ENTITY);
+    assertThat(plans.getWritePlan(ConversionPlansTests.class).isSimple()).isFalse();
+    assertThat(plans.getWritePlan(String.class)).isSameAs(plans.getWritePlan(String.class));
+  }
+
+  @Test
+  public void shouldResolveReadPlansPerPairOfTypes() {
+    ConversionPlans plans = new ConversionPlans(new CouchbaseCustomConversions(
+        Collections.singletonList(StringToBigDecimalConverter.INSTANCE)));
+
+    assertThat(plans.getReadPlan(String.class, BigDecimal.class).getKind())
+        .isEqualTo(ConversionPlans.ReadPlan.Kind.CONVERT);
+    assertThat(plans.getReadPlan(String.class, String.class).getKind())
+        .isEqualTo(ConversionPlans.ReadPlan.Kind.PASS_THROUGH);
+    assertThat(plans.getReadPlan(String.class, Thread.State.class).getKind())
+        .isEqualTo(ConversionPlans.ReadPlan.Kind.ENUM);
+    assertThat(plans.getReadPlan(Integer.class, long.class).getKind())
+        .isEqualTo(ConversionPlans.ReadPlan.Kind.DEFAULT_CONVERSION);
+    assertThat(plans.getReadPlan(String.class, BigDecimal.class))
+        .isSameAs(plans.getReadPlan(String.class, BigDecimal.class));
+  }
+
+  @Test
+  public void shouldDiscardPlansWhenConversionsChange() {
+    MappingCouchbaseConverter converter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    converter.afterPropertiesSet();
+    ConversionPlans plans = converter.getConversionPlans();
+    assertThat(converter.getConversionPlans()).isSameAs(plans);
+    assertThat(converter.convertForWriteIfNeeded(BigDecimal.ONE)).isEqualTo(BigDecimal.ONE);
+
+    converter.setCustomConversions(new CouchbaseCustomConversions(
+        Collections.singletonList(BigDecimalToStringConverter.INSTANCE)));
+    converter.afterPropertiesSet();
+
+    assertThat(converter.getConversionPlans()).isNotSameAs(plans);
+    assertThat(converter.convertForWriteIfNeeded(BigDecimal.ONE)).isEqualTo("1");
+  }
+
+  @WritingConverter
+  enum BigDecimalToStringConverter implements Converter<BigDecimal, String> {
+    INSTANCE;
+
+    @Override
+    public String convert(BigDecimal source) {
+      return source.toPlainString();
+    }
+  }
+
+  @ReadingConverter
+  enum StringToBigDecimalConverter implements Converter<String, BigDecimal> {
+    INSTANCE;
+
+    @Override
+    public BigDecimal convert(String source) {
+      return new BigDecimal(source);
+    }
+  }
+}
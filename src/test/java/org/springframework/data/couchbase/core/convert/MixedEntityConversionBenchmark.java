@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.convert;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+
+/**
+ * A simple benchmark of the write and read of an entity with 30 fields of mixed types (strings, primitives, wrappers,
+ * enums, dates, a nested entity and a list), which exercises the conversion decisions the
+ * {@link MappingCouchbaseConverter} caches in its {@link ConversionPlans}. It is not part of the test suite, run its
+ * main method with a warmed up JVM, for example <code>-Xms1g -Xmx1g</code>.
+ */
+public class MixedEntityConversionBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 200000;
+  private static final int ITERATIONS = 200000;
+
+  public static void main(String[] args) throws Exception {
+    MappingCouchbaseConverter converter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    converter.afterPropertiesSet();
+    MixedEntity entity = new MixedEntity();
+
+    for (int round = 0; round < 2; round++) {
+      boolean warmup = round == 0;
+      int iterations = warmup ? WARMUP_ITERATIONS : ITERATIONS;
+      long[] elapsed = run(converter, entity, iterations);
+      if (!warmup) {
+        System.out.printf("write : %8d ns/op%n", elapsed[0] / iterations);
+        System.out.printf("read  : %8d ns/op%n", elapsed[1] / iterations);
+      }
+    }
+  }
+
+  private static long[] run(MappingCouchbaseConverter converter, MixedEntity entity, int iterations) {
+    long blackhole = 0;
+    long writeNanos = 0;
+    long readNanos = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      CouchbaseDocument written = new CouchbaseDocument();
+      converter.write(entity, written);
+      long writtenAt = System.nanoTime();
+      blackhole += converter.read(MixedEntity.class, written).i1;
+      long end = System.nanoTime();
+      writeNanos += writtenAt - start;
+      readNanos += end - writtenAt;
+    }
+    if (blackhole == 42) {
+      System.out.println();
+    }
+    return new long[] { writeNanos, readNanos };
+  }
+
+  static class MixedEntity {
+    @Id
+    String id = "mixed";
+    String s1 = "alpha";
+    String s2 = "beta";
+    String s3 = "gamma";
+    String s4 = "delta";
+    String s5 = "epsilon";
+    int i1 = 1;
+    int i2 = 2;
+    int i3 = 3;
+    long l1 = 4L;
+    long l2 = 5L;
+    long l3 = 6L;
+    double d1 = 7.5;
+    double d2 = 8.5;
+    boolean b1 = true;
+    boolean b2 = false;
+    Integer w1 = 9;
+    Long w2 = 10L;
+    Double w3 = 11.5;
+    Boolean w4 = Boolean.TRUE;
+    BigDecimal decimal = new BigDecimal("12.75");
+    TimeUnit unit1 = TimeUnit.SECONDS;
+    TimeUnit unit2 = TimeUnit.MINUTES;
+    Thread.State state = Thread.State.RUNNABLE;
+    Date created = new Date(1500000000000L);
+    LocalDate day = LocalDate.of(2020, 1, 1);
+    LocalDateTime updated = LocalDateTime.of(2020, 1, 1, 12, 0);
+    Address address = new Address();
+    List<String> tags = Arrays.asList("a", "b", "c");
+    String s6 = "zeta";
+  }
+
+  static class Address {
+    String street = "Main Street";
+    int number = 42;
+  }
+}
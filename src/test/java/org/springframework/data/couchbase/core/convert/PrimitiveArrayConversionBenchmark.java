@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.convert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+
+/**
+ * A simple benchmark comparing the write, encode, decode and read round trip of a <code>double[]</code> (which goes
+ * through the primitive array fast path of the {@link MappingCouchbaseConverter}) with the one of the same samples
+ * held in a <code>List&lt;Double&gt;</code>. It is not part of the test suite, run its main method with a warmed up
+ * JVM, for example <code>-Xms1g -Xmx1g</code>.
+ */
+public class PrimitiveArrayConversionBenchmark {
+
+  private static final int SAMPLES = 10000;
+  private static final int WARMUP_ITERATIONS = 2000;
+  private static final int ITERATIONS = 2000;
+
+  public static void main(String[] args) throws Exception {
+    MappingCouchbaseConverter converter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    converter.afterPropertiesSet();
+    JacksonTranslationService translationService = new JacksonTranslationService();
+    translationService.afterPropertiesSet();
+
+    ArraySeries arraySeries = new ArraySeries();
+    ListSeries listSeries = new ListSeries();
+    arraySeries.samples = new double[SAMPLES];
+    listSeries.samples = new ArrayList<Double>(SAMPLES);
+    for (int i = 0; i < SAMPLES; i++) {
+      arraySeries.samples[i] = i * 0.5;
+      listSeries.samples.add(i * 0.5);
+    }
+
+    for (int round = 0; round < 2; round++) {
+      boolean warmup = round == 0;
+      int iterations = warmup ? WARMUP_ITERATIONS : ITERATIONS;
+      long array = run(converter, translationService, arraySeries, iterations);
+      long list = run(converter, translationService, listSeries, iterations);
+      if (!warmup) {
+        System.out.printf("double[]     : %8d us/op%n", array / iterations / 1000);
+        System.out.printf("List<Double> : %8d us/op%n", list / iterations / 1000);
+      }
+    }
+  }
+
+  private static long run(MappingCouchbaseConverter converter, JacksonTranslationService translationService,
+                          Object entity, int iterations) {
+    long blackhole = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      CouchbaseDocument written = new CouchbaseDocument();
+      converter.write(entity, written);
+      String json = translationService.encode(written);
+      CouchbaseDocument decoded = (CouchbaseDocument) translationService.decode(json, new CouchbaseDocument());
+      blackhole += converter.read(entity.getClass(), decoded).hashCode();
+    }
+    long elapsed = System.nanoTime() - start;
+    if (blackhole == 42) {
+      System.out.println();
+    }
+    return elapsed;
+  }
+
+  static class ArraySeries {
+    @Id
+    String id = "series";
+    double[] samples;
+  }
+
+  static class ListSeries {
+    @Id
+    String id = "series";
+    List<Double> samples;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.convert;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import org.junit.Test;
+import org.springframework.data.couchbase.core.mapping.TemporalEncoding;
+import org.springframework.data.mapping.MappingException;
+
+public class TemporalCodecTests {
+
+  @Test
+  public void shouldFormatAndParseLikeInstant() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      long epochSecond = Math.floorMod(random.nextLong(), 253402300800L) - 62167219200L;
+      int nanos = random.nextBoolean() ? random.nextInt(1000) * 1000000 : random.nextInt(1000000000);
+      Instant instant = Instant.ofEpochSecond(epochSecond, nanos);
+
+      String formatted = TemporalCodec.formatInstant(instant);
+
+      assertThat(formatted).isEqualTo(instant.toString());
+      assertThat(TemporalCodec.parseInstant(formatted)).isEqualTo(instant);
+    }
+  }
+
+  @Test
+  public void shouldFallBackToInstantForOtherForms() {
+    assertThat(TemporalCodec.formatInstant(Instant.parse("+10000-01-01T00:00:00Z")))
+        .isEqualTo("+10000-01-01T00:00:00Z");
+    assertThat(TemporalCodec.parseInstant("2020-02-29T10:00:00.5Z"))
+        .isEqualTo(Instant.parse("2020-02-29T10:00:00.500Z"));
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void shouldRejectInvalidDates() {
+    TemporalCodec.parseInstant("2021-02-29T10:00:00Z");
+  }
+
+  @Test
+  public void shouldEncodeMicros() {
+    Instant instant = Instant.parse("1969-12-31T23:59:59.999999Z");
+
+    Object encoded = TemporalCodec.encode(instant, TemporalEncoding.EPOCH_MICROS);
+
+    assertThat(encoded).isEqualTo(-1L);
+    assertThat(TemporalCodec.decode(encoded, Instant.class, TemporalEncoding.EPOCH_MICROS)).isEqualTo(instant);
+  }
+
+  @Test
+  public void shouldKeepTheOffsetInIso() {
+    OffsetDateTime dateTime = OffsetDateTime.parse("2020-03-01T10:15:30.123+02:00");
+
+    Object encoded = TemporalCodec.encode(dateTime, TemporalEncoding.ISO);
+
+    assertThat(encoded).isEqualTo("2020-03-01T10:15:30.123+02:00");
+    assertThat(TemporalCodec.decode(encoded, OffsetDateTime.class, TemporalEncoding.ISO)).isEqualTo(dateTime);
+    assertThat(TemporalCodec.decode(encoded, Instant.class, TemporalEncoding.ISO))
+        .isEqualTo(Instant.parse("2020-03-01T08:15:30.123Z"));
+  }
+
+  @Test
+  public void shouldWriteUtcOffsetsOnTheFastPath() {
+    OffsetDateTime dateTime = OffsetDateTime.parse("2020-03-01T10:15:30Z");
+
+    Object encoded = TemporalCodec.encode(dateTime, TemporalEncoding.ISO);
+
+    assertThat(encoded).isEqualTo("2020-03-01T10:15:30Z");
+    assertThat(TemporalCodec.decode(encoded, OffsetDateTime.class, TemporalEncoding.ISO)).isEqualTo(dateTime);
+  }
+
+  @Test
+  public void shouldNormalizeOffsetsToUtcInEpochEncodings() {
+    OffsetDateTime dateTime = OffsetDateTime.parse("2020-03-01T10:15:30.123+02:00");
+
+    for (TemporalEncoding encoding : new TemporalEncoding[] { TemporalEncoding.EPOCH_MILLIS,
+        TemporalEncoding.EPOCH_MICROS }) {
+      Object decoded = TemporalCodec.decode(TemporalCodec.encode(dateTime, encoding), OffsetDateTime.class, encoding);
+
+      assertThat(decoded).isEqualTo(dateTime.withOffsetSameInstant(ZoneOffset.UTC));
+    }
+  }
+
+  @Test(expected = MappingException.class)
+  public void shouldRejectUnsupportedTypes() {
+    TemporalCodec.encode("2020-01-01", TemporalEncoding.ISO);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.convert.encryption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.crypto.AEADBadTagException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AesGcmCryptoProviderTests {
+
+  private InMemoryKeyProvider keyProvider;
+  private AesGcmCryptoProvider provider;
+
+  @Before
+  public void setUp() {
+    keyProvider = new InMemoryKeyProvider().storeKey("pii", new byte[32]);
+    provider = new AesGcmCryptoProvider(keyProvider);
+  }
+
+  @Test
+  public void shouldRoundTripValues() throws GeneralSecurityException {
+    byte[] plaintext = "\"john.doe@example.com\"".getBytes(StandardCharsets.UTF_8);
+
+    byte[] first = provider.encrypt(plaintext, "pii");
+    byte[] second = provider.encrypt(plaintext, "pii");
+
+    assertThat(first).isNotEqualTo(second);
+    assertThat(provider.decrypt(first, "pii")).isEqualTo(plaintext);
+    List<byte[]> plaintexts = provider.decryptAll(Arrays.asList(first, second), "pii");
+    assertThat(plaintexts).hasSize(2);
+    assertThat(plaintexts.get(1)).isEqualTo(plaintext);
+  }
+
+  @Test(expected = AEADBadTagException.class)
+  public void shouldRejectTamperedValues() throws GeneralSecurityException {
+    byte[] ciphertext = provider.encrypt(new byte[] { 1, 2, 3 }, "pii");
+    ciphertext[ciphertext.length - 1] ^= 1;
+
+    provider.decrypt(ciphertext, "pii");
+  }
+
+  @Test
+  public void shouldBindValuesToTheirAssociatedData() throws GeneralSecurityException {
+    byte[] associatedData = "5:emailuser1".getBytes(StandardCharsets.UTF_8);
+    byte[] ciphertext = provider.encrypt(new byte[] { 1, 2, 3 }, "pii", associatedData);
+
+    assertThat(provider.decrypt(ciphertext, "pii", associatedData)).containsExactly(1, 2, 3);
+    assertThat(provider.decryptAll(Arrays.asList(ciphertext), "pii", Arrays.asList(associatedData)).get(0))
+        .containsExactly(1, 2, 3);
+    assertThatThrownBy(() -> provider.decrypt(ciphertext, "pii", "5:emailuser2".getBytes(StandardCharsets.UTF_8)))
+        .isInstanceOf(AEADBadTagException.class);
+    assertThatThrownBy(() -> provider.decrypt(ciphertext, "pii")).isInstanceOf(AEADBadTagException.class);
+  }
+
+  @Test(expected = InvalidKeyException.class)
+  public void shouldRejectUnknownKeys() throws GeneralSecurityException {
+    provider.encrypt(new byte[] { 1 }, "unknown");
+  }
+
+  @Test(expected = AEADBadTagException.class)
+  public void shouldReloadEvictedKeys() throws GeneralSecurityException {
+    byte[] ciphertext = provider.encrypt(new byte[] { 1, 2, 3 }, "pii");
+    byte[] rotated = new byte[32];
+    rotated[0] = 1;
+    keyProvider.storeKey("pii", rotated);
+    assertThat(provider.decrypt(ciphertext, "pii")).containsExactly(1, 2, 3);
+
+    provider.evictKey("pii");
+    provider.decrypt(ciphertext, "pii");
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.convert.translation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.data.mapping.MappingException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompressionTests {
+
+  @Test
+  public void shouldRoundTripContent() {
+    byte[] source = new byte[100000];
+    for (int i = 0; i < source.length; i++) {
+      source[i] = (byte) (i % 7);
+    }
+
+    byte[] compressed = Compression.compress(source);
+
+    assertThat(compressed.length).isLessThan(source.length);
+    assertThat(Arrays.copyOf(compressed, 3)).isEqualTo(Compression.LZ4_HEADER);
+    assertThat(Compression.isCompressed(compressed)).isTrue();
+    assertThat(Compression.decompress(compressed)).isEqualTo(source);
+    assertThat(Compression.decompress(Compression.compress(new byte[0]))).isEmpty();
+  }
+
+  @Test
+  public void shouldReadDeflatedContent() {
+    byte[] source = "some content to compress, some content to compress".getBytes(StandardCharsets.UTF_8);
+
+    byte[] deflated = Compression.deflate(source);
+
+    assertThat(Compression.isCompressed(deflated)).isTrue();
+    assertThat(Compression.decompress(deflated)).isEqualTo(source);
+  }
+
+  @Test
+  public void shouldNotDetectEncodedDocumentsAsCompressed() {
+    assertThat(Compression.isCompressed("{\"name\":\"value\"}".getBytes(StandardCharsets.UTF_8))).isFalse();
+    assertThat(Compression.isCompressed(new byte[] { (byte) 0xD9, (byte) 0xD9, (byte) 0xF7 })).isFalse();
+    assertThat(Compression.isCompressed(":)\n".getBytes(StandardCharsets.UTF_8))).isFalse();
+    assertThat(Compression.isCompressed(new byte[0])).isFalse();
+  }
+
+  @Test(expected = MappingException.class)
+  public void shouldFailOnTruncatedContent() {
+    byte[] compressed = Compression.compress("some content to compress".getBytes(StandardCharsets.UTF_8));
+    Compression.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+  }
+
+  @Test(expected = MappingException.class)
+  public void shouldFailOnTruncatedDeflatedContent() {
+    byte[] deflated = Compression.deflate("some content to compress".getBytes(StandardCharsets.UTF_8));
+    Compression.decompress(Arrays.copyOf(deflated, deflated.length / 2));
+  }
+
+  @Test(expected = MappingException.class)
+  public void shouldFailOnCorruptedLength() {
+    byte[] compressed = Compression.compress("some content to compress".getBytes(StandardCharsets.UTF_8));
+    compressed[3] = 0x7F;
+    Compression.decompress(compressed);
+  }
+}
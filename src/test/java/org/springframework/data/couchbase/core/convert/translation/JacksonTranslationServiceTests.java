@@ -16,9 +16,13 @@
 
 package org.springframework.data.couchbase.core.convert.translation;
 
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.CouchbaseList;
+import org.springframework.data.couchbase.core.mapping.StorageFormat;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -61,6 +65,67 @@ public class JacksonTranslationServiceTests {
     assertThat(f.language).isEqualTo("french");
   }
 
+  @Test
+  public void shouldDecodeNonASCIIFromBytes() {
+    byte[] source = "{\"language\":\"русский\",\"_ID\":\"key\",\"_CAS\":123}".getBytes(StandardCharsets.UTF_8);
+    CouchbaseDocument target = new CouchbaseDocument();
+    service.decode(source, target);
+    assertThat(target.get("language")).isEqualTo("русский");
+    assertThat(target.remove("_ID")).isEqualTo("key");
+    assertThat(((Number) target.remove("_CAS")).longValue()).isEqualTo(123L);
+    assertThat(target.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldDecodeAdHocFragmentFromBytes() {
+    byte[] source = "{\"language\":\"french\"}".getBytes(StandardCharsets.UTF_8);
+    LanguageFragment f = service.decodeFragment(source, LanguageFragment.class);
+    assertThat(f).isNotNull();
+    assertThat(f.language).isEqualTo("french");
+  }
+
+  @Test
+  public void shouldEncodeJsonBytes() {
+    CouchbaseDocument doc = new CouchbaseDocument("key");
+    doc.put("language", "русский");
+    byte[] encoded = service.encode(doc, StorageFormat.JSON);
+    assertThat(new String(encoded, StandardCharsets.UTF_8)).isEqualTo("{\"language\":\"русский\"}");
+    assertThat(JacksonTranslationService.detectFormat(encoded)).isEqualTo(StorageFormat.JSON);
+  }
+
+  @Test
+  public void shouldRoundTripCbor() {
+    shouldRoundTripBinary(StorageFormat.CBOR);
+  }
+
+  @Test
+  public void shouldRoundTripSmile() {
+    shouldRoundTripBinary(StorageFormat.SMILE);
+  }
+
+  private void shouldRoundTripBinary(StorageFormat format) {
+    CouchbaseDocument nested = new CouchbaseDocument();
+    nested.put("active", true);
+    CouchbaseDocument doc = new CouchbaseDocument("key");
+    doc.put("language", "русский");
+    doc.put("count", 42);
+    doc.put("ratio", 0.5);
+    doc.put("samples", new CouchbaseList().putPrimitiveArray(new long[] { 1L, 2L }));
+    doc.put("nested", nested);
+
+    byte[] encoded = service.encode(doc, format);
+    assertThat(JacksonTranslationService.detectFormat(encoded)).isEqualTo(format);
+    assertThat(encoded.length).isLessThan(service.encode(doc).getBytes(StandardCharsets.UTF_8).length);
+
+    CouchbaseDocument target = new CouchbaseDocument();
+    service.decode(encoded, target);
+    assertThat(target.get("language")).isEqualTo("русский");
+    assertThat(((Number) target.get("count")).intValue()).isEqualTo(42);
+    assertThat(target.get("ratio")).isEqualTo(0.5);
+    assertThat(((CouchbaseList) target.get("samples")).size()).isEqualTo(2);
+    assertThat(((CouchbaseDocument) target.get("nested")).get("active")).isEqualTo(true);
+  }
+
   private static class LanguageFragment {
     public String language;
   }
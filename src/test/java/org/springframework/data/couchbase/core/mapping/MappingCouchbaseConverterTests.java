@@ -17,10 +17,15 @@
 package org.springframework.data.couchbase.core.mapping;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,19 +37,28 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.annotation.TypeAlias;
 import org.springframework.data.convert.ReadingConverter;
 import org.springframework.data.convert.WritingConverter;
 import org.springframework.data.couchbase.UnitTestApplicationConfig;
 import org.springframework.data.couchbase.core.convert.CouchbaseCustomConversions;
 import org.springframework.data.couchbase.core.convert.CouchbaseJsr310Converters.LocalDateTimeToLongConverter;
+import org.springframework.data.couchbase.core.convert.DocumentMigrations;
 import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.encryption.AesGcmCryptoProvider;
+import org.springframework.data.couchbase.core.convert.encryption.FieldCryptoProvider;
+import org.springframework.data.couchbase.core.convert.encryption.InMemoryKeyProvider;
+import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
 import org.springframework.data.mapping.MappingException;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -52,6 +66,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import com.couchbase.client.java.repository.annotation.Field;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.data.Offset.offset;
 
 /**
@@ -96,6 +111,29 @@ public class MappingCouchbaseConverterTests {
         new CouchbaseDocument());
   }
 
+  @Test
+  public void writesTypeAliasAndReadsItBack() {
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(new AliasedEntity("foobar"), converted);
+
+    assertThat(converted.export().get("_class")).isEqualTo("aliased");
+    BaseEntity read = converter.read(BaseEntity.class, converted);
+    assertThat(read).isInstanceOf(AliasedEntity.class);
+    assertThat(((AliasedEntity) read).attr0).isEqualTo("foobar");
+  }
+
+  @Test
+  public void readsClassNameOfAliasedEntity() {
+    converter.getMappingContext().getPersistentEntity(AliasedEntity.class);
+    CouchbaseDocument source = new CouchbaseDocument(BaseEntity.ID);
+    source.put("_class", AliasedEntity.class.getName());
+    source.put("attr0", "foobar");
+
+    BaseEntity read = converter.read(BaseEntity.class, source);
+    assertThat(read).isInstanceOf(AliasedEntity.class);
+    assertThat(((AliasedEntity) read).attr0).isEqualTo("foobar");
+  }
+
   @Test
   public void writesString() throws Exception {
     CouchbaseDocument converted = new CouchbaseDocument();
@@ -311,6 +349,475 @@ public class MappingCouchbaseConverterTests {
     assertThat(readConverted.attr2.get(0).size()).isEqualTo(2);
   }
 
+  @Test
+  public void writesAndReadsPrimitiveArrays() {
+    PrimitiveArrayEntity entity = new PrimitiveArrayEntity(new double[] { 1.5, -2.25, 3 }, new long[] { 1L, Long.MAX_VALUE },
+        new int[] { 4, 5, 6 }, new boolean[] { true, false }, new byte[] { 7, 8 },
+        new double[][] { new double[] { 0.5 }, new double[] { 1.5, 2.5 } });
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(entity, converted);
+    CouchbaseList samples = (CouchbaseList) converted.get("samples");
+    assertThat(samples.size()).isEqualTo(3);
+    assertThat(samples.get(1)).isEqualTo(-2.25);
+    assertThat(converted.export().get("timestamps")).isEqualTo(Arrays.<Object> asList(1L, Long.MAX_VALUE));
+
+    PrimitiveArrayEntity read = converter.read(PrimitiveArrayEntity.class, converted);
+    assertThat(read.samples).containsExactly(1.5, -2.25, 3);
+    assertThat(read.samples).isNotSameAs(entity.samples);
+    assertThat(read.timestamps).containsExactly(1L, Long.MAX_VALUE);
+    assertThat(read.counts).containsExactly(4, 5, 6);
+    assertThat(read.flags).containsExactly(true, false);
+    assertThat(read.raw).containsExactly((byte) 7, (byte) 8);
+    assertThat(read.matrix[1]).containsExactly(1.5, 2.5);
+  }
+
+  @Test
+  public void writesAndReadsPrimitiveArraysThroughJson() {
+    PrimitiveArrayEntity entity = new PrimitiveArrayEntity(new double[] { 1.5, 2 }, new long[] { 3L, 4L },
+        new int[] { 5 }, new boolean[] { false }, new byte[] { 6 }, new double[][] { new double[] { 7.5 } });
+    JacksonTranslationService translationService = new JacksonTranslationService();
+    translationService.afterPropertiesSet();
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(entity, converted);
+    String json = translationService.encode(converted);
+    assertThat(json).contains("\"samples\":[1.5,2.0]").contains("\"timestamps\":[3,4]").contains("\"raw\":[6]");
+
+    CouchbaseDocument decoded = (CouchbaseDocument) translationService.decode(json, new CouchbaseDocument());
+    PrimitiveArrayEntity read = converter.read(PrimitiveArrayEntity.class, decoded);
+    assertThat(read.samples).containsExactly(1.5, 2);
+    assertThat(read.timestamps).containsExactly(3L, 4L);
+    assertThat(read.counts).containsExactly(5);
+    assertThat(read.flags).containsExactly(false);
+    assertThat(read.raw).containsExactly((byte) 6);
+    assertThat(read.matrix[0]).containsExactly(7.5);
+  }
+
+  @Test
+  public void writesAndReadsCompressedProperties() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      text.append("lorem ipsum dolor sit amet ");
+    }
+    byte[] payload = new byte[2048];
+    CompressedEntity entity = new CompressedEntity(text.toString(), payload, "short");
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(entity, converted);
+    assertThat(converted.get("text")).isInstanceOf(CouchbaseDocument.class);
+    assertThat(((CouchbaseDocument) converted.get("text")).get("deflate")).isInstanceOf(String.class);
+    assertThat(converted.get("payload")).isInstanceOf(CouchbaseDocument.class);
+    assertThat(converted.get("summary")).isEqualTo("short");
+
+    CompressedEntity read = converter.read(CompressedEntity.class, converted);
+    assertThat(read.text).isEqualTo(entity.text);
+    assertThat(read.payload).isEqualTo(payload);
+    assertThat(read.summary).isEqualTo("short");
+  }
+
+  @Test
+  public void readsUncompressedValuesOfCompressedProperties() {
+    CouchbaseDocument source = new CouchbaseDocument();
+    source.put("_class", CompressedEntity.class.getName());
+    source.put("text", "written before compression was enabled");
+
+    CompressedEntity read = converter.read(CompressedEntity.class, source);
+    assertThat(read.text).isEqualTo("written before compression was enabled");
+  }
+
+  @Test
+  public void writesAndReadsTemporalProperties() {
+    Instant instant = Instant.parse("2020-03-01T10:15:30.123456Z");
+    TemporalEntity entity = new TemporalEntity(instant, instant, OffsetDateTime.parse("2020-03-01T12:15:30+02:00"),
+        LocalDateTime.of(2020, 3, 1, 10, 15, 30));
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(entity, converted);
+    assertThat(converted.get("millis")).isEqualTo(instant.toEpochMilli());
+    assertThat(converted.get("micros")).isEqualTo(1583057730123456L);
+    assertThat(converted.get("iso")).isEqualTo("2020-03-01T10:15:30Z");
+    assertThat(converted.get("local")).isInstanceOf(String.class);
+
+    TemporalEntity read = converter.read(TemporalEntity.class, converted);
+    assertThat(read.millis).isEqualTo(Instant.parse("2020-03-01T10:15:30.123Z"));
+    assertThat(read.micros).isEqualTo(instant);
+    assertThat(read.iso).isEqualTo(OffsetDateTime.parse("2020-03-01T10:15:30Z"));
+    assertThat(read.local).isEqualTo(entity.local);
+  }
+
+  @Test
+  public void readsTemporalPropertiesStoredWithAnotherEncoding() {
+    CouchbaseDocument source = new CouchbaseDocument();
+    source.put("_class", TemporalEntity.class.getName());
+    source.put("millis", "2020-03-01T10:15:30.5Z");
+    source.put("iso", 1583057730000L);
+
+    TemporalEntity read = converter.read(TemporalEntity.class, source);
+    assertThat(read.millis).isEqualTo(Instant.parse("2020-03-01T10:15:30.5Z"));
+    assertThat(read.iso.toInstant()).isEqualTo(Instant.parse("2020-03-01T10:15:30Z"));
+  }
+
+  @Test
+  public void writesAndReadsEncryptedProperties() {
+    MappingCouchbaseConverter encryptingConverter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    encryptingConverter.setCryptoProviders(Collections.singletonList(
+        new AesGcmCryptoProvider(new InMemoryKeyProvider().storeKey("pii", new byte[32]))));
+    encryptingConverter.afterPropertiesSet();
+    EncryptedEntity entity = new EncryptedEntity("john.doe@example.com", Arrays.asList("555-0100", "555-0199"),
+        "public");
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    encryptingConverter.write(entity, converted);
+    assertThat(converted.containsKey("email")).isFalse();
+    assertThat(converted.get("__crypt_email")).isInstanceOf(CouchbaseDocument.class);
+    CouchbaseDocument envelope = (CouchbaseDocument) converted.get("__crypt_phones");
+    assertThat(envelope.get("alg")).isEqualTo(AesGcmCryptoProvider.ALGORITHM);
+    assertThat(envelope.get("kid")).isEqualTo("pii");
+    assertThat((String) envelope.get("ciphertext")).doesNotContain("555");
+    assertThat(converted.get("nickname")).isEqualTo("public");
+
+    EncryptedEntity read = encryptingConverter.read(EncryptedEntity.class, converted);
+    assertThat(read.email).isEqualTo("john.doe@example.com");
+    assertThat(read.phones).containsExactly("555-0100", "555-0199");
+    assertThat(read.nickname).isEqualTo("public");
+  }
+
+  @Test
+  public void decryptsBatchesOfDocumentsAtOnce() {
+    MappingCouchbaseConverter encryptingConverter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    final AesGcmCryptoProvider aes = new AesGcmCryptoProvider(new InMemoryKeyProvider().storeKey("pii", new byte[16]));
+    final int[] batches = new int[1];
+    encryptingConverter.setCryptoProviders(Collections.singletonList(new FieldCryptoProvider() {
+      @Override
+      public String getAlgorithm() {
+        return aes.getAlgorithm();
+      }
+
+      @Override
+      public byte[] encrypt(byte[] plaintext, String keyName) throws GeneralSecurityException {
+        return aes.encrypt(plaintext, keyName);
+      }
+
+      @Override
+      public byte[] decrypt(byte[] ciphertext, String keyName) throws GeneralSecurityException {
+        throw new AssertionError("values should be decrypted in batches");
+      }
+
+      @Override
+      public List<byte[]> decryptAll(List<byte[]> ciphertexts, String keyName) throws GeneralSecurityException {
+        batches[0]++;
+        return aes.decryptAll(ciphertexts, keyName);
+      }
+    }));
+    encryptingConverter.afterPropertiesSet();
+
+    List<CouchbaseDocument> documents = new ArrayList<CouchbaseDocument>();
+    for (int i = 0; i < 3; i++) {
+      CouchbaseDocument converted = new CouchbaseDocument();
+      encryptingConverter.write(new EncryptedEntity("user" + i + "@example.com", null, null), converted);
+      documents.add(converted);
+    }
+    encryptingConverter.decryptAll(EncryptedEntity.class, documents);
+
+    assertThat(batches[0]).isEqualTo(1);
+    assertThat(documents.get(2).get("email")).isEqualTo("user2@example.com");
+    assertThat(encryptingConverter.read(EncryptedEntity.class, documents.get(1)).email).isEqualTo("user1@example.com");
+  }
+
+  @Test
+  public void rejectsEncryptedValuesMovedToAnotherFieldOrDocument() throws GeneralSecurityException {
+    AesGcmCryptoProvider aes = new AesGcmCryptoProvider(new InMemoryKeyProvider().storeKey("pii", new byte[32]));
+    MappingCouchbaseConverter encryptingConverter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    encryptingConverter.setCryptoProviders(Collections.singletonList(aes));
+    encryptingConverter.afterPropertiesSet();
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    encryptingConverter.write(new EncryptedEntity("john.doe@example.com", null, null), converted);
+    CouchbaseDocument envelope = (CouchbaseDocument) converted.get("__crypt_email");
+
+    CouchbaseDocument otherDocument = new CouchbaseDocument("otherid");
+    otherDocument.put("_class", EncryptedEntity.class.getName());
+    otherDocument.put("__crypt_email", envelope.copy());
+    assertThatThrownBy(() -> encryptingConverter.read(EncryptedEntity.class, otherDocument))
+        .isInstanceOf(MappingException.class);
+
+    CouchbaseDocument otherField = new CouchbaseDocument(BaseEntity.ID);
+    otherField.put("_class", EncryptedEntity.class.getName());
+    otherField.put("__crypt_phones", envelope.copy());
+    assertThatThrownBy(() -> encryptingConverter.read(EncryptedEntity.class, otherField))
+        .isInstanceOf(MappingException.class);
+
+    assertThat(encryptingConverter.read(EncryptedEntity.class, converted).email).isEqualTo("john.doe@example.com");
+
+    //values encrypted before they were bound to their field and document are still read
+    CouchbaseDocument unbound = new CouchbaseDocument(BaseEntity.ID);
+    unbound.put("_class", EncryptedEntity.class.getName());
+    unbound.put("__crypt_email", new CouchbaseDocument()
+        .put("alg", AesGcmCryptoProvider.ALGORITHM)
+        .put("kid", "pii")
+        .put("ciphertext", Base64.getEncoder().encodeToString(
+            aes.encrypt("{\"email\":\"written.before@example.com\"}".getBytes(StandardCharsets.UTF_8), "pii"))));
+    assertThat(encryptingConverter.read(EncryptedEntity.class, unbound).email).isEqualTo("written.before@example.com");
+  }
+
+  @Test
+  public void readsClearValuesOfEncryptedProperties() {
+    CouchbaseDocument source = new CouchbaseDocument();
+    source.put("_class", EncryptedEntity.class.getName());
+    source.put("email", "written.before@example.com");
+
+    EncryptedEntity read = converter.read(EncryptedEntity.class, source);
+    assertThat(read.email).isEqualTo("written.before@example.com");
+  }
+
+  @Test(expected = MappingException.class)
+  public void failsToEncryptWithoutProvider() {
+    MappingCouchbaseConverter plainConverter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    plainConverter.afterPropertiesSet();
+
+    plainConverter.write(new EncryptedEntity("john.doe@example.com", null, null), new CouchbaseDocument());
+  }
+
+  @Test
+  public void readsImmutableEntitiesThroughTheirConstructor() {
+    ImmutableEntity entity = new ImmutableEntity("immutable1", "value", 3, Arrays.asList("a", "b"));
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(entity, converted);
+
+    ImmutableEntity read = converter.read(ImmutableEntity.class, converted);
+    assertThat(read.id).isEqualTo("immutable1");
+    assertThat(read.name).isEqualTo("value");
+    assertThat(read.count).isEqualTo(3);
+    assertThat(read.tags).containsExactly("a", "b");
+
+    CouchbaseDocument partial = new CouchbaseDocument("immutable2");
+    partial.put("name", "partial");
+    read = converter.read(ImmutableEntity.class, partial);
+    assertThat(read.id).isEqualTo("immutable2");
+    assertThat(read.count).isZero();
+    assertThat(read.tags).isNull();
+  }
+
+  @Test
+  public void setsIdOfImmutableEntitiesThroughWither() {
+    CouchbaseDocument source = new CouchbaseDocument("wither1");
+    source.put("name", "withered");
+
+    WitherEntity read = converter.read(WitherEntity.class, source);
+    assertThat(read.id).isEqualTo("wither1");
+    assertThat(read.name).isEqualTo("withered");
+  }
+
+  @Test
+  public void leavesOutEmptyAndDefaultValuesInSparseMode() {
+    MappingCouchbaseConverter sparseConverter = createSparseConverter(SparseMode.OMIT_DEFAULTS);
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    sparseConverter.write(new MixedSimpleEntity("", 0, 0.0, false), converted);
+    assertThat(converted.export()).containsOnlyKeys("_class", "attr0");
+
+    converted = new CouchbaseDocument();
+    sparseConverter.write(new ListEntity(new ArrayList<String>(), Arrays.asList(1, 2),
+        Collections.<List<String>>emptyList()), converted);
+    assertThat(converted.export()).containsOnlyKeys("_class", "attr1");
+
+    ListEntity read = sparseConverter.read(ListEntity.class, converted);
+    assertThat(read.attr0).isEmpty();
+    assertThat(read.attr1).containsExactly(1, 2);
+    assertThat(read.attr2).isEmpty();
+  }
+
+  @Test
+  public void sparseEntitiesOnlyLeaveOutEmptyValues() {
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(new SparseEntity(new ArrayList<String>(), new HashMap<String, Integer>(), 0), converted);
+    assertThat(converted.export()).containsOnlyKeys("_class", "score");
+
+    CouchbaseDocument source = new CouchbaseDocument(BaseEntity.ID);
+    source.put("_class", SparseEntity.class.getName());
+    source.put("score", 3);
+    SparseEntity read = converter.read(SparseEntity.class, source);
+    assertThat(read.tags).isEmpty();
+    assertThat(read.counts).isEmpty();
+    assertThat(read.score).isEqualTo(3);
+  }
+
+  @Test
+  public void keepsNullCollectionsInSparseMode() {
+    MappingCouchbaseConverter sparseConverter = createSparseConverter(SparseMode.OMIT_EMPTY);
+    JacksonTranslationService translationService = new JacksonTranslationService();
+    translationService.afterPropertiesSet();
+
+    List<Object> entities = Arrays.asList(
+        new ListEntity(null, Arrays.asList(1, 2), Collections.<List<String>>emptyList()),
+        new MapEntity(null, Collections.singletonMap("a", true), new HashMap<Integer, String>(), null),
+        new PrimitiveArrayEntity(null, new long[] { 1L }, new int[0], null, null, new double[0][]),
+        new SetEntity(null, new TreeSet<Integer>(), null),
+        new ImmutableEntity("immutable1", "value", 0, null));
+
+    for (Object entity : entities) {
+      CouchbaseDocument converted = new CouchbaseDocument();
+      sparseConverter.write(entity, converted);
+      CouchbaseDocument decoded = (CouchbaseDocument) translationService.decode(translationService.encode(converted),
+          new CouchbaseDocument(converted.getId()));
+      assertThat(sparseConverter.read(entity.getClass(), decoded)).as(entity.getClass().getSimpleName())
+          .isEqualToComparingFieldByFieldRecursively(entity);
+    }
+
+    //null collections are left out of the documents written without a sparse mode, they are read back as empty
+    CouchbaseDocument plain = new CouchbaseDocument();
+    createSparseConverter(SparseMode.NONE).write(new ListEntity(null, null, null), plain);
+    assertThat(plain.export()).containsOnlyKeys("_class");
+    ListEntity read = sparseConverter.read(ListEntity.class, plain);
+    assertThat(read.attr0).isEmpty();
+    assertThat(read.attr1).isEmpty();
+    assertThat(read.attr2).isEmpty();
+  }
+
+  @Test
+  public void roundTripsMappingTestEntitiesInSparseMode() {
+    MappingCouchbaseConverter sparseConverter = createSparseConverter(SparseMode.OMIT_DEFAULTS);
+    MappingCouchbaseConverter plainConverter = createSparseConverter(SparseMode.NONE);
+
+    Map<String, Map<String, String>> nestedMaps = new HashMap<String, Map<String, String>>();
+    nestedMaps.put("empty", new HashMap<String, String>());
+    List<Object> entities = Arrays.asList(
+        new StringEntity("foo"),
+        new AliasedEntity("aliased"),
+        new NumberEntity(0L),
+        new NumberEntity(42L),
+        new BooleanEntity(false),
+        new MixedSimpleEntity("", 0, 0.0, false),
+        new MixedSimpleEntity("bar", 1, -0.0, true),
+        new UninitializedEntity(),
+        new MapEntity(new HashMap<String, String>(), Collections.singletonMap("a", true),
+            new HashMap<Integer, String>(), nestedMaps),
+        new ListEntity(new ArrayList<String>(), Arrays.asList(1, 2),
+            Collections.<List<String>>singletonList(new ArrayList<String>())),
+        new PrimitiveArrayEntity(new double[0], new long[] { 1L, 2L }, new int[0], new boolean[] { false },
+            new byte[0], new double[0][]),
+        new SetEntity(new HashSet<String>(), new TreeSet<Integer>(Arrays.asList(1, 2)), new HashSet<Set<String>>()),
+        new ValueEntity(new Email("john.doe@example.com"), new ArrayList<Email>()),
+        new CustomEntity(new BigDecimal("1.5"), new ArrayList<BigDecimal>(), new HashMap<String, BigDecimal>()),
+        new CustomObjectEntity(new CustomObject(new BigDecimal("2")), new ArrayList<CustomObject>(),
+            new HashMap<String, CustomObject>()),
+        new DateEntity(new Date(1583057730000L), null, LocalDateTime.of(2020, 3, 1, 10, 15, 30)),
+        new CompressedEntity("text", new byte[0], "summary"),
+        new TemporalEntity(Instant.ofEpochMilli(1583057730123L), Instant.parse("2020-03-01T10:15:30.123456Z"),
+            OffsetDateTime.parse("2020-03-01T10:15:30Z"), LocalDateTime.of(2020, 3, 1, 10, 15, 30)),
+        new EncryptedEntity("john.doe@example.com", new ArrayList<String>(), ""),
+        new ImmutableEntity("immutable1", "value", 0, new ArrayList<String>()),
+        new WitherEntity("withered").withId("wither1"),
+        new VersionedEntity("John Doe", "FR"),
+        new SparseEntity(new ArrayList<String>(), Collections.singletonMap("a", 0), 0),
+        new AnnotatedEntity(),
+        new SdkIdentified(),
+        new SpringIdentified(),
+        new AmbiguousIdentified());
+
+    for (Object entity : entities) {
+      CouchbaseDocument sparse = new CouchbaseDocument();
+      sparseConverter.write(entity, sparse);
+      assertThat(sparseConverter.read(entity.getClass(), sparse)).as(entity.getClass().getSimpleName())
+          .isEqualToComparingFieldByFieldRecursively(entity);
+
+      //documents written before the sparse mode was enabled are still read the same
+      CouchbaseDocument plain = new CouchbaseDocument();
+      plainConverter.write(entity, plain);
+      assertThat(plain.export().size()).isGreaterThanOrEqualTo(sparse.export().size());
+      assertThat(sparseConverter.read(entity.getClass(), plain)).as(entity.getClass().getSimpleName())
+          .isEqualToComparingFieldByFieldRecursively(entity);
+    }
+
+    //entities without id are still rejected
+    assertThatThrownBy(() -> sparseConverter.write(new EntityWithoutID("foo"), new CouchbaseDocument()))
+        .isInstanceOf(MappingException.class);
+  }
+
+  private static MappingCouchbaseConverter createSparseConverter(SparseMode sparseMode) {
+    CouchbaseCustomConversions conversions = new CouchbaseCustomConversions(Arrays.asList(
+        BigDecimalToStringConverter.INSTANCE, StringToBigDecimalConverter.INSTANCE));
+    CouchbaseMappingContext mappingContext = new CouchbaseMappingContext();
+    mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    MappingCouchbaseConverter sparseConverter = new MappingCouchbaseConverter(mappingContext);
+    sparseConverter.setCustomConversions(conversions);
+    sparseConverter.setCryptoProviders(Collections.singletonList(
+        new AesGcmCryptoProvider(new InMemoryKeyProvider().storeKey("pii", new byte[32]))));
+    sparseConverter.setSparseMode(sparseMode);
+    sparseConverter.afterPropertiesSet();
+    return sparseConverter;
+  }
+
+  @Test
+  public void writesSchemaVersionOfVersionedEntities() {
+    CouchbaseDocument converted = new CouchbaseDocument();
+    converter.write(new VersionedEntity("John Doe", "FR"), converted);
+    assertThat(converted.get(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT)).isEqualTo(2);
+
+    converted = new CouchbaseDocument();
+    converter.write(new StringEntity("foo"), converted);
+    assertThat(converted.containsKey(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT)).isFalse();
+  }
+
+  @Test
+  public void encryptsClearValuesOfDecryptedDocumentsAgain() {
+    MappingCouchbaseConverter encryptingConverter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    encryptingConverter.setCryptoProviders(Collections.singletonList(
+        new AesGcmCryptoProvider(new InMemoryKeyProvider().storeKey("pii", new byte[32]))));
+    encryptingConverter.afterPropertiesSet();
+
+    CouchbaseDocument converted = new CouchbaseDocument();
+    encryptingConverter.write(new EncryptedEntity("john.doe@example.com", null, "public"), converted);
+    encryptingConverter.decryptAll(EncryptedEntity.class, Collections.singletonList(converted));
+    assertThat(converted.get("email")).isEqualTo("john.doe@example.com");
+
+    converted.put("unmapped", "kept");
+    encryptingConverter.encryptAll(EncryptedEntity.class, converted);
+    assertThat(converted.containsKey("email")).isFalse();
+    assertThat(converted.get("__crypt_email")).isInstanceOf(CouchbaseDocument.class);
+    assertThat(converted.containsKey("__crypt_phones")).isFalse();
+    assertThat(converted.get("nickname")).isEqualTo("public");
+    assertThat(converted.get("unmapped")).isEqualTo("kept");
+    assertThat(encryptingConverter.read(EncryptedEntity.class, converted).email).isEqualTo("john.doe@example.com");
+  }
+
+  @Test
+  public void migratesDocumentsOfOlderSchemaVersionsOnRead() {
+    MappingCouchbaseConverter migratingConverter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    migratingConverter.setDocumentMigrations(new DocumentMigrations()
+        .register(VersionedEntity.class, 0, document -> document.put("name", document.get("fullName")))
+        .register(VersionedEntity.class, 1, document -> {
+          if (!document.containsKey("country")) {
+            document.put("country", "unknown");
+          }
+        }));
+    migratingConverter.afterPropertiesSet();
+
+    CouchbaseDocument unversioned = new CouchbaseDocument();
+    unversioned.put("_class", VersionedEntity.class.getName());
+    unversioned.put("fullName", "John Doe");
+    assertThat(migratingConverter.migrate(VersionedEntity.class, unversioned)).isTrue();
+    VersionedEntity read = migratingConverter.read(VersionedEntity.class, unversioned);
+    assertThat(read.name).isEqualTo("John Doe");
+    assertThat(read.country).isEqualTo("unknown");
+    assertThat(unversioned.get(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT)).isEqualTo(2);
+
+    CouchbaseDocument version1 = new CouchbaseDocument();
+    version1.put("_class", VersionedEntity.class.getName());
+    version1.put(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT, 1);
+    version1.put("fullName", "Jane Doe");
+    version1.put("name", "Jane");
+    assertThat(migratingConverter.migrate(VersionedEntity.class, version1)).isTrue();
+    assertThat(version1.get("name")).isEqualTo("Jane");
+    assertThat(version1.get("country")).isEqualTo("unknown");
+
+    CouchbaseDocument current = new CouchbaseDocument();
+    migratingConverter.write(new VersionedEntity("Jane Doe", "UK"), current);
+    assertThat(migratingConverter.migrate(VersionedEntity.class, current)).isFalse();
+    assertThat(migratingConverter.read(VersionedEntity.class, current).country).isEqualTo("UK");
+  }
+
   @Test
   public void writesAndReadsSetAndNestedSet() {
     CouchbaseDocument converted = new CouchbaseDocument();
@@ -582,6 +1089,15 @@ public class MappingCouchbaseConverterTests {
     }
   }
 
+  @TypeAlias("aliased")
+  static class AliasedEntity extends BaseEntity {
+    private String attr0;
+
+    public AliasedEntity(String attr0) {
+      this.attr0 = attr0;
+    }
+  }
+
   static class NumberEntity extends BaseEntity {
     private long attr0;
 
@@ -644,6 +1160,131 @@ public class MappingCouchbaseConverterTests {
     }
   }
 
+  static class PrimitiveArrayEntity extends BaseEntity {
+    private double[] samples;
+    private long[] timestamps;
+    private int[] counts;
+    private boolean[] flags;
+    private byte[] raw;
+    private double[][] matrix;
+
+    PrimitiveArrayEntity(double[] samples, long[] timestamps, int[] counts, boolean[] flags, byte[] raw,
+                         double[][] matrix) {
+      this.samples = samples;
+      this.timestamps = timestamps;
+      this.counts = counts;
+      this.flags = flags;
+      this.raw = raw;
+      this.matrix = matrix;
+    }
+  }
+
+  static class CompressedEntity extends BaseEntity {
+    @Compressed(threshold = 512)
+    private String text;
+    @Compressed
+    private byte[] payload;
+    @Compressed(threshold = 0)
+    private String summary;
+
+    CompressedEntity(String text, byte[] payload, String summary) {
+      this.text = text;
+      this.payload = payload;
+      this.summary = summary;
+    }
+  }
+
+  static class TemporalEntity extends BaseEntity {
+    @Temporal(TemporalEncoding.EPOCH_MILLIS)
+    private Instant millis;
+    @Temporal(TemporalEncoding.EPOCH_MICROS)
+    private Instant micros;
+    @Temporal(TemporalEncoding.ISO)
+    private OffsetDateTime iso;
+    @Temporal(TemporalEncoding.ISO)
+    private LocalDateTime local;
+
+    TemporalEntity(Instant millis, Instant micros, OffsetDateTime iso, LocalDateTime local) {
+      this.millis = millis;
+      this.micros = micros;
+      this.iso = iso;
+      this.local = local;
+    }
+  }
+
+  static class EncryptedEntity extends BaseEntity {
+    @EncryptedField(key = "pii")
+    private String email;
+    @EncryptedField(key = "pii")
+    private List<String> phones;
+    private String nickname;
+
+    EncryptedEntity(String email, List<String> phones, String nickname) {
+      this.email = email;
+      this.phones = phones;
+      this.nickname = nickname;
+    }
+  }
+
+  static class ImmutableEntity {
+    @Id
+    private final String id;
+    private final String name;
+    private final int count;
+    private final List<String> tags;
+
+    ImmutableEntity(String id, String name, int count, List<String> tags) {
+      this.id = id;
+      this.name = name;
+      this.count = count;
+      this.tags = tags;
+    }
+  }
+
+  static class WitherEntity {
+    @Id
+    private final String id;
+    private final String name;
+
+    @PersistenceConstructor
+    WitherEntity(String name) {
+      this(null, name);
+    }
+
+    private WitherEntity(String id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    WitherEntity withId(String id) {
+      return new WitherEntity(id, name);
+    }
+  }
+
+  @Document(sparseMode = SparseMode.OMIT_EMPTY)
+  static class SparseEntity extends BaseEntity {
+    private List<String> tags;
+    private Map<String, Integer> counts;
+    private int score;
+
+    SparseEntity(List<String> tags, Map<String, Integer> counts, int score) {
+      this.tags = tags;
+      this.counts = counts;
+      this.score = score;
+    }
+  }
+
+  @Document(schemaVersion = 2)
+  static class VersionedEntity extends BaseEntity {
+    private String name;
+    private String country;
+
+    VersionedEntity(String name, String country) {
+      this.name = name;
+      this.country = country;
+    }
+  }
+
   static class SetEntity extends BaseEntity {
     private Set<String> attr0;
     private Set<Integer> attr1;
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.mapping.Document;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.error.TemporaryFailureException;
+
+public class CouchbaseMetricsTest {
+
+  private static final String CONTENT = "{\"name\":\"Duvel\"}";
+
+  private Bucket bucket;
+  private CouchbaseTemplate template;
+  private RecordingMetrics metrics;
+
+  @Before
+  public void setUp() {
+    bucket = mock(Bucket.class);
+    template = new CouchbaseTemplate(null, bucket);
+    metrics = new RecordingMetrics();
+    template.setMetrics(metrics);
+  }
+
+  @Test
+  public void testFindByIdRecordsOperationAndConversion() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenReturn(RawJsonDocument.create("beer1", CONTENT, 12L));
+
+    MeasuredBeer beer = template.findById("beer1", MeasuredBeer.class);
+
+    assertThat(beer.name).isEqualTo("Duvel");
+    assertThat(metrics.operations).containsExactly("findById:MeasuredBeer:null:null");
+    assertThat(metrics.conversions).containsExactly("decode:MeasuredBeer");
+    assertThat(metrics.sizes).containsExactly("decode:MeasuredBeer:" + CONTENT.length());
+  }
+
+  @Test
+  public void testFailuresAreRecordedWithTheirException() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenThrow(new TemporaryFailureException());
+
+    try {
+      template.findById("beer1", MeasuredBeer.class);
+    } catch (RuntimeException expected) {
+    }
+
+    assertThat(metrics.operations).hasSize(1);
+    assertThat(metrics.operations.get(0)).startsWith("findById:MeasuredBeer:null:")
+        .doesNotEndWith(":null");
+    assertThat(metrics.conversions).isEmpty();
+  }
+
+  @Test
+  public void testOperationsAreAttributedToTheRepositoryMethod() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenReturn(RawJsonDocument.create("beer1", CONTENT, 12L));
+
+    RepositoryMethodContext.execute("BeerRepository.findById",
+        () -> template.findById("beer1", MeasuredBeer.class));
+
+    assertThat(metrics.operations).containsExactly("findById:MeasuredBeer:BeerRepository.findById:null");
+    assertThat(RepositoryMethodContext.current()).isNull();
+  }
+
+  @Test
+  public void testNothingIsMeasuredByDefault() {
+    template.setMetrics(null);
+    when(bucket.get("beer1", RawJsonDocument.class)).thenReturn(RawJsonDocument.create("beer1", CONTENT, 12L));
+
+    template.findById("beer1", MeasuredBeer.class);
+
+    assertThat(template.getMetrics()).isSameAs(CouchbaseMetrics.NONE);
+    assertThat(metrics.operations).isEmpty();
+  }
+
+  static class RecordingMetrics implements CouchbaseMetrics {
+
+    final List<String> operations = new ArrayList<String>();
+    final List<String> conversions = new ArrayList<String>();
+    final List<String> sizes = new ArrayList<String>();
+
+    @Override
+    public void recordOperation(String operation, Class<?> entityType, String repositoryMethod, long durationNanos,
+                                Throwable error) {
+      operations.add(operation + ":" + entityType.getSimpleName() + ":" + repositoryMethod + ":"
+          + (error == null ? null : error.getClass().getSimpleName()));
+    }
+
+    @Override
+    public void recordDocumentSize(String direction, Class<?> entityType, int size) {
+      sizes.add(direction + ":" + entityType.getSimpleName() + ":" + size);
+    }
+
+    @Override
+    public void recordConversion(String direction, Class<?> entityType, long durationNanos) {
+      conversions.add(direction + ":" + entityType.getSimpleName());
+    }
+  }
+
+  @Document
+  static class MeasuredBeer {
+
+    @Id
+    String id;
+
+    String name;
+  }
+}
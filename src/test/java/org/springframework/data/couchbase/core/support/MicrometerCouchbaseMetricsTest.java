@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.document.RawJsonDocument;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MicrometerCouchbaseMetricsTest {
+
+  private static final String CONTENT = "{\"name\":\"Duvel\"}";
+
+  private SimpleMeterRegistry registry;
+  private Bucket bucket;
+  private CouchbaseTemplate template;
+
+  @Before
+  public void setUp() {
+    registry = new SimpleMeterRegistry();
+    bucket = mock(Bucket.class);
+    template = new CouchbaseTemplate(null, bucket);
+    template.setMetrics(new MicrometerCouchbaseMetrics(registry));
+  }
+
+  @Test
+  public void testFindByIdIsRecorded() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenReturn(RawJsonDocument.create("beer1", CONTENT, 12L));
+
+    template.findById("beer1", Beer.class);
+
+    Timer operations = registry.get("spring.data.couchbase.operations")
+        .tags("operation", "findById", "entity", Beer.class.getName(), "method", "none", "outcome", "success",
+            "exception", "none")
+        .timer();
+    assertThat(operations.count()).isEqualTo(1);
+    assertThat(registry.get("spring.data.couchbase.conversions").tags("direction", "decode").timer().count())
+        .isEqualTo(1);
+    assertThat(registry.get("spring.data.couchbase.documents.size").summary().totalAmount())
+        .isEqualTo(CONTENT.length());
+    assertThat(registry.get("spring.data.couchbase.operation.phases").tags("operation", "findById").timers())
+        .isNotEmpty();
+  }
+
+  @Test
+  public void testFailuresAreTaggedWithTheirException() {
+    new MicrometerCouchbaseMetrics(registry)
+        .recordOperation("findByN1QL", null, "BeerRepository.findByName", TimeUnit.MILLISECONDS.toNanos(5),
+            new IllegalStateException());
+
+    Timer operations = registry.get("spring.data.couchbase.operations")
+        .tags("entity", "none", "method", "BeerRepository.findByName", "outcome", "error",
+            "exception", "IllegalStateException")
+        .timer();
+    assertThat(operations.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5.0);
+  }
+
+  @Test
+  public void testDecodingFailuresAreCounted() {
+    MicrometerCouchbaseMetrics metrics = new MicrometerCouchbaseMetrics(registry);
+    metrics.recordDecodingFailure("findByView", Beer.class);
+    metrics.recordDecodingFailure("findByView", Beer.class);
+
+    assertThat(registry.get("spring.data.couchbase.decoding.failures").counter().count()).isEqualTo(2.0);
+  }
+
+  static class Beer {
+    @Id
+    String id;
+    String name;
+  }
+}
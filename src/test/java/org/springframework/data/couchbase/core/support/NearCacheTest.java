@@ -0,0 +1,314 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.convert.DocumentMigrations;
+import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.convert.encryption.AesGcmCryptoProvider;
+import org.springframework.data.couchbase.core.convert.encryption.InMemoryKeyProvider;
+import org.springframework.data.couchbase.core.convert.translation.JacksonTranslationService;
+import org.springframework.data.couchbase.core.mapping.CouchbaseDocument;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.data.couchbase.core.mapping.EncryptedField;
+import org.springframework.data.couchbase.core.mapping.NearCached;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.PersistTo;
+import com.couchbase.client.java.ReplicateTo;
+import com.couchbase.client.java.cluster.ClusterInfo;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
+import com.couchbase.client.java.util.features.CouchbaseFeature;
+
+public class NearCacheTest {
+
+  private static class ManualClockNearCache extends NearCache {
+
+    private long now;
+
+    ManualClockNearCache(int maxSize) {
+      super(maxSize, 10, TimeUnit.NANOSECONDS, false);
+    }
+
+    @Override
+    long now() {
+      return now;
+    }
+  }
+
+  @Test
+  public void testHitsAndMissesAreCounted() {
+    NearCache cache = new NearCache(10, 1, TimeUnit.MINUTES, false);
+
+    assertThat(cache.get("a", null)).isNull();
+    cache.put("a", new CouchbaseDocument("a"), 42L);
+    NearCache.Entry entry = cache.get("a", null);
+
+    assertThat(entry).isNotNull();
+    assertThat(entry.getCas()).isEqualTo(42L);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testExpiredEntriesAreEvicted() {
+    ManualClockNearCache cache = new ManualClockNearCache(10);
+    cache.put("a", new CouchbaseDocument("a"), 1L);
+
+    cache.now = 9;
+    assertThat(cache.get("a", null)).isNotNull();
+    cache.now = 10;
+    assertThat(cache.get("a", null)).isNull();
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void testOldestEntriesAreEvictedWhenFull() {
+    NearCache cache = new NearCache(2, 1, TimeUnit.MINUTES, false);
+    cache.put("a", new CouchbaseDocument("a"), 1L);
+    cache.put("b", new CouchbaseDocument("b"), 1L);
+    cache.put("a", new CouchbaseDocument("a"), 2L);
+    cache.put("c", new CouchbaseDocument("c"), 1L);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+    assertThat(cache.get("a", null)).isNull();
+    assertThat(cache.get("b", null)).isNotNull();
+    assertThat(cache.get("c", null)).isNotNull();
+  }
+
+  @Test
+  public void testDocumentInvalidatedWhileReadIsNotCached() {
+    NearCache cache = new NearCache(10, 1, TimeUnit.MINUTES, false);
+
+    long generation = cache.startRead("a");
+    cache.invalidate("a");
+    assertThat(cache.put("a", new CouchbaseDocument("a"), 1L, generation)).isFalse();
+    cache.endRead("a", generation);
+    assertThat(cache.get("a", null)).isNull();
+
+    generation = cache.startRead("a");
+    assertThat(cache.put("a", new CouchbaseDocument("a"), 2L, generation)).isTrue();
+    cache.endRead("a", generation);
+    assertThat(cache.get("a", null).getCas()).isEqualTo(2L);
+  }
+
+  @Test
+  public void testOnlyTheLastConcurrentReadIsCached() {
+    NearCache cache = new NearCache(10, 1, TimeUnit.MINUTES, false);
+
+    long first = cache.startRead("a");
+    long second = cache.startRead("a");
+    assertThat(cache.put("a", new CouchbaseDocument("a"), 1L, first)).isFalse();
+    cache.endRead("a", first);
+    assertThat(cache.put("a", new CouchbaseDocument("a"), 2L, second)).isTrue();
+    cache.endRead("a", second);
+
+    assertThat(cache.get("a", null).getCas()).isEqualTo(2L);
+  }
+
+  @Test
+  public void testMaxSizeIsEnforcedWithInvalidations() {
+    NearCache cache = new NearCache(3, 1, TimeUnit.MINUTES, false);
+
+    for (int i = 0; i < 100; i++) {
+      String id = "doc" + (i % 5);
+      cache.invalidate(id);
+      long generation = cache.startRead(id);
+      cache.put(id, new CouchbaseDocument(id), i, generation);
+      cache.endRead(id, generation);
+      assertThat(cache.size()).isLessThanOrEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testStaleEntriesAreEvicted() {
+    NearCache cache = new NearCache(10, 1, TimeUnit.MINUTES, true);
+    cache.put("a", new CouchbaseDocument("a"), 1L);
+
+    assertThat(cache.get("a", entry -> entry.getCas() == 2L)).isNull();
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testTemplateReadsThroughAndCopiesOnRead() {
+    Bucket bucket = mock(Bucket.class);
+    when(bucket.get("beer1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("beer1", "{\"name\":\"Duvel\"}", 12L));
+    CouchbaseTemplate template = new CouchbaseTemplate(null, bucket);
+
+    CachedBeer first = template.findById("beer1", CachedBeer.class);
+    first.name = "modified";
+    CachedBeer second = template.findById("beer1", CachedBeer.class);
+
+    verify(bucket, times(1)).get("beer1", RawJsonDocument.class);
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.name).isEqualTo("Duvel");
+    NearCache cache = template.getNearCaches().get(CachedBeer.class);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testTemplateSaveAndRemoveInvalidate() {
+    Bucket bucket = mock(Bucket.class);
+    when(bucket.get("beer1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("beer1", "{\"name\":\"Duvel\"}", 12L));
+    CouchbaseTemplate template = new CouchbaseTemplate(null, bucket);
+
+    CachedBeer beer = template.findById("beer1", CachedBeer.class);
+    template.save(beer);
+    template.findById("beer1", CachedBeer.class);
+    template.remove("beer1");
+    template.findById("beer1", CachedBeer.class);
+
+    verify(bucket, times(3)).get("beer1", RawJsonDocument.class);
+    verify(bucket).upsert(any(RawJsonDocument.class), any(PersistTo.class), any(ReplicateTo.class));
+  }
+
+  @Test
+  public void testDecryptionAndMigrationDoNotModifyTheCachedDocument() {
+    AtomicInteger migrations = new AtomicInteger();
+    MappingCouchbaseConverter converter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    converter.setCryptoProviders(Collections.singletonList(
+        new AesGcmCryptoProvider(new InMemoryKeyProvider().storeKey("pii", new byte[32]))));
+    converter.setDocumentMigrations(new DocumentMigrations().register(CachedAccount.class, 0, document -> {
+      migrations.incrementAndGet();
+      document.put("name", document.remove("fullName"));
+    }));
+    converter.afterPropertiesSet();
+    JacksonTranslationService translationService = new JacksonTranslationService();
+    translationService.afterPropertiesSet();
+
+    CachedAccount account = new CachedAccount();
+    account.email = "john.doe@example.com";
+    CouchbaseDocument stored = new CouchbaseDocument("account1");
+    converter.write(account, stored);
+    stored.remove(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT);
+    stored.put("fullName", "John Doe");
+    Bucket bucket = mock(Bucket.class);
+    when(bucket.get("account1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("account1", translationService.encode(stored), 12L));
+    CouchbaseTemplate template = new CouchbaseTemplate(null, bucket, converter, translationService);
+
+    CachedAccount first = template.findById("account1", CachedAccount.class);
+    CachedAccount second = template.findById("account1", CachedAccount.class);
+
+    verify(bucket, times(1)).get("account1", RawJsonDocument.class);
+    assertThat(first.email).isEqualTo("john.doe@example.com");
+    assertThat(first.name).isEqualTo("John Doe");
+    assertThat(second.email).isEqualTo("john.doe@example.com");
+    assertThat(second.name).isEqualTo("John Doe");
+    //the migrated document is cached, encrypted again
+    assertThat(migrations.get()).isEqualTo(1);
+    CouchbaseDocument cached = template.getNearCaches().get(CachedAccount.class).get("account1", null).getDocument();
+    assertThat(cached.containsKey("__crypt_email")).isTrue();
+    assertThat(cached.containsKey("email")).isFalse();
+    assertThat(cached.get("name")).isEqualTo("John Doe");
+    assertThat(cached.containsKey("fullName")).isFalse();
+    assertThat(cached.get(MappingCouchbaseConverter.SCHEMA_VERSION_KEY_DEFAULT)).isEqualTo(1);
+  }
+
+  @Test
+  public void testN1qlMutationsInvalidate() {
+    Bucket bucket = mock(Bucket.class);
+    ClusterInfo clusterInfo = mock(ClusterInfo.class);
+    when(clusterInfo.checkAvailable(CouchbaseFeature.N1QL)).thenReturn(true);
+    when(bucket.get("beer1", RawJsonDocument.class))
+        .thenReturn(RawJsonDocument.create("beer1", "{\"name\":\"Duvel\"}", 12L));
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(true);
+    when(bucket.query(any(N1qlQuery.class))).thenReturn(result);
+    CouchbaseTemplate template = new CouchbaseTemplate(clusterInfo, bucket);
+
+    template.findById("beer1", CachedBeer.class);
+    template.queryN1QL(N1qlQuery.simple("SELECT META().id FROM `beers`"));
+    template.findById("beer1", CachedBeer.class);
+    template.queryN1QL(N1qlQuery.simple("DELETE FROM `beers` WHERE name = 'Duvel'"));
+    template.findById("beer1", CachedBeer.class);
+
+    verify(bucket, times(2)).get("beer1", RawJsonDocument.class);
+  }
+
+  @Test
+  public void testN1qlMutationsReturningDocumentsInvalidateThem() {
+    Bucket bucket = mock(Bucket.class);
+    ClusterInfo clusterInfo = mock(ClusterInfo.class);
+    when(clusterInfo.checkAvailable(CouchbaseFeature.N1QL)).thenReturn(true);
+    when(bucket.get(anyString(), eq(RawJsonDocument.class))).thenAnswer(invocation -> RawJsonDocument.create(
+        invocation.getArgument(0), "{\"name\":\"Duvel\"}", 12L));
+    N1qlQueryRow row = mock(N1qlQueryRow.class);
+    when(row.byteValue()).thenReturn("{\"_ID\":\"beer1\",\"_CAS\":12,\"name\":\"Duvel\"}"
+        .getBytes(StandardCharsets.UTF_8));
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(true);
+    when(result.allRows()).thenReturn(Collections.singletonList(row));
+    when(bucket.query(any(N1qlQuery.class))).thenReturn(result);
+    CouchbaseTemplate template = new CouchbaseTemplate(clusterInfo, bucket);
+
+    template.findById("beer1", CachedBeer.class);
+    template.findById("beer2", CachedBeer.class);
+    template.findByN1QL(N1qlQuery.simple("DELETE FROM `beers` WHERE name = 'Duvel' RETURNING ..."), CachedBeer.class);
+    template.findById("beer1", CachedBeer.class);
+    template.findById("beer2", CachedBeer.class);
+
+    verify(bucket, times(2)).get("beer1", RawJsonDocument.class);
+    verify(bucket, times(1)).get("beer2", RawJsonDocument.class);
+  }
+
+  @Document(schemaVersion = 1)
+  @NearCached(maxSize = 10)
+  static class CachedAccount {
+
+    @Id
+    String id;
+
+    @EncryptedField(key = "pii")
+    String email;
+
+    String name;
+  }
+
+  @Document
+  @NearCached(maxSize = 10)
+  static class CachedBeer {
+
+    @Id
+    String id;
+
+    String name;
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.couchbase.core.CouchbaseOperations;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+import org.springframework.data.couchbase.core.ReadResult;
+import org.springframework.data.couchbase.core.ReplicaReadMode;
+import org.springframework.data.couchbase.core.mapping.Document;
+import org.springframework.data.couchbase.core.mapping.ReplicaFallback;
+
+import com.couchbase.client.core.RequestCancelledException;
+import com.couchbase.client.java.AsyncBucket;
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.ReplicaMode;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.env.CouchbaseEnvironment;
+import com.couchbase.client.java.error.TemporaryFailureException;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+public class ReplicaReadsTest {
+
+  private Bucket bucket;
+  private AsyncBucket asyncBucket;
+  private CouchbaseTemplate template;
+
+  @Before
+  public void setUp() {
+    bucket = mock(Bucket.class);
+    asyncBucket = mock(AsyncBucket.class);
+    CouchbaseEnvironment environment = mock(CouchbaseEnvironment.class);
+    when(environment.kvTimeout()).thenReturn(2500L);
+    when(bucket.environment()).thenReturn(environment);
+    when(bucket.async()).thenReturn(asyncBucket);
+    template = new CouchbaseTemplate(null, bucket);
+  }
+
+  private static RawJsonDocument beer(String name, long cas) {
+    return RawJsonDocument.create("beer1", "{\"name\":\"" + name + "\"}", cas);
+  }
+
+  @Test
+  public void testTimeoutFallsBackToFirstReplica() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenThrow(new RuntimeException(new TimeoutException()));
+    when(asyncBucket.getFromReplica("beer1", ReplicaMode.FIRST, RawJsonDocument.class))
+        .thenReturn(Observable.just(beer("Duvel", 12L)));
+
+    ReplicatedBeer beer = template.findById("beer1", ReplicatedBeer.class);
+
+    assertThat(beer.name).isEqualTo("Duvel");
+    assertThat(template.getReplicaReads().getFallbackCount()).isEqualTo(1);
+    assertThat(template.getReplicaReads().getReplicaHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPerCallModeFlagsReplicaResults() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenThrow(new RequestCancelledException("failover"));
+    when(asyncBucket.getFromReplica("beer1", ReplicaMode.ALL, RawJsonDocument.class))
+        .thenReturn(Observable.just(beer("Old", 10L), beer("New", 20L), beer("Older", 5L)));
+
+    ReadResult<PlainBeer> result = template.findById("beer1", PlainBeer.class, ReplicaReadMode.LATEST);
+
+    assertThat(result.isFromReplica()).isTrue();
+    assertThat(result.getCas()).isEqualTo(20L);
+    assertThat(result.getEntity().name).isEqualTo("New");
+  }
+
+  @Test
+  public void testActiveCopyIsNotFlagged() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenReturn(beer("Duvel", 12L));
+
+    ReadResult<PlainBeer> result = template.findById("beer1", PlainBeer.class, ReplicaReadMode.ANY);
+
+    assertThat(result.isFromReplica()).isFalse();
+    assertThat(result.getEntity().name).isEqualTo("Duvel");
+    verifyZeroInteractions(asyncBucket);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testOtherErrorsDoNotFallBack() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenThrow(new TemporaryFailureException());
+
+    try {
+      template.findById("beer1", ReplicatedBeer.class);
+    } finally {
+      verifyZeroInteractions(asyncBucket);
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testEntitiesWithoutFallbackPropagateTimeouts() {
+    when(bucket.get("beer1", RawJsonDocument.class)).thenThrow(new RuntimeException(new TimeoutException()));
+
+    template.findById("beer1", PlainBeer.class);
+  }
+
+  @Test
+  public void testHedgedReadsFlagReplicaResults() {
+    PublishSubject<RawJsonDocument> active = PublishSubject.create();
+    when(asyncBucket.get("beer1", RawJsonDocument.class)).thenReturn(active);
+    when(asyncBucket.getFromReplica("beer1", ReplicaMode.FIRST, RawJsonDocument.class))
+        .thenReturn(Observable.just(beer("Stale", 10L)));
+    List<Long> latencies = new CopyOnWriteArrayList<Long>();
+    template.setHedgedReadPolicy(new HedgedReadPolicy(0.9, 1, TimeUnit.MILLISECONDS) {
+      @Override
+      public void recordLatency(long nanos) {
+        latencies.add(nanos);
+        super.recordLatency(nanos);
+      }
+    });
+
+    ReadResult<PlainBeer> result = template.findById("beer1", PlainBeer.class, ReplicaReadMode.NONE);
+
+    assertThat(result.isFromReplica()).isTrue();
+    assertThat(result.getEntity().name).isEqualTo("Stale");
+    assertThat(latencies).isEmpty();
+    active.onNext(beer("Duvel", 12L));
+    active.onCompleted();
+    assertThat(latencies).hasSize(1);
+  }
+
+  @Test
+  public void testHedgedReadsAnsweredByTheActiveCopyAreNotFlagged() {
+    when(asyncBucket.get("beer1", RawJsonDocument.class)).thenReturn(Observable.just(beer("Duvel", 12L)));
+    HedgedReadPolicy hedging = new HedgedReadPolicy(0.9, 1, TimeUnit.MINUTES);
+    template.setHedgedReadPolicy(hedging);
+
+    ReadResult<PlainBeer> result = template.findById("beer1", PlainBeer.class, ReplicaReadMode.NONE);
+
+    assertThat(result.isFromReplica()).isFalse();
+    assertThat(result.getEntity().name).isEqualTo("Duvel");
+    assertThat(hedging.getHedgedReadCount()).isZero();
+  }
+
+  @Test
+  public void testOperationsWithoutReplicaReadsReadTheActiveCopy() {
+    PlainBeer beer = new PlainBeer();
+    CouchbaseOperations operations = mock(CouchbaseOperations.class);
+    when(operations.findById("beer1", PlainBeer.class)).thenReturn(beer);
+    when(operations.findById("beer1", PlainBeer.class, ReplicaReadMode.ANY)).thenCallRealMethod();
+
+    ReadResult<PlainBeer> result = operations.findById("beer1", PlainBeer.class, ReplicaReadMode.ANY);
+
+    assertThat(result.getEntity()).isSameAs(beer);
+    assertThat(result.isFromReplica()).isFalse();
+  }
+
+  @Document
+  @ReplicaFallback
+  static class ReplicatedBeer {
+
+    @Id
+    String id;
+
+    String name;
+  }
+
+  @Document
+  static class PlainBeer {
+
+    @Id
+    String id;
+
+    String name;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.data.couchbase.core.Beer;
+import org.springframework.data.couchbase.core.CouchbaseTemplate;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.PersistTo;
+import com.couchbase.client.java.ReplicateTo;
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.error.DocumentDoesNotExistException;
+import com.couchbase.client.java.error.TemporaryFailureException;
+import rx.Observable;
+
+public class RetryPolicyTest {
+
+  private final RetryPolicy policy = RetryPolicy.exponentialBackoff(3, 1, 4, TimeUnit.MILLISECONDS);
+
+  @Test
+  public void testBackoffIsJitteredAndCapped() {
+    for (int i = 0; i < 100; i++) {
+      assertThat(policy.getBackoffMillis(1)).isBetween(0L, 1L);
+      assertThat(policy.getBackoffMillis(2)).isBetween(0L, 2L);
+      assertThat(policy.getBackoffMillis(10)).isBetween(0L, 4L);
+    }
+  }
+
+  @Test
+  public void testOnlyTransientErrorsOfIdempotentOperationsAreRetried() {
+    assertThat(policy.shouldRetry(new TemporaryFailureException(), 1, true)).isTrue();
+    assertThat(policy.shouldRetry(new TemporaryFailureException(), 3, true)).isFalse();
+    assertThat(policy.shouldRetry(new DocumentDoesNotExistException(), 1, true)).isFalse();
+    assertThat(policy.shouldRetry(new TemporaryFailureException(), 1, false)).isFalse();
+    assertThat(policy.retryBlindWrites().shouldRetry(new TemporaryFailureException(), 1, false)).isTrue();
+    assertThat(RetryPolicy.none().shouldRetry(new TemporaryFailureException(), 1, true)).isFalse();
+  }
+
+  @Test
+  public void testExecuteRetriesUntilSuccess() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    String result = policy.execute(() -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new TemporaryFailureException();
+      }
+      return "ok";
+    }, true);
+
+    assertThat(result).isEqualTo("ok");
+    assertThat(attempts.get()).isEqualTo(3);
+  }
+
+  @Test(expected = TemporaryFailureException.class)
+  public void testExecuteGivesUpAfterMaxAttempts() throws Exception {
+    policy.execute(() -> {
+      throw new TemporaryFailureException();
+    }, true);
+  }
+
+  @Test
+  public void testObservableIsSubscribedAgainOnRetry() {
+    AtomicInteger attempts = new AtomicInteger();
+    Observable<String> action = Observable.defer(() -> attempts.incrementAndGet() < 2
+        ? Observable.<String>error(new TemporaryFailureException())
+        : Observable.just("ok"));
+
+    assertThat(policy.apply(action, true).toBlocking().single()).isEqualTo("ok");
+    assertThat(attempts.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testTemplateRetriesReadsButNotBlindWrites() {
+    Bucket bucket = mock(Bucket.class);
+    when(bucket.get("beer1", RawJsonDocument.class))
+        .thenThrow(new TemporaryFailureException())
+        .thenReturn(RawJsonDocument.create("beer1", "{\"name\":\"Duvel\",\"is_active\":true}", 12L));
+    when(bucket.upsert(any(RawJsonDocument.class), any(PersistTo.class), any(ReplicateTo.class)))
+        .thenThrow(new TemporaryFailureException());
+    CouchbaseTemplate template = new CouchbaseTemplate(null, bucket);
+    template.setRetryPolicy(policy);
+
+    Beer beer = template.findById("beer1", Beer.class);
+    template.save(beer);
+
+    assertThat(beer.getName()).isEqualTo("Duvel");
+    verify(bucket, times(2)).get("beer1", RawJsonDocument.class);
+    verify(bucket, times(1)).upsert(any(RawJsonDocument.class), any(PersistTo.class), any(ReplicateTo.class));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.core.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SlowQueryLogTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testLiteralsAreReplaced() {
+    assertThat(SlowQueryLog.fingerprint("SELECT * FROM `beer-1` WHERE name = \"Duvel\" AND abv > 8.5 LIMIT 10"))
+        .isEqualTo("SELECT * FROM `beer-1` WHERE name = ? AND abv > ? LIMIT ?");
+    assertThat(SlowQueryLog.fingerprint("SELECT * FROM b WHERE name = 'it''s' AND beer2 = $1 AND brewery = $name"))
+        .isEqualTo("SELECT * FROM b WHERE name = ? AND beer2 = $1 AND brewery = $name");
+    assertThat(SlowQueryLog.fingerprint("SELECT *\n  FROM b WHERE id IN [\"a\", \"b\", \"c\"]"))
+        .isEqualTo("SELECT * FROM b WHERE id IN [?]");
+  }
+
+  @Test
+  public void testExecutionsAreGroupedByFingerprint() {
+    SlowQueryLog log = new SlowQueryLog(100, TimeUnit.MILLISECONDS);
+    log.record("SELECT * FROM b WHERE name = \"Duvel\"", "BeerRepository.findByName", 150 * MS, 120 * MS, 1, 100);
+    log.record("SELECT * FROM b WHERE name = \"Orval\"", "BeerRepository.findByName", 50 * MS, 40 * MS, 2, 200);
+
+    List<SlowQueryLog.QueryStatistics> top = log.getTopQueries(10);
+    assertThat(top).hasSize(1);
+    SlowQueryLog.QueryStatistics statistics = top.get(0);
+    assertThat(statistics.getFingerprint()).isEqualTo("SELECT * FROM b WHERE name = ?");
+    assertThat(statistics.getRepositoryMethod()).isEqualTo("BeerRepository.findByName");
+    assertThat(statistics.getCount()).isEqualTo(2);
+    assertThat(statistics.getSlowCount()).isEqualTo(1);
+    assertThat(statistics.getTotalNanos()).isEqualTo(200 * MS);
+    assertThat(statistics.getMaxNanos()).isEqualTo(150 * MS);
+    assertThat(statistics.getTotalExecutionNanos()).isEqualTo(160 * MS);
+    assertThat(statistics.getTotalResultCount()).isEqualTo(3);
+    assertThat(statistics.getTotalResultSize()).isEqualTo(300);
+    assertThat(log.getSlowQueryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRepositoryThresholdOverridesTheGlobalOne() {
+    SlowQueryLog log = new SlowQueryLog(100, TimeUnit.MILLISECONDS)
+        .withThreshold(BeerRepository.class, 10, TimeUnit.MILLISECONDS);
+    log.record("SELECT 1", BeerRepository.class.getName() + ".findByName", 20 * MS, -1, 1, 1);
+    log.record("SELECT 2", "BreweryRepository.findByName", 20 * MS, -1, 1, 1);
+    log.record("SELECT 3", null, 20 * MS, -1, 1, 1);
+    //another repository with the same simple name
+    log.record("SELECT 4", "com.example.BeerRepository.findByName", 20 * MS, -1, 1, 1);
+
+    assertThat(log.getSlowQueryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCheapestFingerprintIsEvicted() {
+    SlowQueryLog log = new SlowQueryLog(1, TimeUnit.SECONDS, 2);
+    log.record("SELECT a FROM b", null, 30 * MS, -1, 0, 0);
+    log.record("SELECT c FROM b", null, 10 * MS, -1, 0, 0);
+    log.record("SELECT d FROM b", null, 20 * MS, -1, 0, 0);
+
+    log.record("SELECT d FROM b", null, 20 * MS, -1, 0, 0);
+
+    List<SlowQueryLog.QueryStatistics> top = log.getTopQueries(10);
+    assertThat(top).extracting(SlowQueryLog.QueryStatistics::getFingerprint)
+        .containsExactly("SELECT d FROM b", "SELECT a FROM b");
+    assertThat(top.get(0).getTotalNanos()).isEqualTo(40 * MS);
+    assertThat(top.get(0).getErrorNanos()).isEqualTo(10 * MS);
+    assertThat(top.get(0).getEstimatedNanos()).isEqualTo(50 * MS);
+    assertThat(log.getTopQueries(1)).hasSize(1);
+  }
+
+  @Test
+  public void testFrequentFingerprintEntersTheTopDespiteOneOffQueries() {
+    SlowQueryLog log = new SlowQueryLog(1, TimeUnit.SECONDS, 2);
+    log.record("SELECT a FROM b", null, 100 * MS, -1, 0, 0);
+    log.record("SELECT once FROM b WHERE id = 0", null, 1 * MS, -1, 0, 0);
+    for (int i = 1; i <= 4; i++) {
+      log.record("SELECT hot FROM b", null, 30 * MS, -1, 0, 0);
+      log.record("SELECT once" + i + " FROM b", null, 1 * MS, -1, 0, 0);
+    }
+    log.record("SELECT hot FROM b", null, 30 * MS, -1, 0, 0);
+
+    assertThat(log.getTopQueries(1)).extracting(SlowQueryLog.QueryStatistics::getFingerprint)
+        .containsExactly("SELECT hot FROM b");
+  }
+
+  interface BeerRepository {
+  }
+}
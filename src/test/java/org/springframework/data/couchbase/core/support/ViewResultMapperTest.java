@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.core.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+
+import com.couchbase.client.java.document.RawJsonDocument;
+import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.view.AsyncViewResult;
+import com.couchbase.client.java.view.AsyncViewRow;
+import rx.Observable;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+public class ViewResultMapperTest {
+
+  private static final Func1<RawJsonDocument, String> MAPPER = new Func1<RawJsonDocument, String>() {
+    @Override
+    public String call(RawJsonDocument document) {
+      if (document.content().contains("broken")) {
+        throw new IllegalStateException("cannot decode " + document.id());
+      }
+      return document.id();
+    }
+  };
+
+  private static Observable<AsyncViewResult> viewResult(JsonObject error, String... contents) {
+    List<AsyncViewRow> rows = new ArrayList<AsyncViewRow>();
+    for (int i = 0; i < contents.length; i++) {
+      AsyncViewRow row = mock(AsyncViewRow.class);
+      when(row.document(RawJsonDocument.class))
+          .thenReturn(Observable.just(RawJsonDocument.create("doc" + i, contents[i])));
+      rows.add(row);
+    }
+    AsyncViewResult result = mock(AsyncViewResult.class);
+    when(result.error()).thenReturn(error == null ? Observable.<JsonObject>empty() : Observable.just(error));
+    when(result.rows()).thenReturn(Observable.from(rows));
+    return Observable.just(result);
+  }
+
+  @Test
+  public void testRowsAreMappedInOrder() {
+    ViewResultMapper mapper = new ViewResultMapper(2, Schedulers.computation(), null);
+
+    List<String> ids = mapper.map(viewResult(null, "{}", "{}", "{}", "{}"), true, MAPPER)
+        .toList().toBlocking().single();
+
+    assertThat(ids).containsExactly("doc0", "doc1", "doc2", "doc3");
+  }
+
+  @Test
+  public void testDecodingFailuresAreIsolatedWhenHandlerIsSet() {
+    final List<String> failedIds = new ArrayList<String>();
+    ViewResultMapper mapper = new ViewResultMapper(4, Schedulers.immediate(), new DecodingFailureHandler() {
+      @Override
+      public void onDecodingFailure(String id, Throwable cause) {
+        failedIds.add(id);
+      }
+    });
+
+    List<String> ids = mapper.map(viewResult(null, "{}", "{\"broken\":true}", "{}"), true, MAPPER)
+        .toList().toBlocking().single();
+
+    assertThat(ids).containsExactly("doc0", "doc2");
+    assertThat(failedIds).containsExactly("doc1");
+    assertThat(mapper.getDecodingFailureCount()).isEqualTo(1L);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testDecodingFailureFailsResultWithoutHandler() {
+    new ViewResultMapper(4, Schedulers.immediate(), null)
+        .map(viewResult(null, "{}", "{\"broken\":true}"), false, MAPPER)
+        .toList().toBlocking().single();
+  }
+
+  @Test
+  public void testDecodingFailuresAreSkippedAndCountedByDefault() {
+    ViewResultMapper mapper = new ViewResultMapper();
+
+    List<String> ids = mapper.map(viewResult(null, "{\"broken\":true}", "{}"), true, MAPPER)
+        .toList().toBlocking().single();
+
+    assertThat(ids).containsExactly("doc1");
+    assertThat(mapper.getDecodingFailureCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testFailureListenerIsNotifiedEvenWhenResultFails() {
+    final List<String> failedIds = new ArrayList<String>();
+    ViewResultMapper mapper = new ViewResultMapper(4, Schedulers.immediate(), null);
+
+    try {
+      mapper.map(viewResult(null, "{}", "{\"broken\":true}"), true, null, new DecodingFailureHandler() {
+        @Override
+        public void onDecodingFailure(String id, Throwable cause) {
+          failedIds.add(id);
+        }
+      }, MAPPER).toList().toBlocking().single();
+    } catch (IllegalStateException expected) {
+    }
+
+    assertThat(failedIds).containsExactly("doc1");
+  }
+
+  @Test(expected = CouchbaseQueryExecutionException.class)
+  public void testViewErrorFailsResult() {
+    new ViewResultMapper()
+        .map(viewResult(JsonObject.create().put("reason", "boom")), false, MAPPER)
+        .toList().toBlocking().single();
+  }
+}
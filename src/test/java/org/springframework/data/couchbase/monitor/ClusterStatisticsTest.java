@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.data.couchbase.monitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.bucket.BucketInfo;
+import com.couchbase.client.java.bucket.BucketManager;
+import com.couchbase.client.java.document.json.JsonObject;
+
+public class ClusterStatisticsTest {
+
+  private static final String POOL = "{\"balanced\":true,\"rebalanceStatus\":\"none\",\"maxBucketCount\":10,"
+      + "\"storageTotals\":{\"ram\":{\"total\":2048,\"used\":1024},\"hdd\":{\"total\":8192,\"used\":4096,\"free\":4096}},"
+      + "\"nodes\":[{\"hostname\":\"node1:8091\",\"status\":\"healthy\",\"interestingStats\":{\"ops\":100,"
+      + "\"cmd_get\":80,\"ep_bg_fetched\":20,\"curr_items\":1000,\"vb_active_num_non_resident\":250}},"
+      + "{\"hostname\":\"node2:8091\",\"status\":\"warmup\",\"interestingStats\":{}}]}";
+
+  private static final String BUCKET_STATS = "{\"op\":{\"samples\":{\"ops\":[10,20,30],"
+      + "\"ep_cache_miss_rate\":[0,5],\"vb_active_resident_items_ratio\":[100,90],\"curr_items\":[12,42]}}}";
+
+  private Bucket bucket;
+  private RestTemplate restTemplate;
+  private ClusterStatistics statistics;
+
+  @Before
+  public void setUp() throws Exception {
+    BucketInfo info = mock(BucketInfo.class);
+    InetAddress node = InetAddress.getByAddress("localhost", new byte[] {127, 0, 0, 1});
+    when(info.nodeList()).thenReturn(Arrays.asList(node));
+    BucketManager bucketManager = mock(BucketManager.class);
+    when(bucketManager.info()).thenReturn(info);
+    bucket = mock(Bucket.class);
+    when(bucket.name()).thenReturn("beers");
+    when(bucket.bucketManager()).thenReturn(bucketManager);
+
+    restTemplate = mock(RestTemplate.class);
+    when(restTemplate.getForObject(startsWith("http://localhost:8091/pools/default/buckets/beers/stats"),
+        eq(HashMap.class))).thenReturn(json(BUCKET_STATS));
+    when(restTemplate.getForObject(eq("http://localhost:8091/pools/default"), eq(HashMap.class)))
+        .thenReturn(json(POOL));
+
+    statistics = new ClusterStatistics(bucket, restTemplate, mock(ScheduledExecutorService.class));
+  }
+
+  private static HashMap<String, Object> json(String content) {
+    return new HashMap<String, Object>(JsonObject.fromJson(content).toMap());
+  }
+
+  @Test
+  public void testSnapshotIsFetchedOnceAndServedFromMemory() {
+    statistics.refresh();
+    ClusterInfo clusterInfo = new ClusterInfo(statistics);
+
+    assertThat(clusterInfo.getTotalRAMAssigned()).isEqualTo(2048);
+    assertThat(clusterInfo.getTotalRAMUsed()).isEqualTo(1024);
+    assertThat(clusterInfo.getTotalDiskAssigned()).isEqualTo(8192);
+    assertThat(clusterInfo.getTotalDiskFree()).isEqualTo(4096);
+    assertThat(clusterInfo.getIsBalanced()).isTrue();
+    assertThat(clusterInfo.getMaxBuckets()).isEqualTo(10);
+
+    verify(restTemplate, times(2)).getForObject(anyString(), eq(HashMap.class));
+    verify(bucket.bucketManager(), times(1)).info();
+  }
+
+  @Test
+  public void testNodeAndBucketRatios() {
+    ClusterStatistics.Snapshot snapshot = statistics.refresh();
+
+    ClusterStatistics.NodeStatistics node = snapshot.getNodes().get(0);
+    assertThat(node.getOpsPerSec()).isEqualTo(100d);
+    assertThat(node.getCacheHitRatio()).isCloseTo(0.75d, within(1e-9));
+    assertThat(node.getResidentRatio()).isCloseTo(0.75d, within(1e-9));
+    assertThat(snapshot.getNodes().get(1).getCacheHitRatio()).isNaN();
+
+    assertThat(snapshot.getBucket().getOpsPerSec()).isEqualTo(30d);
+    assertThat(snapshot.getBucket().getCacheHitRatio()).isCloseTo(0.95d, within(1e-9));
+    assertThat(snapshot.getBucket().getResidentRatio()).isCloseTo(0.9d, within(1e-9));
+    assertThat(snapshot.getBucket().getItemCount()).isEqualTo(42);
+  }
+
+  @Test
+  public void testSnapshotIsEmptyUntilTheFirstRefresh() {
+    ClusterInfo clusterInfo = new ClusterInfo(statistics);
+
+    assertThat(clusterInfo.getTotalRAMAssigned()).isEqualTo(0);
+    assertThat(clusterInfo.getNodeStatistics()).isEmpty();
+    assertThat(clusterInfo.getBucketOpsPerSec()).isNaN();
+    assertThat(clusterInfo.getLastRefresh()).isEqualTo(0);
+    assertThat(clusterInfo.getStatisticsAge()).isEqualTo(-1);
+    assertThat(clusterInfo.getStatisticsError()).isEmpty();
+    verifyZeroInteractions(restTemplate);
+  }
+
+  @Test
+  public void testFailedRefreshKeepsThePreviousSnapshotAndReportsTheError() {
+    ClusterStatistics.Snapshot previous = statistics.refresh();
+    when(restTemplate.getForObject(eq("http://localhost:8091/pools/default"), eq(HashMap.class)))
+        .thenThrow(new RestClientException("connection refused"));
+
+    assertThatThrownBy(() -> statistics.refresh()).isInstanceOf(RestClientException.class);
+
+    ClusterInfo clusterInfo = new ClusterInfo(statistics);
+    assertThat(statistics.getSnapshot()).isSameAs(previous);
+    assertThat(clusterInfo.getTotalRAMAssigned()).isEqualTo(2048);
+    assertThat(clusterInfo.getStatisticsAge()).isGreaterThanOrEqualTo(0);
+    assertThat(clusterInfo.getStatisticsError()).contains("connection refused");
+  }
+
+  @Test
+  public void testAvailableAndUnavailableNodesAreCounted() {
+    statistics.refresh();
+    ClientInfo clientInfo = new ClientInfo(statistics);
+
+    assertThat(clientInfo.getNumberOfNodes()).isEqualTo(1);
+    assertThat(clientInfo.getNumberOfAvailableNodes()).isEqualTo(1);
+    assertThat(clientInfo.getNumberOfUnavailableNodes()).isEqualTo(1);
+  }
+}
@@ -6,6 +6,7 @@ import static org.springframework.data.domain.Sort.Direction;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -27,6 +28,8 @@ import com.couchbase.client.java.Bucket;
 import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.error.DocumentDoesNotExistException;
 import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
 import com.couchbase.client.java.view.ViewQuery;
 import com.couchbase.client.java.view.ViewResult;
 import com.couchbase.client.java.view.ViewRow;
@@ -66,7 +69,9 @@ public class RepositoryIndexUsageTest {
     when(couchbaseOperations.findByView(any(ViewQuery.class), any(Class.class))).thenReturn(allCountRows);
     when(couchbaseOperations.findByN1QL(any(N1qlQuery.class), any(Class.class))).thenReturn(Collections.emptyList());
     when(couchbaseOperations.queryView(any(ViewQuery.class))).thenReturn(mockCountResult);
-    when(couchbaseOperations.queryN1QL(any(N1qlQuery.class))).thenReturn(null);
+    N1qlQueryResult emptyResult = mock(N1qlQueryResult.class);
+    when(emptyResult.finalSuccess()).thenReturn(true);
+    when(couchbaseOperations.queryN1QL(any(N1qlQuery.class))).thenReturn(emptyResult);
 
     CouchbaseEntityInformation metadata = mock(CouchbaseEntityInformation.class);
     when(metadata.getJavaType()).thenReturn(String.class);
@@ -104,21 +109,31 @@ public class RepositoryIndexUsageTest {
   }
 
   @Test
-  public void testCountUsesViewWithConfiguredConsistencyAndReduces() {
-    String expectedQueryParams = "ViewQuery(string/all){params=\"reduce=true&stale=false\"}";
+  public void testCountUsesRawN1qlCountWithConfiguredConsistency() {
+    String expectedStatement = "SELECT RAW COUNT(*) FROM `mockBucket` WHERE `mockType` = \"java.lang.String\"";
     repository.count();
 
     verify(couchbaseOperations, never()).findByView(any(ViewQuery.class), any(Class.class));
-    verify(couchbaseOperations, never()).findByN1QL(any(N1qlQuery.class), any(Class.class));
-    verify(couchbaseOperations, never()).queryN1QL(any(N1qlQuery.class));
-    ArgumentCaptor<ViewQuery> queryCaptor = ArgumentCaptor.forClass(ViewQuery.class);
-    verify(couchbaseOperations).queryView(queryCaptor.capture());
-    String sQuery = queryCaptor.getValue().toString();
-    assertThat(sQuery).isEqualTo(expectedQueryParams);
+    verify(couchbaseOperations, never()).queryView(any(ViewQuery.class));
+    verify(couchbaseOperations, never()).findByN1QLProjection(any(N1qlQuery.class), any(Class.class));
+    ArgumentCaptor<N1qlQuery> queryCaptor = ArgumentCaptor.forClass(N1qlQuery.class);
+    verify(couchbaseOperations).queryN1QL(queryCaptor.capture());
+
+    JsonObject query = queryCaptor.getValue().n1ql();
+    assertThat(query.getString("scan_consistency"))
+			.isEqualTo(CONSISTENCY.n1qlConsistency().n1ql());
+    assertThat(query.getString("statement")).isEqualTo(expectedStatement);
   }
 
   @Test
-  public void testCountParsesAndAddsLongValuesFromRows() {
+  public void testCountParsesRawValueFromRow() {
+    N1qlQueryRow countRow = mock(N1qlQueryRow.class);
+    when(countRow.byteValue()).thenReturn("300".getBytes(StandardCharsets.UTF_8));
+    N1qlQueryResult countResult = mock(N1qlQueryResult.class);
+    when(countResult.finalSuccess()).thenReturn(true);
+    when(countResult.allRows()).thenReturn(Collections.singletonList(countRow));
+    when(couchbaseOperations.queryN1QL(any(N1qlQuery.class))).thenReturn(countResult);
+
     long count = repository.count();
     assertThat(count).isEqualTo(300L);
   }
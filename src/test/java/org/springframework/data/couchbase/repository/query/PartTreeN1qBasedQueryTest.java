@@ -21,10 +21,13 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.couchbase.client.java.document.json.JsonObject;
 import org.junit.Test;
@@ -34,6 +37,7 @@ import org.springframework.data.couchbase.core.BeerDTO;
 import org.springframework.data.couchbase.core.BeerProjection;
 import org.springframework.data.couchbase.core.CouchbaseOperations;
 import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
+import org.springframework.data.couchbase.core.query.Consistency;
 import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
 import org.springframework.data.couchbase.core.mapping.CouchbasePersistentProperty;
 import org.springframework.data.domain.Page;
@@ -54,6 +58,10 @@ import org.springframework.data.repository.query.ParameterAccessor;
 import org.springframework.data.repository.query.ResultProcessor;
 
 import com.couchbase.client.java.CouchbaseBucket;
+import com.couchbase.client.java.query.N1qlMetrics;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
 import com.couchbase.client.java.query.Statement;
 
 /**
@@ -221,6 +229,141 @@ public class PartTreeN1qBasedQueryTest {
 
 	}
 
+	@Test
+	public void testExistsProjectionSelectsRawConstantWithLimit() throws Exception {
+		CouchbaseOperations couchbaseOperations = mockOperations();
+		ParameterAccessor accessor = mockAccessor();
+
+		PartTreeN1qlBasedQuery query = new PartTreeN1qlBasedQuery(queryMethod("existsByName"), couchbaseOperations);
+		Statement statement = query.getStatement(accessor, new Object[] { "value" }, null);
+
+		assertThat(statement.toString())
+				.isEqualTo("SELECT RAW 1 FROM `default` WHERE (name = $1) "
+						+ "AND `_class` = \"org.springframework.data.couchbase.core.Beer\" LIMIT 1");
+	}
+
+	@Test
+	public void testCountProjectionSelectsRawCount() throws Exception {
+		CouchbaseOperations couchbaseOperations = mockOperations();
+		ParameterAccessor accessor = mockAccessor();
+
+		PartTreeN1qlBasedQuery query = new PartTreeN1qlBasedQuery(queryMethod("countByName"), couchbaseOperations);
+		Statement statement = query.getStatement(accessor, new Object[] { "value" }, null);
+
+		assertThat(statement.toString())
+				.isEqualTo("SELECT RAW COUNT(*) FROM `default` WHERE (name = $1) "
+						+ "AND `_class` = \"org.springframework.data.couchbase.core.Beer\"");
+	}
+
+	@Test
+	public void testExistsAndCountAreReadFromRawRows() throws Exception {
+		CouchbaseOperations couchbaseOperations = mockOperations();
+		N1qlQueryRow row = mock(N1qlQueryRow.class);
+		when(row.byteValue()).thenReturn("42".getBytes(StandardCharsets.UTF_8));
+		N1qlQueryResult result = mock(N1qlQueryResult.class);
+		when(result.finalSuccess()).thenReturn(true);
+		when(result.allRows()).thenReturn(Collections.singletonList(row));
+		N1qlQueryResult emptyResult = mock(N1qlQueryResult.class);
+		when(emptyResult.finalSuccess()).thenReturn(true);
+		when(emptyResult.allRows()).thenReturn(Collections.<N1qlQueryRow>emptyList());
+		when(couchbaseOperations.queryN1QL(any(N1qlQuery.class))).thenReturn(result, emptyResult);
+
+		PartTreeN1qlBasedQuery countQuery = new PartTreeN1qlBasedQuery(queryMethod("countByName"), couchbaseOperations);
+		PartTreeN1qlBasedQuery existsQuery = new PartTreeN1qlBasedQuery(queryMethod("existsByName"), couchbaseOperations);
+
+		assertThat(countQuery.execute(new Object[] { "value" })).isEqualTo(42L);
+		assertThat(existsQuery.execute(new Object[] { "value" })).isEqualTo(false);
+		verify(couchbaseOperations, never()).findByN1QLProjection(any(N1qlQuery.class), any(Class.class));
+	}
+
+	@Test
+	public void testDeleteReturningCountHasNoReturningClause() throws Exception {
+		CouchbaseOperations couchbaseOperations = mockOperations();
+		N1qlQueryResult result = mock(N1qlQueryResult.class);
+		when(result.finalSuccess()).thenReturn(true);
+		when(result.info()).thenReturn(new N1qlMetrics(JsonObject.create().put("mutationCount", 3)));
+		when(couchbaseOperations.queryN1QL(any(N1qlQuery.class))).thenReturn(result);
+
+		PartTreeN1qlBasedQuery query = new PartTreeN1qlBasedQuery(queryMethod("deleteByName"), couchbaseOperations);
+		Statement statement = query.getStatement(mockAccessor(), new Object[] { "value" }, null);
+
+		assertThat(statement.toString())
+				.isEqualTo("DELETE FROM `default` WHERE (name = $1) "
+						+ "AND `_class` = \"org.springframework.data.couchbase.core.Beer\"");
+		assertThat(query.execute(new Object[] { "value" })).isEqualTo(3L);
+		verify(couchbaseOperations, never()).findByN1QL(any(N1qlQuery.class), any(Class.class));
+	}
+
+	@Test
+	public void testDeleteReturningEntitiesIsBatched() throws Exception {
+		CouchbaseOperations couchbaseOperations = mockOperations();
+		when(couchbaseOperations.findByN1QL(any(N1qlQuery.class), eq(Beer.class)))
+				.thenReturn(Arrays.asList(new Beer("1", "a", true, ""), new Beer("2", "b", true, "")),
+						Collections.singletonList(new Beer("3", "c", true, "")), Collections.<Beer>emptyList());
+
+		PartTreeN1qlBasedQuery query = new PartTreeN1qlBasedQuery(queryMethod("removeByName"), couchbaseOperations);
+		query.setDeleteBatchSize(2);
+		Statement statement = query.getStatement(mockAccessor(), new Object[] { "value" }, null);
+
+		assertThat(statement.toString())
+				.startsWith("DELETE FROM `default` WHERE (name = $1) "
+						+ "AND `_class` = \"org.springframework.data.couchbase.core.Beer\" LIMIT 2 RETURNING ");
+		assertThat((List<?>) query.execute(new Object[] { "value" })).hasSize(3);
+		verify(couchbaseOperations, times(3)).findByN1QL(any(N1qlQuery.class), eq(Beer.class));
+	}
+
+	@Test
+	public void testDeleteReturningStreamIsBatched() throws Exception {
+		CouchbaseOperations couchbaseOperations = mockOperations();
+		when(couchbaseOperations.findByN1QL(any(N1qlQuery.class), eq(Beer.class)))
+				.thenReturn(Arrays.asList(new Beer("1", "a", true, ""), new Beer("2", "b", true, "")),
+						Collections.<Beer>emptyList());
+
+		PartTreeN1qlBasedQuery query = new PartTreeN1qlBasedQuery(queryMethod("removeAllByName"), couchbaseOperations);
+		query.setDeleteBatchSize(2);
+		Statement statement = query.getStatement(mockAccessor(), new Object[] { "value" }, null);
+
+		assertThat(statement.toString()).contains(" LIMIT 2 RETURNING ");
+		assertThat((Stream<?>) query.execute(new Object[] { "value" })).hasSize(2);
+		verify(couchbaseOperations, times(2)).findByN1QL(any(N1qlQuery.class), eq(Beer.class));
+	}
+
+	private static CouchbaseQueryMethod queryMethod(String name) throws Exception {
+		Method method = TestRepository.class.getMethod(name, String.class);
+		return new CouchbaseQueryMethod(method, new DefaultRepositoryMetadata(TestRepository.class),
+				new SpelAwareProxyProjectionFactory(), new CouchbaseMappingContext());
+	}
+
+	private static CouchbaseOperations mockOperations() {
+		CouchbaseOperations couchbaseOperations = mock(CouchbaseOperations.class);
+		CouchbaseBucket couchbaseBucket = mock(CouchbaseBucket.class);
+		CouchbaseConverter couchbaseConverter = mock(CouchbaseConverter.class);
+		MappingContext mappingContext = mock(MappingContext.class);
+		PersistentPropertyPath persistentPropertyPath = mock(PersistentPropertyPath.class);
+		CouchbasePersistentProperty leafProperty = mock(CouchbasePersistentProperty.class);
+
+		when(couchbaseOperations.getCouchbaseBucket()).thenReturn(couchbaseBucket);
+		when(couchbaseOperations.getDefaultConsistency()).thenReturn(Consistency.DEFAULT_CONSISTENCY);
+		when(couchbaseBucket.name()).thenReturn("default");
+		when(couchbaseOperations.getConverter()).thenReturn(couchbaseConverter);
+		when(couchbaseConverter.getMappingContext()).thenReturn(mappingContext);
+		when(mappingContext.getPersistentPropertyPath(isA(PropertyPath.class))).thenReturn(persistentPropertyPath);
+		when(persistentPropertyPath.toDotPath(isA(Converter.class))).thenReturn("name");
+		when(persistentPropertyPath.getLeafProperty()).thenReturn(leafProperty);
+		when(leafProperty.getType()).thenReturn((Class) String.class);
+		when(couchbaseConverter.getTypeKey()).thenReturn("_class");
+		when(couchbaseConverter.convertForWriteIfNeeded(eq("value"))).thenReturn("value");
+		return couchbaseOperations;
+	}
+
+	private static ParameterAccessor mockAccessor() {
+		ParameterAccessor accessor = mock(ParameterAccessor.class);
+		when(accessor.getSort()).thenReturn(Sort.unsorted());
+		when(accessor.getPageable()).thenReturn(Pageable.unpaged());
+		when(accessor.iterator()).thenReturn(Arrays.asList((Object) "value").iterator());
+		return accessor;
+	}
+
 	public static interface TestRepository extends CrudRepository<Beer, String> {
 
 		Page<Beer> findByNameOrderByName(String name, Pageable pageRequest);
@@ -231,5 +374,15 @@ public class PartTreeN1qBasedQueryTest {
 
 		List<BeerDTO> findAllDtoedBy();
 
+		boolean existsByName(String name);
+
+		long countByName(String name);
+
+		long deleteByName(String name);
+
+		List<Beer> removeByName(String name);
+
+		Stream<Beer> removeAllByName(String name);
+
 	}
 }
@@ -6,9 +6,11 @@ import static org.mockito.Mockito.*;
 
 import org.junit.Ignore;
 import org.junit.Test;
+import org.springframework.data.annotation.TypeAlias;
 import org.springframework.data.couchbase.core.Beer;
 import org.springframework.data.couchbase.core.convert.CouchbaseConverter;
 import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+import org.springframework.data.couchbase.core.mapping.Document;
 import org.springframework.data.couchbase.repository.query.CouchbaseEntityInformation;
 import org.springframework.data.couchbase.repository.query.CountFragment;
 import org.springframework.data.domain.Sort;
@@ -71,6 +73,30 @@ public class N1qlUtilsTest {
     assertThat(real).isEqualTo(expected);
   }
 
+  @Test
+  public void testCreateWhereFilterForEntityUsesTypeAlias() throws Exception {
+    CouchbaseConverter converter = mock(CouchbaseConverter.class);
+    when(converter.getTypeKey()).thenReturn("_class");
+    EntityMetadata metadata = mock(EntityMetadata.class);
+    when(metadata.getJavaType()).thenReturn(AliasedEntity.class);
+
+    String real = N1qlUtils.createWhereFilterForEntity(null, converter, metadata).toString();
+
+    assertThat(real).isEqualTo("`_class` = \"aliased\"");
+  }
+
+  @Test
+  public void testCreateWhereFilterForEntityAcceptsClassNameDuringMigration() throws Exception {
+    CouchbaseConverter converter = mock(CouchbaseConverter.class);
+    when(converter.getTypeKey()).thenReturn("_class");
+    EntityMetadata metadata = mock(EntityMetadata.class);
+    when(metadata.getJavaType()).thenReturn(MigratingEntity.class);
+
+    String real = N1qlUtils.createWhereFilterForEntity(null, converter, metadata).toString();
+
+    assertThat(real).isEqualTo("`_class` IN [\"migrating\", \"" + MigratingEntity.class.getName() + "\"]");
+  }
+
   @Test
   public void testGetPathWithAlternativeFieldNamesCallsMapperOnce() throws Exception {
     CouchbaseConverter converter = mock(CouchbaseConverter.class);
@@ -162,4 +188,13 @@ public class N1qlUtilsTest {
     assertThat(realSort[0].toString()).isEqualTo("`party`.`attendees` ASC");
     verifyZeroInteractions(converter);
   }
+
+  @TypeAlias("aliased")
+  static class AliasedEntity {
+  }
+
+  @TypeAlias("migrating")
+  @Document(typeAliasMigration = true)
+  static class MigratingEntity {
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.couchbase.core.Beer;
+import org.springframework.data.couchbase.core.BeerDTO;
+import org.springframework.data.couchbase.core.convert.MappingCouchbaseConverter;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+import org.springframework.data.couchbase.core.query.N1qlCompositeIndexed;
+import org.springframework.data.couchbase.core.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.support.DefaultRepositoryMetadata;
+import org.springframework.data.util.Streamable;
+
+public class CompositeIndexAnalyzerTest {
+
+  private MappingCouchbaseConverter converter;
+  private RepositoryInformation metadata;
+
+  @Before
+  public void setUp() throws Exception {
+    converter = new MappingCouchbaseConverter(new CouchbaseMappingContext());
+    converter.afterPropertiesSet();
+
+    final DefaultRepositoryMetadata repositoryMetadata = new DefaultRepositoryMetadata(BeerRepository.class);
+    metadata = mock(RepositoryInformation.class);
+    when(metadata.getDomainType()).thenReturn((Class) Beer.class);
+    when(metadata.getRepositoryInterface()).thenReturn((Class) BeerRepository.class);
+    when(metadata.getQueryMethods()).thenReturn(Streamable.of(BeerRepository.class.getMethods()));
+    when(metadata.getReturnedDomainClass(any(Method.class)))
+        .thenAnswer(invocation -> repositoryMetadata.getReturnedDomainClass(invocation.getArgument(0)));
+  }
+
+  private List<CompositeIndexAnalyzer.CompositeIndexDefinition> analyze() {
+    N1qlCompositeIndexed config = BeerRepository.class.getAnnotation(N1qlCompositeIndexed.class);
+    return new CompositeIndexAnalyzer(converter).analyze(metadata, config, "default");
+  }
+
+  private CompositeIndexAnalyzer.CompositeIndexDefinition forMethod(String methodName) {
+    for (CompositeIndexAnalyzer.CompositeIndexDefinition definition : analyze()) {
+      if (definition.getMethodName().equals(methodName)) {
+        return definition;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testEqualityPredicatesLeadRangePredicates() {
+    CompositeIndexAnalyzer.CompositeIndexDefinition definition = forMethod("findByDescriptionStartingWithAndName");
+
+    assertThat(definition).isNotNull();
+    assertThat(definition.getKeys()).containsExactly("`name`", "`desc`");
+    assertThat(definition.getIndexName()).isEqualTo("beers_name_desc");
+    assertThat(definition.getStatement().toString())
+        .startsWith("CREATE INDEX `beers_name_desc` ON `default`")
+        .contains("WHERE `_class` = \"org.springframework.data.couchbase.core.Beer\"")
+        .endsWith("USING GSI");
+  }
+
+  @Test
+  public void testProjectionAddsCoveringKeys() {
+    CompositeIndexAnalyzer.CompositeIndexDefinition definition = forMethod("findByActive");
+
+    assertThat(definition).isNotNull();
+    assertThat(definition.getKeys()).startsWith("`is_active`").contains("`name`", "`desc`").endsWith("META().cas");
+  }
+
+  @Test
+  public void testIgnoreCaseAndSortAreTakenIntoAccount() {
+    CompositeIndexAnalyzer.CompositeIndexDefinition definition = forMethod("findByNameIgnoreCaseOrderByDescription");
+
+    assertThat(definition).isNotNull();
+    assertThat(definition.getKeys()).containsExactly("LOWER(`name`)", "`desc`");
+  }
+
+  @Test
+  public void testOrBranchesAreIndexedSeparatelyAndDeduplicated() {
+    List<CompositeIndexAnalyzer.CompositeIndexDefinition> definitions = analyze();
+    int nameOnly = 0;
+    for (CompositeIndexAnalyzer.CompositeIndexDefinition definition : definitions) {
+      if (definition.getKeys().equals(Arrays.asList("`name`"))) {
+        nameOnly++;
+      }
+    }
+
+    assertThat(nameOnly).isEqualTo(1);
+    assertThat(forMethod("findByNameOrDescription")).isNotNull();
+  }
+
+  @Test
+  public void testStringQueriesAreSkipped() {
+    assertThat(forMethod("findByCustomQuery")).isNull();
+  }
+
+  @N1qlCompositeIndexed(indexNamePrefix = "beers")
+  interface BeerRepository extends CrudRepository<Beer, String> {
+
+    List<Beer> findByDescriptionStartingWithAndName(String description, String name);
+
+    List<BeerDTO> findByActive(boolean active);
+
+    List<Beer> findByNameIgnoreCaseOrderByDescription(String name);
+
+    List<Beer> findByNameOrDescription(String name, String description);
+
+    List<Beer> findByName(String name);
+
+    @Query("#{#n1ql.selectEntity} WHERE #{#n1ql.filter}")
+    List<Beer> findByCustomQuery();
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.couchbase.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.data.couchbase.core.Beer;
+import org.springframework.data.couchbase.core.BeerDTO;
+import org.springframework.data.couchbase.core.CouchbaseOperations;
+import org.springframework.data.couchbase.core.CouchbaseQueryExecutionException;
+import org.springframework.data.couchbase.core.mapping.CouchbaseMappingContext;
+import org.springframework.data.couchbase.repository.query.AbstractN1qlBasedQuery;
+import org.springframework.data.couchbase.repository.query.CouchbaseQueryMethod;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.core.support.DefaultRepositoryMetadata;
+
+import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.query.N1qlQuery;
+import com.couchbase.client.java.query.N1qlQueryResult;
+import com.couchbase.client.java.query.N1qlQueryRow;
+
+public class QueryPlanAdvisorTest {
+
+  private static final String PRIMARY_SCAN_PLAN = "{\"plan\":{\"#operator\":\"Sequence\",\"~children\":["
+      + "{\"#operator\":\"PrimaryScan3\",\"index\":\"#primary\"},{\"#operator\":\"Fetch\"}]}}";
+
+  private static final String INTERSECT_SCAN_PLAN = "{\"plan\":{\"#operator\":\"Sequence\",\"~children\":["
+      + "{\"#operator\":\"IntersectScan\",\"scans\":[{\"#operator\":\"IndexScan3\"},{\"#operator\":\"IndexScan3\"}]},"
+      + "{\"#operator\":\"Fetch\"}]}}";
+
+  private static final String FETCH_PLAN = "{\"plan\":{\"#operator\":\"Sequence\",\"~children\":["
+      + "{\"#operator\":\"IndexScan3\",\"index\":\"idx_name\"},{\"#operator\":\"Fetch\"}]}}";
+
+  private static final String COVERED_PLAN = "{\"plan\":{\"#operator\":\"Sequence\",\"~children\":["
+      + "{\"#operator\":\"IndexScan3\",\"index\":\"idx_name\",\"covers\":[\"cover ((`B`.`name`))\"]}]}}";
+
+  private AbstractN1qlBasedQuery query(String methodName, Class<?>... parameterTypes) throws Exception {
+    Method method = TestRepository.class.getMethod(methodName, parameterTypes);
+    CouchbaseQueryMethod queryMethod = new CouchbaseQueryMethod(method,
+        new DefaultRepositoryMetadata(TestRepository.class), new SpelAwareProxyProjectionFactory(),
+        new CouchbaseMappingContext());
+
+    AbstractN1qlBasedQuery query = mock(AbstractN1qlBasedQuery.class);
+    when(query.getQueryMethod()).thenReturn(queryMethod);
+    when(query.createExplainQuery(any(Object[].class)))
+        .thenReturn(N1qlQuery.simple("EXPLAIN SELECT * FROM `B` WHERE name = $1"));
+    return query;
+  }
+
+  private CouchbaseOperations queryEndpointReturning(String plan) {
+    N1qlQueryRow row = mock(N1qlQueryRow.class);
+    when(row.value()).thenReturn(JsonObject.fromJson(plan));
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(true);
+    when(result.allRows()).thenReturn(Collections.singletonList(row));
+
+    CouchbaseOperations operations = mock(CouchbaseOperations.class);
+    when(operations.queryN1QL(any(N1qlQuery.class))).thenReturn(result);
+    return operations;
+  }
+
+  @Test
+  public void testPrimaryScanIsReported() throws Exception {
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor();
+    advisor.advise(TestRepository.class, query("findByName", String.class), queryEndpointReturning(PRIMARY_SCAN_PLAN));
+
+    List<QueryPlanReport.Finding> findings = advisor.getReport().getFindingsWithIssues();
+    assertThat(findings).hasSize(1);
+    assertThat(findings.get(0).getRepositoryInterface()).isEqualTo(TestRepository.class);
+    assertThat(findings.get(0).getMethodName()).isEqualTo("findByName");
+    assertThat(findings.get(0).getStatement()).isEqualTo("SELECT * FROM `B` WHERE name = $1");
+    assertThat(findings.get(0).getIssues()).containsExactly(QueryPlanReport.Issue.PRIMARY_SCAN);
+  }
+
+  @Test
+  public void testIntersectScanIsReported() throws Exception {
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor();
+    advisor.advise(TestRepository.class, query("findByName", String.class), queryEndpointReturning(INTERSECT_SCAN_PLAN));
+
+    assertThat(advisor.getReport().getFindings().get(0).getIssues())
+        .containsExactly(QueryPlanReport.Issue.INTERSECT_SCAN);
+  }
+
+  @Test
+  public void testFetchIsOnlyAnIssueForProjections() throws Exception {
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor();
+    advisor.advise(TestRepository.class, query("findByName", String.class), queryEndpointReturning(FETCH_PLAN));
+    advisor.advise(TestRepository.class, query("findByDescription", String.class), queryEndpointReturning(FETCH_PLAN));
+    advisor.advise(TestRepository.class, query("countByName", String.class), queryEndpointReturning(FETCH_PLAN));
+
+    assertThat(advisor.getReport().getFindings()).hasSize(3);
+    List<QueryPlanReport.Finding> findings = advisor.getReport().getFindingsWithIssues();
+    assertThat(findings).hasSize(2);
+    assertThat(findings.get(0).getMethodName()).isEqualTo("findByDescription");
+    assertThat(findings.get(0).getIssues()).containsExactly(QueryPlanReport.Issue.NOT_COVERED);
+    assertThat(findings.get(1).getMethodName()).isEqualTo("countByName");
+  }
+
+  @Test
+  public void testCoveredProjectionHasNoIssue() throws Exception {
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor();
+    advisor.advise(TestRepository.class, query("findByDescription", String.class), queryEndpointReturning(COVERED_PLAN));
+
+    assertThat(advisor.getReport().getFindings()).hasSize(1);
+    assertThat(advisor.getReport().getFindingsWithIssues()).isEmpty();
+  }
+
+  @Test(expected = CouchbaseQueryExecutionException.class)
+  public void testFailureModeFailsOnIssue() throws Exception {
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor(QueryPlanAdvisor.FailureMode.FAIL);
+    advisor.advise(TestRepository.class, query("findByName", String.class), queryEndpointReturning(PRIMARY_SCAN_PLAN));
+  }
+
+  private CouchbaseOperations queryEndpointFailingWith(String message) {
+    N1qlQueryResult result = mock(N1qlQueryResult.class);
+    when(result.finalSuccess()).thenReturn(false);
+    when(result.errors())
+        .thenReturn(Collections.singletonList(JsonObject.create().put("code", 4000).put("msg", message)));
+    CouchbaseOperations operations = mock(CouchbaseOperations.class);
+    when(operations.queryN1QL(any(N1qlQuery.class))).thenReturn(result);
+    return operations;
+  }
+
+  @Test
+  public void testUnsuccessfulExplainIsReported() throws Exception {
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor();
+    advisor.advise(TestRepository.class, query("findByName", String.class),
+        queryEndpointFailingWith("No index available on keyspace B that matches your query."));
+
+    List<QueryPlanReport.Finding> findings = advisor.getReport().getFindingsWithIssues();
+    assertThat(findings).hasSize(1);
+    assertThat(findings.get(0).getIssues()).containsExactly(QueryPlanReport.Issue.EXPLAIN_FAILED);
+    assertThat(findings.get(0).getError()).contains("No index available");
+    assertThat(findings.get(0).getStatement()).isEqualTo("SELECT * FROM `B` WHERE name = $1");
+  }
+
+  @Test
+  public void testFailureModeFailsOnUnsuccessfulExplain() throws Exception {
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor(QueryPlanAdvisor.FailureMode.FAIL);
+
+    assertThatThrownBy(() -> advisor.advise(TestRepository.class, query("findByName", String.class),
+        queryEndpointFailingWith("No index available on keyspace B that matches your query.")))
+        .isInstanceOf(CouchbaseQueryExecutionException.class)
+        .hasMessageContaining("No index available");
+  }
+
+  @Test
+  public void testExplainThrowingIsReported() throws Exception {
+    CouchbaseOperations operations = mock(CouchbaseOperations.class);
+    when(operations.queryN1QL(any(N1qlQuery.class))).thenThrow(new CouchbaseQueryExecutionException("timeout"));
+
+    QueryPlanAdvisor advisor = new QueryPlanAdvisor();
+    advisor.advise(TestRepository.class, query("findByName", String.class), operations);
+
+    assertThat(advisor.getReport().getFindingsWithIssues().get(0).getIssues())
+        .containsExactly(QueryPlanReport.Issue.EXPLAIN_FAILED);
+  }
+
+  @Test
+  public void testDummyParameters() throws Exception {
+    Method method = TestRepository.class.getMethod("findByActiveAndName", boolean.class, String.class, Pageable.class);
+    CouchbaseQueryMethod queryMethod = new CouchbaseQueryMethod(method,
+        new DefaultRepositoryMetadata(TestRepository.class), new SpelAwareProxyProjectionFactory(),
+        new CouchbaseMappingContext());
+
+    Object[] parameters = QueryPlanAdvisor.createDummyParameters(queryMethod);
+
+    assertThat(parameters).hasSize(3);
+    assertThat(parameters[0]).isEqualTo(false);
+    assertThat(parameters[1]).isEqualTo("");
+    assertThat(parameters[2]).isInstanceOf(Pageable.class);
+  }
+
+  interface TestRepository extends CrudRepository<Beer, String> {
+
+    List<Beer> findByName(String name);
+
+    List<BeerDTO> findByDescription(String description);
+
+    long countByName(String name);
+
+    Page<Beer> findByActiveAndName(boolean active, String name, Pageable pageable);
+  }
+}